@@ -0,0 +1,21 @@
+package ru.hflabs.rcd.exception.constraint.document;
+
+import ru.hflabs.rcd.model.path.MetaFieldNamedPath;
+
+import java.util.Collection;
+
+/**
+ * Класс <class>NotUniqueValuesException</class> реализует исключительную ситуацию, возникающую при попытке пометить уникальным МЕТА-поле,
+ * значения полей которого повторяются
+ *
+ * @see NotUniqueFieldsException
+ * @see ru.hflabs.rcd.model.document.MetaField#FLAG_UNIQUE_NAME
+ */
+public class NotUniqueValuesException extends NotUniqueFieldsException {
+
+    private static final long serialVersionUID = 2975166503529361571L;
+
+    public NotUniqueValuesException(MetaFieldNamedPath value, Collection<String> duplicates) {
+        super(String.format("Fields value for '%s' is not unique, duplicated values: %s", value, duplicates));
+    }
+}
@@ -0,0 +1,33 @@
+package ru.hflabs.rcd.exception.search.rule;
+
+import ru.hflabs.rcd.exception.ApplicationException;
+
+/**
+ * Класс <class>RecodeChainException</class> реализует исключительную ситуацию, возникающую, если невозможно выполнить
+ * перекодирование на одном из шагов цепочки наборов правил
+ *
+ * @see ApplicationException
+ */
+public class RecodeChainException extends ApplicationException {
+
+    private static final long serialVersionUID = 2871926158462394711L;
+
+    /** Порядковый номер шага цепочки, начиная с <code>0</code> */
+    private final int hop;
+    /** Название набора правил шага */
+    private final String ruleSetName;
+
+    public RecodeChainException(int hop, String ruleSetName, Throwable cause) {
+        super(String.format("Recode chain failed at hop %d ('%s'). Cause by: %s", hop, ruleSetName, cause.getMessage()), cause);
+        this.hop = hop;
+        this.ruleSetName = ruleSetName;
+    }
+
+    public int getHop() {
+        return hop;
+    }
+
+    public String getRuleSetName() {
+        return ruleSetName;
+    }
+}
@@ -2,6 +2,8 @@ package ru.hflabs.rcd.model.connector;
 
 import lombok.Getter;
 import ru.hflabs.rcd.model.document.Dictionary;
+import ru.hflabs.rcd.model.document.Record;
+import ru.hflabs.rcd.service.ICloseableIterator;
 
 import java.util.Collection;
 
@@ -15,14 +17,35 @@ public class TransferDictionaryDescriptor extends TransferDescriptor<Collection<
     private final boolean withStructure;
     /** Флаг включения скрытых МЕТА-полей и данных справочника */
     private final boolean withHidden;
+    /** Источник записей справочников или <code>NULL</code>, если записи формируются по значениям полей МЕТА-полей */
+    private final RecordsSource recordsSource;
 
     public TransferDictionaryDescriptor(Collection<Dictionary> dictionaries, boolean withStructure, boolean withHidden) {
+        this(dictionaries, withStructure, withHidden, null);
+    }
+
+    public TransferDictionaryDescriptor(Collection<Dictionary> dictionaries, boolean withStructure, boolean withHidden, RecordsSource recordsSource) {
         super(dictionaries);
         this.withStructure = withStructure;
         this.withHidden = withHidden;
+        this.recordsSource = recordsSource;
     }
 
     public boolean isEmpty() {
         return getContent().isEmpty();
     }
+
+    /**
+     * Интерфейс <class>RecordsSource</class> декларирует методы последовательного получения записей сохраняемого справочника
+     *
+     * @see Record
+     */
+    public interface RecordsSource {
+
+        /**
+         * @param dictionary сохраняемый справочник
+         * @return Возвращает итератор записей справочника, который необходимо закрыть после использования
+         */
+        ICloseableIterator<Record> iterateRecords(Dictionary dictionary);
+    }
 }
@@ -0,0 +1,18 @@
+package ru.hflabs.rcd.service;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Интерфейс <class>ICloseableIterator</class> декларирует методы итератора, удерживающего ресурсы до его закрытия
+ *
+ * @see Iterator
+ */
+public interface ICloseableIterator<E> extends Iterator<E>, Closeable {
+
+    /**
+     * Освобождает ресурсы итератора, после чего итератор не возвращает элементов
+     */
+    @Override
+    void close();
+}
@@ -7,6 +7,7 @@ import ru.hflabs.rcd.model.criteria.FilterResult;
 
 import javax.annotation.security.RolesAllowed;
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Интерфейс <class>IFilterService</class> декларирует методы сервиса фильтрации документов
@@ -47,4 +48,16 @@ public interface IFilterService<E extends Identifying> extends IFindService<E> {
      */
     @RolesAllowed(RoleNames.OPERATOR)
     int countByCriteria(FilterCriteria criteria);
+
+    /**
+     * Возвращает количество документов по критерию, сгруппированное по значениям поля.
+     * <p/>
+     * Группировка выполняется только по сортируемым полям, значения строковых полей возвращаются в нижнем регистре
+     *
+     * @param criteria критерий поиска
+     * @param groupField название поля группировки
+     * @return Возвращает количество документов, где ключ - значение поля группировки
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    Map<String, Integer> countByCriteria(FilterCriteria criteria, String groupField);
 }
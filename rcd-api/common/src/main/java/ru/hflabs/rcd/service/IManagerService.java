@@ -3,11 +3,15 @@ package ru.hflabs.rcd.service;
 import org.springframework.context.ApplicationEvent;
 import ru.hflabs.rcd.RoleNames;
 import ru.hflabs.rcd.model.document.Group;
+import ru.hflabs.rcd.model.document.Record;
 import ru.hflabs.rcd.model.path.DictionaryNamedPath;
 import ru.hflabs.rcd.model.rule.RecodeRuleSet;
 
 import javax.annotation.security.RolesAllowed;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Интерфейс <class>IManagerService</class> декларирует методы сервиса, для работы с документами
@@ -37,6 +41,27 @@ public interface IManagerService {
     @RolesAllowed(RoleNames.ADMINISTRATOR)
     Collection<Group> dumpGroups(DictionaryNamedPath path);
 
+    /**
+     * Возвращает все группы справочников со структурой справочников.
+     * Значения полей МЕТА-полей не заполняются, записи справочников получаются порциями через {@link #dumpRecords(String, String, int)}
+     *
+     * @param path именованный путь справочника или <code>NULL</code>
+     * @return Возвращает все группы справочников
+     */
+    @RolesAllowed(RoleNames.ADMINISTRATOR)
+    Collection<Group> dumpStructure(DictionaryNamedPath path);
+
+    /**
+     * Возвращает порцию записей справочника в порядке их идентификаторов
+     *
+     * @param dictionaryId идентификатор справочника
+     * @param afterRecordId идентификатор записи, после которой начинается порция, или <code>NULL</code>, если порция первая
+     * @param count максимальное количество записей порции
+     * @return Возвращает записи порции или пустую коллекцию, если записи закончились
+     */
+    @RolesAllowed(RoleNames.ADMINISTRATOR)
+    List<Record> dumpRecords(String dictionaryId, String afterRecordId, int count);
+
     /**
      * Выполняет создание и изменение наборов правил перекодирования
      *
@@ -46,6 +71,17 @@ public interface IManagerService {
     @RolesAllowed(RoleNames.ADMINISTRATOR)
     Collection<RecodeRuleSet> storeRecodeRuleSets(Collection<RecodeRuleSet> recodeRuleSets);
 
+    /**
+     * Выполняет перекодирование коллекции значений по набору правил
+     *
+     * @param ruleSetName название набора правил перекодирования
+     * @param values коллекция исходных значений
+     * @return Возвращает перекодированные значения, где ключ - исходное значение, значение - результат перекодирования.
+     * Значения, для которых не найдено ни правила, ни значения по умолчанию, в результат не попадают
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    Map<String, String> recodeValues(String ruleSetName, Set<String> values);
+
     /**
      * Выполняет растпространение события
      *
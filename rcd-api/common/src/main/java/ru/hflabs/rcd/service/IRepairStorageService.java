@@ -0,0 +1,33 @@
+package ru.hflabs.rcd.service;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Интерфейс <class>IRepairStorageService</class> декларирует методы хранилища сущностей,
+ * позволяющие восстановить согласованность индекса без его полного перестроения
+ *
+ * @see IStorageService
+ */
+public interface IRepairStorageService<E> extends IStorageService<E> {
+
+    /**
+     * @param fetchSize размер страницы итерирования
+     * @return Возвращает постраничный итератор идентификаторов всех сущностей
+     */
+    ICloseableIterator<List<String>> iterateIDs(int fetchSize);
+
+    /**
+     * @param ids коллекция идентификаторов
+     * @return Возвращает существующие сущности с указанными идентификаторами
+     */
+    List<E> findByIDs(Collection<String> ids);
+
+    /**
+     * @param since дата, начиная с которой выполняется поиск изменений
+     * @return Возвращает идентификаторы сущностей, созданных, измененных или закрытых начиная с указанной даты,
+     * или <code>NULL</code>, если хранилище не отслеживает изменения сущностей
+     */
+    Collection<String> findChangedIDs(Date since);
+}
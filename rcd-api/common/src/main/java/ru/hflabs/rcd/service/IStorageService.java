@@ -1,6 +1,5 @@
 package ru.hflabs.rcd.service;
 
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -21,9 +20,12 @@ public interface IStorageService<E> extends ISingleClassObserver<E> {
     List<E> getAll();
 
     /**
+     * Возвращает постраничный итератор сущностей.<br/>
+     * Итератор может удерживать ресурсы хранилища, поэтому его необходимо закрыть после использования
+     *
      * @param fetchSize размер страницы итерирования
      * @param cacheSize размер кеша страниц итерирования
      * @return Возвращает итератор сущностей
      */
-    Iterator<List<E>> iterateAll(int fetchSize, int cacheSize);
+    ICloseableIterator<List<E>> iterateAll(int fetchSize, int cacheSize);
 }
@@ -0,0 +1,54 @@
+package ru.hflabs.rcd.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Класс <class>ListPageIterator</class> реализует постраничный итератор сущностей, находящихся в памяти.<br/>
+ * Итератор не удерживает ресурсов, поэтому закрытие только завершает итерирование
+ *
+ * @author Nazin Alexander
+ * @see IStorageService#iterateAll(int, int)
+ */
+public class ListPageIterator<E> implements ICloseableIterator<List<E>> {
+
+    /** Сущности */
+    private final List<E> elements;
+    /** Размер страницы */
+    private final int pageSize;
+    /** Позиция первой сущности следующей страницы */
+    private int position;
+
+    public ListPageIterator(List<E> elements, int pageSize) {
+        this.elements = elements;
+        this.pageSize = Math.max(pageSize, 1);
+        this.position = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < elements.size();
+    }
+
+    @Override
+    public List<E> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int to = Math.min(position + pageSize, elements.size());
+        List<E> result = new ArrayList<>(elements.subList(position, to));
+        position = to;
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    @Override
+    public void close() {
+        position = elements.size();
+    }
+}
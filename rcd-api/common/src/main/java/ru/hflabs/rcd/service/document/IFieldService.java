@@ -61,6 +61,17 @@ public interface IFieldService extends IDocumentService<Field>, IManyToOneServic
     @RolesAllowed(RoleNames.OPERATOR)
     boolean isFieldUnique(Field field);
 
+    /**
+     * Выполняет пакетную проверку уникальности значений полей одного МЕТА-поля.<br/>
+     * Поле считается неуникальным, если его значение уже есть у другого поля МЕТА-поля или у поля другой записи из проверяемой коллекции
+     *
+     * @param metaFieldId идентификатор МЕТА-поля
+     * @param fields коллекция проверяемых полей
+     * @return Возвращает коллекцию неуникальных полей из проверяемой коллекции
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    Collection<Field> findNotUniqueFields(String metaFieldId, Collection<Field> fields);
+
     /**
      * Проверяет и возвращает <code>TRUE</code>, если полей для указанного МЕТА-поля являются уникальными
      *
@@ -68,4 +79,14 @@ public interface IFieldService extends IDocumentService<Field>, IManyToOneServic
      */
     @RolesAllowed(RoleNames.OPERATOR)
     boolean isFieldsUnique(String metaFieldId);
+
+    /**
+     * Возвращает повторяющиеся значения полей указанного МЕТА-поля.<br/>
+     * Значения сравниваются без учета регистра, отсутствующие значения возвращаются как пустая строка
+     *
+     * @param metaFieldId идентификатор МЕТА-поля
+     * @return Возвращает упорядоченную коллекцию повторяющихся значений или пустую коллекцию, если значения полей уникальны
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    Collection<String> findNotUniqueValues(String metaFieldId);
 }
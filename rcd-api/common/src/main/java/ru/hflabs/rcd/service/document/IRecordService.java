@@ -5,9 +5,12 @@ import ru.hflabs.rcd.model.criteria.FilterCriteria;
 import ru.hflabs.rcd.model.criteria.FilterResult;
 import ru.hflabs.rcd.model.document.Record;
 import ru.hflabs.rcd.service.IChangeService;
+import ru.hflabs.rcd.service.ICloseableIterator;
 
 import javax.annotation.security.RolesAllowed;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -45,6 +48,20 @@ public interface IRecordService extends IChangeService<Record> {
     @RolesAllowed(RoleNames.OPERATOR)
     Collection<Record> findAllRecords(String dictionaryId, boolean fillTransitive);
 
+    /**
+     * @param dictionaryId идентификатор справочника
+     * @return Возвращает количество актуальных записей справочника
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    int countRecords(String dictionaryId);
+
+    /**
+     * @param dictionaryIDs коллекция идентификаторов справочников
+     * @return Возвращает количество актуальных записей справочников, где ключ - идентификатор справочника
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    Map<String, Integer> countRecords(Collection<String> dictionaryIDs);
+
     /**
      * @param dictionaryId идентификатор справочника
      * @param criteria критерий поиска
@@ -54,6 +71,29 @@ public interface IRecordService extends IChangeService<Record> {
     @RolesAllowed(RoleNames.OPERATOR)
     FilterResult<Record> findRecordsByCriteria(String dictionaryId, FilterCriteria criteria, boolean fillTransitive);
 
+    /**
+     * Выполняет последовательный обход записей справочника в порядке их идентификаторов,
+     * загружая значения полей порциями указанного размера
+     *
+     * @param dictionaryId идентификатор справочника
+     * @param criteria критерий поиска, смещение, количество и сортировка которого не учитываются
+     * @param batchSize количество записей, загружаемых за одно обращение к индексу
+     * @return Возвращает итератор записей, который необходимо закрыть после использования
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    ICloseableIterator<Record> iterateRecords(String dictionaryId, FilterCriteria criteria, int batchSize);
+
+    /**
+     * Возвращает порцию записей справочника в порядке их идентификаторов
+     *
+     * @param dictionaryId идентификатор справочника
+     * @param afterRecordId идентификатор записи, после которой начинается порция, или <code>NULL</code>, если порция первая
+     * @param count максимальное количество записей порции
+     * @return Возвращает записи порции или пустую коллекцию, если записи закончились
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    List<Record> findNextRecords(String dictionaryId, String afterRecordId, int count);
+
     /**
      * Закрывает записи справочника по их идентификаторам
      *
@@ -2,6 +2,7 @@ package ru.hflabs.rcd.service.rule;
 
 import ru.hflabs.rcd.RoleNames;
 import ru.hflabs.rcd.model.rule.RecodeRule;
+import ru.hflabs.rcd.model.rule.RecodeRuleSet;
 import ru.hflabs.rcd.service.IDocumentService;
 import ru.hflabs.rcd.service.IManyToOneService;
 
@@ -26,6 +27,28 @@ public interface IRecodeRuleService extends IDocumentService<RecodeRule>, IRuleS
     @RolesAllowed(RoleNames.OPERATOR)
     Collection<RecodeRule> findAllByFieldIDs(String recodeRuleSetId, Collection<String> fromFieldIDs, boolean fillTransitive);
 
+    /**
+     * Выполняет поиск правил привязанных к идентификаторам целевых полей
+     *
+     * @param recodeRuleSetId идентификатор набора правил
+     * @param toFieldIDs коллекция идентификаторов целевых полей
+     * @param fillTransitive флаг заполнения транзитивных зависимостей
+     * @return Возвращает коллекцию найденных правил
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    Collection<RecodeRule> findAllByToFieldIDs(String recodeRuleSetId, Collection<String> toFieldIDs, boolean fillTransitive);
+
+    /**
+     * Выполняет обратный поиск правил, которые перекодируют исходные значения в указанное целевое значение.<br/>
+     * Транзитивные зависимости не заполняются, исходное значение доступно через {@link RecodeRule#getFieldValue()}
+     *
+     * @param ruleSet набор правил
+     * @param toValue целевое значение
+     * @return Возвращает коллекцию найденных правил
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    Collection<RecodeRule> findAllByToValue(RecodeRuleSet ruleSet, String toValue);
+
     /**
      * Выполняет модификацию правил перекодирования
      *
@@ -0,0 +1,27 @@
+package ru.hflabs.rcd.service.rule;
+
+import ru.hflabs.rcd.RoleNames;
+
+import javax.annotation.security.RolesAllowed;
+
+/**
+ * Интерфейс <class>IRecodeSnapshotService</class> декларирует методы выгрузки таблиц перекодирования
+ * для выполнения перекодирования на стороне клиента
+ *
+ * @see ru.hflabs.rcd.model.rule.RecodeRuleSet
+ */
+public interface IRecodeSnapshotService {
+
+    /**
+     * Возвращает изменения таблицы перекодирования набора правил относительно версии клиента.<br/>
+     * Если версия клиента неизвестна или изменения для нее уже не хранятся, то возвращается полный снимок таблицы
+     *
+     * @param ruleSetName название набора правил
+     * @param epoch идентификатор экземпляра сервиса, сформировавшего версию клиента
+     * @param version версия таблицы клиента или <code>-1</code>, если необходим полный снимок
+     * @return Возвращает снимок в бинарном виде
+     * @throws ru.hflabs.rcd.exception.search.rule.UnknownRuleSetNameException если набор правил не найден
+     */
+    @RolesAllowed(RoleNames.OPERATOR)
+    byte[] exportSnapshot(String ruleSetName, long epoch, long version);
+}
@@ -0,0 +1,28 @@
+package ru.hflabs.rcd.event.index;
+
+import lombok.Getter;
+import ru.hflabs.rcd.event.ContextEvent;
+
+/**
+ * Класс <class>IndexRebuildFailedEvent</class> содержит информацию о событии перестроения хранилища документов,
+ * которое завершилось ошибкой или было отменено
+ *
+ * @see IndexRebuildEvent
+ * @see IndexRebuildedEvent
+ */
+@Getter
+public class IndexRebuildFailedEvent extends ContextEvent {
+
+    private static final long serialVersionUID = -2384317265503462907L;
+
+    /** Целевой класс */
+    private final Class<?> targetClass;
+    /** Причина ошибки или <code>NULL</code>, если перестроение отменено */
+    private final Throwable cause;
+
+    public IndexRebuildFailedEvent(Object source, Class<?> targetClass, Throwable cause) {
+        super(source);
+        this.targetClass = targetClass;
+        this.cause = cause;
+    }
+}
@@ -17,10 +17,17 @@ public class IndexRebuildedEvent extends ContextEvent {
     private final Class<?> targetClass;
     /** Количество документов в индексе */
     private final int documentCount;
+    /** Флаг изменения документов индекса при перестроении */
+    private final boolean modified;
 
     public IndexRebuildedEvent(Object source, Class<?> targetClass, int documentCount) {
+        this(source, targetClass, documentCount, true);
+    }
+
+    public IndexRebuildedEvent(Object source, Class<?> targetClass, int documentCount, boolean modified) {
         super(source);
         this.targetClass = targetClass;
         this.documentCount = documentCount;
+        this.modified = modified;
     }
 }
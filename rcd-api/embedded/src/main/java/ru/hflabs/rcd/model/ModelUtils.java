@@ -362,6 +362,16 @@ public abstract class ModelUtils {
                 null;
     }
 
+    /**
+     * Выполняет нормализацию значения поля в соответствии с правилами поиска значений полей в индексе
+     *
+     * @param value исходное значение
+     * @return Возвращает нормализованное значение
+     */
+    public static String normalizeFieldValue(String value) {
+        return value != null ? value.toLowerCase() : "";
+    }
+
     /**
      * Выпоняет установку битов в значение <code>1</code>
      *
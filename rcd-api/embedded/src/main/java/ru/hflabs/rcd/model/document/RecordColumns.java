@@ -0,0 +1,416 @@
+package ru.hflabs.rcd.model.document;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.*;
+
+import static ru.hflabs.rcd.model.ModelUtils.normalizeFieldValue;
+import static ru.hflabs.rcd.model.ModelUtils.sortMetaFieldsByOrdinal;
+
+/**
+ * Класс <class>RecordColumns</class> описывает поколоночное представление записей справочника.<br/>
+ * Значения полей хранятся в строковых колонках по МЕТА-полям, где номер строки соответствует записи,
+ * а одинаковые строки справочника разделяют один экземпляр. Строки упорядочены по идентификатору записи, поэтому номер строки
+ * определяется двоичным поиском, а идентификаторы значений полей и истории в формате {@link UUID} хранятся парами чисел.
+ * Для уникальных МЕТА-полей строится хэш-индекс по нормализованному значению.
+ * Объекты {@link Record записей} и {@link Field значений полей} создаются только для запрошенных строк.
+ *
+ * @author Nazin Alexander
+ * @see Record
+ * @see Field
+ */
+public class RecordColumns {
+
+    /** Оценка накладных расходов на хранение строки в байтах */
+    private static final int STRING_OVERHEAD = 40;
+    /** Оценка размера ссылки в байтах */
+    private static final int REFERENCE_SIZE = 8;
+
+    /** Идентификатор справочника */
+    private final String dictionaryId;
+    /** МЕТА-поля справочника в порядке их позиции */
+    private final List<MetaField> metaFields;
+    /** Номера колонок, где ключ - название МЕТА-поля */
+    private final Map<String, Integer> name2column;
+    /** Номера колонок, где ключ - идентификатор МЕТА-поля */
+    private final Map<String, Integer> id2column;
+    /** Упорядоченные идентификаторы записей по номеру строки */
+    private final String[] recordIDs;
+    /** Идентификаторы значений полей по номеру колонки */
+    private final IdentifierColumn[] fieldIDs;
+    /** Идентификаторы истории значений полей по номеру колонки */
+    private final IdentifierColumn[] historyIDs;
+    /** Значения полей по номеру колонки и строки */
+    private final String[][] values;
+    /** Хэш-индексы уникальных МЕТА-полей, где ключ - номер колонки, значение - номера строк по нормализованному значению */
+    private final Map<Integer, Map<String, Integer>> uniqueIndexes;
+    /** Оценка занимаемой памяти в байтах */
+    private final long weight;
+
+    public RecordColumns(String dictionaryId, Collection<MetaField> metaFields, Collection<Field> fields) {
+        this.dictionaryId = dictionaryId;
+        this.metaFields = ImmutableList.copyOf(sortMetaFieldsByOrdinal(metaFields));
+        this.name2column = Maps.newHashMapWithExpectedSize(this.metaFields.size());
+        this.id2column = Maps.newHashMapWithExpectedSize(this.metaFields.size());
+        for (int column = 0; column < this.metaFields.size(); column++) {
+            name2column.put(this.metaFields.get(column).getName(), column);
+            id2column.put(this.metaFields.get(column).getId(), column);
+        }
+        // Формируем упорядоченные идентификаторы записей
+        Map<String, String> pool = Maps.newHashMap();
+        Set<String> names = Sets.newHashSet();
+        for (Field field : fields) {
+            if (id2column.containsKey(field.getMetaFieldId())) {
+                names.add(intern(pool, field.getName()));
+            }
+        }
+        this.recordIDs = names.toArray(new String[names.size()]);
+        Arrays.sort(recordIDs);
+        // Заполняем колонки
+        int columns = this.metaFields.size();
+        this.fieldIDs = new IdentifierColumn[columns];
+        this.historyIDs = new IdentifierColumn[columns];
+        this.values = new String[columns][recordIDs.length];
+        for (int column = 0; column < columns; column++) {
+            fieldIDs[column] = new IdentifierColumn(recordIDs.length);
+            historyIDs[column] = new IdentifierColumn(recordIDs.length);
+        }
+        for (Field field : fields) {
+            Integer column = id2column.get(field.getMetaFieldId());
+            if (column != null) {
+                int row = Arrays.binarySearch(recordIDs, field.getName());
+                fieldIDs[column].set(row, field.getId());
+                historyIDs[column].set(row, field.getHistoryId());
+                values[column][row] = intern(pool, field.getValue());
+            }
+        }
+        // Формируем индексы уникальных МЕТА-полей
+        this.uniqueIndexes = Maps.newHashMap();
+        for (int column = 0; column < columns; column++) {
+            if (this.metaFields.get(column).isFlagEstablished(MetaField.FLAG_UNIQUE)) {
+                Map<String, Integer> index = Maps.newHashMapWithExpectedSize(recordIDs.length);
+                for (int row = 0; row < recordIDs.length; row++) {
+                    if (fieldIDs[column].contains(row) && !index.containsKey(normalizeFieldValue(values[column][row]))) {
+                        index.put(normalizeFieldValue(values[column][row]), row);
+                    }
+                }
+                uniqueIndexes.put(column, index);
+            }
+        }
+        this.weight = estimateWeight(pool.keySet(), columns, recordIDs.length, uniqueIndexes.size()) +
+                estimateWeight(fieldIDs) + estimateWeight(historyIDs);
+    }
+
+    /**
+     * Возвращает единственный экземпляр строки в пределах справочника
+     *
+     * @param pool пул строк справочника
+     * @param value строка
+     * @return Возвращает экземпляр строки из пула
+     */
+    private static String intern(Map<String, String> pool, String value) {
+        if (value == null) {
+            return null;
+        }
+        String existed = pool.get(value);
+        if (existed == null) {
+            pool.put(value, value);
+            existed = value;
+        }
+        return existed;
+    }
+
+    /**
+     * Выполняет оценку занимаемой памяти
+     *
+     * @param strings уникальные строки справочника
+     * @param columns количество колонок
+     * @param rows количество строк
+     * @param indexes количество хэш-индексов
+     * @return Возвращает оценку в байтах
+     */
+    private static long estimateWeight(Collection<String> strings, int columns, int rows, int indexes) {
+        long result = 0;
+        for (String string : strings) {
+            result += STRING_OVERHEAD + 2L * string.length();
+        }
+        result += (long) (columns + 1) * rows * REFERENCE_SIZE;
+        result += (long) indexes * rows * (STRING_OVERHEAD + REFERENCE_SIZE);
+        return result;
+    }
+
+    /**
+     * Выполняет оценку памяти, занимаемой колонками идентификаторов
+     *
+     * @param columns колонки идентификаторов
+     * @return Возвращает оценку в байтах
+     */
+    private static long estimateWeight(IdentifierColumn[] columns) {
+        long result = 0;
+        for (IdentifierColumn column : columns) {
+            result += column.weight;
+        }
+        return result;
+    }
+
+    public String getDictionaryId() {
+        return dictionaryId;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return Возвращает количество записей
+     */
+    public int size() {
+        return recordIDs.length;
+    }
+
+    /**
+     * @param targetMetaFields коллекция МЕТА-полей справочника
+     * @return Возвращает <code>TRUE</code>, если колонки построены по тем же МЕТА-полям
+     */
+    public boolean isBuiltFor(Collection<MetaField> targetMetaFields) {
+        if (targetMetaFields.size() != metaFields.size()) {
+            return false;
+        }
+        for (MetaField metaField : targetMetaFields) {
+            Integer column = id2column.get(metaField.getId());
+            if (column == null || !metaFields.get(column).getName().equals(metaField.getName()) ||
+                    metaFields.get(column).isFlagEstablished(MetaField.FLAG_UNIQUE) != metaField.isFlagEstablished(MetaField.FLAG_UNIQUE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param ids идентификаторы записей или <code>NULL</code>, если необходимы все записи
+     * @return Возвращает номера строк существующих записей
+     */
+    public int[] findRows(Collection<String> ids) {
+        if (ids == null) {
+            int[] result = new int[recordIDs.length];
+            for (int row = 0; row < result.length; row++) {
+                result[row] = row;
+            }
+            return result;
+        }
+        int[] result = new int[ids.size()];
+        int count = 0;
+        for (String id : Sets.newLinkedHashSet(ids)) {
+            int row = id != null ? Arrays.binarySearch(recordIDs, id) : -1;
+            if (row >= 0) {
+                result[count++] = row;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Выполняет сортировку строк по значению МЕТА-поля и идентификатору записи.<br/>
+     * Порядок совпадает с сортировкой {@link Record записей} по значению поля, при которой отсутствующие значения считаются наименьшими
+     *
+     * @param rows номера строк
+     * @param metaFieldName название МЕТА-поля
+     * @param descending флаг сортировки значений по убыванию
+     */
+    public void sortRows(int[] rows, String metaFieldName, final boolean descending) {
+        Integer column = metaFieldName != null ? name2column.get(metaFieldName) : null;
+        final String[] columnValues = column != null ? values[column] : null;
+        Integer[] boxed = new Integer[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            boxed[i] = rows[i];
+        }
+        Arrays.sort(boxed, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                if (columnValues != null) {
+                    int result = compareValues(columnValues[o1], columnValues[o2]);
+                    if (result != 0) {
+                        return descending ? -result : result;
+                    }
+                }
+                return recordIDs[o1].compareTo(recordIDs[o2]);
+            }
+        });
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = boxed[i];
+        }
+    }
+
+    private static int compareValues(String value1, String value2) {
+        if (value1 == null) {
+            return value2 == null ? 0 : -1;
+        }
+        return value2 == null ? 1 : value1.compareTo(value2);
+    }
+
+    /**
+     * @param column номер колонки
+     * @param row номер строки
+     * @return Возвращает значение поля или <code>NULL</code>, если у записи нет значения для МЕТА-поля
+     */
+    private Field createField(int column, int row) {
+        if (!fieldIDs[column].contains(row)) {
+            return null;
+        }
+        Field result = new Field();
+        result.setId(fieldIDs[column].get(row));
+        result.setHistoryId(historyIDs[column].get(row));
+        result.setMetaFieldId(metaFields.get(column).getId());
+        result.setName(recordIDs[row]);
+        result.setValue(values[column][row]);
+        return result;
+    }
+
+    /**
+     * @param row номер строки
+     * @return Возвращает запись строки
+     */
+    public Record createRecord(int row) {
+        Map<String, Field> fields = new LinkedHashMap<>();
+        for (int column = 0; column < metaFields.size(); column++) {
+            Field field = createField(column, row);
+            if (field != null) {
+                fields.put(metaFields.get(column).getName(), field);
+            }
+        }
+        Record result = new Record();
+        result.setId(recordIDs[row]);
+        result.setDictionaryId(dictionaryId);
+        return result.injectFields(fields);
+    }
+
+    /**
+     * @param metaFieldId идентификатор МЕТА-поля
+     * @param names идентификаторы записей
+     * @return Возвращает значения полей МЕТА-поля для указанных записей
+     */
+    public List<Field> findFieldsByNames(String metaFieldId, Collection<String> names) {
+        Integer column = id2column.get(metaFieldId);
+        if (column == null) {
+            return Collections.emptyList();
+        }
+        List<Field> result = Lists.newArrayListWithExpectedSize(names.size());
+        for (int row : findRows(names)) {
+            Field field = createField(column, row);
+            if (field != null) {
+                result.add(field);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param metaFieldId идентификатор МЕТА-поля
+     * @return Возвращает <code>TRUE</code>, если для МЕТА-поля построен хэш-индекс значений
+     */
+    public boolean hasValueIndex(String metaFieldId) {
+        Integer column = id2column.get(metaFieldId);
+        return column != null && uniqueIndexes.containsKey(column);
+    }
+
+    /**
+     * @param metaFieldId идентификатор уникального МЕТА-поля
+     * @param fieldValues значения полей
+     * @return Возвращает значения полей, совпадающие с указанными без учета регистра
+     */
+    public List<Field> findFieldsByValues(String metaFieldId, Collection<String> fieldValues) {
+        Integer column = id2column.get(metaFieldId);
+        Map<String, Integer> index = column != null ? uniqueIndexes.get(column) : null;
+        if (index == null) {
+            throw new IllegalStateException(String.format("Meta field '%s' has no value index", metaFieldId));
+        }
+        Set<Integer> rows = Sets.newLinkedHashSet();
+        for (String value : fieldValues) {
+            Integer row = index.get(normalizeFieldValue(value));
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        List<Field> result = Lists.newArrayListWithExpectedSize(rows.size());
+        for (Integer row : rows) {
+            result.add(createField(column, row));
+        }
+        return result;
+    }
+
+    /**
+     * Класс <class>IdentifierColumn</class> описывает колонку идентификаторов документов.<br/>
+     * Идентификаторы в формате {@link UUID} хранятся парой чисел без создания строк,
+     * остальные идентификаторы хранятся строками по номеру строки
+     *
+     * @author Nazin Alexander
+     */
+    private static final class IdentifierColumn {
+
+        /** Длина строкового представления {@link UUID} */
+        private static final int UUID_LENGTH = 36;
+
+        /** Старшие биты идентификаторов по номеру строки */
+        private final long[] mostBits;
+        /** Младшие биты идентификаторов по номеру строки */
+        private final long[] leastBits;
+        /** Номера строк, идентификаторы которых хранятся парой чисел */
+        private final BitSet uuidRows;
+        /** Идентификаторы не в формате {@link UUID}, где ключ - номер строки */
+        private final Map<Integer, String> irregularIDs;
+        /** Оценка занимаемой памяти в байтах */
+        private long weight;
+
+        private IdentifierColumn(int rows) {
+            this.mostBits = new long[rows];
+            this.leastBits = new long[rows];
+            this.uuidRows = new BitSet(rows);
+            this.irregularIDs = Maps.newHashMap();
+            this.weight = 2L * Long.SIZE / Byte.SIZE * rows + rows / Byte.SIZE;
+        }
+
+        /**
+         * @param id строковый идентификатор
+         * @return Возвращает идентификатор в формате {@link UUID} или <code>NULL</code>, если строка не является его каноническим представлением
+         */
+        private static UUID parseUUID(String id) {
+            if (id.length() != UUID_LENGTH) {
+                return null;
+            }
+            try {
+                UUID result = UUID.fromString(id);
+                return result.toString().equals(id) ? result : null;
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+
+        private void set(int row, String id) {
+            if (id == null) {
+                return;
+            }
+            UUID uuid = parseUUID(id);
+            if (uuid != null) {
+                mostBits[row] = uuid.getMostSignificantBits();
+                leastBits[row] = uuid.getLeastSignificantBits();
+                uuidRows.set(row);
+            } else {
+                irregularIDs.put(row, id);
+                weight += STRING_OVERHEAD + 2L * id.length() + 2L * REFERENCE_SIZE;
+            }
+        }
+
+        private boolean contains(int row) {
+            return uuidRows.get(row) || irregularIDs.containsKey(row);
+        }
+
+        private String get(int row) {
+            return uuidRows.get(row) ?
+                    new UUID(mostBits[row], leastBits[row]).toString() :
+                    irregularIDs.get(row);
+        }
+    }
+}
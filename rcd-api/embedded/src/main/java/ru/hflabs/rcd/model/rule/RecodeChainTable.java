@@ -0,0 +1,170 @@
+package ru.hflabs.rcd.model.rule;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс <class>RecodeChainTable</class> описывает скомпилированную таблицу перекодирования цепочки наборов правил.<br/>
+ * Таблица строится композицией {@link RecodeTable таблиц} звеньев: для каждого исходного значения первого звена заранее
+ * вычисляется результат прохода по всей цепочке, поэтому перекодирование по цепочке выполняется одним обращением к хэш-таблице.
+ *
+ * @author Nazin Alexander
+ * @see RecodeTable
+ */
+public class RecodeChainTable {
+
+    /** Таблицы звеньев цепочки */
+    private final List<RecodeTable> tables;
+    /** Результаты прохода, где ключ - нормализованное исходное значение первого звена */
+    private final Map<String, Step> steps;
+    /** Результат прохода для значения по умолчанию первого звена или <code>NULL</code>, если оно не задано */
+    private final Step defaultStep;
+
+    public RecodeChainTable(List<RecodeTable> tables) {
+        this.tables = ImmutableList.copyOf(tables);
+        RecodeTable first = this.tables.get(0);
+        Map<String, Step> compiled = Maps.newHashMapWithExpectedSize(first.getTargetValues().size());
+        for (Map.Entry<String, String> entry : first.getTargetValues().entrySet()) {
+            compiled.put(entry.getKey(), follow(entry.getValue(), false));
+        }
+        this.steps = ImmutableMap.copyOf(compiled);
+        this.defaultStep = first.hasDefaultValue() ? follow(first.getDefaultValue(), true) : null;
+    }
+
+    /**
+     * Выполняет проход значения по звеньям цепочки, начиная со второго
+     *
+     * @param value целевое значение первого звена
+     * @param defaulted флаг использования значения по умолчанию на первом звене
+     * @return Возвращает результат прохода
+     */
+    private Step follow(String value, boolean defaulted) {
+        int noticeHop = -1;
+        String noticeValue = null;
+        for (int hop = 1; hop < tables.size(); hop++) {
+            RecodeTable table = tables.get(hop);
+            String normalizedValue = RecodeTable.normalize(value);
+            String targetValue = table.getTargetValues().get(normalizedValue);
+            if (targetValue == null) {
+                boolean isValueExist = table.getUnmatchedValues().contains(normalizedValue);
+                if (!table.hasDefaultValue()) {
+                    return new Step(null, defaulted, hop, value, isValueExist, noticeHop, noticeValue);
+                }
+                if (!isValueExist && noticeHop < 0) {
+                    noticeHop = hop;
+                    noticeValue = value;
+                }
+                targetValue = table.getDefaultValue();
+                defaulted = true;
+            }
+            value = targetValue;
+        }
+        return new Step(value, defaulted, -1, null, false, noticeHop, noticeValue);
+    }
+
+    /**
+     * @return Возвращает таблицы звеньев цепочки
+     */
+    public List<RecodeTable> getTables() {
+        return tables;
+    }
+
+    /**
+     * @param fromValue исходное значение
+     * @return Возвращает результат прохода по цепочке или <code>NULL</code>, если для значения нет правила первого звена и значения по умолчанию
+     */
+    public Step findStep(String fromValue) {
+        Step step = steps.get(RecodeTable.normalize(fromValue));
+        return step != null ? step : defaultStep;
+    }
+
+    /**
+     * @param fromValue исходное значение
+     * @return Возвращает <code>TRUE</code>, если для исходного значения определено правило первого звена
+     */
+    public boolean hasRule(String fromValue) {
+        return steps.containsKey(RecodeTable.normalize(fromValue));
+    }
+
+    /**
+     * @param ruleSetId идентификатор набора правил
+     * @return Возвращает <code>TRUE</code>, если набор правил является звеном цепочки
+     */
+    public boolean isDependsOn(String ruleSetId) {
+        for (RecodeTable table : tables) {
+            if (table.getRuleSetId().equals(ruleSetId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Класс <class>Step</class> содержит предварительно вычисленный результат прохода значения по цепочке
+     *
+     * @author Nazin Alexander
+     */
+    public static class Step {
+
+        /** Целевое значение последнего звена */
+        private final String value;
+        /** Флаг использования значения по умолчанию хотя бы на одном звене */
+        private final boolean defaulted;
+        /** Звено, на котором перекодирование не выполнено, или <code>-1</code> */
+        private final int failedHop;
+        /** Значение, для которого не найдено правило */
+        private final String failedValue;
+        /** Флаг существования значения, для которого не найдено правило, в справочнике звена */
+        private final boolean failedValueExist;
+        /** Звено, на котором использовано значение по умолчанию для отсутствующего в справочнике значения, или <code>-1</code> */
+        private final int noticeHop;
+        /** Отсутствующее в справочнике значение */
+        private final String noticeValue;
+
+        private Step(String value, boolean defaulted, int failedHop, String failedValue, boolean failedValueExist, int noticeHop, String noticeValue) {
+            this.value = value;
+            this.defaulted = defaulted;
+            this.failedHop = failedHop;
+            this.failedValue = failedValue;
+            this.failedValueExist = failedValueExist;
+            this.noticeHop = noticeHop;
+            this.noticeValue = noticeValue;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public boolean isDefaulted() {
+            return defaulted;
+        }
+
+        public boolean isFailed() {
+            return failedHop >= 0;
+        }
+
+        public int getFailedHop() {
+            return failedHop;
+        }
+
+        public String getFailedValue() {
+            return failedValue;
+        }
+
+        public boolean isFailedValueExist() {
+            return failedValueExist;
+        }
+
+        public int getNoticeHop() {
+            return noticeHop;
+        }
+
+        public String getNoticeValue() {
+            return noticeValue;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ru.hflabs.rcd.model.rule;
+
+import lombok.Getter;
+import lombok.Setter;
+import ru.hflabs.rcd.model.notification.NotifyType;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Класс <class>RecodeMetrics</class> содержит снимок статистики перекодирования набора правил
+ *
+ * @author Nazin Alexander
+ * @see RecodeRuleSet
+ */
+@Getter
+@Setter
+public class RecodeMetrics implements Serializable {
+
+    private static final long serialVersionUID = 4209736152380749367L;
+
+    /**
+     * Результат перекодирования значения
+     */
+    public static enum Outcome {
+        /** Найдено правило перекодирования */
+        SUCCESS,
+        /** Использовано значение по умолчанию */
+        DEFAULT,
+        /** Не найдено правило перекодирования */
+        NO_RULE,
+        /** Не найдено исходное значение */
+        NO_VALUE,
+        /** Не найден набор правил перекодирования */
+        NO_RULE_SET,
+        /** Ошибка перекодирования */
+        ERROR;
+
+        /**
+         * Определяет результат перекодирования по типу оповещения
+         *
+         * @param notifyType тип оповещения
+         * @return Возвращает результат перекодирования
+         */
+        public static Outcome fromNotifyType(NotifyType notifyType) {
+            switch (notifyType) {
+                case NO_RULE:
+                    return NO_RULE;
+                case NO_VALUE:
+                    return NO_VALUE;
+                case NO_GROUP:
+                case NO_DICTIONARY:
+                case NO_RULE_SET:
+                case NO_RULE_ALIAS:
+                    return NO_RULE_SET;
+                default:
+                    return ERROR;
+            }
+        }
+    }
+
+    /** Название набора правил */
+    private String ruleSetName;
+    /** Названия наборов правил: одно для набора, несколько для цепочки */
+    private List<String> aliases;
+    /** Количество успешных перекодирований */
+    private long successCount;
+    /** Количество перекодирований со значением по умолчанию */
+    private long defaultCount;
+    /** Количество перекодирований без правила */
+    private long noRuleCount;
+    /** Количество перекодирований без исходного значения */
+    private long noValueCount;
+    /** Количество перекодирований без набора правил */
+    private long noRuleSetCount;
+    /** Количество ошибочных перекодирований */
+    private long errorCount;
+    /** Медиана времени перекодирования в микросекундах */
+    private long latency50;
+    /** 90-й процентиль времени перекодирования в микросекундах */
+    private long latency90;
+    /** 99-й процентиль времени перекодирования в микросекундах */
+    private long latency99;
+    /** 99.9-й процентиль времени перекодирования в микросекундах */
+    private long latency999;
+    /** Максимальное время перекодирования в микросекундах */
+    private long latencyMax;
+
+    /**
+     * @return Возвращает общее количество перекодирований
+     */
+    public long getTotalCount() {
+        return successCount + defaultCount + noRuleCount + noValueCount + noRuleSetCount + errorCount;
+    }
+
+    /**
+     * @return Возвращает долю перекодирований, для которых не найдено правило
+     */
+    public double getMissRatio() {
+        long totalCount = getTotalCount();
+        return totalCount != 0 ? (double) (totalCount - successCount) / totalCount : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%s: total=%d, success=%d, default=%d, noRule=%d, noValue=%d, noRuleSet=%d, error=%d, latency(us) p50=%d, p90=%d, p99=%d, p99.9=%d, max=%d",
+                ruleSetName, getTotalCount(), successCount, defaultCount, noRuleCount, noValueCount, noRuleSetCount, errorCount,
+                latency50, latency90, latency99, latency999, latencyMax
+        );
+    }
+}
@@ -0,0 +1,138 @@
+package ru.hflabs.rcd.model.rule;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.*;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Класс <class>RecodeSnapshot</class> содержит версионированный снимок таблицы перекодирования набора правил
+ * или изменения таблицы относительно предыдущей версии.<br/>
+ * Снимок передается в компактном бинарном виде (сжатый GZIP поток), где строки кодируются длиной в байтах
+ * (<code>-1</code> для <code>NULL</code>) и содержимым в UTF-8.
+ *
+ * @author Nazin Alexander
+ * @see RecodeSnapshotTable
+ */
+@Getter
+@Setter
+public class RecodeSnapshot {
+
+    /** Сигнатура бинарного формата */
+    private static final int MAGIC = 0x52434453;
+    /** Версия бинарного формата */
+    private static final byte FORMAT_VERSION = 1;
+
+    /** Версия, означающая отсутствие снимка у клиента */
+    public static final long NO_VERSION = -1L;
+
+    /** Название набора правил */
+    private String ruleSetName;
+    /** Идентификатор экземпляра сервиса, в рамках которого ведется нумерация версий */
+    private long epoch;
+    /** Версия, относительно которой сформированы изменения, или {@link #NO_VERSION} для полного снимка */
+    private long baseVersion;
+    /** Версия таблицы после применения изменений */
+    private long version;
+    /** Значение по умолчанию или <code>NULL</code> */
+    private String defaultValue;
+    /** Изменения, где ключ - нормализованное исходное значение, значение - целевое значение или <code>NULL</code> для удаленного правила */
+    private Map<String, String> changes;
+
+    public RecodeSnapshot() {
+        this.baseVersion = NO_VERSION;
+        this.version = NO_VERSION;
+        this.changes = Maps.newLinkedHashMap();
+    }
+
+    /**
+     * @return Возвращает <code>TRUE</code>, если снимок содержит полную таблицу перекодирования
+     */
+    public boolean isFull() {
+        return baseVersion == NO_VERSION;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(Charsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    /**
+     * Выполняет кодирование снимка в бинарный вид
+     *
+     * @return Возвращает закодированный снимок
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(result)))) {
+            output.writeInt(MAGIC);
+            output.writeByte(FORMAT_VERSION);
+            writeString(output, ruleSetName);
+            output.writeLong(epoch);
+            output.writeLong(baseVersion);
+            output.writeLong(version);
+            writeString(output, defaultValue);
+            output.writeInt(changes.size());
+            for (Map.Entry<String, String> entry : changes.entrySet()) {
+                writeString(output, entry.getKey());
+                writeString(output, entry.getValue());
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(String.format("Can't encode recode snapshot '%s'. Cause by: %s", ruleSetName, ex.getMessage()), ex);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Выполняет декодирование снимка из бинарного вида
+     *
+     * @param bytes закодированный снимок
+     * @return Возвращает декодированный снимок
+     */
+    public static RecodeSnapshot fromBytes(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes))))) {
+            if (input.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Illegal recode snapshot signature");
+            }
+            byte formatVersion = input.readByte();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IllegalArgumentException(String.format("Unsupported recode snapshot format version %d", formatVersion));
+            }
+            RecodeSnapshot result = new RecodeSnapshot();
+            result.setRuleSetName(readString(input));
+            result.setEpoch(input.readLong());
+            result.setBaseVersion(input.readLong());
+            result.setVersion(input.readLong());
+            result.setDefaultValue(readString(input));
+            int size = input.readInt();
+            Map<String, String> changes = Maps.newLinkedHashMap();
+            for (int i = 0; i < size; i++) {
+                changes.put(readString(input), readString(input));
+            }
+            result.setChanges(changes);
+            return result;
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(String.format("Can't decode recode snapshot. Cause by: %s", ex.getMessage()), ex);
+        }
+    }
+}
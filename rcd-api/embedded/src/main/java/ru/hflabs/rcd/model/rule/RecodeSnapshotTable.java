@@ -0,0 +1,124 @@
+package ru.hflabs.rcd.model.rule;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * Класс <class>RecodeSnapshotTable</class> реализует локальную копию таблицы перекодирования набора правил,
+ * которая поддерживается в актуальном состоянии применением {@link RecodeSnapshot снимков} и их изменений.<br/>
+ * Поиск значений выполняется без блокировок по неизменяемому состоянию, которое заменяется целиком при применении изменений.
+ *
+ * @author Nazin Alexander
+ * @see RecodeSnapshot
+ * @see RecodeTable
+ */
+public class RecodeSnapshotTable {
+
+    /** Название набора правил */
+    private final String ruleSetName;
+    /** Текущее состояние таблицы */
+    private volatile State state;
+
+    public RecodeSnapshotTable(String ruleSetName) {
+        this.ruleSetName = ruleSetName;
+        this.state = new State(0L, RecodeSnapshot.NO_VERSION, null, ImmutableMap.<String, String>of());
+    }
+
+    public String getRuleSetName() {
+        return ruleSetName;
+    }
+
+    /**
+     * @return Возвращает идентификатор экземпляра сервиса, сформировавшего текущую версию
+     */
+    public long getEpoch() {
+        return state.epoch;
+    }
+
+    /**
+     * @return Возвращает текущую версию таблицы или {@link RecodeSnapshot#NO_VERSION}, если снимок еще не получен
+     */
+    public long getVersion() {
+        return state.version;
+    }
+
+    /**
+     * Применяет снимок или изменения таблицы
+     *
+     * @param snapshot снимок или изменения
+     * @throws IllegalStateException если изменения сформированы не относительно текущей версии таблицы
+     */
+    public synchronized void apply(RecodeSnapshot snapshot) {
+        State current = state;
+        if (!ruleSetName.equals(snapshot.getRuleSetName())) {
+            throw new IllegalArgumentException(String.format(
+                    "Snapshot of rule set '%s' can't be applied to table of rule set '%s'", snapshot.getRuleSetName(), ruleSetName
+            ));
+        }
+        if (snapshot.isFull()) {
+            state = new State(snapshot.getEpoch(), snapshot.getVersion(), snapshot.getDefaultValue(), ImmutableMap.copyOf(snapshot.getChanges()));
+        } else if (current.epoch == snapshot.getEpoch() && current.version == snapshot.getBaseVersion()) {
+            if (snapshot.getChanges().isEmpty()) {
+                state = new State(current.epoch, snapshot.getVersion(), snapshot.getDefaultValue(), current.targetValues);
+            } else {
+                Map<String, String> targetValues = Maps.newHashMap(current.targetValues);
+                for (Map.Entry<String, String> entry : snapshot.getChanges().entrySet()) {
+                    if (entry.getValue() != null) {
+                        targetValues.put(entry.getKey(), entry.getValue());
+                    } else {
+                        targetValues.remove(entry.getKey());
+                    }
+                }
+                state = new State(current.epoch, snapshot.getVersion(), snapshot.getDefaultValue(), ImmutableMap.copyOf(targetValues));
+            }
+        } else {
+            throw new IllegalStateException(String.format(
+                    "Changes of rule set '%s' based on version %d can't be applied to version %d",
+                    ruleSetName, snapshot.getBaseVersion(), current.version
+            ));
+        }
+    }
+
+    /**
+     * @param fromValue исходное значение
+     * @return Возвращает целевое значение перекодирования, значение по умолчанию или <code>NULL</code>, если правило не найдено
+     */
+    public String findTargetValue(String fromValue) {
+        State current = state;
+        String targetValue = current.targetValues.get(RecodeTable.normalize(fromValue));
+        return targetValue != null ? targetValue : current.defaultValue;
+    }
+
+    /**
+     * @return Возвращает количество правил перекодирования в таблице
+     */
+    public int size() {
+        return state.targetValues.size();
+    }
+
+    /**
+     * Класс <class>State</class> содержит неизменяемое состояние таблицы
+     *
+     * @author Nazin Alexander
+     */
+    private static class State {
+
+        /** Идентификатор экземпляра сервиса */
+        private final long epoch;
+        /** Версия таблицы */
+        private final long version;
+        /** Значение по умолчанию */
+        private final String defaultValue;
+        /** Таблица перекодирования, где ключ - нормализованное исходное значение */
+        private final Map<String, String> targetValues;
+
+        private State(long epoch, long version, String defaultValue, Map<String, String> targetValues) {
+            this.epoch = epoch;
+            this.version = version;
+            this.defaultValue = defaultValue;
+            this.targetValues = targetValues;
+        }
+    }
+}
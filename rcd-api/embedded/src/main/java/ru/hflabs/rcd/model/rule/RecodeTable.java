@@ -0,0 +1,135 @@
+package ru.hflabs.rcd.model.rule;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import lombok.AccessLevel;
+import lombok.Getter;
+import ru.hflabs.rcd.model.ModelUtils;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Класс <class>RecodeTable</class> описывает скомпилированную таблицу перекодирования набора правил.<br/>
+ * Повторные промахи таблицы обслуживаются кэшем уже встреченных исходных значений без нормализации,
+ * кэш сбрасывается вместе с таблицей при изменении правил или значений полей и не сериализуется.
+ *
+ * @author Nazin Alexander
+ * @see RecodeRuleSet
+ * @see RecodeRule
+ */
+@Getter
+public class RecodeTable implements Serializable {
+
+    private static final long serialVersionUID = -2936491720958385114L;
+
+    /** Максимальное количество запоминаемых промахов */
+    private static final int MISSED_VALUES_SIZE = 10000;
+
+    /** Идентификатор набора правил */
+    private final String ruleSetId;
+    /** Идентификатор исходного МЕТА-поля */
+    private final String fromFieldId;
+    /** Идентификатор целевого МЕТА-поля */
+    private final String toFieldId;
+    /** Значение по умолчанию или <code>NULL</code> */
+    private final String defaultValue;
+    /** Таблица перекодирования, где ключ - нормализованное исходное значение, значение - целевое значение */
+    private final Map<String, String> targetValues;
+    /** Коллекция нормализованных исходных значений, для которых не определено правило перекодирования */
+    private final Set<String> unmatchedValues;
+    /** Кэш промахов, где ключ - исходное значение, значение - флаг существования значения в справочнике */
+    @Getter(AccessLevel.NONE)
+    private final transient Cache<String, Boolean> missedValues;
+
+    public RecodeTable(String ruleSetId, String fromFieldId, String toFieldId, String defaultValue, Map<String, String> targetValues, Set<String> unmatchedValues) {
+        this.ruleSetId = ruleSetId;
+        this.fromFieldId = fromFieldId;
+        this.toFieldId = toFieldId;
+        this.defaultValue = defaultValue;
+        this.targetValues = ImmutableMap.copyOf(targetValues);
+        this.unmatchedValues = ImmutableSet.copyOf(unmatchedValues);
+        this.missedValues = CacheBuilder.newBuilder()
+                .maximumSize(MISSED_VALUES_SIZE)
+                .build();
+    }
+
+    /**
+     * Восстанавливает таблицу после десериализации с пустым кэшем промахов
+     *
+     * @return Возвращает восстановленную таблицу
+     */
+    private Object readResolve() {
+        return new RecodeTable(ruleSetId, fromFieldId, toFieldId, defaultValue, targetValues, unmatchedValues);
+    }
+
+    /**
+     * Выполняет нормализацию значения в соответствии с правилами поиска значений полей в индексе
+     *
+     * @param value исходное значение
+     * @return Возвращает нормализованное значение
+     * @see ModelUtils#normalizeFieldValue(String)
+     */
+    public static String normalize(String value) {
+        return ModelUtils.normalizeFieldValue(value);
+    }
+
+    /**
+     * @param fromValue исходное значение
+     * @return Возвращает целевое значение перекодирования или <code>NULL</code>, если правило не найдено
+     */
+    public String findTargetValue(String fromValue) {
+        String missedKey = fromValue != null ? fromValue : "";
+        if (missedValues.getIfPresent(missedKey) != null) {
+            return null;
+        }
+        String normalizedValue = normalize(fromValue);
+        String targetValue = targetValues.get(normalizedValue);
+        if (targetValue == null) {
+            missedValues.put(missedKey, isNormalizedValueExist(normalizedValue));
+        }
+        return targetValue;
+    }
+
+    /**
+     * @param normalizedValue нормализованное исходное значение
+     * @return Возвращает <code>TRUE</code>, если исходное значение существует в справочнике
+     */
+    private boolean isNormalizedValueExist(String normalizedValue) {
+        return targetValues.containsKey(normalizedValue) || unmatchedValues.contains(normalizedValue);
+    }
+
+    /**
+     * @param fromValue исходное значение
+     * @return Возвращает <code>TRUE</code>, если исходное значение существует в справочнике
+     */
+    public boolean isSourceValueExist(String fromValue) {
+        Boolean isExist = missedValues.getIfPresent(fromValue != null ? fromValue : "");
+        return isExist != null ? isExist : isNormalizedValueExist(normalize(fromValue));
+    }
+
+    /**
+     * @return Возвращает <code>TRUE</code>, если для набора правил определено значение по умолчанию
+     */
+    public boolean hasDefaultValue() {
+        return defaultValue != null;
+    }
+
+    /**
+     * @param metaFieldId идентификатор МЕТА-поля
+     * @return Возвращает <code>TRUE</code>, если таблица построена по значениям указанного МЕТА-поля
+     */
+    public boolean isDependsOn(String metaFieldId) {
+        return fromFieldId.equals(metaFieldId) || toFieldId.equals(metaFieldId);
+    }
+
+    /**
+     * @return Возвращает количество правил перекодирования в таблице
+     */
+    public int size() {
+        return targetValues.size();
+    }
+}
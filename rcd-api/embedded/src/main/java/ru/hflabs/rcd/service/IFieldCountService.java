@@ -0,0 +1,34 @@
+package ru.hflabs.rcd.service;
+
+import ru.hflabs.rcd.model.document.Field;
+import ru.hflabs.rcd.model.document.MetaField;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Интерфейс <class>IFieldCountService</class> декларирует методы получения количества актуальных значений полей
+ * и записей справочников без обращения к индексу значений полей
+ *
+ * @see Field
+ */
+public interface IFieldCountService {
+
+    /**
+     * @param metaFieldId идентификатор МЕТА-поля
+     * @return Возвращает количество актуальных значений МЕТА-поля
+     */
+    int countFields(String metaFieldId);
+
+    /**
+     * @param metaFieldIDs коллекция идентификаторов МЕТА-полей
+     * @return Возвращает количество актуальных значений МЕТА-полей, где ключ - идентификатор МЕТА-поля
+     */
+    Map<String, Integer> countFields(Collection<String> metaFieldIDs);
+
+    /**
+     * @param metaFields коллекция МЕТА-полей справочника
+     * @return Возвращает количество актуальных записей справочника
+     */
+    int countRecords(Collection<MetaField> metaFields);
+}
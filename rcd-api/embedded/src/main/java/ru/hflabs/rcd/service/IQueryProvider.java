@@ -5,6 +5,7 @@ import ru.hflabs.rcd.model.criteria.CriteriaHolder;
 import ru.hflabs.util.core.Three;
 
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * Интерфейс <class>IQueryProvider</class> декларирует методы провайдера выполнения запросов
@@ -31,4 +32,13 @@ public interface IQueryProvider<E extends Identifying, C extends CriteriaHolder<
      * @return Возвращает количество найденных документов
      */
     Integer executeCountByCriteria(C criteria);
+
+    /**
+     * Возвращает количество документов по подготовленному критерию, сгруппированное по значениям поля
+     *
+     * @param criteria критерий поиска
+     * @param groupField название поля группировки
+     * @return Возвращает количество найденных документов, где ключ - значение поля группировки
+     */
+    Map<String, Integer> executeGroupCountByCriteria(C criteria, String groupField);
 }
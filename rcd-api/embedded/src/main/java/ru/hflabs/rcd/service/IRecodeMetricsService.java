@@ -0,0 +1,42 @@
+package ru.hflabs.rcd.service;
+
+import ru.hflabs.rcd.model.rule.RecodeMetrics;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Интерфейс <class>IRecodeMetricsService</class> декларирует методы сбора статистики перекодирования
+ *
+ * @see RecodeMetrics
+ */
+public interface IRecodeMetricsService {
+
+    /**
+     * Регистрирует результат перекодирования значения
+     *
+     * @param ruleSetName название набора правил или <code>NULL</code>, если набор не определен
+     * @param outcome результат перекодирования
+     * @param elapsedNanos время перекодирования в наносекундах
+     */
+    void registerRecode(String ruleSetName, RecodeMetrics.Outcome outcome, long elapsedNanos);
+
+    /**
+     * Регистрирует результат перекодирования значения по цепочке наборов правил
+     *
+     * @param aliases названия наборов правил цепочки
+     * @param outcome результат перекодирования
+     * @param elapsedNanos время перекодирования в наносекундах
+     */
+    void registerChainRecode(List<String> aliases, RecodeMetrics.Outcome outcome, long elapsedNanos);
+
+    /**
+     * @return Возвращает снимок статистики по всем наборам правил
+     */
+    Collection<RecodeMetrics> retrieveMetrics();
+
+    /**
+     * Выполняет сброс накопленной статистики
+     */
+    void reset();
+}
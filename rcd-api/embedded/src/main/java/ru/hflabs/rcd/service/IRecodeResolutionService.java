@@ -0,0 +1,35 @@
+package ru.hflabs.rcd.service;
+
+import ru.hflabs.rcd.model.path.MetaFieldNamedPath;
+import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+
+/**
+ * Интерфейс <class>IRecodeResolutionService</class> декларирует методы кэшируемого определения наборов правил перекодирования
+ *
+ * @see RecodeRuleSet
+ */
+public interface IRecodeResolutionService {
+
+    /**
+     * Возвращает набор правил перекодирования по его названию
+     *
+     * @param alias название набора
+     * @return Возвращает найденный набор правил
+     * @throws ru.hflabs.rcd.exception.search.rule.UnknownRuleSetNameException если набор правил не найден
+     */
+    RecodeRuleSet resolveRecodeRuleSet(String alias);
+
+    /**
+     * Возвращает набор правил перекодирования по именованным путям справочников
+     *
+     * @param fromPath исходный именованный путь
+     * @param toPath целевой именованный путь
+     * @return Возвращает найденный набор правил
+     */
+    RecodeRuleSet resolveRecodeRuleSet(MetaFieldNamedPath fromPath, MetaFieldNamedPath toPath);
+
+    /**
+     * Выполняет сброс всех определенных наборов правил
+     */
+    void invalidate();
+}
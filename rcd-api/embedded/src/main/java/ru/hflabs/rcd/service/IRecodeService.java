@@ -0,0 +1,80 @@
+package ru.hflabs.rcd.service;
+
+import ru.hflabs.rcd.model.path.MetaFieldNamedPath;
+import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+
+import java.util.List;
+
+/**
+ * Интерфейс <class>IRecodeService</class> декларирует методы перекодирования значений.<br/>
+ * Реализация регистрирует статистику и публикует события результата перекодирования,
+ * поэтому может использоваться любым конечным интерфейсом системы
+ *
+ * @see RecodeRuleSet
+ */
+public interface IRecodeService {
+
+    /**
+     * Определяет набор правил перекодирования по его названию.<br/>
+     * Ошибка определения регистрируется в статистике и публикуется так же, как при перекодировании значения
+     *
+     * @param alias название набора правил
+     * @return Возвращает найденный набор правил
+     * @throws ru.hflabs.rcd.exception.search.rule.UnknownRuleSetNameException если набор правил не найден
+     */
+    RecodeRuleSet resolveRecodeRuleSet(String alias);
+
+    /**
+     * Определяет набор правил перекодирования по именованным путям справочников.<br/>
+     * Ошибка определения регистрируется в статистике и публикуется так же, как при перекодировании значения
+     *
+     * @param fromPath исходный путь справочника
+     * @param toPath целевой путь справочника
+     * @return Возвращает найденный набор правил
+     * @throws ru.hflabs.rcd.exception.search.rule.UnknownRecodeRuleSetException если набор правил не найден
+     */
+    RecodeRuleSet resolveRecodeRuleSet(MetaFieldNamedPath fromPath, MetaFieldNamedPath toPath);
+
+    /**
+     * Выполняет перекодирование значения по набору правил
+     *
+     * @param ruleSet набор правил перекодирования
+     * @param fromValue исходное значение
+     * @return Возвращает целевое значение перекодирования
+     * @throws ru.hflabs.rcd.exception.search.rule.UnknownRecodeRuleException если для значения не найдено правило
+     * @throws ru.hflabs.rcd.exception.search.document.UnknownFieldException если исходное значение не найдено
+     */
+    String recode(RecodeRuleSet ruleSet, String fromValue);
+
+    /**
+     * Выполняет перекодирование значения по названию набора правил
+     *
+     * @param alias название набора правил
+     * @param fromValue исходное значение
+     * @return Возвращает целевое значение перекодирования
+     * @throws ru.hflabs.rcd.exception.search.rule.UnknownRuleSetNameException если набор правил не найден
+     */
+    String recode(String alias, String fromValue);
+
+    /**
+     * Выполняет перекодирование значения по набору правил, определенному по именованным путям справочников
+     *
+     * @param fromPath исходный путь справочника
+     * @param toPath целевой путь справочника
+     * @param fromValue исходное значение
+     * @return Возвращает целевое значение перекодирования
+     * @throws ru.hflabs.rcd.exception.search.rule.UnknownRecodeRuleSetException если набор правил не найден
+     */
+    String recode(MetaFieldNamedPath fromPath, MetaFieldNamedPath toPath, String fromValue);
+
+    /**
+     * Выполняет перекодирование значения по цепочке наборов правил, где целевое значение каждого звена
+     * является исходным значением следующего
+     *
+     * @param aliases упорядоченная коллекция названий наборов правил
+     * @param fromValue исходное значение первого звена
+     * @return Возвращает целевое значение последнего звена
+     * @throws ru.hflabs.rcd.exception.search.rule.RecodeChainException если перекодирование не выполнено на одном из звеньев
+     */
+    String recodeChain(List<String> aliases, String fromValue);
+}
@@ -0,0 +1,39 @@
+package ru.hflabs.rcd.service;
+
+import ru.hflabs.rcd.model.rule.RecodeChainTable;
+import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+import ru.hflabs.rcd.model.rule.RecodeTable;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Интерфейс <class>IRecodeTableService</class> декларирует методы работы со скомпилированными таблицами перекодирования
+ *
+ * @see RecodeTable
+ */
+public interface IRecodeTableService {
+
+    /**
+     * Возвращает актуальную таблицу перекодирования набора правил, выполняя ее построение при необходимости
+     *
+     * @param ruleSet набор правил перекодирования
+     * @return Возвращает таблицу перекодирования
+     */
+    RecodeTable retrieveRecodeTable(RecodeRuleSet ruleSet);
+
+    /**
+     * Возвращает актуальную таблицу перекодирования цепочки наборов правил, выполняя ее построение при необходимости
+     *
+     * @param ruleSets упорядоченная коллекция наборов правил цепочки
+     * @return Возвращает таблицу перекодирования цепочки
+     */
+    RecodeChainTable retrieveRecodeChainTable(List<RecodeRuleSet> ruleSets);
+
+    /**
+     * Выполняет сброс таблиц перекодирования, а также таблиц цепочек, в которые входят сбрасываемые наборы
+     *
+     * @param ruleSetIDs коллекция идентификаторов наборов правил или <code>NULL</code>, если необходимо сбросить все таблицы
+     */
+    void invalidate(Collection<String> ruleSetIDs);
+}
@@ -0,0 +1,24 @@
+package ru.hflabs.rcd.service;
+
+import java.util.Collection;
+
+/**
+ * Интерфейс <class>IRecodeWarmupService</class> декларирует методы предварительной загрузки наборов правил перекодирования
+ *
+ * @see IRecodeTableService
+ */
+public interface IRecodeWarmupService {
+
+    /**
+     * Выполняет предварительную загрузку наборов правил, их таблиц перекодирования и целевых полей
+     *
+     * @param ruleSetNames коллекция названий наборов правил
+     * @return Возвращает количество загруженных наборов правил
+     */
+    int warmUp(Collection<String> ruleSetNames);
+
+    /**
+     * @return Возвращает <code>TRUE</code>, если предварительная загрузка при старте завершена и сервис готов к перекодированию
+     */
+    boolean isReady();
+}
@@ -0,0 +1,35 @@
+package ru.hflabs.rcd.service;
+
+import ru.hflabs.rcd.model.document.MetaField;
+import ru.hflabs.rcd.model.document.RecordColumns;
+
+import java.util.Collection;
+
+/**
+ * Интерфейс <class>IRecordCacheService</class> декларирует методы кэша поколоночного представления записей небольших справочников
+ *
+ * @see RecordColumns
+ */
+public interface IRecordCacheService {
+
+    /**
+     * Возвращает поколоночное представление записей справочника, выполняя его построение при необходимости
+     *
+     * @param metaFields коллекция МЕТА-полей справочника
+     * @return Возвращает представление записей или <code>NULL</code>, если справочник не кэшируется
+     */
+    RecordColumns retrieveColumns(Collection<MetaField> metaFields);
+
+    /**
+     * @param metaFieldId идентификатор МЕТА-поля
+     * @return Возвращает ранее построенное представление записей справочника МЕТА-поля или <code>NULL</code>, если его нет в кэше
+     */
+    RecordColumns findColumnsByMetaField(String metaFieldId);
+
+    /**
+     * Выполняет сброс кэша справочников
+     *
+     * @param dictionaryIDs коллекция идентификаторов справочников или <code>NULL</code>, если необходимо сбросить все справочники
+     */
+    void invalidate(Collection<String> dictionaryIDs);
+}
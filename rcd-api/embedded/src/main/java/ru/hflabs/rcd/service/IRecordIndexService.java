@@ -0,0 +1,47 @@
+package ru.hflabs.rcd.service;
+
+import ru.hflabs.rcd.model.criteria.FilterCriteria;
+import ru.hflabs.rcd.model.criteria.FilterResult;
+import ru.hflabs.rcd.model.document.MetaField;
+import ru.hflabs.rcd.model.document.Record;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Интерфейс <class>IRecordIndexService</class> декларирует методы поиска записей справочника по индексу записей,
+ * в котором каждой {@link Record записи} соответствует один документ со значениями всех МЕТА-полей
+ *
+ * @see Record
+ */
+public interface IRecordIndexService {
+
+    /**
+     * Выполняет поиск, сортировку и выделение страницы записей справочника
+     *
+     * @param metaFields коллекция МЕТА-полей справочника
+     * @param criteria критерий поиска, фильтры которого не учитываются
+     * @param recordIDs идентификаторы записей, среди которых выполняется поиск, или <code>NULL</code>, если поиск выполняется по всем записям
+     * @return Возвращает упорядоченные идентификаторы записей страницы и количество записей, удовлетворяющих критерию
+     */
+    FilterResult<String> findRecordIDs(Collection<MetaField> metaFields, FilterCriteria criteria, Collection<String> recordIDs);
+
+    /**
+     * Выполняет поиск порции идентификаторов записей справочника, следующих по возрастанию за указанным идентификатором
+     *
+     * @param metaFields коллекция МЕТА-полей справочника
+     * @param search строка поиска или <code>NULL</code>
+     * @param recordIDs идентификаторы записей, среди которых выполняется поиск, или <code>NULL</code>, если поиск выполняется по всем записям
+     * @param afterRecordId идентификатор последней записи предыдущей порции или <code>NULL</code> для первой порции
+     * @param count размер порции
+     * @return Возвращает упорядоченные по возрастанию идентификаторы записей
+     */
+    List<String> findNextRecordIDs(Collection<MetaField> metaFields, String search, Collection<String> recordIDs, String afterRecordId, int count);
+
+    /**
+     * Выполняет сброс записей справочников, после которого индекс записей справочника будет построен заново при следующем поиске
+     *
+     * @param dictionaryIDs коллекция идентификаторов справочников или <code>NULL</code>, если необходимо сбросить все справочники
+     */
+    void invalidate(Collection<String> dictionaryIDs);
+}
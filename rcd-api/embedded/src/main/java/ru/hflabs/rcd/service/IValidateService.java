@@ -3,6 +3,8 @@ package ru.hflabs.rcd.service;
 import org.springframework.validation.Errors;
 import ru.hflabs.rcd.exception.ApplicationValidationException;
 
+import java.util.Collection;
+
 /**
  * Интерфейс <class>IValidateService</class> декларирует методы сервиса валидации консистентности объекта
  *
@@ -28,4 +30,14 @@ public interface IValidateService<T> extends ISingleClassObserver<T> {
      * @throws ApplicationValidationException Исключительная ситуация при валидации объекта
      */
     T validate(T object) throws ApplicationValidationException;
+
+    /**
+     * Выполняет пакетную валидацию коллекции объектов
+     *
+     * @param objects коллекция валидируемых объектов
+     * @return Возвращает коллекцию модифицированных объектов, прошедших валидацию
+     * @throws ApplicationValidationException Исключительная ситуация при валидации первого из объектов, содержащих ошибки
+     * @see #validate(Object)
+     */
+    Collection<T> validateAll(Collection<T> objects) throws ApplicationValidationException;
 }
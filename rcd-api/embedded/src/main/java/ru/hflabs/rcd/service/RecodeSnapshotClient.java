@@ -0,0 +1,102 @@
+package ru.hflabs.rcd.service;
+
+import ru.hflabs.rcd.model.rule.RecodeSnapshot;
+import ru.hflabs.rcd.model.rule.RecodeSnapshotTable;
+import ru.hflabs.rcd.service.rule.IRecodeSnapshotService;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Класс <class>RecodeSnapshotClient</class> реализует перекодирование на стороне клиента по локальным копиям таблиц перекодирования.<br/>
+ * Копия таблицы загружается при первом обращении к набору правил, а затем обновляется только изменениями
+ * при вызове {@link #refresh(String)} или {@link #refreshAll()} с необходимой клиенту периодичностью.
+ *
+ * @author Nazin Alexander
+ * @see RecodeSnapshotTable
+ */
+public class RecodeSnapshotClient {
+
+    /** Сервис выгрузки таблиц перекодирования */
+    private final IRecodeSnapshotService snapshotService;
+    /** Локальные копии таблиц, где ключ - название набора правил */
+    private final ConcurrentMap<String, RecodeSnapshotTable> tables;
+
+    public RecodeSnapshotClient(IRecodeSnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+        this.tables = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Выполняет обновление таблицы перекодирования
+     *
+     * @param table локальная копия таблицы
+     */
+    private void refresh(RecodeSnapshotTable table) {
+        synchronized (table) {
+            RecodeSnapshot snapshot = RecodeSnapshot.fromBytes(
+                    snapshotService.exportSnapshot(table.getRuleSetName(), table.getEpoch(), table.getVersion())
+            );
+            try {
+                table.apply(snapshot);
+            } catch (IllegalStateException ex) {
+                // Изменения не согласуются с локальной копией, поэтому загружаем полный снимок
+                table.apply(RecodeSnapshot.fromBytes(
+                        snapshotService.exportSnapshot(table.getRuleSetName(), table.getEpoch(), RecodeSnapshot.NO_VERSION)
+                ));
+            }
+        }
+    }
+
+    /**
+     * Возвращает локальную копию таблицы перекодирования, выполняя ее загрузку при необходимости
+     *
+     * @param ruleSetName название набора правил
+     * @return Возвращает локальную копию таблицы
+     */
+    public RecodeSnapshotTable retrieveTable(String ruleSetName) {
+        RecodeSnapshotTable result = tables.get(ruleSetName);
+        if (result == null) {
+            RecodeSnapshotTable created = new RecodeSnapshotTable(ruleSetName);
+            refresh(created);
+            result = tables.putIfAbsent(ruleSetName, created);
+            result = (result != null) ? result : created;
+        }
+        return result;
+    }
+
+    /**
+     * Выполняет обновление локальной копии таблицы набора правил
+     *
+     * @param ruleSetName название набора правил
+     * @return Возвращает обновленную таблицу
+     */
+    public RecodeSnapshotTable refresh(String ruleSetName) {
+        RecodeSnapshotTable result = tables.get(ruleSetName);
+        if (result == null) {
+            return retrieveTable(ruleSetName);
+        }
+        refresh(result);
+        return result;
+    }
+
+    /**
+     * Выполняет обновление всех загруженных таблиц
+     */
+    public void refreshAll() {
+        for (RecodeSnapshotTable table : tables.values()) {
+            refresh(table);
+        }
+    }
+
+    /**
+     * Выполняет перекодирование значения по локальной копии таблицы
+     *
+     * @param ruleSetName название набора правил
+     * @param fromValue исходное значение
+     * @return Возвращает целевое значение перекодирования, значение по умолчанию или <code>NULL</code>, если правило не найдено
+     */
+    public String recode(String ruleSetName, String fromValue) {
+        return retrieveTable(ruleSetName).findTargetValue(fromValue);
+    }
+}
@@ -7,6 +7,13 @@ import org.springframework.util.StringUtils;
 import ru.hflabs.rcd.accessor.FieldAccessor;
 import ru.hflabs.rcd.event.modify.ChangeEvent;
 import ru.hflabs.rcd.exception.constraint.IllegalPrimaryKeyException;
+import ru.hflabs.rcd.exception.search.document.UnknownDictionaryException;
+import ru.hflabs.rcd.exception.search.document.UnknownFieldException;
+import ru.hflabs.rcd.exception.search.document.UnknownGroupException;
+import ru.hflabs.rcd.exception.search.rule.RecodeChainException;
+import ru.hflabs.rcd.exception.search.rule.UnknownRecodeRuleException;
+import ru.hflabs.rcd.exception.search.rule.UnknownRecodeRuleSetException;
+import ru.hflabs.rcd.exception.search.rule.UnknownRuleSetNameException;
 import ru.hflabs.rcd.model.*;
 import ru.hflabs.rcd.model.change.ChangeSet;
 import ru.hflabs.rcd.model.change.ChangeType;
@@ -15,6 +22,7 @@ import ru.hflabs.rcd.model.change.Predicates;
 import ru.hflabs.rcd.model.criteria.FilterActivity;
 import ru.hflabs.rcd.model.criteria.FilterCriteria;
 import ru.hflabs.rcd.model.criteria.FilterCriteriaValue;
+import ru.hflabs.rcd.model.notification.NotifyType;
 import ru.hflabs.rcd.model.path.MetaFieldNamedPath;
 import ru.hflabs.rcd.model.rule.Rule;
 import ru.hflabs.util.core.ExceptionUtil;
@@ -130,6 +138,32 @@ public abstract class ServiceUtils {
         return findUniqueDocumentBy(service, new FilterCriteria().injectFilters(filters), fillTransitive);
     }
 
+    /**
+     * Определяет {@link NotifyType тип оповещения} по исключительной ситуации перекодирования
+     *
+     * @param exception исключительная ситуация
+     * @return Возвращает тип оповещения
+     */
+    public static NotifyType determineNotifyType(Throwable exception) {
+        if (exception instanceof RecodeChainException) { // ошибка шага цепочки перекодирования
+            return determineNotifyType(exception.getCause());
+        } else if (exception instanceof UnknownRecodeRuleException) { // правило перекодирования не найдено
+            return NotifyType.NO_RULE;
+        } else if (exception instanceof UnknownRecodeRuleSetException) { // набор правил перекодирования не найден
+            return NotifyType.NO_RULE_SET;
+        } else if (exception instanceof UnknownRuleSetNameException) {
+            return NotifyType.NO_RULE_ALIAS;
+        } else if (exception instanceof UnknownFieldException) { // значение поля не найдено
+            return NotifyType.NO_VALUE;
+        } else if (exception instanceof UnknownDictionaryException) { // справочник не найден
+            return NotifyType.NO_DICTIONARY;
+        } else if (exception instanceof UnknownGroupException) { // группа справочников не найдена
+            return NotifyType.NO_GROUP;
+        } else { // необработанная ошибка
+            return NotifyType.ERROR;
+        }
+    }
+
     /**
      * Выполняет оповещение слушателей об изменениях
      *
@@ -0,0 +1,115 @@
+package ru.hflabs.rcd.model.document;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.testng.Assert.*;
+
+@Test
+public class RecordColumnsTest {
+
+    private static MetaField createMetaField(String id, String name, int ordinal, int... flags) {
+        MetaField result = new MetaField();
+        result.setId(id);
+        result.setName(name);
+        result.setOrdinal(ordinal);
+        result.setDictionaryId("dictionary");
+        result.establishFlags(flags);
+        return result;
+    }
+
+    private static Field createField(String metaFieldId, String name, String value) {
+        Field result = new Field();
+        result.setId(metaFieldId + "_" + name);
+        result.setMetaFieldId(metaFieldId);
+        result.setName(name);
+        result.setValue(value);
+        return result;
+    }
+
+    private static RecordColumns createColumns() {
+        return new RecordColumns(
+                "dictionary",
+                ImmutableList.of(
+                        createMetaField("title", "TITLE", 1),
+                        createMetaField("code", "CODE", 0, MetaField.FLAG_PRIMARY, MetaField.FLAG_UNIQUE)
+                ),
+                ImmutableList.of(
+                        createField("code", "r1", "B"),
+                        createField("code", "r2", "a"),
+                        createField("code", "r3", "C"),
+                        createField("title", "r1", "same"),
+                        createField("title", "r3", "same")
+                )
+        );
+    }
+
+    public void testCreateRecords() {
+        RecordColumns columns = createColumns();
+        assertEquals(columns.size(), 3);
+
+        int[] rows = columns.findRows(ImmutableList.of("r3", "unknown", "r1"));
+        assertEquals(rows.length, 2);
+        Record record = columns.createRecord(rows[0]);
+        assertEquals(record.getId(), "r3");
+        assertEquals(record.getDictionaryId(), "dictionary");
+        assertEquals(ImmutableList.copyOf(record.getFields().keySet()), ImmutableList.of("CODE", "TITLE"));
+        assertEquals(record.retrieveFieldByName("CODE").getValue(), "C");
+        assertEquals(record.retrieveFieldByName("CODE").getId(), "code_r3");
+        assertSame(record.retrieveFieldByName("TITLE").getValue(), columns.createRecord(rows[1]).retrieveFieldByName("TITLE").getValue());
+
+        assertNull(columns.createRecord(columns.findRows(ImmutableList.of("r2"))[0]).retrieveFieldByName("TITLE"));
+    }
+
+    public void testSortRows() {
+        RecordColumns columns = createColumns();
+
+        int[] rows = columns.findRows(null);
+        columns.sortRows(rows, "CODE", false);
+        assertEquals(columns.createRecord(rows[0]).getId(), "r1");
+        assertEquals(columns.createRecord(rows[1]).getId(), "r3");
+        assertEquals(columns.createRecord(rows[2]).getId(), "r2");
+
+        columns.sortRows(rows, "TITLE", true);
+        assertEquals(columns.createRecord(rows[0]).getId(), "r1");
+        assertEquals(columns.createRecord(rows[1]).getId(), "r3");
+        assertEquals(columns.createRecord(rows[2]).getId(), "r2");
+    }
+
+    public void testFindByUniqueValues() {
+        RecordColumns columns = createColumns();
+        assertTrue(columns.hasValueIndex("code"));
+        assertFalse(columns.hasValueIndex("title"));
+
+        List<Field> fields = columns.findFieldsByValues("code", ImmutableSet.of("A", "c", "d"));
+        assertEquals(fields.size(), 2);
+        assertEquals(fields.get(0).getName(), "r2");
+        assertEquals(fields.get(1).getName(), "r3");
+
+        assertEquals(columns.findFieldsByNames("title", ImmutableSet.of("r1", "r2")).size(), 1);
+    }
+
+    public void testUUIDIdentifiers() {
+        String fieldId = UUID.randomUUID().toString();
+        String historyId = UUID.randomUUID().toString();
+        Field field = createField("code", "r1", "A");
+        field.setId(fieldId);
+        field.setHistoryId(historyId);
+        RecordColumns columns = new RecordColumns(
+                "dictionary",
+                ImmutableList.of(createMetaField("code", "CODE", 0)),
+                ImmutableList.of(field, createField("code", "r2", "B"))
+        );
+
+        Record record = columns.createRecord(columns.findRows(ImmutableList.of("r1"))[0]);
+        assertEquals(record.retrieveFieldByName("CODE").getId(), fieldId);
+        assertEquals(record.retrieveFieldByName("CODE").getHistoryId(), historyId);
+        record = columns.createRecord(columns.findRows(ImmutableList.of("r2"))[0]);
+        assertEquals(record.retrieveFieldByName("CODE").getId(), "code_r2");
+        assertNull(record.retrieveFieldByName("CODE").getHistoryId());
+    }
+}
@@ -0,0 +1,67 @@
+package ru.hflabs.rcd.model.rule;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+@Test
+public class RecodeChainTableTest {
+
+    public void testComposeChain() {
+        RecodeTable regional = new RecodeTable(
+                "regional", "r", "f", null,
+                ImmutableMap.of("r1", "F1", "r2", "F2", "r3", "F3"),
+                ImmutableSet.of("r4")
+        );
+        RecodeTable federal = new RecodeTable(
+                "federal", "f", "p", null,
+                ImmutableMap.of("f1", "P1", "f2", "P2"),
+                ImmutableSet.of("f3")
+        );
+        RecodeChainTable chain = new RecodeChainTable(ImmutableList.of(regional, federal));
+
+        RecodeChainTable.Step step = chain.findStep("R1");
+        assertFalse(step.isFailed());
+        assertFalse(step.isDefaulted());
+        assertEquals(step.getValue(), "P1");
+
+        step = chain.findStep("r3");
+        assertTrue(step.isFailed());
+        assertEquals(step.getFailedHop(), 1);
+        assertEquals(step.getFailedValue(), "F3");
+        assertTrue(step.isFailedValueExist());
+
+        assertNull(chain.findStep("r4"));
+        assertFalse(chain.hasRule("r4"));
+        assertTrue(chain.isDependsOn("federal"));
+        assertFalse(chain.isDependsOn("partner"));
+    }
+
+    public void testComposeChainWithDefaults() {
+        RecodeTable regional = new RecodeTable(
+                "regional", "r", "f", "F2",
+                ImmutableMap.of("r1", "F9"),
+                ImmutableSet.<String>of()
+        );
+        RecodeTable federal = new RecodeTable(
+                "federal", "f", "p", "P0",
+                ImmutableMap.of("f2", "P2"),
+                ImmutableSet.<String>of()
+        );
+        RecodeChainTable chain = new RecodeChainTable(ImmutableList.of(regional, federal));
+
+        RecodeChainTable.Step step = chain.findStep("r1");
+        assertEquals(step.getValue(), "P0");
+        assertTrue(step.isDefaulted());
+        assertEquals(step.getNoticeHop(), 1);
+        assertEquals(step.getNoticeValue(), "F9");
+
+        step = chain.findStep("unknown");
+        assertEquals(step.getValue(), "P2");
+        assertTrue(step.isDefaulted());
+        assertEquals(step.getNoticeHop(), -1);
+    }
+}
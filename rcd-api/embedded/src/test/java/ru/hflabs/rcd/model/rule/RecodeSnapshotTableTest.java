@@ -0,0 +1,47 @@
+package ru.hflabs.rcd.model.rule;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+@Test
+public class RecodeSnapshotTableTest {
+
+    private static RecodeSnapshot createSnapshot(long baseVersion, long version, String defaultValue, String... changes) {
+        RecodeSnapshot result = new RecodeSnapshot();
+        result.setRuleSetName("ruleSet");
+        result.setEpoch(1L);
+        result.setBaseVersion(baseVersion);
+        result.setVersion(version);
+        result.setDefaultValue(defaultValue);
+        for (int i = 0; i < changes.length; i += 2) {
+            result.getChanges().put(changes[i], changes[i + 1]);
+        }
+        return RecodeSnapshot.fromBytes(result.toBytes());
+    }
+
+    public void testApplySnapshotAndChanges() {
+        RecodeSnapshotTable table = new RecodeSnapshotTable("ruleSet");
+        assertEquals(table.getVersion(), RecodeSnapshot.NO_VERSION);
+
+        table.apply(createSnapshot(RecodeSnapshot.NO_VERSION, 0, null, "a", "1", "b", "2"));
+        assertEquals(table.getEpoch(), 1L);
+        assertEquals(table.getVersion(), 0L);
+        assertEquals(table.findTargetValue("A"), "1");
+        assertNull(table.findTargetValue("c"));
+
+        table.apply(createSnapshot(0, 2, "default", "a", null, "c", "3"));
+        assertEquals(table.getVersion(), 2L);
+        assertEquals(table.size(), 2);
+        assertEquals(table.findTargetValue("a"), "default");
+        assertEquals(table.findTargetValue("b"), "2");
+        assertEquals(table.findTargetValue("c"), "3");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testApplyUnrelatedChanges() {
+        RecodeSnapshotTable table = new RecodeSnapshotTable("ruleSet");
+        table.apply(createSnapshot(RecodeSnapshot.NO_VERSION, 3, null, "a", "1"));
+        table.apply(createSnapshot(1, 4, null, "b", "2"));
+    }
+}
@@ -0,0 +1,55 @@
+package ru.hflabs.rcd.model.rule;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+@Test
+public class RecodeTableTest {
+
+    public void testFindTargetValue() {
+        RecodeTable table = new RecodeTable(
+                "ruleSet", "from", "to", null,
+                ImmutableMap.of(RecodeTable.normalize("Value"), "target", RecodeTable.normalize(null), "empty"),
+                ImmutableSet.of(RecodeTable.normalize("Unmatched"))
+        );
+        assertEquals(table.findTargetValue("VALUE"), "target");
+        assertEquals(table.findTargetValue(""), "empty");
+        assertEquals(table.findTargetValue(null), "empty");
+        assertNull(table.findTargetValue("unmatched"));
+        assertTrue(table.isSourceValueExist("value"));
+        assertTrue(table.isSourceValueExist("UNMATCHED"));
+        assertFalse(table.isSourceValueExist("unknown"));
+        assertFalse(table.hasDefaultValue());
+    }
+
+    public void testRepeatedMiss() {
+        RecodeTable table = new RecodeTable(
+                "ruleSet", "from", "to", null,
+                ImmutableMap.of(RecodeTable.normalize("Value"), "target"),
+                ImmutableSet.of(RecodeTable.normalize("Unmatched"))
+        );
+        for (int i = 0; i < 3; i++) {
+            assertNull(table.findTargetValue("Unmatched"));
+            assertTrue(table.isSourceValueExist("Unmatched"));
+            assertNull(table.findTargetValue("Unknown"));
+            assertFalse(table.isSourceValueExist("Unknown"));
+            assertEquals(table.findTargetValue("value"), "target");
+        }
+    }
+
+    public void testDependsOn() {
+        RecodeTable table = new RecodeTable(
+                "ruleSet", "from", "to", "default",
+                ImmutableMap.<String, String>of(),
+                ImmutableSet.<String>of()
+        );
+        assertTrue(table.isDependsOn("from"));
+        assertTrue(table.isDependsOn("to"));
+        assertFalse(table.isDependsOn("other"));
+        assertTrue(table.hasDefaultValue());
+        assertEquals(table.getDefaultValue(), "default");
+    }
+}
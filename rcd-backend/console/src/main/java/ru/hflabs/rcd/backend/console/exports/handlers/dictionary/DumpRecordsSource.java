@@ -0,0 +1,93 @@
+package ru.hflabs.rcd.backend.console.exports.handlers.dictionary;
+
+import ru.hflabs.rcd.model.connector.TransferDictionaryDescriptor;
+import ru.hflabs.rcd.model.document.Dictionary;
+import ru.hflabs.rcd.model.document.Record;
+import ru.hflabs.rcd.service.ICloseableIterator;
+import ru.hflabs.rcd.service.IManagerService;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Класс <class>DumpRecordsSource</class> реализует получение записей экспортируемого справочника порциями через сервис управления документами.<br/>
+ * Каждая порция запрашивается начиная с идентификатора, следующего за последней записью предыдущей порции,
+ * поэтому в памяти одновременно находятся только записи текущей порции
+ *
+ * @author Nazin Alexander
+ * @see IManagerService#dumpRecords(String, String, int)
+ */
+public class DumpRecordsSource implements TransferDictionaryDescriptor.RecordsSource {
+
+    /** Сервис управления документами */
+    private final IManagerService managerService;
+    /** Размер порции */
+    private final int batchSize;
+
+    public DumpRecordsSource(IManagerService managerService, int batchSize) {
+        this.managerService = managerService;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public ICloseableIterator<Record> iterateRecords(Dictionary dictionary) {
+        return new DumpRecordsIterator(dictionary.getId());
+    }
+
+    /**
+     * Класс <class>DumpRecordsIterator</class> реализует обход записей справочника порциями
+     *
+     * @author Nazin Alexander
+     */
+    private class DumpRecordsIterator implements ICloseableIterator<Record> {
+
+        /** Идентификатор справочника */
+        private final String dictionaryId;
+        /** Записи текущей порции */
+        private Iterator<Record> batch;
+        /** Идентификатор последней записи текущей порции */
+        private String lastRecordId;
+        /** Флаг завершения обхода */
+        private boolean exhausted;
+
+        private DumpRecordsIterator(String dictionaryId) {
+            this.dictionaryId = dictionaryId;
+            this.batch = Collections.emptyIterator();
+            this.exhausted = dictionaryId == null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!batch.hasNext() && !exhausted) {
+                List<Record> records = managerService.dumpRecords(dictionaryId, lastRecordId, batchSize);
+                exhausted = records.isEmpty();
+                if (!exhausted) {
+                    lastRecordId = records.get(records.size() - 1).getId();
+                    batch = records.iterator();
+                }
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Remove not supported");
+        }
+
+        @Override
+        public void close() {
+            exhausted = true;
+            batch = Collections.emptyIterator();
+        }
+    }
+}
@@ -29,11 +29,15 @@ import java.util.List;
  */
 public class ExportDictionariesOverDirectory extends ExportProcessorOverFileTemplate<ExportDictionariesCommand> {
 
+    /** Количество записей, получаемых за одно обращение к сервису управления документами */
+    private static final int DUMP_BATCH_SIZE = 1000;
+
     @Override
     public ExportDescriptor processExport(ExportDictionariesCommand preference, IManagerService managerService) {
         final File directory = preference.retrieveTargetFile();
         IDocumentConnector<FilesConnectorConfiguration, List<File>> documentConnector = retrieveDocumentConnector(preference.getFileType());
-        Collection<Group> groups = managerService.dumpGroups(new DictionaryNamedPath(preference.getGroupName(), preference.getDictionaryName()));
+        Collection<Group> groups = managerService.dumpStructure(new DictionaryNamedPath(preference.getGroupName(), preference.getDictionaryName()));
+        DumpRecordsSource recordsSource = new DumpRecordsSource(managerService, DUMP_BATCH_SIZE);
 
         ImmutableList.Builder<Throwable> errorsBuilder = ImmutableList.builder();
         ImmutableMap.Builder<DictionaryNamedPath, File> dictionary2file = ImmutableMap.builder();
@@ -48,7 +52,7 @@ public class ExportDictionariesOverDirectory extends ExportProcessorOverFileTemp
                     // Выполняем экспорт контента справочников
                     List<File> files = documentConnector.writeDictionaries(
                             connectorPreference,
-                            new TransferDictionaryDescriptor(dictionaries, preference.isMeta(), preference.isHidden())
+                            new TransferDictionaryDescriptor(dictionaries, preference.isMeta(), preference.isHidden(), recordsSource)
                     );
                     // Формируем коллекция соответствий справочника к его файлу
                     for (File file : files) {
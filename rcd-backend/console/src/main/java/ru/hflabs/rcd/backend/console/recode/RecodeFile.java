@@ -0,0 +1,53 @@
+package ru.hflabs.rcd.backend.console.recode;
+
+import com.beust.jcommander.ParameterException;
+import ru.hflabs.rcd.backend.console.Command;
+import ru.hflabs.rcd.backend.console.RunTemplate;
+import ru.hflabs.rcd.backend.console.recode.handlers.RecodeDescriptor;
+import ru.hflabs.rcd.backend.console.recode.handlers.RecodeFileCommand;
+import ru.hflabs.rcd.backend.console.recode.handlers.RecodeProcessorOverFile;
+import ru.hflabs.util.spring.Assert;
+
+import java.io.File;
+
+/**
+ * Класс <class>RecodeFile</class> реализует приложение потокового перекодирования колонок CSV файла
+ *
+ * @author Nazin Alexander
+ */
+public final class RecodeFile extends RunTemplate<RecodeFileCommand, Command, RecodeDescriptor> {
+
+    /** Процессор перекодирования файла */
+    private RecodeProcessorOverFile recodeProcessor;
+
+    public void setRecodeProcessor(RecodeProcessorOverFile recodeProcessor) {
+        this.recodeProcessor = recodeProcessor;
+    }
+
+    @Override
+    protected RecodeDescriptor doExecute(RecodeFileCommand preference, Command command) throws Exception {
+        return recodeFile(preference);
+    }
+
+    /**
+     * Выполняет перекодирование файла
+     *
+     * @param preference настройки перекодирования
+     * @return Возвращает дескриптор перекодирования
+     */
+    public RecodeDescriptor recodeFile(RecodeFileCommand preference) throws Exception {
+        Assert.notNull(preference, "Recode preference not properly initialized", ParameterException.class);
+        // Проверяем целевой файл
+        final File targetFile = preference.retrieveTargetFile();
+        Assert.notNull(targetFile, "Missing target file parameter", ParameterException.class);
+        Assert.isTrue(
+                targetFile.isFile() && targetFile.canRead(),
+                String.format("File by path '%s' must exist and have read permissions", targetFile.getCanonicalPath()), ParameterException.class
+        );
+        return recodeProcessor.processRecode(preference, managerService);
+    }
+
+    public static void main(String[] args) {
+        parseCmdArguments(RecodeFile.class, new RecodeFileCommand(), args);
+    }
+}
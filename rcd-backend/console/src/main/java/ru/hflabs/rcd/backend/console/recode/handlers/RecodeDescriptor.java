@@ -0,0 +1,66 @@
+package ru.hflabs.rcd.backend.console.recode.handlers;
+
+import ru.hflabs.rcd.backend.console.RunDescriptor;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Класс <class>RecodeDescriptor</class> дескриптор выполнения перекодирования файла
+ *
+ * @author Nazin Alexander
+ */
+public class RecodeDescriptor extends RunDescriptor {
+
+    /** Количество обработанных строк */
+    private long rowCount;
+    /** Количество перекодированных значений */
+    private long recodedCount;
+    /** Количество ненайденных значений */
+    private long unmatchedCount;
+
+    public RecodeDescriptor() {
+        this(Collections.<Throwable>emptyList());
+    }
+
+    public RecodeDescriptor(Collection<Throwable> errors) {
+        super(errors);
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getRecodedCount() {
+        return recodedCount;
+    }
+
+    public long getUnmatchedCount() {
+        return unmatchedCount;
+    }
+
+    /**
+     * Регистрирует обработанную строку
+     */
+    public void appendRow() {
+        rowCount++;
+    }
+
+    /**
+     * Регистрирует результат перекодирования значения
+     *
+     * @param recoded флаг успешного перекодирования
+     */
+    public void appendValue(boolean recoded) {
+        if (recoded) {
+            recodedCount++;
+        } else {
+            unmatchedCount++;
+        }
+    }
+
+    @Override
+    public String describe() {
+        return String.format("Rows: %d; recoded: %d; unmatched: %d; errors %d", getRowCount(), getRecodedCount(), getUnmatchedCount(), getErrors().size());
+    }
+}
@@ -0,0 +1,85 @@
+package ru.hflabs.rcd.backend.console.recode.handlers;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.util.StringUtils;
+import ru.hflabs.rcd.backend.console.preference.FilePreference;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Класс <class>RecodeFileCommand</class> описывает настройки перекодирования файла
+ *
+ * @author Nazin Alexander
+ */
+@Getter
+@Setter
+@Parameters(commandNames = RecodeFileCommand.COMMAND_NAME, commandDescription = "recode file")
+public class RecodeFileCommand extends FilePreference {
+
+    public static final String COMMAND_NAME = "recf";
+
+    /** Размер пакета перекодирования по умолчанию */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /** Постфикс названия перекодированного файла */
+    private static final String RECODED_POSTFIX = "_recoded";
+    /** Постфикс названия файла ненайденных значений */
+    private static final String UNMATCHED_POSTFIX = "_unmatched";
+
+    /** Название набора правил перекодирования */
+    @Parameter(names = {"-a", "--alias"}, description = "rule set alias", required = true)
+    private String ruleSetName;
+    /** Названия перекодируемых колонок */
+    @Parameter(names = {"-c", "--column"}, description = "recoded column name", required = true)
+    private List<String> columns;
+    /** Путь к перекодированному файлу */
+    @Parameter(names = {"-o", "--output"}, description = "recoded file")
+    private String outputPath;
+    /** Путь к файлу ненайденных значений */
+    @Parameter(names = {"-u", "--unmatched"}, description = "unmatched values file")
+    private String unmatchedPath;
+    /** Количество строк, перекодируемых за одно обращение к серверу */
+    @Parameter(names = {"-b", "--batch"}, description = "rows per server request")
+    private int batchSize;
+
+    public RecodeFileCommand() {
+        super();
+        this.batchSize = DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Формирует путь к файлу, расположенному рядом с исходным
+     *
+     * @param predefined предопределенный путь
+     * @param postfix постфикс названия файла
+     * @return Возвращает сформированный файл
+     */
+    private File retrieveSiblingFile(String predefined, String postfix) {
+        if (StringUtils.hasText(predefined)) {
+            return new File(predefined);
+        }
+        File targetFile = retrieveTargetFile();
+        String extension = FilenameUtils.getExtension(targetFile.getName());
+        return new File(
+                targetFile.getParentFile(),
+                FilenameUtils.getBaseName(targetFile.getName()) + postfix + (StringUtils.hasText(extension) ? FilenameUtils.EXTENSION_SEPARATOR + extension : "")
+        );
+    }
+
+    public File retrieveOutputFile() {
+        return retrieveSiblingFile(outputPath, RECODED_POSTFIX);
+    }
+
+    public File retrieveUnmatchedFile() {
+        return retrieveSiblingFile(unmatchedPath, UNMATCHED_POSTFIX);
+    }
+
+    @Override
+    public String getCommandName() {
+        return COMMAND_NAME;
+    }
+}
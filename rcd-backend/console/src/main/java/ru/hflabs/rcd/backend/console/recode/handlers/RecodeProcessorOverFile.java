@@ -0,0 +1,198 @@
+package ru.hflabs.rcd.backend.console.recode.handlers;
+
+import com.beust.jcommander.ParameterException;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.supercsv.io.CsvListReader;
+import org.supercsv.io.CsvListWriter;
+import org.supercsv.io.ICsvListReader;
+import org.supercsv.io.ICsvListWriter;
+import org.supercsv.prefs.CsvPreference;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import ru.hflabs.rcd.backend.console.preference.FilePreference;
+import ru.hflabs.rcd.exception.ApplicationException;
+import ru.hflabs.rcd.service.IManagerService;
+import ru.hflabs.util.io.IOUtils;
+import ru.hflabs.util.spring.Assert;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Класс <class>RecodeProcessorOverFile</class> реализует процессор потокового перекодирования колонок CSV файла.<br/>
+ * Строки читаются и записываются пакетами, поэтому объем потребляемой памяти не зависит от размера файла,
+ * а значения без правила перекодирования записываются в отдельный файл и не прерывают обработку.
+ *
+ * @author Nazin Alexander
+ */
+public class RecodeProcessorOverFile {
+
+    /** Заголовок файла ненайденных значений */
+    private static final String[] UNMATCHED_HEADER = new String[]{"row", "column", "value"};
+
+    /**
+     * Создает настройки чтения и записи CSV
+     *
+     * @param preference настройки перекодирования
+     * @return Возвращает настройки чтения и записи
+     */
+    public static CsvPreference createCsvPreference(FilePreference preference) {
+        return new CsvPreference.Builder(preference.getQuote(), preference.getDelimiter(), IOUtils.LINE_SEPARATOR).build();
+    }
+
+    /**
+     * Определяет позиции перекодируемых колонок
+     *
+     * @param header заголовок файла
+     * @param columns названия перекодируемых колонок
+     * @return Возвращает позиции колонок
+     */
+    private static int[] retrieveColumnIndexes(String[] header, List<String> columns) {
+        int[] result = new int[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            result[i] = -1;
+            for (int j = 0; j < header.length; j++) {
+                if (columns.get(i).equalsIgnoreCase(header[j])) {
+                    result[i] = j;
+                    break;
+                }
+            }
+            Assert.isTrue(result[i] >= 0, String.format("Column '%s' not found in file header", columns.get(i)), ParameterException.class);
+        }
+        return result;
+    }
+
+    /**
+     * Выполняет перекодирование накопленного пакета строк и записывает результат
+     *
+     * @param preference настройки перекодирования
+     * @param managerService сервис управления документами
+     * @param header заголовок файла
+     * @param columnIndexes позиции перекодируемых колонок
+     * @param rows пакет строк
+     * @param firstRowNumber номер первой строки пакета
+     * @param writer сервис записи перекодированного файла
+     * @param unmatchedWriter сервис записи ненайденных значений
+     * @param descriptor дескриптор перекодирования
+     */
+    private static void recodeBatch(
+            RecodeFileCommand preference, IManagerService managerService,
+            String[] header, int[] columnIndexes, List<List<String>> rows, long firstRowNumber,
+            ICsvListWriter writer, ICsvListWriter unmatchedWriter, RecodeDescriptor descriptor) throws IOException {
+        // Формируем коллекцию уникальных значений пакета
+        Set<String> values = Sets.newHashSet();
+        for (List<String> row : rows) {
+            for (int index : columnIndexes) {
+                values.add(index < row.size() ? row.get(index) : null);
+            }
+        }
+        // Выполняем перекодирование
+        Map<String, String> recoded = values.isEmpty() ?
+                Collections.<String, String>emptyMap() :
+                managerService.recodeValues(preference.getRuleSetName(), values);
+        // Записываем результат
+        long rowNumber = firstRowNumber;
+        for (List<String> row : rows) {
+            List<String> targetRow = Lists.newArrayList(row);
+            for (int index : columnIndexes) {
+                while (targetRow.size() <= index) {
+                    targetRow.add(null);
+                }
+                String value = targetRow.get(index);
+                boolean isRecoded = recoded.containsKey(value);
+                if (!isRecoded) {
+                    unmatchedWriter.write(String.valueOf(rowNumber), header[index], value);
+                }
+                targetRow.set(index, recoded.get(value));
+                descriptor.appendValue(isRecoded);
+            }
+            writer.write(targetRow);
+            descriptor.appendRow();
+            rowNumber++;
+        }
+        rows.clear();
+    }
+
+    /**
+     * Выполняет потоковое перекодирование
+     *
+     * @param preference настройки перекодирования
+     * @param managerService сервис управления документами
+     * @param source поток исходного файла
+     * @param target поток перекодированного файла
+     * @param unmatched поток ненайденных значений
+     * @return Возвращает дескриптор перекодирования
+     */
+    public static RecodeDescriptor recode(RecodeFileCommand preference, IManagerService managerService, Reader source, Writer target, Writer unmatched) throws IOException {
+        Assert.isTrue(StringUtils.hasText(preference.getRuleSetName()), "Missing rule set alias parameter", ParameterException.class);
+        Assert.isTrue(!CollectionUtils.isEmpty(preference.getColumns()), "Missing recoded columns parameter", ParameterException.class);
+        Assert.isTrue(preference.getBatchSize() > 0, "Batch size must be positive", ParameterException.class);
+
+        final CsvPreference csvPreference = createCsvPreference(preference);
+        final ICsvListReader reader = new CsvListReader(source, csvPreference);
+        final ICsvListWriter writer = new CsvListWriter(target, csvPreference);
+        final ICsvListWriter unmatchedWriter = new CsvListWriter(unmatched, csvPreference);
+
+        String[] header = reader.getHeader(true);
+        Assert.notNull(header, "File must contains headers", ParameterException.class);
+        int[] columnIndexes = retrieveColumnIndexes(header, preference.getColumns());
+
+        writer.writeHeader(header);
+        unmatchedWriter.writeHeader(UNMATCHED_HEADER);
+
+        RecodeDescriptor descriptor = new RecodeDescriptor();
+        List<List<String>> rows = Lists.newArrayListWithCapacity(preference.getBatchSize());
+        long firstRowNumber = 1;
+        List<String> row;
+        while ((row = reader.read()) != null) {
+            rows.add(row);
+            if (rows.size() >= preference.getBatchSize()) {
+                recodeBatch(preference, managerService, header, columnIndexes, rows, firstRowNumber, writer, unmatchedWriter, descriptor);
+                firstRowNumber = descriptor.getRowCount() + 1;
+            }
+        }
+        if (!rows.isEmpty()) {
+            recodeBatch(preference, managerService, header, columnIndexes, rows, firstRowNumber, writer, unmatchedWriter, descriptor);
+        }
+
+        writer.flush();
+        unmatchedWriter.flush();
+        return descriptor;
+    }
+
+    /**
+     * Выполняет перекодирование файла
+     *
+     * @param preference настройки перекодирования
+     * @param managerService сервис управления документами
+     * @return Возвращает дескриптор перекодирования
+     */
+    public RecodeDescriptor processRecode(RecodeFileCommand preference, IManagerService managerService) {
+        final File targetFile = preference.retrieveTargetFile();
+        Reader source = null;
+        Writer target = null;
+        Writer unmatched = null;
+        try {
+            String encoding = FilePreference.detectEncoding(preference.getTargetPath(), preference.getEncoding());
+            source = new BufferedReader(Channels.newReader(new FileInputStream(targetFile).getChannel(), encoding));
+            target = new BufferedWriter(Channels.newWriter(new FileOutputStream(preference.retrieveOutputFile()).getChannel(), encoding));
+            unmatched = new BufferedWriter(Channels.newWriter(new FileOutputStream(preference.retrieveUnmatchedFile()).getChannel(), encoding));
+            return recode(preference, managerService, source, target, unmatched);
+        } catch (ParameterException ex) {
+            return new RecodeDescriptor(Lists.<Throwable>newArrayList(ex));
+        } catch (Throwable th) {
+            return new RecodeDescriptor(Lists.<Throwable>newArrayList(
+                    new ApplicationException(String.format("Can't process '%s'. Cause by: %s", preference.getTargetPath(), th.getMessage()), th)
+            ));
+        } finally {
+            IOUtils.closeQuietly(source);
+            IOUtils.closeQuietly(target);
+            IOUtils.closeQuietly(unmatched);
+        }
+    }
+}
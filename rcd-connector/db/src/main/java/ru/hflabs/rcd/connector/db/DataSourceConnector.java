@@ -14,15 +14,15 @@ import ru.hflabs.rcd.exception.constraint.CollisionDataException;
 import ru.hflabs.rcd.exception.transfer.IncompleteDataException;
 import ru.hflabs.rcd.model.document.Dictionary;
 import ru.hflabs.rcd.model.document.Group;
+import ru.hflabs.rcd.service.ICloseableIterator;
 import ru.hflabs.rcd.service.INamedPathService;
 import ru.hflabs.rcd.service.IStorageService;
-import ru.hflabs.util.core.collection.IteratorUtil;
+import ru.hflabs.rcd.service.ListPageIterator;
 import ru.hflabs.util.jdbc.JDBCUtil;
 import ru.hflabs.util.spring.Assert;
 
 import javax.sql.DataSource;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -151,7 +151,7 @@ public class DataSourceConnector extends JdbcTemplate implements IStorageService
     }
 
     @Override
-    public Iterator<List<DataSourceRevisionEntity>> iterateAll(int fetchSize, int cacheSize) {
-        return IteratorUtil.toPageIterator(getAll().iterator(), fetchSize);
+    public ICloseableIterator<List<DataSourceRevisionEntity>> iterateAll(int fetchSize, int cacheSize) {
+        return new ListPageIterator<>(getAll(), fetchSize);
     }
 }
@@ -127,14 +127,19 @@ public class DictionariesConverter implements ReverseConverter<IDataSet, Transfe
             try {
                 // Формируем контент справочника
                 ITableMetaData tableMetaData = dictionaryStructureConverter.reverseConvert(dictionary);
-                DefaultTable table = new DefaultTable(tableMetaData);
-                Collection<Record> records = ModelUtils.createRecords(dictionary.getId(), dictionary.getDescendants());
-                if (!CollectionUtils.isEmpty(records)) {
-                    for (Object[] row : createTableRows(records, tableMetaData)) {
-                        table.addRow(row);
+                if (descriptor.getRecordsSource() != null) {
+                    // Записи читаются из источника по мере записи строк таблицы
+                    dataSet.addTable(new RecordsTable(tableMetaData, descriptor.getRecordsSource().iterateRecords(dictionary)));
+                } else {
+                    DefaultTable table = new DefaultTable(tableMetaData);
+                    Collection<Record> records = ModelUtils.createRecords(dictionary.getId(), dictionary.getDescendants());
+                    if (!CollectionUtils.isEmpty(records)) {
+                        for (Object[] row : createTableRows(records, tableMetaData)) {
+                            table.addRow(row);
+                        }
                     }
+                    dataSet.addTable(table);
                 }
-                dataSet.addTable(table);
 
                 // Формируем структуру справочника
                 if (descriptor.isWithStructure()) {
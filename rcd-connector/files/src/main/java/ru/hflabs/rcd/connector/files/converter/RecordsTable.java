@@ -0,0 +1,62 @@
+package ru.hflabs.rcd.connector.files.converter;
+
+import org.dbunit.dataset.DataSetException;
+import org.dbunit.dataset.ITable;
+import org.dbunit.dataset.ITableMetaData;
+import org.dbunit.dataset.RowOutOfBoundsException;
+import ru.hflabs.rcd.model.document.Field;
+import ru.hflabs.rcd.model.document.Record;
+import ru.hflabs.rcd.service.ICloseableIterator;
+
+/**
+ * Класс <class>RecordsTable</class> реализует таблицу записей справочника с последовательным чтением строк.<br/>
+ * Записи получаются из итератора по мере чтения строк, поэтому в памяти находится только текущая запись.
+ * Окончание записей сообщается исключением {@link RowOutOfBoundsException}, по которому завершается запись таблицы
+ *
+ * @author Nazin Alexander
+ * @see org.dbunit.dataset.stream.DataSetProducerAdapter
+ */
+public class RecordsTable implements ITable {
+
+    /** МЕТА-данные таблицы */
+    private final ITableMetaData tableMetaData;
+    /** Итератор записей справочника */
+    private final ICloseableIterator<Record> records;
+    /** Текущая запись */
+    private Record currentRecord;
+    /** Номер текущей строки */
+    private int currentRow;
+
+    public RecordsTable(ITableMetaData tableMetaData, ICloseableIterator<Record> records) {
+        this.tableMetaData = tableMetaData;
+        this.records = records;
+        this.currentRow = -1;
+    }
+
+    @Override
+    public ITableMetaData getTableMetaData() {
+        return tableMetaData;
+    }
+
+    @Override
+    public int getRowCount() {
+        throw new UnsupportedOperationException("Row count not supported by forward only table");
+    }
+
+    @Override
+    public Object getValue(int row, String column) throws DataSetException {
+        if (row < currentRow) {
+            throw new UnsupportedOperationException(String.format("Row %d of table '%s' already passed", row, tableMetaData.getTableName()));
+        }
+        while (currentRow < row) {
+            if (!records.hasNext()) {
+                records.close();
+                throw new RowOutOfBoundsException(String.format("Row %d out of table '%s'", row, tableMetaData.getTableName()));
+            }
+            currentRecord = records.next();
+            currentRow++;
+        }
+        Field field = currentRecord.retrieveFieldByName(column);
+        return field != null ? field.getValue() : null;
+    }
+}
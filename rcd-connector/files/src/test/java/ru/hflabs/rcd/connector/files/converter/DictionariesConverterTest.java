@@ -1,6 +1,7 @@
 package ru.hflabs.rcd.connector.files.converter;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.dbunit.dataset.*;
 import org.dbunit.dataset.datatype.DataType;
 import org.testng.annotations.BeforeClass;
@@ -10,12 +11,12 @@ import ru.hflabs.rcd.model.document.Dictionary;
 import ru.hflabs.rcd.model.document.Field;
 import ru.hflabs.rcd.model.document.MetaField;
 import ru.hflabs.rcd.model.document.Record;
+import ru.hflabs.rcd.model.ModelUtils;
+import ru.hflabs.rcd.service.ICloseableIterator;
 import ru.hflabs.rcd.service.ServiceUtils;
 import ru.hflabs.util.spring.core.convert.converter.ReverseConverter;
 
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 import static org.testng.Assert.*;
 import static ru.hflabs.rcd.accessor.Accessors.injectName;
@@ -131,4 +132,56 @@ public class DictionariesConverterTest extends DataSetConverterTest {
             assertEquals(table.getValue(1, metaField2.getName()), field22.getValue());
         }
     }
+
+    @Test(expectedExceptions = RowOutOfBoundsException.class)
+    public void testReverseConvertWithRecordsSource() throws Exception {
+        Dictionary dictionary = createMockDictionary(null);
+        MetaField metaField = createMockMetaField(dictionary);
+        metaField.setOrdinal(0);
+        Field field1 = createMockField(metaField);
+        Field field2 = createMockField(metaField);
+        metaField = linkDescendants(metaField, Lists.newArrayList(field1, field2));
+        dictionary = linkDescendants(dictionary, Lists.newArrayList(metaField));
+        // Записи передаются только через источник
+        final Iterator<Record> records = ModelUtils.createRecords(dictionary.getId(), dictionary.getDescendants()).iterator();
+        final Dictionary structure = linkDescendants(dictionary, Lists.newArrayList(linkDescendants(metaField, Lists.<Field>newArrayList())));
+
+        IDataSet dataSet = converter.reverseConvert(new TransferDictionaryDescriptor(
+                Lists.newArrayList(structure), false, false,
+                new TransferDictionaryDescriptor.RecordsSource() {
+                    @Override
+                    public ICloseableIterator<Record> iterateRecords(Dictionary target) {
+                        assertEquals(target, structure);
+                        return new ICloseableIterator<Record>() {
+                            @Override
+                            public boolean hasNext() {
+                                return records.hasNext();
+                            }
+
+                            @Override
+                            public Record next() {
+                                return records.next();
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException();
+                            }
+
+                            @Override
+                            public void close() {
+                                // nothing to close
+                            }
+                        };
+                    }
+                }
+        ));
+        ITable table = dataSet.getTable(dictionary.getName());
+        Set<String> values = Sets.newHashSet(
+                (String) table.getValue(0, metaField.getName()),
+                (String) table.getValue(1, metaField.getName())
+        );
+        assertEquals(values, Sets.newHashSet(field1.getValue(), field2.getValue()));
+        table.getValue(2, metaField.getName());
+    }
 }
@@ -4,28 +4,19 @@ import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
-import lombok.AccessLevel;
+import com.google.common.collect.Sets;
 import lombok.Setter;
 import org.dozer.Mapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.spi.LocationAwareLogger;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import ru.hflabs.rcd.Version;
-import ru.hflabs.rcd.event.recode.RecodeFailedEvent;
-import ru.hflabs.rcd.event.recode.RecodeSuccessEvent;
 import ru.hflabs.rcd.exception.ApplicationException;
 import ru.hflabs.rcd.exception.constraint.IllegalPrimaryKeyException;
-import ru.hflabs.rcd.exception.search.document.UnknownDictionaryException;
-import ru.hflabs.rcd.exception.search.document.UnknownFieldException;
-import ru.hflabs.rcd.exception.search.document.UnknownGroupException;
-import ru.hflabs.rcd.exception.search.rule.UnknownRecodeRuleException;
-import ru.hflabs.rcd.exception.search.rule.UnknownRecodeRuleSetException;
-import ru.hflabs.rcd.exception.search.rule.UnknownRuleSetNameException;
+import ru.hflabs.rcd.exception.search.rule.RecodeChainException;
 import ru.hflabs.rcd.model.criteria.FilterCriteria;
 import ru.hflabs.rcd.model.criteria.FilterCriteriaValue;
 import ru.hflabs.rcd.model.criteria.FilterResult;
@@ -37,6 +28,9 @@ import ru.hflabs.rcd.model.path.MetaFieldNamedPath;
 import ru.hflabs.rcd.model.rule.RecodeRule;
 import ru.hflabs.rcd.model.rule.RecodeRuleSet;
 import ru.hflabs.rcd.model.rule.Rule;
+import ru.hflabs.rcd.service.IRecodeResolutionService;
+import ru.hflabs.rcd.service.IRecodeService;
+import ru.hflabs.rcd.service.IRecodeWarmupService;
 import ru.hflabs.rcd.service.document.*;
 import ru.hflabs.rcd.service.rule.IRecodeRuleService;
 import ru.hflabs.rcd.service.rule.IRecodeRuleSetService;
@@ -48,12 +42,12 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import static ru.hflabs.rcd.model.CriteriaUtils.createCriteriaByIDs;
-import static ru.hflabs.rcd.model.CriteriaUtils.createCriteriaByRelative;
 import static ru.hflabs.rcd.model.ModelUtils.*;
+import static ru.hflabs.rcd.service.ServiceUtils.determineNotifyType;
 import static ru.hflabs.rcd.service.ServiceUtils.extractSingleDocument;
-import static ru.hflabs.rcd.service.ServiceUtils.findOneDocumentBy;
 import static ru.hflabs.rcd.soap.mapper.ThrowableMapper.createError;
 
 /**
@@ -65,17 +59,13 @@ import static ru.hflabs.rcd.soap.mapper.ThrowableMapper.createError;
 @Setter
 @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
 @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
-public class RecodeWebService implements ApplicationEventPublisherAware, WService {
+public class RecodeWebService implements WService {
 
     private static final Logger LOG = LoggerFactory.getLogger(RecodeWebService.class);
 
     /** Фабрика создания SOAP классов */
     private static final ObjectFactory OBJECT_FACTORY = new ObjectFactory();
 
-    /** Сервис публикации событий */
-    @Setter(AccessLevel.NONE)
-    private ApplicationEventPublisher eventPublisher;
-
     /** Сервис преобразования сущности SOAP в API модель */
     private Mapper mapper;
 
@@ -85,14 +75,18 @@ public class RecodeWebService implements ApplicationEventPublisherAware, WServic
     private IDictionaryService dictionaryService;
     /** Сервис работы с МЕТА-полями справочника */
     private IMetaFieldService metaFieldService;
-    /** Сервис работы со значениями полей */
-    private IFieldService fieldService;
     /** Сервис работы с записями справочника */
     private IRecordService recordService;
     /** Сервис работы с наборами правил перекодирования */
     private IRecodeRuleSetService recodeRuleSetService;
     /** Сервис работы с правилами перекодирования */
     private IRecodeRuleService recodeRuleService;
+    /** Сервис определения наборов правил перекодирования */
+    private IRecodeResolutionService recodeResolutionService;
+    /** Сервис перекодирования значений */
+    private IRecodeService recodeService;
+    /** Сервис предварительной загрузки наборов правил */
+    private IRecodeWarmupService recodeWarmupService;
 
     /*
      * Сервисы конвертации
@@ -102,11 +96,6 @@ public class RecodeWebService implements ApplicationEventPublisherAware, WServic
     private Function<MetaField, WMetaField> toWMetaFieldTransformer;
     private Function<Record, WRecord> toWRecordTransformer;
 
-    @Override
-    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
-        this.eventPublisher = applicationEventPublisher;
-    }
-
     @GET
     @Path("/version")
     @Override
@@ -114,78 +103,18 @@ public class RecodeWebService implements ApplicationEventPublisherAware, WServic
         final VersionResponse response = OBJECT_FACTORY.createVersionResponse();
         response.setVersion(Version.getVersion());
         response.setRevision(Version.getRevision());
+        response.setReady(recodeWarmupService.isReady());
         return response;
     }
 
     /**
-     * Определяет {@link NotifyType тип оповещения} по исключительной ситуации
-     *
-     * @param exception исключительная ситуация
-     * @return Возвращает тип оповещения
-     */
-    private static NotifyType determineNotifyType(Throwable exception) {
-        if (exception instanceof UnknownRecodeRuleException) { // правило перекодирования не найдено
-            return NotifyType.NO_RULE;
-        } else if (exception instanceof UnknownRecodeRuleSetException) { // набор правил перекодирования не найден
-            return NotifyType.NO_RULE_SET;
-        } else if (exception instanceof UnknownRuleSetNameException) {
-            return NotifyType.NO_RULE_ALIAS;
-        } else if (exception instanceof UnknownFieldException) { // значение поля не найдено
-            return NotifyType.NO_VALUE;
-        } else if (exception instanceof UnknownDictionaryException) { // справочник не найден
-            return NotifyType.NO_DICTIONARY;
-        } else if (exception instanceof UnknownGroupException) { // группа справочников не найдена
-            return NotifyType.NO_GROUP;
-        } else { // необработанная ошибка
-            return NotifyType.ERROR;
-        }
-    }
-
-    /**
-     * Выполняет поиск целевого поля перекодирования
+     * Проверяет, что предварительная загрузка наборов правил завершена
      *
-     * @param ruleSet целевой набор правил
-     * @param fromPath исходный путь записи
-     * @param toPath целевой путь записи
-     * @return Возвращает найденное целевое поле перекодировани
+     * @throws ErrorResponse Исключительная ситуация, если сервис не готов к перекодированию
      */
-    private Field doRecode(RecodeRuleSet ruleSet, FieldNamedPath fromPath, MetaFieldNamedPath toPath) throws Exception {
-        // Пытаемся определить существующее правило
-        RecodeRule rule = findOneDocumentBy(
-                recodeRuleService,
-                createCriteriaByRelative(RecodeRule.RECODE_RULE_SET_ID, ruleSet.getId(), RecodeRule.VALUE, fromPath.getFieldValue()),
-                false
-        );
-        // Определяем целевую запись
-        if (rule != null) { // если найдено конкретное правило перекодирования
-            return fieldService.findByID(rule.getToFieldId(), false, false);
-        } else {
-            // Получаем значение поля по умолчанию
-            Field defaultField = (ruleSet.getDefaultFieldId() != null) ?
-                    fieldService.findByID(ruleSet.getDefaultFieldId(), false, false) :
-                    null;
-
-            boolean isFromFieldExist = fieldService.isFieldExist(ruleSet.getFromFieldId(), fromPath.getFieldValue());
-            // Возвращаем результат в зависимости от состояния исходного поля и значения по умолчанию
-            if (isFromFieldExist && defaultField != null) {
-                return defaultField;
-            } else if (!isFromFieldExist && defaultField != null) {
-                eventPublisher.publishEvent(
-                        new RecodeFailedEvent(
-                                this,
-                                ruleSet.getName(),
-                                fromPath,
-                                toPath,
-                                NotifyType.NO_VALUE,
-                                new UnknownFieldException(fromPath.toString())
-                        )
-                );
-                return defaultField;
-            } else if (isFromFieldExist) {
-                throw new UnknownRecodeRuleException(fromPath, toPath);
-            } else {
-                throw new UnknownFieldException(fromPath.toString());
-            }
+    private void checkReady() throws ErrorResponse {
+        if (!recodeWarmupService.isReady()) {
+            throw createErrorResponse(NotifyType.ERROR, new IllegalStateException("Recode service is not ready: rule sets warm up is in progress"));
         }
     }
 
@@ -199,19 +128,11 @@ public class RecodeWebService implements ApplicationEventPublisherAware, WServic
      */
     private RecodeResponse doRecode(RecodeRuleSet ruleSet, String fromValue) throws ErrorResponse {
         RecodeResponse recodeResponse = OBJECT_FACTORY.createRecodeResponse();
-        final FieldNamedPath fromPath = new FieldNamedPath(ruleSet.getFromNamedPath(), fromValue);
-        final MetaFieldNamedPath toPath = ruleSet.getToNamedPath();
         try {
-            Field targetField = doRecode(ruleSet, fromPath, toPath);
-            String result = targetField.getValue();
-
-            eventPublisher.publishEvent(new RecodeSuccessEvent(this, ruleSet.getName(), fromPath, new FieldNamedPath(toPath, result)));
-            recodeResponse.setValue(FormatUtil.format(result));
+            recodeResponse.setValue(FormatUtil.format(recodeService.recode(ruleSet, fromValue)));
             return recodeResponse;
         } catch (Throwable th) {
-            NotifyType notifyType = determineNotifyType(th);
-            eventPublisher.publishEvent(new RecodeFailedEvent(this, ruleSet.getName(), fromPath, toPath, notifyType, th));
-            throw createErrorResponse(notifyType, th);
+            throw createErrorResponse(th);
         }
     }
 
@@ -235,15 +156,13 @@ public class RecodeWebService implements ApplicationEventPublisherAware, WServic
 
         validateDictionaryNamedPath(fromPath);
         validateDictionaryNamedPath(toPath);
+        checkReady();
+        RecodeResponse recodeResponse = OBJECT_FACTORY.createRecodeResponse();
         try {
-            RecodeRuleSet ruleSet = recodeRuleSetService.findRecodeRuleSetByNamedPath(fromPath, toPath, false, false);
-            return doRecode(ruleSet, criteria.getFromValue());
-        } catch (ErrorResponse ex) {
-            throw ex;
+            recodeResponse.setValue(FormatUtil.format(recodeService.recode(fromPath, toPath, criteria.getFromValue())));
+            return recodeResponse;
         } catch (Throwable th) {
-            NotifyType notifyType = determineNotifyType(th);
-            eventPublisher.publishEvent(new RecodeFailedEvent(this, null, fromPath, toPath, determineNotifyType(th), th));
-            throw createErrorResponse(notifyType, th);
+            throw createErrorResponse(th);
         }
     }
 
@@ -254,16 +173,103 @@ public class RecodeWebService implements ApplicationEventPublisherAware, WServic
         Assert.notNull(parameters, "Request parameters must not be NULL");
         String alias = parameters.getAlias();
         Assert.isTrue(StringUtils.hasText(alias), "Rule set alias must be not empty");
+        checkReady();
+
+        RecodeResponse recodeResponse = OBJECT_FACTORY.createRecodeResponse();
+        try {
+            recodeResponse.setValue(FormatUtil.format(recodeService.recode(alias, parameters.getFromValue())));
+            return recodeResponse;
+        } catch (Throwable th) {
+            throw createErrorResponse(th);
+        }
+    }
 
+    /**
+     * Выполняет перекодирование значения в рамках пакетного запроса
+     *
+     * @param ruleSet целевой набор правил
+     * @param fromValue исходное значение поля
+     * @return Возвращает результат перекодирования значения или описание ошибки
+     */
+    private WRecodeResult doRecodeQuietly(RecodeRuleSet ruleSet, String fromValue) {
+        WRecodeResult result = OBJECT_FACTORY.createWRecodeResult();
+        result.setFromValue(fromValue);
         try {
-            RecodeRuleSet ruleSet = recodeRuleSetService.findUniqueByNamedPath(alias, false);
-            return doRecode(ruleSet, parameters.getFromValue());
+            result.setValue(doRecode(ruleSet, fromValue).getValue());
         } catch (ErrorResponse ex) {
-            throw ex;
+            result.setError(ex.getFaultInfo());
+        }
+        return result;
+    }
+
+    @POST
+    @Path("/recodeBatch")
+    @Override
+    public RecodeBatchResponse recodeBatch(RecodeBatchRequest parameters) throws ErrorResponse {
+        Assert.notNull(parameters, "Request parameters must not be NULL");
+        WRuleDefinition ruleDefinition = parameters.getRuleSet();
+        Assert.notNull(ruleDefinition, "Rule definition must not be NULL");
+        checkReady();
+
+        final RecodeRuleSet ruleSet;
+        try {
+            ruleSet = resolveRecodeRuleSet(ruleDefinition);
+        } catch (Throwable th) {
+            throw createErrorResponse(th);
+        }
+        // Выполняем перекодирование каждого значения по найденному набору правил
+        RecodeBatchResponse response = OBJECT_FACTORY.createRecodeBatchResponse();
+        response.setAlias(ruleSet.getName());
+        for (String fromValue : parameters.getFromValue()) {
+            response.getResult().add(doRecodeQuietly(ruleSet, fromValue));
+        }
+        return response;
+    }
+
+    @POST
+    @Path("/recodeChain")
+    @Override
+    public RecodeChainResponse recodeChain(RecodeChainRequest parameters) throws ErrorResponse {
+        Assert.notNull(parameters, "Request parameters must not be NULL");
+        Assert.notEmpty(parameters.getAlias(), "Rule set aliases must not be empty");
+        checkReady();
+
+        RecodeChainResponse response = OBJECT_FACTORY.createRecodeChainResponse();
+        try {
+            response.setValue(FormatUtil.format(recodeService.recodeChain(parameters.getAlias(), parameters.getFromValue())));
+        } catch (RecodeChainException ex) {
+            // Ошибка звена цепочки возвращается в ответе вместе с его описанием
+            response.setFailedHop(ex.getHop());
+            response.setFailedAlias(ex.getRuleSetName());
+            response.setError(createError(determineNotifyType(ex), ex.getCause()));
+        } catch (Throwable th) {
+            throw createErrorResponse(th);
+        }
+        return response;
+    }
+
+    @POST
+    @Path("/reverseRecode")
+    @Override
+    public ReverseRecodeResponse reverseRecode(ReverseRecodeRequest parameters) throws ErrorResponse {
+        Assert.notNull(parameters, "Request parameters must not be NULL");
+        WRuleDefinition ruleDefinition = parameters.getRuleSet();
+        Assert.notNull(ruleDefinition, "Rule definition must not be NULL");
+        // Обратный поиск не использует таблицы перекодирования, поэтому не зависит от предварительной загрузки
+
+        try {
+            RecodeRuleSet ruleSet = retrieveRecodeRuleSet(ruleDefinition);
+            // Выполняем обратный поиск правил по целевому значению
+            Set<String> fromValues = Sets.newLinkedHashSet();
+            for (RecodeRule rule : recodeRuleService.findAllByToValue(ruleSet, parameters.getToValue())) {
+                fromValues.add(rule.getFieldValue());
+            }
+            ReverseRecodeResponse response = OBJECT_FACTORY.createReverseRecodeResponse();
+            response.setAlias(ruleSet.getName());
+            response.getFromValue().addAll(fromValues);
+            return response;
         } catch (Throwable th) {
-            NotifyType notifyType = determineNotifyType(th);
-            eventPublisher.publishEvent(new RecodeFailedEvent(this, alias, null, null, notifyType, th));
-            throw createErrorResponse(notifyType, th);
+            throw createErrorResponse(th);
         }
     }
 
@@ -421,16 +427,12 @@ public class RecodeWebService implements ApplicationEventPublisherAware, WServic
      */
     private RecodeRuleSet retrieveRecodeRuleSet(WRuleDefinition ruleDefinition) {
         if (StringUtils.hasText(ruleDefinition.getAlias())) {
-            return recodeRuleSetService.findUniqueByNamedPath(ruleDefinition.getAlias(), false);
+            return recodeResolutionService.resolveRecodeRuleSet(ruleDefinition.getAlias());
         } else if (ruleDefinition.getPath() != null) {
             WRulePath rulePath = ruleDefinition.getPath();
-
-            final Dictionary fromDictionary = retrieveDictionary(rulePath.getFromDictionary());
-            final Dictionary toDictionary = retrieveDictionary(rulePath.getToDictionary());
-
             return recodeRuleSetService.findRecodeRuleSetByNamedPath(
-                    new MetaFieldNamedPath(createDictionaryNamedPath(fromDictionary), null),
-                    new MetaFieldNamedPath(createDictionaryNamedPath(toDictionary), null),
+                    createDictionaryPath(rulePath.getFromDictionary()),
+                    createDictionaryPath(rulePath.getToDictionary()),
                     true,
                     false
             );
@@ -439,6 +441,37 @@ public class RecodeWebService implements ApplicationEventPublisherAware, WServic
         }
     }
 
+    /**
+     * Определяет набор правил перекодирования по его описанию тем же сервисом, что и перекодирование одного значения,
+     * поэтому ошибка определения регистрируется в статистике и публикуется одинаково для одиночного и пакетного перекодирования
+     *
+     * @param ruleDefinition описание набора
+     * @return Возвращает найденный набор правил перекодирования
+     */
+    private RecodeRuleSet resolveRecodeRuleSet(WRuleDefinition ruleDefinition) {
+        if (StringUtils.hasText(ruleDefinition.getAlias())) {
+            return recodeService.resolveRecodeRuleSet(ruleDefinition.getAlias());
+        } else if (ruleDefinition.getPath() != null) {
+            WRulePath rulePath = ruleDefinition.getPath();
+            return recodeService.resolveRecodeRuleSet(
+                    createDictionaryPath(rulePath.getFromDictionary()),
+                    createDictionaryPath(rulePath.getToDictionary())
+            );
+        } else {
+            throw new ApplicationException("Rule set alias or unique path must not be NULL");
+        }
+    }
+
+    /**
+     * Создает именованный путь справочника по его описанию
+     *
+     * @param dictionaryDefinition описание справочника
+     * @return Возвращает именованный путь справочника без названия поля
+     */
+    private MetaFieldNamedPath createDictionaryPath(WDictionaryDefinition dictionaryDefinition) {
+        return new MetaFieldNamedPath(createDictionaryNamedPath(retrieveDictionary(dictionaryDefinition)), null);
+    }
+
     @POST
     @Path("/getRules")
     @Override
@@ -530,6 +563,16 @@ public class RecodeWebService implements ApplicationEventPublisherAware, WServic
                 new FilterCriteria().injectCount(FilterCriteria.COUNT_DEFAULT);
     }
 
+    /**
+     * Формирует ответное сообщение об ошибке выполнения запроса с типом ошибки, определенным по исключительной ситуации
+     *
+     * @param cause исключительная ситуация
+     * @return Возвращает сообщение об ошибке выполнения запроса
+     */
+    private static ErrorResponse createErrorResponse(Throwable cause) {
+        return createErrorResponse(determineNotifyType(cause), cause);
+    }
+
     /**
      * Формирует ответное сообщение об ошибке выполнения запроса
      *
@@ -0,0 +1,210 @@
+package ru.hflabs.rcd.socket;
+
+import com.google.common.base.Charsets;
+import ru.hflabs.rcd.model.notification.NotifyType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Класс <class>RecodeCodec</class> реализует бинарный протокол перекодирования.<br/>
+ * Каждое сообщение предваряется длиной тела в байтах (<code>int</code>), строки кодируются длиной
+ * в байтах (<code>int</code>, <code>-1</code> для <code>NULL</code>) и содержимым в UTF-8:
+ * <ul>
+ * <li>аутентификация (первое сообщение соединения): логин, пароль;</li>
+ * <li>запрос: название набора правил, исходное значение;</li>
+ * <li>ответ: статус (<code>byte</code>), целевое значение или описание ошибки.</li>
+ * </ul>
+ * Статус {@link #STATUS_OK} означает успешное выполнение, остальные статусы фиксированы протоколом
+ * и соответствуют {@link NotifyType типам оповещений} (см. {@link #statusOf(NotifyType)}).
+ * Статус {@link #STATUS_UNAUTHORIZED} означает отказ в аутентификации, после чего сервер закрывает соединение.
+ *
+ * @author Nazin Alexander
+ */
+public abstract class RecodeCodec {
+
+    /** Размер заголовка сообщения */
+    public static final int HEADER_SIZE = 4;
+    /** Статус успешного выполнения */
+    public static final byte STATUS_OK = 0;
+    /** Статус внутренней ошибки */
+    public static final byte STATUS_ERROR = 1;
+    /** Статус отсутствия группы справочников */
+    public static final byte STATUS_NO_GROUP = 2;
+    /** Статус отсутствия справочника */
+    public static final byte STATUS_NO_DICTIONARY = 3;
+    /** Статус отсутствия значения */
+    public static final byte STATUS_NO_VALUE = 4;
+    /** Статус отсутствия правила перекодирования */
+    public static final byte STATUS_NO_RULE = 5;
+    /** Статус отсутствия набора правил перекодирования */
+    public static final byte STATUS_NO_RULE_SET = 6;
+    /** Статус отсутствия псевдонима набора правил */
+    public static final byte STATUS_NO_RULE_ALIAS = 7;
+    /** Статус отказа в аутентификации */
+    public static final byte STATUS_UNAUTHORIZED = 16;
+
+    protected RecodeCodec() {
+        // embedded constructor
+    }
+
+    /**
+     * @param notifyType тип оповещения
+     * @return Возвращает статус ответа, соответствующий типу оповещения
+     */
+    public static byte statusOf(NotifyType notifyType) {
+        switch (notifyType) {
+            case NO_GROUP:
+                return STATUS_NO_GROUP;
+            case NO_DICTIONARY:
+                return STATUS_NO_DICTIONARY;
+            case NO_VALUE:
+                return STATUS_NO_VALUE;
+            case NO_RULE:
+                return STATUS_NO_RULE;
+            case NO_RULE_SET:
+                return STATUS_NO_RULE_SET;
+            case NO_RULE_ALIAS:
+                return STATUS_NO_RULE_ALIAS;
+            default:
+                return STATUS_ERROR;
+        }
+    }
+
+    /**
+     * @param value строка
+     * @return Возвращает строку в UTF-8 или <code>NULL</code>
+     */
+    private static byte[] toBytes(String value) {
+        return value != null ? value.getBytes(Charsets.UTF_8) : null;
+    }
+
+    /**
+     * @param bytes строка в UTF-8
+     * @return Возвращает размер закодированной строки
+     */
+    private static int sizeOf(byte[] bytes) {
+        return 4 + (bytes != null ? bytes.length : 0);
+    }
+
+    /**
+     * Записывает строку в буфер
+     *
+     * @param buffer целевой буфер
+     * @param bytes строка в UTF-8
+     */
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Читает строку из буфера
+     *
+     * @param buffer исходный буфер
+     * @return Возвращает прочитанную строку
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException(String.format("String length %d exceeds message size", length));
+        }
+        String result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, Charsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+
+    /**
+     * Кодирует запрос аутентификации
+     *
+     * @param login логин пользователя
+     * @param password пароль пользователя
+     * @return Возвращает буфер, готовый к отправке
+     */
+    public static ByteBuffer encodeAuthentication(String login, String password) {
+        return encodeRequest(login, password);
+    }
+
+    /**
+     * Декодирует тело запроса аутентификации
+     *
+     * @param body тело сообщения
+     * @return Возвращает массив из логина и пароля
+     */
+    public static String[] decodeAuthentication(ByteBuffer body) {
+        return decodeRequest(body);
+    }
+
+    /**
+     * Кодирует запрос перекодирования
+     *
+     * @param alias название набора правил
+     * @param fromValue исходное значение
+     * @return Возвращает буфер, готовый к отправке
+     */
+    public static ByteBuffer encodeRequest(String alias, String fromValue) {
+        byte[] aliasBytes = toBytes(alias);
+        byte[] valueBytes = toBytes(fromValue);
+        int size = sizeOf(aliasBytes) + sizeOf(valueBytes);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size);
+        buffer.putInt(size);
+        writeString(buffer, aliasBytes);
+        writeString(buffer, valueBytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Декодирует тело запроса перекодирования
+     *
+     * @param body тело сообщения
+     * @return Возвращает массив из названия набора правил и исходного значения
+     */
+    public static String[] decodeRequest(ByteBuffer body) {
+        return new String[]{readString(body), readString(body)};
+    }
+
+    /**
+     * Кодирует ответ перекодирования
+     *
+     * @param status статус ответа
+     * @param value целевое значение или описание ошибки
+     * @return Возвращает буфер, готовый к отправке
+     */
+    public static ByteBuffer encodeResponse(byte status, String value) {
+        byte[] valueBytes = toBytes(value);
+        int size = 1 + sizeOf(valueBytes);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size);
+        buffer.putInt(size);
+        buffer.put(status);
+        writeString(buffer, valueBytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Декодирует статус ответа перекодирования
+     *
+     * @param body тело сообщения
+     * @return Возвращает статус ответа
+     */
+    public static byte decodeResponseStatus(ByteBuffer body) {
+        return body.get();
+    }
+
+    /**
+     * Декодирует значение ответа перекодирования, следующее за статусом
+     *
+     * @param body тело сообщения
+     * @return Возвращает целевое значение или описание ошибки
+     */
+    public static String decodeResponseValue(ByteBuffer body) {
+        return readString(body);
+    }
+}
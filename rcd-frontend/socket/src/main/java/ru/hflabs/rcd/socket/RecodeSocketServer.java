@@ -0,0 +1,441 @@
+package ru.hflabs.rcd.socket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.Assert;
+import ru.hflabs.rcd.service.IRecodeService;
+import ru.hflabs.util.core.FormatUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static ru.hflabs.rcd.service.ServiceUtils.determineNotifyType;
+
+/**
+ * Класс <class>RecodeSocketServer</class> реализует легковесный NIO интерфейс перекодирования значений.<br/>
+ * Сервер принимает сообщения {@link RecodeCodec бинарного протокола} и выполняет перекодирование в потоке обработки соединения
+ * напрямую через {@link IRecodeService сервис перекодирования}, минуя цепочку перехватчиков и преобразование XML/JSON.<br/>
+ * Первое сообщение соединения должно содержать учетные данные пользователя, запросы выполняются с его правами.
+ * При переполнении очереди неотправленных ответов сервер прекращает чтение соединения до ее освобождения.
+ *
+ * @author Nazin Alexander
+ * @see RecodeCodec
+ */
+public class RecodeSocketServer implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecodeSocketServer.class);
+
+    /** Начальный размер буфера чтения соединения */
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    /** Сервис перекодирования значений */
+    private IRecodeService recodeService;
+    /** Сервис аутентификации пользователей */
+    private AuthenticationManager authenticationManager;
+
+    /** Флаг включения сервера */
+    private boolean enabled;
+    /** Адрес сервера */
+    private String host;
+    /** Порт сервера */
+    private int port;
+    /** Количество потоков обработки соединений */
+    private int workerCount;
+    /** Максимальный размер сообщения в байтах */
+    private int maxMessageSize;
+    /** Максимальное количество неотправленных ответов соединения */
+    private int maxPendingResponses;
+
+    /** Канал приема соединений */
+    private volatile ServerSocketChannel serverChannel;
+    /** Потоки обработки соединений */
+    private Worker[] workers;
+    /** Флаг работы сервера */
+    private volatile boolean running;
+
+    public RecodeSocketServer() {
+        this.host = "127.0.0.1";
+        this.workerCount = Runtime.getRuntime().availableProcessors();
+        this.maxMessageSize = 64 * 1024;
+        this.maxPendingResponses = 1024;
+    }
+
+    public void setRecodeService(IRecodeService recodeService) {
+        this.recodeService = recodeService;
+    }
+
+    public void setAuthenticationManager(AuthenticationManager authenticationManager) {
+        this.authenticationManager = authenticationManager;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    public void setMaxMessageSize(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    public void setMaxPendingResponses(int maxPendingResponses) {
+        this.maxPendingResponses = maxPendingResponses;
+    }
+
+    /**
+     * @return Возвращает локальный порт сервера или <code>-1</code>, если сервер не запущен
+     */
+    public int getLocalPort() {
+        ServerSocketChannel channel = serverChannel;
+        return channel != null ? channel.socket().getLocalPort() : -1;
+    }
+
+    /**
+     * Выполняет перекодирование по телу запроса
+     *
+     * @param body тело запроса
+     * @return Возвращает буфер ответа
+     */
+    ByteBuffer process(ByteBuffer body) {
+        try {
+            String[] request = RecodeCodec.decodeRequest(body);
+            return RecodeCodec.encodeResponse(RecodeCodec.STATUS_OK, FormatUtil.format(recodeService.recode(request[0], request[1])));
+        } catch (Throwable th) {
+            return RecodeCodec.encodeResponse(RecodeCodec.statusOf(determineNotifyType(th)), th.getMessage());
+        }
+    }
+
+    /**
+     * Выполняет аутентификацию по телу запроса
+     *
+     * @param body тело запроса
+     * @return Возвращает аутентификацию пользователя или <code>NULL</code>, если учетные данные неверны
+     */
+    Authentication authenticate(ByteBuffer body) {
+        try {
+            String[] credentials = RecodeCodec.decodeAuthentication(body);
+            return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(credentials[0], credentials[1]));
+        } catch (AuthenticationException | IllegalArgumentException | BufferUnderflowException ex) {
+            LOG.debug(String.format("Recode connection authentication failed. Cause by: %s", ex.getMessage()), ex);
+            return null;
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!enabled) {
+            return;
+        }
+        Assert.notNull(authenticationManager, "Authentication manager must not be NULL");
+        Assert.isTrue(workerCount > 0, "Worker count must be positive");
+        Assert.isTrue(maxPendingResponses > 0, "Max pending responses must be positive");
+        running = true;
+        // Запускаем потоки обработки соединений
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(Selector.open());
+            Thread thread = new Thread(workers[i], String.format("rcd-socket-worker-%d", i));
+            thread.setDaemon(true);
+            thread.start();
+        }
+        // Запускаем поток приема соединений
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(host, port));
+        Thread acceptor = new Thread(new Acceptor(), "rcd-socket-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        LOG.info(String.format("Recode socket server started on %s:%d", host, getLocalPort()));
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        if (workers != null) {
+            for (Worker worker : workers) {
+                worker.selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Класс <class>Acceptor</class> реализует задачу приема входящих соединений
+     *
+     * @author Nazin Alexander
+     */
+    private class Acceptor implements Runnable {
+
+        @Override
+        public void run() {
+            int next = 0;
+            while (running) {
+                try {
+                    SocketChannel channel = serverChannel.accept();
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    workers[next++ % workers.length].register(channel);
+                } catch (ClosedChannelException ex) {
+                    break;
+                } catch (IOException ex) {
+                    LOG.error(String.format("Can't accept recode connection. Cause by: %s", ex.getMessage()), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Класс <class>Worker</class> реализует поток обработки соединений
+     *
+     * @author Nazin Alexander
+     */
+    private class Worker implements Runnable {
+
+        /** Селектор соединений */
+        private final Selector selector;
+        /** Очередь новых соединений */
+        private final Queue<SocketChannel> pending;
+
+        private Worker(Selector selector) {
+            this.selector = selector;
+            this.pending = new ConcurrentLinkedQueue<>();
+        }
+
+        /**
+         * Передает соединение на обработку
+         *
+         * @param channel канал соединения
+         */
+        private void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * Закрывает соединение
+         *
+         * @param key ключ соединения
+         */
+        private void close(SelectionKey key) {
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException ex) {
+                LOG.debug(String.format("Can't close recode connection. Cause by: %s", ex.getMessage()), ex);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    // Регистрируем новые соединения
+                    SocketChannel channel;
+                    while ((channel = pending.poll()) != null) {
+                        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+                    }
+                    // Обрабатываем готовые соединения
+                    for (Iterator<SelectionKey> iterator = selector.selectedKeys().iterator(); iterator.hasNext(); ) {
+                        SelectionKey key = iterator.next();
+                        iterator.remove();
+                        try {
+                            Connection connection = (Connection) key.attachment();
+                            if ((key.isReadable() && !connection.read()) || !connection.flush(key)) {
+                                close(key);
+                            }
+                        } catch (IOException | RuntimeException ex) {
+                            LOG.debug(String.format("Recode connection failed. Cause by: %s", ex.getMessage()), ex);
+                            close(key);
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                LOG.error(String.format("Recode socket worker failed. Cause by: %s", ex.getMessage()), ex);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    close(key);
+                }
+                try {
+                    selector.close();
+                } catch (IOException ex) {
+                    LOG.debug(String.format("Can't close selector. Cause by: %s", ex.getMessage()), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Класс <class>Connection</class> содержит состояние соединения
+     *
+     * @author Nazin Alexander
+     */
+    private class Connection {
+
+        /** Канал соединения */
+        private final SocketChannel channel;
+        /** Очередь неотправленных ответов */
+        private final Deque<ByteBuffer> output;
+        /** Буфер чтения */
+        private ByteBuffer input;
+        /** Аутентификация пользователя соединения */
+        private Authentication authentication;
+        /** Флаг закрытия соединения после отправки ответов */
+        private boolean closing;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.output = new ArrayDeque<>();
+            this.input = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        }
+
+        /**
+         * @return Возвращает <code>TRUE</code>, если соединение может принимать новые запросы
+         */
+        private boolean isAcceptable() {
+            return !closing && output.size() < maxPendingResponses;
+        }
+
+        /**
+         * Выполняет чтение и обработку доступных запросов
+         *
+         * @return Возвращает <code>FALSE</code>, если соединение закрыто клиентом
+         */
+        private boolean read() throws IOException {
+            if (channel.read(input) < 0) {
+                return false;
+            }
+            processInput();
+            return true;
+        }
+
+        /**
+         * Выполняет обработку прочитанных запросов, пока очередь ответов не заполнена
+         */
+        private void processInput() throws IOException {
+            // Соединение закрывается после отправки ответов, поэтому дальнейшие запросы не читаются
+            if (closing) {
+                input.clear();
+                return;
+            }
+            input.flip();
+            while (isAcceptable() && input.remaining() >= RecodeCodec.HEADER_SIZE) {
+                int size = checkMessageSize(input.getInt(input.position()));
+                if (input.remaining() < RecodeCodec.HEADER_SIZE + size) {
+                    break;
+                }
+                int bodyPosition = input.position() + RecodeCodec.HEADER_SIZE;
+                output.add(process(ByteBuffer.wrap(input.array(), bodyPosition, size)));
+                input.position(bodyPosition + size);
+            }
+            input.compact();
+            if (closing) {
+                input.clear();
+                return;
+            }
+            // Увеличиваем буфер, если в него не помещается очередное сообщение
+            if (input.position() >= RecodeCodec.HEADER_SIZE) {
+                int required = RecodeCodec.HEADER_SIZE + checkMessageSize(input.getInt(0));
+                if (required > input.capacity()) {
+                    ByteBuffer extended = ByteBuffer.allocate(required);
+                    input.flip();
+                    extended.put(input);
+                    input = extended;
+                }
+            }
+        }
+
+        /**
+         * Проверяет размер сообщения, полученный из заголовка
+         *
+         * @param size размер сообщения
+         * @return Возвращает проверенный размер сообщения
+         */
+        private int checkMessageSize(int size) throws IOException {
+            if (size < 0 || size > maxMessageSize) {
+                throw new IOException(String.format("Illegal message size %d", size));
+            }
+            return size;
+        }
+
+        /**
+         * Выполняет обработку запроса с правами пользователя соединения
+         *
+         * @param body тело запроса
+         * @return Возвращает буфер ответа
+         */
+        private ByteBuffer process(ByteBuffer body) {
+            if (authentication == null) {
+                authentication = authenticate(body);
+                if (authentication == null) {
+                    closing = true;
+                    return RecodeCodec.encodeResponse(RecodeCodec.STATUS_UNAUTHORIZED, "Authentication failed");
+                }
+                return RecodeCodec.encodeResponse(RecodeCodec.STATUS_OK, null);
+            }
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            try {
+                return RecodeSocketServer.this.process(body);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+
+        /**
+         * Выполняет отправку накопленных ответов и обработку отложенных запросов
+         *
+         * @param key ключ соединения
+         * @return Возвращает <code>FALSE</code>, если соединение необходимо закрыть
+         */
+        private boolean flush(SelectionKey key) throws IOException {
+            while (!output.isEmpty()) {
+                ByteBuffer buffer = output.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    break;
+                }
+                output.poll();
+                // Очередь освободилась - обрабатываем запросы, отложенные при ее заполнении
+                if (output.isEmpty()) {
+                    processInput();
+                }
+            }
+            if (closing && output.isEmpty()) {
+                return false;
+            }
+            int interestOps = output.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+            if (isAcceptable()) {
+                interestOps |= SelectionKey.OP_READ;
+            }
+            key.interestOps(interestOps);
+            return true;
+        }
+    }
+}
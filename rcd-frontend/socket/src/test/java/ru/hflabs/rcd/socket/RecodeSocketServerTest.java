@@ -0,0 +1,246 @@
+package ru.hflabs.rcd.socket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.testng.annotations.Test;
+import ru.hflabs.rcd.RoleNames;
+import ru.hflabs.rcd.exception.search.rule.UnknownRuleSetNameException;
+import ru.hflabs.rcd.model.path.MetaFieldNamedPath;
+import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+import ru.hflabs.rcd.service.IRecodeService;
+import ru.hflabs.util.core.FormatUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class RecodeSocketServerTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecodeSocketServerTest.class);
+
+    private static final String ALIAS = "test";
+    private static final String LOGIN = "operator";
+    private static final String PASSWORD = "secret";
+
+    private RecodeSocketServer server;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        server = new RecodeSocketServer();
+        server.setEnabled(true);
+        server.setHost("127.0.0.1");
+        server.setPort(0);
+        server.setWorkerCount(2);
+        server.setMaxPendingResponses(4);
+        server.setAuthenticationManager(new AuthenticationManager() {
+            @Override
+            public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+                if (!LOGIN.equals(authentication.getPrincipal()) || !PASSWORD.equals(authentication.getCredentials())) {
+                    throw new BadCredentialsException("Bad credentials");
+                }
+                return new UsernamePasswordAuthenticationToken(LOGIN, null, AuthorityUtils.createAuthorityList(RoleNames.OPERATOR));
+            }
+        });
+        server.setRecodeService(new IRecodeService() {
+            @Override
+            public String recode(RecodeRuleSet ruleSet, String fromValue) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String recode(String alias, String fromValue) {
+                assertEquals(SecurityContextHolder.getContext().getAuthentication().getName(), LOGIN);
+                if (!ALIAS.equals(alias)) {
+                    throw new UnknownRuleSetNameException(alias);
+                }
+                return fromValue != null ? fromValue.toUpperCase() : null;
+            }
+
+            @Override
+            public String recode(MetaFieldNamedPath fromPath, MetaFieldNamedPath toPath, String fromValue) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String recodeChain(List<String> aliases, String fromValue) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        server.afterPropertiesSet();
+    }
+
+    @AfterClass
+    public void stopServer() throws Exception {
+        server.destroy();
+    }
+
+    private SocketChannel open() throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getLocalPort()));
+        channel.socket().setTcpNoDelay(true);
+        return channel;
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = open();
+        write(channel, RecodeCodec.encodeAuthentication(LOGIN, PASSWORD));
+        assertEquals(RecodeCodec.decodeResponseStatus(read(channel)), RecodeCodec.STATUS_OK);
+        return channel;
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer read(SocketChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RecodeCodec.HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+        header.flip();
+        ByteBuffer body = ByteBuffer.allocate(header.getInt());
+        while (body.hasRemaining()) {
+            if (channel.read(body) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+        body.flip();
+        return body;
+    }
+
+    public void testRecode() throws Exception {
+        try (SocketChannel channel = connect()) {
+            write(channel, RecodeCodec.encodeRequest(ALIAS, "значение"));
+            ByteBuffer response = read(channel);
+            assertEquals(RecodeCodec.decodeResponseStatus(response), RecodeCodec.STATUS_OK);
+            assertEquals(RecodeCodec.decodeResponseValue(response), "ЗНАЧЕНИЕ");
+
+            String nullValue = null;
+            write(channel, RecodeCodec.encodeRequest(ALIAS, nullValue));
+            response = read(channel);
+            assertEquals(RecodeCodec.decodeResponseStatus(response), RecodeCodec.STATUS_OK);
+            assertEquals(RecodeCodec.decodeResponseValue(response), FormatUtil.format(nullValue));
+        }
+    }
+
+    public void testUnauthorized() throws Exception {
+        try (SocketChannel channel = open()) {
+            write(channel, RecodeCodec.encodeAuthentication(LOGIN, "wrong"));
+            assertEquals(RecodeCodec.decodeResponseStatus(read(channel)), RecodeCodec.STATUS_UNAUTHORIZED);
+            assertEquals(channel.read(ByteBuffer.allocate(1)), -1);
+        }
+        try (SocketChannel channel = open()) {
+            write(channel, RecodeCodec.encodeRequest(ALIAS, "value"));
+            assertEquals(RecodeCodec.decodeResponseStatus(read(channel)), RecodeCodec.STATUS_UNAUTHORIZED);
+        }
+    }
+
+    public void testUnknownRuleSet() throws Exception {
+        try (SocketChannel channel = connect()) {
+            write(channel, RecodeCodec.encodeRequest("unknown", "value"));
+            assertEquals(RecodeCodec.decodeResponseStatus(read(channel)), RecodeCodec.STATUS_NO_RULE_ALIAS);
+        }
+    }
+
+    public void testPipelinedAndLargeMessages() throws Exception {
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'ж');
+        String large = new String(chars);
+        ByteBuffer first = RecodeCodec.encodeRequest(ALIAS, "first");
+        ByteBuffer second = RecodeCodec.encodeRequest(ALIAS, large);
+        ByteBuffer batch = ByteBuffer.allocate(first.remaining() + second.remaining());
+        batch.put(first).put(second).flip();
+        try (SocketChannel channel = connect()) {
+            write(channel, batch);
+            ByteBuffer response = read(channel);
+            assertEquals(RecodeCodec.decodeResponseStatus(response), RecodeCodec.STATUS_OK);
+            assertEquals(RecodeCodec.decodeResponseValue(response), "FIRST");
+            response = read(channel);
+            assertEquals(RecodeCodec.decodeResponseStatus(response), RecodeCodec.STATUS_OK);
+            assertEquals(RecodeCodec.decodeResponseValue(response), large.toUpperCase());
+        }
+    }
+
+    public void testBackpressure() throws Exception {
+        final int requests = 100;
+        try (SocketChannel channel = connect()) {
+            ByteBuffer batch = ByteBuffer.allocate(requests * RecodeCodec.encodeRequest(ALIAS, "value-000").remaining());
+            for (int i = 0; i < requests; i++) {
+                batch.put(RecodeCodec.encodeRequest(ALIAS, String.format("value-%03d", i)));
+            }
+            batch.flip();
+            write(channel, batch);
+            for (int i = 0; i < requests; i++) {
+                ByteBuffer response = read(channel);
+                assertEquals(RecodeCodec.decodeResponseStatus(response), RecodeCodec.STATUS_OK);
+                assertEquals(RecodeCodec.decodeResponseValue(response), String.format("VALUE-%03d", i));
+            }
+        }
+    }
+
+    public void testConcurrentLoad() throws Exception {
+        final int clients = 16;
+        final int requests = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                final int client = i;
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() throws Exception {
+                        long[] latencies = new long[requests];
+                        try (SocketChannel channel = connect()) {
+                            for (int j = 0; j < requests; j++) {
+                                String value = String.format("value-%d-%d", client, j);
+                                long startTime = System.nanoTime();
+                                write(channel, RecodeCodec.encodeRequest(ALIAS, value));
+                                ByteBuffer response = read(channel);
+                                latencies[j] = System.nanoTime() - startTime;
+                                assertEquals(RecodeCodec.decodeResponseStatus(response), RecodeCodec.STATUS_OK);
+                                assertEquals(RecodeCodec.decodeResponseValue(response), value.toUpperCase());
+                            }
+                        }
+                        return latencies;
+                    }
+                }));
+            }
+            long[] latencies = new long[clients * requests];
+            for (int i = 0; i < clients; i++) {
+                System.arraycopy(futures.get(i).get(), 0, latencies, i * requests, requests);
+            }
+            Arrays.sort(latencies);
+            LOG.info(String.format(
+                    "Recode socket latency: p50=%dus, p99=%dus, max=%dus",
+                    latencies[latencies.length / 2] / 1000,
+                    latencies[(int) (latencies.length * 0.99)] / 1000,
+                    latencies[latencies.length - 1] / 1000
+            ));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.hflabs.rcd.lucene;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldCache;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Класс <class>GroupCountCollector</class> реализует подсчет документов по значениям поля.<br/>
+ * Документы подсчитываются по порядковым номерам значений сегмента, а значения поля извлекаются только при смене сегмента.
+ * Значения сегмента получаются из {@link FieldCache кеша полей}: если для поля сохранены <i>DocValues</i>, то они читаются напрямую,
+ * иначе кеш строится по индексированным терминам поля. Документы без значения учитываются с пустой строкой
+ *
+ * @author Nazin Alexander
+ */
+public class GroupCountCollector extends Collector {
+
+    /** Название поля группировки */
+    private final String groupField;
+    /** Количество документов, где ключ - значение поля */
+    private final Map<String, Integer> counts;
+    /** Текущее значение поля */
+    private final BytesRef current;
+    /** Значения поля текущего сегмента */
+    private SortedDocValues segmentValues;
+    /** Количество документов текущего сегмента по порядковым номерам значений */
+    private int[] segmentCounts;
+    /** Количество документов текущего сегмента без значения */
+    private int segmentMissing;
+
+    public GroupCountCollector(String groupField) {
+        this.groupField = groupField;
+        this.counts = new HashMap<>();
+        this.current = new BytesRef();
+    }
+
+    /**
+     * Добавляет количество документов по значению поля
+     *
+     * @param value значение поля
+     * @param count количество документов
+     */
+    private void increment(String value, int count) {
+        Integer existed = counts.get(value);
+        counts.put(value, (existed != null ? existed : 0) + count);
+    }
+
+    /**
+     * Переносит количество документов текущего сегмента
+     */
+    private void flushSegment() {
+        if (segmentValues != null) {
+            for (int ord = 0; ord < segmentCounts.length; ord++) {
+                if (segmentCounts[ord] > 0) {
+                    segmentValues.lookupOrd(ord, current);
+                    increment(current.utf8ToString(), segmentCounts[ord]);
+                }
+            }
+            if (segmentMissing > 0) {
+                increment("", segmentMissing);
+            }
+            segmentValues = null;
+        }
+    }
+
+    /**
+     * @return Возвращает количество документов, где ключ - значение поля
+     */
+    public Map<String, Integer> getCounts() {
+        flushSegment();
+        return counts;
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        // do nothing
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        int ord = segmentValues.getOrd(doc);
+        if (ord < 0) {
+            segmentMissing++;
+        } else {
+            segmentCounts[ord]++;
+        }
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context) throws IOException {
+        flushSegment();
+        segmentValues = FieldCache.DEFAULT.getTermsIndex(context.reader(), groupField);
+        segmentCounts = new int[segmentValues.getValueCount()];
+        segmentMissing = 0;
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return true;
+    }
+}
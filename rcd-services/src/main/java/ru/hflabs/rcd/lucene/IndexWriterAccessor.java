@@ -1,9 +1,11 @@
 package ru.hflabs.rcd.lucene;
 
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
 
 import java.io.IOException;
+import java.util.Date;
 
 /**
  * Интерфейс <class>IndexWriterAccessor</class> декларирует методы доступа к сервису записи в индекс
@@ -12,6 +14,41 @@ import java.io.IOException;
  */
 public interface IndexWriterAccessor {
 
+    /**
+     * Открывает сервис записи в индекс и создает индекс, если он не существует
+     *
+     * @param directory директория индекса
+     */
+    void open(Directory directory) throws IOException;
+
+    /**
+     * @param directory директория индекса
+     * @return Возвращает менеджер поиска, открытый по сервису записи в индекс
+     */
+    SearcherManager retrieveSearcherManager(Directory directory);
+
+    /**
+     * Выполняет обновление менеджера поиска до последних зафиксированных изменений
+     *
+     * @param directory директория индекса
+     * @param force флаг принудительного обновления
+     * @return Возвращает <code>TRUE</code>, если менеджер поиска был обновлен
+     */
+    boolean refreshSearcherManager(Directory directory, boolean force) throws IOException;
+
+    /**
+     * @param directory директория индекса
+     * @return Возвращает дату, начиная с которой изменения хранилища могли не попасть в индекс на диске к моменту его открытия,
+     * или <code>NULL</code>, если она неизвестна
+     */
+    Date retrieveHighWaterMark(Directory directory);
+
+    /**
+     * @param directory директория индекса
+     * @return Возвращает <code>TRUE</code>, если индекс построен в устаревшем формате документов и требует полного перестроения
+     */
+    boolean isFormatOutdated(Directory directory);
+
     /**
      * @param directory директория индекса
      * @return Возвращает сервис записи в индекс
@@ -32,4 +69,11 @@ public interface IndexWriterAccessor {
      * @param writer сервис записи
      */
     void rollbackWriter(IndexWriter writer) throws IOException;
+
+    /**
+     * Выполняет фиксацию изменений и закрывает сервис записи в индекс
+     *
+     * @param directory директория индекса
+     */
+    void close(Directory directory) throws IOException;
 }
@@ -1,6 +1,5 @@
 package ru.hflabs.rcd.lucene;
 
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.ReaderManager;
 import org.apache.lucene.search.SearcherManager;
@@ -9,11 +8,10 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 import ru.hflabs.util.io.IOUtils;
-import ru.hflabs.util.lucene.LuceneModifierCallback;
-import ru.hflabs.util.lucene.LuceneModifierUtil;
 import ru.hflabs.util.lucene.LuceneUtil;
 
 import java.io.IOException;
+import java.util.Date;
 
 /**
  * Класс <class>LuceneIndexManagerTemplate</class> шаблон работы с поисковым индексом
@@ -68,6 +66,30 @@ public class LuceneIndexManagerTemplate implements NamedIndexManager {
         }
     }
 
+    @Override
+    public SearcherManager retrieveSearcherManager() {
+        checkConfiguration();
+        return writerAccessor.retrieveSearcherManager(directory);
+    }
+
+    @Override
+    public boolean refreshSearcherManager(boolean force) throws IOException {
+        checkConfiguration();
+        return writerAccessor.refreshSearcherManager(directory, force);
+    }
+
+    @Override
+    public Date retrieveHighWaterMark() {
+        checkConfiguration();
+        return writerAccessor.retrieveHighWaterMark(directory);
+    }
+
+    @Override
+    public boolean isFormatOutdated() {
+        checkConfiguration();
+        return writerAccessor.isFormatOutdated(directory);
+    }
+
     @Override
     @Transactional(propagation = Propagation.MANDATORY, rollbackFor = Throwable.class)
     public IndexWriter retrieveWriter() {
@@ -114,22 +136,19 @@ public class LuceneIndexManagerTemplate implements NamedIndexManager {
     @Override
     public void open() throws Exception {
         checkConfiguration();
-        // Если индекс не существует, то выполняем его создание для корректной инициализации сервиса чтения
-        if (!DirectoryReader.indexExists(directory)) {
-            LuceneModifierUtil.doWithCallback("initialize", this, new LuceneModifierCallback() {
-                @Override
-                public int process(IndexWriter writer) throws Exception {
-                    writer.commit();
-                    return -1;
-                }
-            });
-        }
         LuceneUtil.unlockIndexDirectory(directory);
+        writerAccessor.open(directory);
     }
 
     @Override
     public void close() throws Exception {
-        IOUtils.closeQuietly(directory);
-        directory = null;
+        try {
+            if (directory != null) {
+                writerAccessor.close(directory);
+            }
+        } finally {
+            IOUtils.closeQuietly(directory);
+            directory = null;
+        }
     }
 }
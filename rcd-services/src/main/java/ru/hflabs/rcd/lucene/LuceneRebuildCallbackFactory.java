@@ -3,6 +3,8 @@ package ru.hflabs.rcd.lucene;
 import org.springframework.core.Ordered;
 import ru.hflabs.rcd.service.ISingleClassObserver;
 
+import java.util.Set;
+
 /**
  * Класс <class>RebuildLuceneCallbackFactory</class> декларирует методы фабрики доступа к процессору полного перестроения индекса
  *
@@ -16,14 +18,26 @@ public interface LuceneRebuildCallbackFactory<E> extends ISingleClassObserver<E>
     int totalDocumentCount();
 
     /**
-     * @return Возвращает <code>TRUE</code>, если индекс поврежден
+     * @return Возвращает <code>TRUE</code>, если индекс поврежден и может быть восстановлен только полным перестроением
      */
     boolean isCorrupted();
 
+    /**
+     * @return Возвращает классы сущностей, индексы которых используются при перестроении индекса
+     */
+    Set<Class<?>> retrieveRebuildDependencies();
+
     /**
      * Выполняет полное перестроение индекса
      *
      * @return Возвращает количество документов в индексе
      */
     int executeRebuild();
+
+    /**
+     * Выполняет восстановление согласованности индекса с хранилищем без его полного перестроения
+     *
+     * @return Возвращает количество исправленных документов
+     */
+    int executeRepair();
 }
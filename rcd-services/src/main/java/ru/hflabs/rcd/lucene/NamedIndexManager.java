@@ -1,8 +1,12 @@
 package ru.hflabs.rcd.lucene;
 
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
 import ru.hflabs.util.lucene.LuceneIndexManager;
 
+import java.io.IOException;
+import java.util.Date;
+
 /**
  * Интерфейс <class>NamedIndexManager</class> декларирует методы работы с сервисом записи в индекс, который привязан к определенной сущности
  *
@@ -22,4 +26,29 @@ public interface NamedIndexManager extends LuceneIndexManager {
      * @return Возвращает директорию индекса
      */
     Directory retrieveDirectory();
+
+    /**
+     * @return Возвращает менеджер поиска, открытый по сервису записи в индекс
+     */
+    SearcherManager retrieveSearcherManager();
+
+    /**
+     * Выполняет обновление менеджера поиска до последних зафиксированных транзакций.<br/>
+     * Обновление пропускается, если индекс изменяется в текущий момент
+     *
+     * @param force флаг принудительного обновления
+     * @return Возвращает <code>TRUE</code>, если менеджер поиска был обновлен
+     */
+    boolean refreshSearcherManager(boolean force) throws IOException;
+
+    /**
+     * @return Возвращает дату, начиная с которой изменения хранилища могли не попасть в индекс на диске к моменту его открытия,
+     * или <code>NULL</code>, если она неизвестна
+     */
+    Date retrieveHighWaterMark();
+
+    /**
+     * @return Возвращает <code>TRUE</code>, если индекс построен в устаревшем формате документов и требует полного перестроения
+     */
+    boolean isFormatOutdated();
 }
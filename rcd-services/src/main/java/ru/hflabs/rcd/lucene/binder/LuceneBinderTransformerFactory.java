@@ -1,6 +1,7 @@
 package ru.hflabs.rcd.lucene.binder;
 
 import com.google.common.collect.ImmutableList;
+import org.apache.lucene.search.SortField;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.util.ReflectionUtils;
 import ru.hflabs.rcd.Directories;
@@ -15,6 +16,7 @@ import ru.hflabs.util.javac.InMemoryJavaFileObject;
 import ru.hflabs.util.javac.RuntimeCompiler;
 import ru.hflabs.util.javac.RuntimeCompilerUtil;
 import ru.hflabs.util.lucene.LuceneBinderTransformer;
+import ru.hflabs.util.lucene.LuceneUtil;
 import ru.hflabs.util.spring.Assert;
 import ru.hflabs.util.spring.util.ReflectionUtil;
 
@@ -28,6 +30,9 @@ import java.lang.reflect.UndeclaredThrowableException;
 import java.util.Collection;
 import java.util.Date;
 
+import static ru.hflabs.rcd.lucene.binder.LuceneBinderTransformerTemplate.createSortFieldName;
+import static ru.hflabs.rcd.lucene.binder.LuceneBinderTransformerTemplate.isFractional;
+
 /**
  * Класс <class>LuceneBinderTransformerFactory</class> реализует фабрику создания <i>runtime</i> сервисов связи поисковой сущности и сущности API
  *
@@ -133,6 +138,8 @@ public class LuceneBinderTransformerFactory<E, PK extends Serializable> implemen
         out.println();
         out.format("import %s;", org.apache.lucene.document.Document.class.getName()).println();
         out.format("import %s;", org.apache.lucene.document.LongField.class.getName()).println();
+        out.format("import %s;", org.apache.lucene.document.NumericDocValuesField.class.getName()).println();
+        out.format("import %s;", org.apache.lucene.document.SortedDocValuesField.class.getName()).println();
         out.format("import %s;", org.apache.lucene.document.StoredField.class.getName()).println();
         out.format("import %s;", org.apache.lucene.document.StringField.class.getName()).println();
         out.format("import %s;", org.apache.lucene.document.TextField.class.getName()).println();
@@ -198,6 +205,7 @@ public class LuceneBinderTransformerFactory<E, PK extends Serializable> implemen
         // Добавляем первичный ключ
         out.format("        // %s", indexedClass.getName()).println();
         out.format("        result.add(new StringField(\"%s\", FormatUtil.format(target.%s()), FIELD_STORED));", indexedClass.getName(), RuntimeCompilerUtil.get(indexedClass.getMember())).println();
+        out.format("        result.add(new SortedDocValuesField(\"%s\", createSortValue(FormatUtil.format(target.%s()), false)));", createSortFieldName(indexedClass.getName()), RuntimeCompilerUtil.get(indexedClass.getMember())).println();
         out.println();
         // Список полей поиска поумолчанию
         out.println("        final List<IndexableField> defaultSearchFields = new ArrayList<IndexableField>();");
@@ -224,6 +232,10 @@ public class LuceneBinderTransformerFactory<E, PK extends Serializable> implemen
             if (indexedField.isStateEnabled(IndexedField.FILTERABLE)) {
                 out.println("        result.add(currentField);");
             }
+            // Добавляем значение сортировки
+            if (hasSortValue(indexedField)) {
+                buildSortField(out, indexedField);
+            }
             // Добавляем в поиск по умолчанию
             if (indexedField.isStateEnabled(IndexedField.SEARCHABLE)) {
                 out.println("        defaultSearchFields.add(currentField);");
@@ -242,6 +254,68 @@ public class LuceneBinderTransformerFactory<E, PK extends Serializable> implemen
         out.println();
     }
 
+    /**
+     * Проверяет, что для поля в документе сохраняется значение сортировки.<br/>
+     * Псевдонимы не имеют значения сортировки, так как могут встречаться в документе несколько раз
+     *
+     * @param indexedField индексированное поле
+     * @return Возвращает флаг наличия значения сортировки
+     */
+    public static boolean hasSortValue(IndexedField indexedField) {
+        return indexedField instanceof IndexedClass ||
+                (indexedField.isStateEnabled(IndexedField.SORTABLE) && !(indexedField instanceof IndexedField.ByAlias));
+    }
+
+    /**
+     * @param indexedField индексированное поле
+     * @return Возвращает название поля, по которому выполняется сортировка
+     */
+    public static String retrieveSortFieldName(IndexedField indexedField) {
+        return hasSortValue(indexedField) ? createSortFieldName(indexedField.getName()) : indexedField.getName();
+    }
+
+    /**
+     * @param indexedField индексированное поле
+     * @return Возвращает тип сортировки, соответствующий значению сортировки поля
+     */
+    public static SortField.Type retrieveSortFieldType(IndexedField indexedField) {
+        if (hasSortValue(indexedField)) {
+            final Class<?> fieldClass = indexedField.getType();
+            if (Date.class.isAssignableFrom(fieldClass)) {
+                return SortField.Type.LONG;
+            } else if (Number.class.isAssignableFrom(fieldClass)) {
+                return isFractional(fieldClass) ? SortField.Type.DOUBLE : SortField.Type.LONG;
+            }
+            return SortField.Type.STRING;
+        }
+        return LuceneUtil.sortFieldTypeByClass(indexedField.getType());
+    }
+
+    /**
+     * Выполняет построение значения сортировки поля.<br/>
+     * Значения сортировки хранятся в <i>DocValues</i> отдельного поля, поэтому для сортировки и группировки
+     * не требуется построение кеша полей обращением индекса после каждого обновления сервиса поиска,
+     * а кеш самого поля по-прежнему строится по индексированным терминам без ограничения длины
+     *
+     * @param out поток вывода
+     * @param indexedField индексированное поле
+     */
+    private void buildSortField(PrintWriter out, IndexedField indexedField) {
+        final String sortFieldName = createSortFieldName(indexedField.getName());
+        final String getter = RuntimeCompilerUtil.get(indexedField.getMember());
+        final Class<?> fieldClass = indexedField.getType();
+        if (String.class.isAssignableFrom(fieldClass)) {
+            // Строковые поля анализируются без учета регистра, поэтому сортировка также выполняется без его учета
+            out.format("        result.add(new SortedDocValuesField(\"%s\", createSortValue(FormatUtil.format(target.%s()), true)));", sortFieldName, getter).println();
+        } else if (Date.class.isAssignableFrom(fieldClass)) {
+            out.format("        result.add(new NumericDocValuesField(\"%s\", LuceneUtil.dateToLong(target.%s())));", sortFieldName, getter).println();
+        } else if (Number.class.isAssignableFrom(fieldClass)) {
+            out.format("        result.add(new NumericDocValuesField(\"%s\", createSortValue(target.%s(), %s)));", sortFieldName, getter, isFractional(fieldClass)).println();
+        } else if (Enum.class.isAssignableFrom(fieldClass)) {
+            out.format("        result.add(new SortedDocValuesField(\"%s\", createSortValue(FormatUtil.format(target.%s(), false), false)));", sortFieldName, getter).println();
+        }
+    }
+
     /**
      * Класс <class>ServicesHolder</class> реализует кеш сервисов
      *
@@ -8,6 +8,7 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
 import org.springframework.util.StringUtils;
 import ru.hflabs.rcd.index.IndexedClass;
 import ru.hflabs.rcd.lucene.IndexBinderTransformer;
@@ -15,8 +16,10 @@ import ru.hflabs.rcd.model.Identifying;
 import ru.hflabs.rcd.service.ISingleClassObserver;
 import ru.hflabs.util.lucene.LuceneUtil;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Locale;
 
 import static ru.hflabs.util.lucene.LuceneUtil.KRYO_OBJECT_TO_BYTE_CONVERTER;
 
@@ -29,6 +32,10 @@ public abstract class LuceneBinderTransformerTemplate<E extends Identifying> imp
 
     /** Статус сохранения поисковых полей */
     public static final Field.Store FIELD_STORED = Field.Store.NO;
+    /** Префикс поля значения сортировки */
+    public static final String SORT_FIELD_PREFIX = "sort.";
+    /** Максимальная длина значения сортировки */
+    public static final int SORT_VALUE_MAX_LENGTH = 1024;
     /** Описание индексации */
     private final IndexedClass<E> indexedClass;
 
@@ -61,6 +68,58 @@ public abstract class LuceneBinderTransformerTemplate<E extends Identifying> imp
         return LuceneUtil.byteToObject(retrieveTargetClass(), source.getBinaryValue(OBJECT_FIELD), KRYO_OBJECT_TO_BYTE_CONVERTER);
     }
 
+    /**
+     * @param fieldName название поля
+     * @return Возвращает название поля значения сортировки
+     */
+    public static String createSortFieldName(String fieldName) {
+        return SORT_FIELD_PREFIX + fieldName;
+    }
+
+    /**
+     * Проверяет, что значения числового поля сохраняются с дробной частью
+     *
+     * @param fieldClass класс поля
+     * @return Возвращает <code>TRUE</code>, если значения поля не являются целыми числами
+     */
+    public static boolean isFractional(Class<?> fieldClass) {
+        return !(Long.class.isAssignableFrom(fieldClass) ||
+                Integer.class.isAssignableFrom(fieldClass) ||
+                Short.class.isAssignableFrom(fieldClass) ||
+                Byte.class.isAssignableFrom(fieldClass) ||
+                BigInteger.class.isAssignableFrom(fieldClass));
+    }
+
+    /**
+     * Создает значение сортировки строкового поля
+     *
+     * @param value значение поля
+     * @param ignoreCase флаг сортировки без учета регистра
+     * @return Возвращает значение сортировки, ограниченное по длине
+     */
+    public static BytesRef createSortValue(String value, boolean ignoreCase) {
+        if (value == null) {
+            return new BytesRef();
+        }
+        String result = value.length() > SORT_VALUE_MAX_LENGTH ? value.substring(0, SORT_VALUE_MAX_LENGTH) : value;
+        return new BytesRef(ignoreCase ? result.toLowerCase(Locale.ROOT) : result);
+    }
+
+    /**
+     * Создает значение сортировки числового поля.<br/>
+     * Дробные значения сохраняются битами {@link Double}, так как кеш полей так же читает их для сортировки {@link org.apache.lucene.search.SortField.Type#DOUBLE}
+     *
+     * @param value значение поля
+     * @param fractional флаг поля с дробными значениями
+     * @return Возвращает значение сортировки
+     */
+    protected static long createSortValue(Number value, boolean fractional) {
+        if (fractional) {
+            return Double.doubleToRawLongBits(value != null ? value.doubleValue() : 0D);
+        }
+        return value != null ? value.longValue() : 0L;
+    }
+
     /**
      * Создает поле поиска по умолчанию
      *
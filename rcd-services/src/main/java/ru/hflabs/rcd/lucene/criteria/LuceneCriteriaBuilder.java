@@ -4,6 +4,7 @@ import org.apache.lucene.search.*;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.util.StringUtils;
 import ru.hflabs.rcd.index.IndexedField;
+import ru.hflabs.rcd.lucene.binder.LuceneBinderTransformerFactory;
 import ru.hflabs.rcd.model.Identifying;
 import ru.hflabs.rcd.model.criteria.FilterCriteriaValue;
 import ru.hflabs.rcd.storage.CriteriaBuilderTemplate;
@@ -188,8 +189,10 @@ public class LuceneCriteriaBuilder<E extends Identifying> extends CriteriaBuilde
     @Override
     protected LuceneCriteriaHolder appendOrder(LuceneCriteriaHolder current, Class<E> criteriaClass, String orderKey, SortOrder orderValue) {
         IndexedField indexedField = class2fieldConverter.convert(Pair.valueOf(criteriaClass, orderKey));
-        SortField.Type sortFieldType = LuceneUtil.sortFieldTypeByClass(indexedField.getType());
-        return current.appendOrder(new SortField(orderKey, sortFieldType, SortOrder.DESCENDING.equals(orderValue)));
+        // Сортировка выполняется по полю значения сортировки, сохраненному в DocValues, поэтому кеш полей получает его без обращения индекса
+        String sortFieldName = LuceneBinderTransformerFactory.retrieveSortFieldName(indexedField);
+        SortField.Type sortFieldType = LuceneBinderTransformerFactory.retrieveSortFieldType(indexedField);
+        return current.appendOrder(new SortField(sortFieldName, sortFieldType, SortOrder.DESCENDING.equals(orderValue)));
     }
 
     @Override
@@ -0,0 +1,279 @@
+package ru.hflabs.rcd.lucene.transaction;
+
+import com.google.common.collect.Lists;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Класс <class>IndexJournal</class> реализует журнал изменений индекса в рамках одной транзакции.<br/>
+ * Изменения не передаются в {@link SharedIndexWriter общий сервис записи}, а накапливаются в журнале
+ * и применяются к нему одним пакетом при фиксации транзакции, поэтому незафиксированные изменения не видны при поиске.
+ * Если количество накопленных документов превышает заданное, то транзакция получает общий сервис записи в монопольное использование,
+ * переносит в него журнал и далее изменяет индекс напрямую. Удаление всех документов сразу переводит транзакцию в монопольный режим.<br/>
+ * Журнал не является потокобезопасным, поэтому добавлять документы из нескольких потоков допускается только в монопольном режиме.
+ *
+ * @author Nazin Alexander
+ * @see SharedIndexWriter
+ * @see JournalIndexWriter
+ */
+class IndexJournal {
+
+    /** Общий сервис записи в индекс */
+    private final SharedIndexWriter sharedWriter;
+    /** Максимальное количество накапливаемых документов */
+    private final int maxBufferedDocuments;
+    /** Операции журнала */
+    private final List<Operation> operations;
+    /** Количество накопленных документов */
+    private int bufferedDocuments;
+    /** Сервис записи, полученный в монопольное использование */
+    private volatile IndexWriter exclusiveWriter;
+
+    IndexJournal(SharedIndexWriter sharedWriter, int maxBufferedDocuments) {
+        this.sharedWriter = sharedWriter;
+        this.maxBufferedDocuments = maxBufferedDocuments;
+        this.operations = Lists.newArrayList();
+        sharedWriter.register(this);
+    }
+
+    /**
+     * Добавляет операцию в журнал или применяет ее, если общий сервис записи получен в монопольное использование
+     *
+     * @param operation операция изменения индекса
+     */
+    private void append(Operation operation) throws IOException {
+        if (exclusiveWriter != null) {
+            operation.apply(exclusiveWriter);
+            return;
+        }
+        operations.add(operation);
+        bufferedDocuments += operation.size();
+        if (bufferedDocuments > maxBufferedDocuments) {
+            acquireExclusive();
+        }
+    }
+
+    /**
+     * Получает общий сервис записи в монопольное использование и переносит в него журнал
+     */
+    private void acquireExclusive() throws IOException {
+        IndexWriter writer = sharedWriter.acquireExclusive();
+        try {
+            for (Operation buffered : operations) {
+                buffered.apply(writer);
+            }
+        } catch (IOException | RuntimeException ex) {
+            sharedWriter.releaseExclusive(false);
+            throw ex;
+        }
+        operations.clear();
+        bufferedDocuments = 0;
+        exclusiveWriter = writer;
+    }
+
+    /**
+     * Добавляет в журнал замену или добавление документов
+     *
+     * @param term термин удаляемых документов или <code>NULL</code>, если документы только добавляются
+     * @param documents добавляемые документы
+     * @param analyzer анализатор документов
+     */
+    void updateDocuments(Term term, List<Iterable<? extends IndexableField>> documents, Analyzer analyzer) throws IOException {
+        append(new UpdateOperation(term, documents, analyzer));
+    }
+
+    /**
+     * Добавляет в журнал удаление документов по терминам
+     *
+     * @param terms термины удаляемых документов
+     */
+    void deleteDocuments(Term... terms) throws IOException {
+        append(new DeleteTermsOperation(terms));
+    }
+
+    /**
+     * Добавляет в журнал удаление документов по запросам
+     *
+     * @param queries запросы удаляемых документов
+     */
+    void deleteDocuments(Query... queries) throws IOException {
+        append(new DeleteQueriesOperation(queries));
+    }
+
+    /**
+     * Удаляет все документы индекса в монопольном режиме.<br/>
+     * Индекс строится заново, поэтому после фиксации транзакции ему присваивается текущая версия формата документов
+     */
+    void deleteAll() throws IOException {
+        if (exclusiveWriter == null) {
+            // Накопленные изменения будут удалены, поэтому их можно не применять,
+            // а индекс будет полностью перестроен, поэтому сразу получаем монопольный доступ
+            operations.clear();
+            bufferedDocuments = 0;
+            acquireExclusive();
+        }
+        sharedWriter.markRebuilding();
+        append(new DeleteAllOperation());
+    }
+
+    /**
+     * Выполняет подготовку фиксации изменений транзакции
+     */
+    void prepare() throws IOException {
+        if (exclusiveWriter != null) {
+            sharedWriter.prepareExclusive();
+        }
+    }
+
+    /**
+     * Выполняет фиксацию изменений транзакции в общем сервисе записи.<br/>
+     * Монопольные изменения всегда фиксируются на диске
+     *
+     * @param durable флаг фиксации на диске примененного пакета изменений
+     */
+    void commit(boolean durable) throws IOException {
+        if (exclusiveWriter != null) {
+            exclusiveWriter = null;
+            sharedWriter.releaseExclusive(true);
+        } else if (!operations.isEmpty()) {
+            sharedWriter.apply(operations);
+            if (durable) {
+                sharedWriter.commit();
+            }
+        }
+        operations.clear();
+        bufferedDocuments = 0;
+    }
+
+    /**
+     * Выполняет откат незафиксированных изменений транзакции и завершает ее
+     */
+    void rollback() throws IOException {
+        operations.clear();
+        bufferedDocuments = 0;
+        try {
+            if (exclusiveWriter != null) {
+                exclusiveWriter = null;
+                sharedWriter.releaseExclusive(false);
+            }
+        } finally {
+            sharedWriter.unregister(this);
+        }
+    }
+
+    /**
+     * Класс <class>Operation</class> описывает операцию изменения индекса
+     *
+     * @author Nazin Alexander
+     */
+    abstract static class Operation {
+
+        /**
+         * @return Возвращает количество добавляемых документов
+         */
+        int size() {
+            return 0;
+        }
+
+        /**
+         * Применяет операцию к сервису записи
+         *
+         * @param writer сервис записи
+         */
+        abstract void apply(IndexWriter writer) throws IOException;
+    }
+
+    /**
+     * Класс <class>UpdateOperation</class> реализует операцию замены или добавления документов
+     *
+     * @author Nazin Alexander
+     */
+    private static class UpdateOperation extends Operation {
+
+        /** Термин удаляемых документов или <code>NULL</code>, если документы только добавляются */
+        private final Term term;
+        /** Добавляемые документы */
+        private final List<Iterable<? extends IndexableField>> documents;
+        /** Анализатор документов */
+        private final Analyzer analyzer;
+
+        private UpdateOperation(Term term, List<Iterable<? extends IndexableField>> documents, Analyzer analyzer) {
+            this.term = term;
+            this.documents = documents;
+            this.analyzer = analyzer;
+        }
+
+        @Override
+        int size() {
+            return documents.size();
+        }
+
+        @Override
+        void apply(IndexWriter writer) throws IOException {
+            if (documents.size() == 1) {
+                writer.updateDocument(term, documents.get(0), analyzer);
+            } else {
+                writer.updateDocuments(term, documents, analyzer);
+            }
+        }
+    }
+
+    /**
+     * Класс <class>DeleteTermsOperation</class> реализует операцию удаления документов по терминам
+     *
+     * @author Nazin Alexander
+     */
+    private static class DeleteTermsOperation extends Operation {
+
+        /** Термины удаляемых документов */
+        private final Term[] terms;
+
+        private DeleteTermsOperation(Term... terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        void apply(IndexWriter writer) throws IOException {
+            writer.deleteDocuments(terms);
+        }
+    }
+
+    /**
+     * Класс <class>DeleteQueriesOperation</class> реализует операцию удаления документов по запросам
+     *
+     * @author Nazin Alexander
+     */
+    private static class DeleteQueriesOperation extends Operation {
+
+        /** Запросы удаляемых документов */
+        private final Query[] queries;
+
+        private DeleteQueriesOperation(Query... queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        void apply(IndexWriter writer) throws IOException {
+            writer.deleteDocuments(queries);
+        }
+    }
+
+    /**
+     * Класс <class>DeleteAllOperation</class> реализует операцию удаления всех документов
+     *
+     * @author Nazin Alexander
+     */
+    private static class DeleteAllOperation extends Operation {
+
+        @Override
+        void apply(IndexWriter writer) throws IOException {
+            writer.deleteAll();
+        }
+    }
+}
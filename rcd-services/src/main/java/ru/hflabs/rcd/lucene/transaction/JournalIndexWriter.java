@@ -0,0 +1,222 @@
+package ru.hflabs.rcd.lucene.transaction;
+
+import com.google.common.collect.Lists;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Класс <class>JournalIndexWriter</class> реализует сервис записи, который передает изменения индекса в {@link IndexJournal журнал транзакции}.<br/>
+ * Сервис нужен только потому, что {@link ru.hflabs.util.lucene.LuceneModifierCallback} получает {@link IndexWriter},
+ * поэтому он не хранит состояния транзакции и повторно используется {@link SharedIndexWriter общим сервисом записи} для следующих транзакций.<br/>
+ * Сервис открыт по пустой директории в памяти, поэтому все методы изменения и получения состояния индекса,
+ * которые не передаются в журнал, отклоняются, чтобы изменения не терялись молча.
+ * Фиксация и подготовка фиксации не могут быть переопределены, но не имеют эффекта, так как директория в памяти не изменяется:
+ * изменения транзакции фиксируются только {@link ru.hflabs.rcd.lucene.IndexWriterAccessor сервисом доступа}
+ *
+ * @author Nazin Alexander
+ * @see IndexJournal
+ */
+class JournalIndexWriter extends IndexWriter {
+
+    /** Общий сервис записи, выдавший сервис транзакции */
+    private final SharedIndexWriter sharedWriter;
+    /** Журнал текущей транзакции */
+    private volatile IndexJournal journal;
+
+    JournalIndexWriter(SharedIndexWriter sharedWriter, IndexWriterConfig config) throws IOException {
+        super(new RAMDirectory(), config);
+        this.sharedWriter = sharedWriter;
+    }
+
+    /**
+     * Привязывает сервис к журналу транзакции
+     *
+     * @param target журнал транзакции
+     */
+    void bind(IndexJournal target) {
+        this.journal = target;
+    }
+
+    /**
+     * @return Возвращает журнал текущей транзакции
+     */
+    IndexJournal getJournal() {
+        IndexJournal result = journal;
+        if (result == null) {
+            throw new IllegalStateException("Index writer is not bound to transaction");
+        }
+        return result;
+    }
+
+    /**
+     * Закрывает сервис записи при закрытии общего сервиса записи
+     */
+    void dispose() throws IOException {
+        super.close();
+    }
+
+    /**
+     * @param operation название операции
+     * @return Возвращает исключение для операции, которая не передается в журнал транзакции
+     */
+    private static UnsupportedOperationException unsupported(String operation) {
+        return new UnsupportedOperationException(String.format("Operation '%s' not supported by transaction index writer", operation));
+    }
+
+    /**
+     * Выполняет откат незафиксированных изменений журнала и возвращает сервис общему сервису записи
+     */
+    void release() throws IOException {
+        IndexJournal current = journal;
+        journal = null;
+        try {
+            if (current != null) {
+                current.rollback();
+            }
+        } finally {
+            sharedWriter.release(this);
+        }
+    }
+
+    @Override
+    public void addDocument(Iterable<? extends IndexableField> doc) throws IOException {
+        updateDocument(null, doc, getAnalyzer());
+    }
+
+    @Override
+    public void addDocument(Iterable<? extends IndexableField> doc, Analyzer analyzer) throws IOException {
+        updateDocument(null, doc, analyzer);
+    }
+
+    @Override
+    public void addDocuments(Iterable<? extends Iterable<? extends IndexableField>> docs) throws IOException {
+        updateDocuments(null, docs, getAnalyzer());
+    }
+
+    @Override
+    public void addDocuments(Iterable<? extends Iterable<? extends IndexableField>> docs, Analyzer analyzer) throws IOException {
+        updateDocuments(null, docs, analyzer);
+    }
+
+    @Override
+    public void updateDocument(Term term, Iterable<? extends IndexableField> doc) throws IOException {
+        updateDocument(term, doc, getAnalyzer());
+    }
+
+    @Override
+    public void updateDocument(Term term, Iterable<? extends IndexableField> doc, Analyzer analyzer) throws IOException {
+        getJournal().updateDocuments(term, Collections.<Iterable<? extends IndexableField>>singletonList(doc), analyzer);
+    }
+
+    @Override
+    public void updateDocuments(Term delTerm, Iterable<? extends Iterable<? extends IndexableField>> docs) throws IOException {
+        updateDocuments(delTerm, docs, getAnalyzer());
+    }
+
+    @Override
+    public void updateDocuments(Term delTerm, Iterable<? extends Iterable<? extends IndexableField>> docs, Analyzer analyzer) throws IOException {
+        // Копируем документы, так как коллекция может быть представлением, вычисляемым при обходе
+        getJournal().updateDocuments(delTerm, Lists.<Iterable<? extends IndexableField>>newArrayList(docs), analyzer);
+    }
+
+    @Override
+    public void deleteDocuments(Term term) throws IOException {
+        getJournal().deleteDocuments(term);
+    }
+
+    @Override
+    public void deleteDocuments(Term... terms) throws IOException {
+        getJournal().deleteDocuments(terms);
+    }
+
+    @Override
+    public void deleteDocuments(Query query) throws IOException {
+        getJournal().deleteDocuments(query);
+    }
+
+    @Override
+    public void deleteDocuments(Query... queries) throws IOException {
+        getJournal().deleteDocuments(queries);
+    }
+
+    @Override
+    public synchronized boolean tryDeleteDocument(IndexReader readerIn, int docID) throws IOException {
+        // Номер документа не может быть сохранен в журнале
+        return false;
+    }
+
+    @Override
+    public synchronized void deleteAll() throws IOException {
+        getJournal().deleteAll();
+    }
+
+    @Override
+    public void addIndexes(Directory... dirs) throws IOException {
+        throw unsupported("addIndexes");
+    }
+
+    @Override
+    public void addIndexes(IndexReader... readers) throws IOException {
+        throw unsupported("addIndexes");
+    }
+
+    @Override
+    public void forceMerge(int maxNumSegments) throws IOException {
+        throw unsupported("forceMerge");
+    }
+
+    @Override
+    public void forceMerge(int maxNumSegments, boolean doWait) throws IOException {
+        throw unsupported("forceMerge");
+    }
+
+    @Override
+    public void forceMergeDeletes() throws IOException {
+        throw unsupported("forceMergeDeletes");
+    }
+
+    @Override
+    public void forceMergeDeletes(boolean doWait) throws IOException {
+        throw unsupported("forceMergeDeletes");
+    }
+
+    @Override
+    public void rollback() throws IOException {
+        throw unsupported("rollback");
+    }
+
+    @Override
+    public void close() throws IOException {
+        throw unsupported("close");
+    }
+
+    @Override
+    public void close(boolean waitForMerges) throws IOException {
+        throw unsupported("close");
+    }
+
+    @Override
+    public synchronized int numDocs() {
+        throw unsupported("numDocs");
+    }
+
+    @Override
+    public synchronized int maxDoc() {
+        throw unsupported("maxDoc");
+    }
+
+    @Override
+    public synchronized boolean hasDeletions() {
+        throw unsupported("hasDeletions");
+    }
+}
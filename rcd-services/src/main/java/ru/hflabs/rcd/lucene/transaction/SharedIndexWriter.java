@@ -0,0 +1,366 @@
+package ru.hflabs.rcd.lucene.transaction;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import ru.hflabs.util.io.IOUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Класс <class>SharedIndexWriter</class> реализует долгоживущий сервис записи в индекс, общий для всех транзакций.<br/>
+ * Поиск выполняется менеджером, открытым по сервису записи (near-real-time), поэтому примененные изменения
+ * становятся видны без фиксации на диске. Фиксация на диске выполняется {@link #commit() отдельно} и объединяет изменения
+ * нескольких транзакций.<br/>
+ * Применение пакета изменений, фиксация и монопольное использование выполняются под блокировкой записи.
+ * Менеджер поиска обновляется перед освобождением блокировки, поэтому изменения зафиксированной транзакции видны при поиске
+ * сразу после ее завершения. Пока блокировка занята, обновление менеджера поиска по запросу пропускается: текущий менеджер
+ * уже содержит все ранее зафиксированные транзакции, а незавершенные изменения монопольной транзакции при поиске не видны.<br/>
+ * При каждой фиксации в данные фиксации записывается метка согласованности - время начала самой ранней незавершенной транзакции
+ * за вычетом заданного окна, так что все изменения хранилища до этой метки гарантированно находятся в индексе на диске.<br/>
+ * Вместе с меткой сохраняется версия формата документов индекса. Текущая версия записывается только в новый индекс
+ * и после фиксации полного перестроения, поэтому индекс, построенный в устаревшем формате, остается устаревшим до перестроения.
+ *
+ * @author Nazin Alexander
+ * @see IndexJournal
+ */
+class SharedIndexWriter {
+
+    /** Ключ метки согласованности в данных фиксации */
+    static final String HIGH_WATER_MARK = "highWaterMark";
+    /** Ключ версии формата документов в данных фиксации */
+    static final String FORMAT_VERSION = "formatVersion";
+    /**
+     * Текущая версия формата документов.<br/>
+     * Увеличивается при изменении состава полей документов, которое требует полного перестроения индекса.
+     * Версия 2 - значения сортировки в <i>DocValues</i> отдельных полей
+     */
+    static final String CURRENT_FORMAT_VERSION = "2";
+
+    /** Директория индекса */
+    private final Directory directory;
+    /** Конфигурация сервиса записи */
+    private final IndexWriterConfig config;
+    /** Блокировка сервиса записи */
+    private final ReentrantReadWriteLock lock;
+    /** Сервис записи */
+    private volatile IndexWriter writer;
+    /** Менеджер поиска */
+    private volatile SearcherManager searcherManager;
+    /** Количество изменений, не зафиксированных на диске */
+    private int pendingChanges;
+    /** Окно согласованности в миллисекундах */
+    private final long consistencyWindow;
+    /** Время начала незавершенных транзакций, общее для всех индексов, где ключ - транзакция хранилища или журнал транзакции */
+    private final ConcurrentMap<Object, Long> transactions;
+    /** Свободные сервисы записи транзакций */
+    private final Queue<JournalIndexWriter> idleWriters;
+    /** Метка согласованности индекса на момент открытия */
+    private final Date highWaterMark;
+    /** Версия формата документов индекса на диске или <code>NULL</code>, если она не сохранена */
+    private volatile String formatVersion;
+    /** Флаг полного перестроения индекса монопольной транзакцией */
+    private boolean rebuilding;
+
+    SharedIndexWriter(Directory directory, IndexWriterConfig config, long consistencyWindow, ConcurrentMap<Object, Long> transactions) throws IOException {
+        this.directory = directory;
+        this.config = config;
+        this.lock = new ReentrantReadWriteLock();
+        this.consistencyWindow = consistencyWindow;
+        this.transactions = transactions;
+        this.idleWriters = new ConcurrentLinkedQueue<>();
+        boolean exists = DirectoryReader.indexExists(directory);
+        open();
+        this.highWaterMark = exists ? readHighWaterMark(writer.getCommitData()) : null;
+        this.formatVersion = exists ? readFormatVersion(writer.getCommitData()) : CURRENT_FORMAT_VERSION;
+        // Если индекс не существует, то выполняем его создание для корректной инициализации сервиса чтения
+        if (!exists) {
+            updateCommitData();
+            writer.commit();
+        }
+    }
+
+    /**
+     * @param commitData данные фиксации
+     * @return Возвращает метку согласованности или <code>NULL</code>, если она не сохранена
+     */
+    private static Date readHighWaterMark(Map<String, String> commitData) {
+        String value = commitData != null ? commitData.get(HIGH_WATER_MARK) : null;
+        return value != null ? new Date(Long.parseLong(value)) : null;
+    }
+
+    /**
+     * @param commitData данные фиксации
+     * @return Возвращает версию формата документов или <code>NULL</code>, если она не сохранена
+     */
+    private static String readFormatVersion(Map<String, String> commitData) {
+        return commitData != null ? commitData.get(FORMAT_VERSION) : null;
+    }
+
+    /**
+     * Записывает в данные следующей фиксации текущую метку согласованности и версию формата документов
+     */
+    private void updateCommitData() {
+        long mark = System.currentTimeMillis();
+        for (Long start : transactions.values()) {
+            mark = Math.min(mark, start);
+        }
+        ImmutableMap.Builder<String, String> commitData = ImmutableMap.builder();
+        commitData.put(HIGH_WATER_MARK, String.valueOf(mark - consistencyWindow));
+        String version = rebuilding ? CURRENT_FORMAT_VERSION : formatVersion;
+        if (version != null) {
+            commitData.put(FORMAT_VERSION, version);
+        }
+        writer.setCommitData(commitData.build());
+    }
+
+    /**
+     * Открывает сервис записи и менеджер поиска
+     */
+    private void open() throws IOException {
+        IndexWriter openedWriter = new IndexWriter(directory, config.clone());
+        SearcherManager openedManager;
+        try {
+            openedManager = new SearcherManager(openedWriter, true, null);
+        } catch (IOException | RuntimeException ex) {
+            IOUtils.closeQuietly(openedWriter);
+            throw ex;
+        }
+        writer = openedWriter;
+        searcherManager = openedManager;
+        pendingChanges = 0;
+    }
+
+    /**
+     * Выполняет откат всех изменений, не зафиксированных на диске, и заново открывает сервис записи и менеджер поиска.<br/>
+     * Предыдущий менеджер поиска закрывается только после замены на новый, поэтому поиск не получает закрытый менеджер.
+     * Если сервис записи не удалось открыть, то предыдущий менеджер остается доступен для поиска по последнему открытому состоянию
+     */
+    private void reopen() throws IOException {
+        SearcherManager previous = searcherManager;
+        try {
+            writer.rollback();
+        } finally {
+            open();
+        }
+        IOUtils.closeQuietly(previous);
+    }
+
+    /**
+     * @return Возвращает метку согласованности индекса на момент открытия или <code>NULL</code>, если она неизвестна
+     */
+    Date getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * @return Возвращает <code>TRUE</code>, если версия формата документов индекса отличается от текущей
+     */
+    boolean isFormatOutdated() {
+        return !CURRENT_FORMAT_VERSION.equals(formatVersion);
+    }
+
+    /**
+     * Регистрирует незавершенную транзакцию индекса.<br/>
+     * Транзакции хранилища регистрируются при их начале {@link TransactionalIndexWriterAccessor сервисом доступа},
+     * а журнал регистрируется на случай, если транзакция хранилища не была зарегистрирована
+     *
+     * @param transaction журнал транзакции
+     */
+    void register(IndexJournal transaction) {
+        transactions.put(transaction, System.currentTimeMillis());
+    }
+
+    /**
+     * Удаляет завершенную транзакцию
+     *
+     * @param transaction журнал транзакции
+     */
+    void unregister(IndexJournal transaction) {
+        transactions.remove(transaction);
+    }
+
+    /**
+     * @return Возвращает менеджер поиска
+     */
+    SearcherManager getSearcherManager() {
+        return searcherManager;
+    }
+
+    /**
+     * Возвращает сервис записи, передающий изменения в журнал транзакции.<br/>
+     * Сервисы записи завершенных транзакций используются повторно, чтобы не открывать сервис для каждой транзакции
+     *
+     * @param journal журнал транзакции
+     * @return Возвращает сервис записи транзакции
+     */
+    JournalIndexWriter borrow(IndexJournal journal) throws IOException {
+        JournalIndexWriter result = idleWriters.poll();
+        if (result == null) {
+            result = new JournalIndexWriter(this, config.clone());
+        }
+        result.bind(journal);
+        return result;
+    }
+
+    /**
+     * Возвращает сервис записи завершенной транзакции для повторного использования
+     *
+     * @param journalWriter сервис записи транзакции
+     */
+    void release(JournalIndexWriter journalWriter) {
+        journalWriter.bind(null);
+        idleWriters.offer(journalWriter);
+    }
+
+    /**
+     * Выполняет обновление менеджера поиска, если индекс не изменяется в текущий момент.<br/>
+     * Если индекс изменяется, то обновление не требуется, так как менеджер обновляется при завершении каждого изменения
+     *
+     * @param force флаг принудительного обновления
+     * @return Возвращает <code>TRUE</code>, если менеджер поиска был обновлен
+     */
+    boolean refresh(boolean force) throws IOException {
+        if (lock.isWriteLocked() || !lock.readLock().tryLock()) {
+            return false;
+        }
+        try {
+            if (force || !searcherManager.isSearcherCurrent()) {
+                searcherManager.maybeRefreshBlocking();
+                return true;
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Применяет пакет изменений зафиксированной транзакции
+     *
+     * @param operations операции изменения индекса
+     */
+    void apply(Collection<IndexJournal.Operation> operations) throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (IndexJournal.Operation operation : operations) {
+                operation.apply(writer);
+            }
+            pendingChanges += operations.size();
+            // Обновляем менеджер поиска до освобождения блокировки, чтобы изменения были видны сразу после фиксации транзакции
+            searcherManager.maybeRefreshBlocking();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет фиксацию на диске всех примененных изменений
+     */
+    void commit() throws IOException {
+        lock.writeLock().lock();
+        try {
+            doCommit();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void doCommit() throws IOException {
+        if (pendingChanges > 0) {
+            updateCommitData();
+            writer.commit();
+            pendingChanges = 0;
+        }
+    }
+
+    /**
+     * Получает сервис записи в монопольное использование текущим потоком.<br/>
+     * Ранее примененные изменения фиксируются на диске, чтобы откат монопольных изменений не затронул другие транзакции
+     *
+     * @return Возвращает сервис записи
+     */
+    IndexWriter acquireExclusive() throws IOException {
+        lock.writeLock().lock();
+        try {
+            doCommit();
+            return writer;
+        } catch (IOException | RuntimeException ex) {
+            lock.writeLock().unlock();
+            throw ex;
+        }
+    }
+
+    /**
+     * Отмечает, что монопольная транзакция удалила все документы и заново строит индекс в текущем формате.<br/>
+     * Вызывается при монопольном использовании сервиса записи
+     */
+    void markRebuilding() {
+        rebuilding = true;
+    }
+
+    /**
+     * Выполняет подготовку фиксации монопольных изменений
+     */
+    void prepareExclusive() throws IOException {
+        updateCommitData();
+        writer.prepareCommit();
+    }
+
+    /**
+     * Выполняет фиксацию или откат монопольных изменений и освобождает сервис записи
+     *
+     * @param commit флаг фиксации изменений
+     */
+    void releaseExclusive(boolean commit) throws IOException {
+        try {
+            if (commit) {
+                try {
+                    writer.commit();
+                } catch (IOException | RuntimeException ex) {
+                    reopen();
+                    throw ex;
+                }
+                if (rebuilding) {
+                    formatVersion = CURRENT_FORMAT_VERSION;
+                }
+                searcherManager.maybeRefreshBlocking();
+            } else {
+                reopen();
+            }
+        } finally {
+            rebuilding = false;
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет фиксацию изменений и закрывает сервис записи
+     */
+    void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (JournalIndexWriter journalWriter = idleWriters.poll(); journalWriter != null; journalWriter = idleWriters.poll()) {
+                try {
+                    journalWriter.dispose();
+                } catch (IOException ex) {
+                    // do nothing
+                }
+            }
+            IOUtils.closeQuietly(searcherManager);
+            writer.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
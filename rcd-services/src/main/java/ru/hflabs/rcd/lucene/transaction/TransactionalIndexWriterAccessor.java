@@ -2,38 +2,142 @@ package ru.hflabs.rcd.lucene.transaction;
 
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
 import org.springframework.util.ReflectionUtils;
 import ru.hflabs.rcd.lucene.IndexWriterAccessor;
-import ru.hflabs.util.io.IOUtils;
+import ru.hflabs.rcd.storage.TransactionLifecycleListener;
 
 import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Класс <class>TransactionalIndexWriterAccessor</class> реализует сервис доступа к транзакционному индексу записи
+ * Класс <class>TransactionalIndexWriterAccessor</class> реализует сервис доступа к транзакционному индексу записи.<br/>
+ * Для каждой директории индекса открывается один {@link SharedIndexWriter долгоживущий сервис записи}, а транзакция получает
+ * {@link IndexJournal журнал}, накапливающий ее изменения до фиксации. Зафиксированные изменения сразу видны при поиске,
+ * а фиксация на диске выполняется периодически и объединяет изменения нескольких транзакций (group commit).
+ * Если интервал фиксации не задан, то изменения фиксируются на диске после каждой транзакции.<br/>
+ * Каждая фиксация сохраняет в индексе метку, начиная с которой изменения хранилища могут в нем отсутствовать.
+ * Метка рассчитывается по времени начала незавершенных транзакций хранилища, которые регистрируются при их начале.
  *
  * @author Nazin Alexander
  * @see org.springframework.transaction.annotation.Transactional
  */
-public class TransactionalIndexWriterAccessor extends TransactionSynchronizationAdapter implements IndexWriterAccessor {
+public class TransactionalIndexWriterAccessor extends TransactionSynchronizationAdapter implements IndexWriterAccessor, TransactionLifecycleListener, InitializingBean, DisposableBean {
+
+    private final Logger LOG = LoggerFactory.getLogger(getClass());
 
     /** Конфигурация сервис записи */
     private IndexWriterConfig indexWriterConfig;
+    /** Пул потоков */
+    private ScheduledExecutorService executorService;
+    /** Интервал фиксации изменений на диске в миллисекундах */
+    private long commitInterval;
+    /** Максимальное количество документов, накапливаемых транзакцией до монопольного использования сервиса записи */
+    private int maxBufferedDocuments;
+    /** Максимальная продолжительность транзакции до первого изменения индекса в миллисекундах */
+    private long consistencyWindow;
+
+    /** Общие сервисы записи, где ключ - директория индекса */
+    private final ConcurrentMap<Directory, SharedIndexWriter> writers;
+    /** Время начала незавершенных транзакций, где ключ - транзакция хранилища или журнал транзакции */
+    private final ConcurrentMap<Object, Long> transactions;
+
+    public TransactionalIndexWriterAccessor() {
+        this.writers = new ConcurrentHashMap<>();
+        this.transactions = new ConcurrentHashMap<>();
+        this.commitInterval = 1000;
+        this.maxBufferedDocuments = 10000;
+        this.consistencyWindow = 60000;
+    }
 
     public void setIndexWriterConfig(IndexWriterConfig indexWriterConfig) {
         this.indexWriterConfig = indexWriterConfig;
     }
 
+    public void setExecutorService(ScheduledExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public void setCommitInterval(long commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    public void setMaxBufferedDocuments(int maxBufferedDocuments) {
+        this.maxBufferedDocuments = maxBufferedDocuments;
+    }
+
+    public void setConsistencyWindow(long consistencyWindow) {
+        this.consistencyWindow = consistencyWindow;
+    }
+
+    /**
+     * @param directory директория индекса
+     * @return Возвращает общий сервис записи в индекс
+     */
+    private SharedIndexWriter retrieveSharedWriter(Directory directory) {
+        SharedIndexWriter sharedWriter = writers.get(directory);
+        Assert.notNull(sharedWriter, String.format("Index writer for '%s' not opened", directory));
+        return sharedWriter;
+    }
+
     /**
-     * Создает и возвращает сервис записи в индекс
+     * Создает журнал транзакции и возвращает привязанный к нему сервис записи
      *
      * @param directory директория индекса
      * @return Возвращает сервис записи в индекс
      */
-    private IndexWriter createIndexWriter(Directory directory) throws IOException {
-        return new IndexWriter(directory, indexWriterConfig.clone());
+    private JournalIndexWriter createIndexWriter(Directory directory) throws IOException {
+        SharedIndexWriter sharedWriter = retrieveSharedWriter(directory);
+        return sharedWriter.borrow(new IndexJournal(sharedWriter, maxBufferedDocuments));
+    }
+
+    @Override
+    public synchronized void open(Directory directory) throws IOException {
+        if (!writers.containsKey(directory)) {
+            writers.put(directory, new SharedIndexWriter(directory, indexWriterConfig.clone(), consistencyWindow, transactions));
+        }
+    }
+
+    @Override
+    public void afterBegin(Object transaction) {
+        transactions.put(transaction, System.currentTimeMillis());
+    }
+
+    @Override
+    public void afterCleanup(Object transaction) {
+        transactions.remove(transaction);
+    }
+
+    @Override
+    public SearcherManager retrieveSearcherManager(Directory directory) {
+        return retrieveSharedWriter(directory).getSearcherManager();
+    }
+
+    @Override
+    public boolean refreshSearcherManager(Directory directory, boolean force) throws IOException {
+        return retrieveSharedWriter(directory).refresh(force);
+    }
+
+    @Override
+    public Date retrieveHighWaterMark(Directory directory) {
+        return retrieveSharedWriter(directory).getHighWaterMark();
+    }
+
+    @Override
+    public boolean isFormatOutdated(Directory directory) {
+        return retrieveSharedWriter(directory).isFormatOutdated();
     }
 
     @Override
@@ -42,7 +146,7 @@ public class TransactionalIndexWriterAccessor extends TransactionSynchronization
             // Получаем адаптер синхронизации из менеджера
             IndexWriterTransactionSynchronization synchronization = (IndexWriterTransactionSynchronization) TransactionSynchronizationManager.getResource(directory);
             if (synchronization == null) {
-                synchronization = new IndexWriterTransactionSynchronization(new IndexWriter(directory, indexWriterConfig.clone()));
+                synchronization = new IndexWriterTransactionSynchronization(directory, createIndexWriter(directory));
                 TransactionSynchronizationManager.bindResource(directory, synchronization);
             }
             // Выполняем перерегистрацию адаптера
@@ -57,10 +161,12 @@ public class TransactionalIndexWriterAccessor extends TransactionSynchronization
     @Override
     public void commitWriter(IndexWriter writer, int changeCount) throws IOException {
         if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            JournalIndexWriter journalWriter = (JournalIndexWriter) writer;
             try {
-                writer.commit();
+                journalWriter.getJournal().prepare();
+                journalWriter.getJournal().commit(commitInterval <= 0);
             } finally {
-                IOUtils.closeQuietly(writer);
+                journalWriter.release();
             }
         }
     }
@@ -68,14 +174,53 @@ public class TransactionalIndexWriterAccessor extends TransactionSynchronization
     @Override
     public void rollbackWriter(IndexWriter writer) throws IOException {
         if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ((JournalIndexWriter) writer).release();
+        }
+    }
+
+    @Override
+    public void close(Directory directory) throws IOException {
+        SharedIndexWriter sharedWriter = writers.remove(directory);
+        if (sharedWriter != null) {
+            sharedWriter.close();
+        }
+    }
+
+    /**
+     * Выполняет фиксацию на диске изменений всех индексов
+     */
+    private void commitAll() {
+        for (SharedIndexWriter sharedWriter : writers.values()) {
             try {
-                writer.rollback();
-            } finally {
-                IOUtils.closeQuietly(writer);
+                sharedWriter.commit();
+            } catch (Exception ex) {
+                LOG.error(String.format("Can't commit index writer. Cause by: %s", ex.getMessage()), ex);
             }
         }
     }
 
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (commitInterval > 0) {
+            Assert.notNull(executorService, "Executor service must not be NULL when commit interval is set");
+            executorService.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    commitAll();
+                }
+            }, commitInterval, commitInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (executorService != null) {
+            executorService.shutdown();
+            executorService.awaitTermination(commitInterval, TimeUnit.MILLISECONDS);
+        }
+        commitAll();
+    }
+
     /**
      * Класс <class>IndexWriterTransactionSynchronization</class> реализует адаптер синхронизации транзакций с сервисом записи в индекс
      *
@@ -83,10 +228,13 @@ public class TransactionalIndexWriterAccessor extends TransactionSynchronization
      */
     private class IndexWriterTransactionSynchronization extends TransactionSynchronizationAdapter {
 
+        /** Директория индекса */
+        private final Directory directory;
         /** Сервис записи в индекс */
-        private IndexWriter writer;
+        private JournalIndexWriter writer;
 
-        private IndexWriterTransactionSynchronization(IndexWriter writer) {
+        private IndexWriterTransactionSynchronization(Directory directory, JournalIndexWriter writer) {
+            this.directory = directory;
             this.writer = writer;
         }
 
@@ -98,7 +246,7 @@ public class TransactionalIndexWriterAccessor extends TransactionSynchronization
         public void beforeCommit(boolean readOnly) {
             if (!readOnly) {
                 try {
-                    writer.prepareCommit();
+                    writer.getJournal().prepare();
                 } catch (Exception ex) {
                     ReflectionUtils.rethrowRuntimeException(ex);
                 }
@@ -108,7 +256,7 @@ public class TransactionalIndexWriterAccessor extends TransactionSynchronization
         @Override
         public void afterCommit() {
             try {
-                writer.commit();
+                writer.getJournal().commit(commitInterval <= 0);
             } catch (Exception ex) {
                 ReflectionUtils.rethrowRuntimeException(ex);
             }
@@ -117,15 +265,11 @@ public class TransactionalIndexWriterAccessor extends TransactionSynchronization
         @Override
         public void afterCompletion(int status) {
             try {
-                if (status != STATUS_COMMITTED) {
-                    writer.rollback();
-                } else {
-                    writer.close(false);
-                }
+                writer.release();
             } catch (Throwable th) {
                 ReflectionUtils.rethrowRuntimeException(th);
             } finally {
-                TransactionSynchronizationManager.unbindResource(writer.getDirectory());
+                TransactionSynchronizationManager.unbindResource(directory);
                 writer = null;
             }
         }
@@ -33,6 +33,7 @@ import ru.hflabs.rcd.model.path.FieldNamedPath;
 import ru.hflabs.rcd.model.path.MetaFieldNamedPath;
 import ru.hflabs.rcd.model.rule.RecodeRule;
 import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+import ru.hflabs.rcd.model.rule.RecodeTable;
 import ru.hflabs.rcd.model.rule.Rule;
 import ru.hflabs.rcd.service.document.*;
 import ru.hflabs.rcd.service.rule.IRecodeRuleService;
@@ -44,10 +45,10 @@ import ru.hflabs.util.spring.Assert;
 import java.util.*;
 
 import static ru.hflabs.rcd.accessor.Accessors.injectName;
+import static ru.hflabs.rcd.accessor.Accessors.linkDescendants;
 import static ru.hflabs.rcd.accessor.Accessors.linkRelative;
 import static ru.hflabs.rcd.model.CriteriaUtils.createCriteriaByIDs;
 import static ru.hflabs.rcd.model.ModelUtils.*;
-import static ru.hflabs.rcd.service.ServiceUtils.injectRelative;
 import static ru.hflabs.rcd.service.ServiceUtils.publishChangeEvent;
 
 /**
@@ -76,6 +77,8 @@ public class DocumentManagerService implements IManagerService, ApplicationEvent
             MergeServices.<MetaField>copyName(),
             new MergeServices.MetaFieldFlagsMergeService()
     );
+    /** Количество записей, загружаемых за одно обращение при экспорте справочника */
+    private static final int DUMP_BATCH_SIZE = 1000;
 
 
     /** Сервис публикации событий */
@@ -99,6 +102,8 @@ public class DocumentManagerService implements IManagerService, ApplicationEvent
     private IRecodeRuleSetService recodeRuleSetService;
     /** Сервис управления правилами перекодирования */
     private IRecodeRuleService rulesService;
+    /** Сервис работы с таблицами перекодирования */
+    private IRecodeTableService recodeTableService;
 
     @Override
     public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
@@ -137,6 +142,10 @@ public class DocumentManagerService implements IManagerService, ApplicationEvent
         this.rulesService = rulesService;
     }
 
+    public void setRecodeTableService(IRecodeTableService recodeTableService) {
+        this.recodeTableService = recodeTableService;
+    }
+
     /**
      * Выполняет оповещение слушателей об изменениях
      *
@@ -388,16 +397,50 @@ public class DocumentManagerService implements IManagerService, ApplicationEvent
         return dictionaryService.findAllByCriteria(new FilterCriteria(), true);
     }
 
-    @Override
-    public Collection<Group> dumpGroups(DictionaryNamedPath path) {
-        // Выполняем заполнение контента справочников
+    /**
+     * Выполняет поиск МЕТА-полей справочника для экспорта, заполняя их значения обходом записей порциями
+     *
+     * @param dictionary целевой справочник
+     * @return Возвращает МЕТА-поля с заполненными значениями полей
+     */
+    private Collection<MetaField> dumpMetaFields(Dictionary dictionary) {
+        Collection<MetaField> metaFields = metaFieldService.findAllByRelativeId(dictionary.getId(), null, false);
+        Map<String, List<Field>> name2fields = Maps.newHashMap();
+        for (MetaField metaField : metaFields) {
+            name2fields.put(metaField.getName(), Lists.<Field>newArrayList());
+        }
+        try (ICloseableIterator<Record> records = recordService.iterateRecords(dictionary.getId(), new FilterCriteria(), DUMP_BATCH_SIZE)) {
+            while (records.hasNext()) {
+                for (Map.Entry<String, Field> entry : records.next().getFields().entrySet()) {
+                    List<Field> fields = name2fields.get(entry.getKey());
+                    if (fields != null && entry.getValue() != null) {
+                        fields.add(entry.getValue());
+                    }
+                }
+            }
+        }
+        List<MetaField> result = Lists.newArrayListWithExpectedSize(metaFields.size());
+        for (MetaField metaField : metaFields) {
+            result.add(linkDescendants(metaField, name2fields.get(metaField.getName())));
+        }
+        return result;
+    }
+
+    /**
+     * Формирует группы справочников
+     *
+     * @param path именованный путь справочника или <code>NULL</code>
+     * @param withContent флаг заполнения значений полей МЕТА-полей
+     * @return Возвращает группы справочников
+     */
+    private Collection<Group> dumpGroups(DictionaryNamedPath path, boolean withContent) {
         Collection<Dictionary> dictionaries = dumpDictionaries(path);
         for (Dictionary dictionary : dictionaries) {
-            Collection<MetaField> metaFields = injectRelative(
-                    metaFieldService.findAllByRelativeId(dictionary.getId(), null, false),
-                    fieldService
+            dictionary.setDescendants(
+                    withContent ?
+                            dumpMetaFields(dictionary) :
+                            metaFieldService.findAllByRelativeId(dictionary.getId(), null, false)
             );
-            dictionary.setDescendants(metaFields);
         }
 
         // Формируем карту соответствий группы к справочникам
@@ -408,6 +451,21 @@ public class DocumentManagerService implements IManagerService, ApplicationEvent
         return Sets.newLinkedHashSet(group2dictionaries.keySet());
     }
 
+    @Override
+    public Collection<Group> dumpGroups(DictionaryNamedPath path) {
+        return dumpGroups(path, true);
+    }
+
+    @Override
+    public Collection<Group> dumpStructure(DictionaryNamedPath path) {
+        return dumpGroups(path, false);
+    }
+
+    @Override
+    public List<Record> dumpRecords(String dictionaryId, String afterRecordId, int count) {
+        return recordService.findNextRecords(dictionaryId, afterRecordId, count);
+    }
+
     /**
      * Выполняет поиск подходящего контекста для именнованного пути значения
      *
@@ -573,6 +631,25 @@ public class DocumentManagerService implements IManagerService, ApplicationEvent
         return recodeRuleSets;
     }
 
+    @Override
+    public Map<String, String> recodeValues(String ruleSetName, Set<String> values) {
+        Assert.isTrue(StringUtils.hasText(ruleSetName), "Rule set name must not be NULL or EMPTY");
+        RecodeTable recodeTable = recodeTableService.retrieveRecodeTable(
+                recodeRuleSetService.findUniqueByNamedPath(ruleSetName, false)
+        );
+        Map<String, String> result = Maps.newHashMapWithExpectedSize(values.size());
+        for (String value : values) {
+            String targetValue = recodeTable.findTargetValue(value);
+            if (targetValue == null && recodeTable.hasDefaultValue()) {
+                targetValue = recodeTable.getDefaultValue();
+            }
+            if (targetValue != null) {
+                result.put(value, targetValue);
+            }
+        }
+        return result;
+    }
+
     @Override
     public <T extends ApplicationEvent> void propagateEvent(T event) {
         if (event instanceof ContextEvent) {
@@ -119,6 +119,11 @@ public class DocumentServiceTemplate<E extends Essence & Historical> extends Fil
         return objects;
     }
 
+    @Override
+    public Set<Class<?>> retrieveRebuildDependencies() {
+        return Sets.union(super.retrieveRebuildDependencies(), ImmutableSet.<Class<?>>of(History.class));
+    }
+
     @Override
     protected Collection<E> injectTransitiveDependencies(Collection<E> objects) {
         return super.injectTransitiveDependencies(injectHistory(objects));
@@ -134,8 +139,8 @@ public class DocumentServiceTemplate<E extends Essence & Historical> extends Fil
     @Transactional(propagation = Propagation.MANDATORY, rollbackFor = Throwable.class)
     protected Collection<E> doCreate(Collection<E> objects, IValidateService<E> validateService) {
         final HistoryBuilder<E> changeDescriptor = new HistoryBuilder<E>(retrieveTargetClass());
-        for (E object : objects) {
-            object = (validateService != null) ? validateService.validate(object) : object;
+        Collection<E> validated = (validateService != null) ? validateService.validateAll(objects) : objects;
+        for (E object : validated) {
             changeDescriptor.addChange(historyService.createChangeHistory(null, object));
         }
         doPublishEvent(changeDescriptor);
@@ -165,11 +170,14 @@ public class DocumentServiceTemplate<E extends Essence & Historical> extends Fil
         final Collection<E> toSelfUpdate = Lists.newArrayList();
         final HistoryBuilder<E> changeDescriptor = new HistoryBuilder<E>(retrieveTargetClass());
 
+        if (validateService != null) {
+            validateService.validateAll(newObjects.values());
+        }
         for (Map.Entry<String, E> entry : newObjects.entrySet()) {
             E oldValue = oldObjects.get(entry.getKey());
             Assert.notNull(oldValue, String.format("Can't find '%s' with ID '%s'", retrieveTargetClassName(), entry.getKey()));
 
-            E newValue = (validateService != null) ? validateService.validate(entry.getValue()) : entry.getValue();
+            E newValue = entry.getValue();
             Pair<ChangeType, E> change = historyService.createChangeHistory(oldValue, newValue);
 
             // Если персистентные поля не изменились, то проверяем транзитивные поля
@@ -219,8 +227,8 @@ public class DocumentServiceTemplate<E extends Essence & Historical> extends Fil
     @Transactional(propagation = Propagation.MANDATORY, rollbackFor = Throwable.class)
     protected Collection<E> doClose(Collection<E> existed, IValidateService<E> validator) {
         final HistoryBuilder<E> changeDescriptor = new HistoryBuilder<>(retrieveTargetClass());
-        for (E object : existed) {
-            object = (validator != null) ? validator.validate(object) : object;
+        Collection<E> validated = (validator != null) ? validator.validateAll(existed) : existed;
+        for (E object : validated) {
             changeDescriptor.addChange(historyService.createChangeHistory(object, null));
         }
         doPublishEvent(changeDescriptor);
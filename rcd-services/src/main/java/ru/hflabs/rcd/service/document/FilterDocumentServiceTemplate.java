@@ -1,26 +1,42 @@
 package ru.hflabs.rcd.service.document;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.*;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import ru.hflabs.rcd.event.ContextEvent;
 import ru.hflabs.rcd.event.index.IndexRebuildedEvent;
+import ru.hflabs.rcd.index.IndexedField;
+import ru.hflabs.rcd.lucene.GroupCountCollector;
 import ru.hflabs.rcd.lucene.LuceneRebuildCallbackFactory;
 import ru.hflabs.rcd.lucene.NamedIndexManager;
 import ru.hflabs.rcd.lucene.binder.LuceneBinderTransformerFactory;
+import ru.hflabs.rcd.lucene.binder.LuceneBinderTransformerTemplate;
 import ru.hflabs.rcd.lucene.criteria.LuceneCriteriaHolder;
 import ru.hflabs.rcd.model.Identifying;
 import ru.hflabs.rcd.model.change.ChangeType;
@@ -28,16 +44,19 @@ import ru.hflabs.rcd.model.criteria.FilterCriteria;
 import ru.hflabs.rcd.model.criteria.FilterResult;
 import ru.hflabs.rcd.service.ICriteriaBuilder;
 import ru.hflabs.rcd.service.IFilterService;
+import ru.hflabs.rcd.service.ICloseableIterator;
 import ru.hflabs.rcd.service.IQueryProvider;
+import ru.hflabs.rcd.service.IRepairStorageService;
 import ru.hflabs.rcd.service.IStorageService;
 import ru.hflabs.rcd.storage.ChangeServiceTemplate;
+import ru.hflabs.util.core.Pair;
 import ru.hflabs.util.core.Three;
-import ru.hflabs.util.io.IOUtils;
 import ru.hflabs.util.lucene.*;
 import ru.hflabs.util.spring.Assert;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -53,6 +72,8 @@ import static ru.hflabs.rcd.service.ServiceUtils.extractSingleDocument;
 public class FilterDocumentServiceTemplate<E extends Identifying> extends ChangeServiceTemplate<E> implements IFilterService<E>, IQueryProvider<E, LuceneCriteriaHolder>, LuceneRebuildCallbackFactory<E>, ApplicationEventPublisherAware, InitializingBean, DisposableBean {
 
     public static final int REBUILD_FETCH_SIZE = 10000;
+    /** Количество документов, загружаемых из хранилища за один запрос при восстановлении индекса */
+    public static final int REPAIR_BATCH_SIZE = 1000;
 
     /** Сервис публикации событий */
     protected ApplicationEventPublisher eventPublisher;
@@ -67,19 +88,24 @@ public class FilterDocumentServiceTemplate<E extends Identifying> extends Change
 
     /** Сервис преобразования сущностей */
     protected LuceneBinderTransformer<E, String> binderTransformer;
+    /** Сервис получения индексированных полей */
+    private Converter<Pair<Class<E>, String>, IndexedField> class2fieldConverter;
     /** Менеджер индекса */
     protected NamedIndexManager indexManager;
     /** Флаг, указывающий, что индекс поврежден */
     private final AtomicBoolean indexCorrupted;
-    /** Менеджер поиска */
-    private SearcherManager searcherManager;
     /** Общее количество документов в индексе */
     private final AtomicInteger totalDocumentCount;
+    /** Количество потоков преобразования документов при перестроении индекса */
+    private int rebuildThreads;
+    /** Пул потоков перестроения индексов */
+    private ExecutorService rebuildExecutorService;
 
     public FilterDocumentServiceTemplate(Class<E> documentClass) {
         super(documentClass);
         this.indexCorrupted = new AtomicBoolean(true);
         this.totalDocumentCount = new AtomicInteger(0);
+        this.rebuildThreads = 1;
         setQueryProvider(this);
     }
 
@@ -102,12 +128,21 @@ public class FilterDocumentServiceTemplate<E extends Identifying> extends Change
 
     public void setBinderTransformerFactory(LuceneBinderTransformerFactory<E, String> binderTransformerFactory) {
         this.binderTransformer = binderTransformerFactory.retrieveService(retrieveTargetClass());
+        this.class2fieldConverter = binderTransformerFactory;
     }
 
     public void setIndexManager(NamedIndexManager indexManager) {
         this.indexManager = indexManager;
     }
 
+    public void setRebuildThreads(int rebuildThreads) {
+        this.rebuildThreads = rebuildThreads;
+    }
+
+    public void setRebuildExecutorService(ExecutorService rebuildExecutorService) {
+        this.rebuildExecutorService = rebuildExecutorService;
+    }
+
     /**
      * Выполняет заполнение транзитивных зависимостей
      *
@@ -164,6 +199,17 @@ public class FilterDocumentServiceTemplate<E extends Identifying> extends Change
         return queryProvider.executeCountByCriteria(criteriaBuilder.createCriteria(retrieveTargetClass(), criteria));
     }
 
+    @Override
+    public Map<String, Integer> countByCriteria(FilterCriteria criteria, String groupField) {
+        IndexedField indexedField = class2fieldConverter.convert(Pair.valueOf(retrieveTargetClass(), groupField));
+        Assert.isTrue(
+                LuceneBinderTransformerFactory.hasSortValue(indexedField) &&
+                        SortField.Type.STRING.equals(LuceneBinderTransformerFactory.retrieveSortFieldType(indexedField)),
+                String.format("Field '%s' of '%s' can't be used for grouping", groupField, retrieveTargetClassName())
+        );
+        return queryProvider.executeGroupCountByCriteria(criteriaBuilder.createCriteria(retrieveTargetClass(), criteria), groupField);
+    }
+
     /**
      * Проверяет и выполняет обновление менеджера поиска
      *
@@ -172,14 +218,10 @@ public class FilterDocumentServiceTemplate<E extends Identifying> extends Change
      */
     protected SearcherManager refreshSearcherManager(boolean force) {
         try {
-            if (force || !searcherManager.isSearcherCurrent()) {
-                if (searcherManager.maybeRefresh()) {
-                    totalDocumentCount.set(LuceneQueryUtil.totalCount(searcherManager));
-                } else {
-                    searcherManager.maybeRefreshBlocking();
-                }
+            if (indexManager.refreshSearcherManager(force)) {
+                totalDocumentCount.set(LuceneQueryUtil.totalCount(indexManager.retrieveSearcherManager()));
             }
-            return searcherManager;
+            return indexManager.retrieveSearcherManager();
         } catch (IOException ex) {
             throw new RuntimeException(ex.getMessage(), ex);
         }
@@ -241,6 +283,30 @@ public class FilterDocumentServiceTemplate<E extends Identifying> extends Change
         }
     }
 
+    /**
+     * Выполняет поиск количества сущностей по подготовленному запросу, сгруппированного по значениям поля
+     *
+     * @param referenceManager сервис поиска
+     * @param query запрос поиска
+     * @param filter фильтр найденных сущностей
+     * @param groupField название поля группировки
+     * @return Возвращает количество найденных сущностей, где ключ - значение поля группировки
+     */
+    private Map<String, Integer> doGroupCountQuery(ReferenceManager<IndexSearcher> referenceManager, Query query, Filter filter, String groupField) {
+        try {
+            IndexSearcher searcher = referenceManager.acquire();
+            try {
+                GroupCountCollector collector = new GroupCountCollector(groupField);
+                searcher.search(query, filter, collector);
+                return collector.getCounts();
+            } finally {
+                referenceManager.release(searcher);
+            }
+        } catch (Throwable ex) {
+            throw new RuntimeException(String.format("Can't execute group count query '%s' by '%s' on '%s' index. Cause by: %s", query, groupField, retrieveTargetClassName(), ex.getMessage()), ex);
+        }
+    }
+
     /**
      * Выполняет модификацию индекса
      *
@@ -281,6 +347,12 @@ public class FilterDocumentServiceTemplate<E extends Identifying> extends Change
         return doCountQuery(refreshSearcherManager(false), criteria.buildQuery(), criteria.buildFilter());
     }
 
+    @Override
+    public Map<String, Integer> executeGroupCountByCriteria(LuceneCriteriaHolder criteria, String groupField) {
+        // Группировка выполняется по полю значения сортировки, сохраненному в DocValues
+        return doGroupCountQuery(refreshSearcherManager(false), criteria.buildQuery(), criteria.buildFilter(), LuceneBinderTransformerTemplate.createSortFieldName(groupField));
+    }
+
     @Override
     protected Collection<E> handleSelfCreateEvent(Collection<E> changed) {
         doModify("insert", LuceneModifierUtil.createInsertCallback(binderTransformer, changed));
@@ -324,9 +396,16 @@ public class FilterDocumentServiceTemplate<E extends Identifying> extends Change
 
     @Override
     public int totalDocumentCount() {
+        // Обновляем менеджер поиска, чтобы количество учитывало изменения последней зафиксированной транзакции
+        refreshSearcherManager(false);
         return totalDocumentCount.get();
     }
 
+    @Override
+    public Set<Class<?>> retrieveRebuildDependencies() {
+        return Collections.emptySet();
+    }
+
     @Override
     public boolean isCorrupted() {
         return indexCorrupted.get();
@@ -347,26 +426,52 @@ public class FilterDocumentServiceTemplate<E extends Identifying> extends Change
         }
     }
 
+    @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Throwable.class)
+    public int executeRepair() {
+        if (!(storageService instanceof IRepairStorageService)) {
+            return 0;
+        }
+        try {
+            final int count = LuceneModifierUtil.doWithCallback("repair", indexManager, new RepairModifierCallback((IRepairStorageService<E>) storageService));
+            if (count > 0) {
+                LOG.info("Repaired {} {}", count, retrieveTargetClassName());
+            }
+            return count;
+        } catch (Throwable ex) {
+            throw new RuntimeException(String.format("Can't execute repair '%s' index. Cause by: %s", retrieveTargetClassName(), ex.getMessage()), ex);
+        }
+    }
+
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Throwable.class)
     public void afterPropertiesSet() throws Exception {
         indexManager.open(retrieveTargetClassName());
 
-        searcherManager = indexManager.createSearcherManager();
-        searcherManager = refreshSearcherManager(true);
-
-        indexCorrupted.set(totalDocumentCount.get() != storageService.totalCount());
+        refreshSearcherManager(true);
+
+        // Индекс в устаревшем формате документов перестраивается полностью.
+        // Если хранилище позволяет восстановить индекс, то полное перестроение требуется только для пустого индекса
+        int storageCount = storageService.totalCount();
+        indexCorrupted.set(
+                indexManager.isFormatOutdated() || (
+                        storageService instanceof IRepairStorageService ?
+                                totalDocumentCount.get() == 0 && storageCount != 0 :
+                                totalDocumentCount.get() != storageCount
+                )
+        );
     }
 
     @Override
     public void destroy() throws Exception {
-        IOUtils.closeQuietly(searcherManager);
         totalDocumentCount.set(0);
         indexManager.close();
     }
 
     /**
-     * Класс <class>RebuildModifierCallback</class> реализует процессор перестроения индекса
+     * Класс <class>RebuildModifierCallback</class> реализует процессор перестроения индекса.<br/>
+     * Перестроение выполняется конвейером: текущий поток читает страницы документов из хранилища в ограниченную очередь,
+     * а потоки преобразования заполняют транзитивные зависимости, преобразуют документы и параллельно добавляют их в индекс
      *
      * @author Nazin Alexander
      */
@@ -374,34 +479,339 @@ public class FilterDocumentServiceTemplate<E extends Identifying> extends Change
 
         /** Интервал логирования */
         private static final int LOG_INTERVAL_COUNT = 100000;
+        /** Интервал проверки состояния потоков преобразования в миллисекундах */
+        private static final long CHECK_INTERVAL = 100;
+
+        /** Очередь страниц документов */
+        private final BlockingQueue<List<E>> pages;
+        /** Признак окончания страниц документов */
+        private final List<E> lastPage;
+        /** Количество обработанных документов */
+        private final AtomicInteger processedCount;
+        /** Флаг отмены перестроения */
+        private volatile boolean cancelled;
+
+        public RebuildModifierCallback() {
+            this.pages = new ArrayBlockingQueue<>(2 * rebuildThreads);
+            this.lastPage = new ArrayList<>(0);
+            this.processedCount = new AtomicInteger(0);
+        }
+
+        /**
+         * Помещает страницу в очередь, проверяя, что потоки преобразования не завершились с ошибкой
+         *
+         * @param page страница документов
+         * @param workers результаты потоков преобразования
+         */
+        private void offerPage(List<E> page, Collection<Future<Integer>> workers) throws Exception {
+            while (!pages.offer(page, CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+                for (Future<Integer> worker : workers) {
+                    if (worker.isDone()) {
+                        worker.get();
+                    }
+                }
+            }
+        }
 
         @Override
         public int process(IndexWriter writer) throws Exception {
             // Удаляем все документы из индекса
             writer.deleteAll();
-            final AtomicInteger processedCount = new AtomicInteger(0);
 
-            // Итерируем документы, находящиеся в хранилище
-            Iterator<List<E>> iterator = storageService.iterateAll(REBUILD_FETCH_SIZE, 1);
+            // Запускаем потоки преобразования
+            List<Future<Integer>> workers = Lists.newArrayListWithCapacity(rebuildThreads);
             try {
-                while (iterator.hasNext()) {
-                    Collection<E> page = injectTransitiveDependencies(iterator.next());
-                    writer.addDocuments(Collections2.transform(page, new Function<E, Document>() {
-                        @Override
-                        public Document apply(E input) {
-                            return binderTransformer.reverseConvert(input);
+                for (int i = 0; i < rebuildThreads; i++) {
+                    workers.add(rebuildExecutorService.submit(new RebuildWorker(writer, SecurityContextHolder.getContext())));
+                }
+                // Итерируем документы, находящиеся в хранилище
+                try (ICloseableIterator<List<E>> iterator = storageService.iterateAll(REBUILD_FETCH_SIZE, 1)) {
+                    while (iterator.hasNext()) {
+                        offerPage(iterator.next(), workers);
+                    }
+                }
+                for (int i = 0; i < rebuildThreads; i++) {
+                    offerPage(lastPage, workers);
+                }
+                // Дожидаемся завершения потоков преобразования
+                int count = 0;
+                for (Future<Integer> worker : workers) {
+                    count += worker.get();
+                }
+                return count;
+            } catch (ExecutionException ex) {
+                throw (ex.getCause() instanceof Exception) ? (Exception) ex.getCause() : ex;
+            } finally {
+                stopWorkers(workers);
+            }
+        }
+
+        /**
+         * Останавливает потоки преобразования, оставшиеся после ошибки, и дожидается их завершения.<br/>
+         * Потоки не прерываются, так как прерывание потока во время записи закрывает каналы файлов индекса:
+         * вместо этого устанавливается флаг отмены, а очередь заменяется признаками окончания страниц
+         *
+         * @param workers результаты потоков преобразования
+         */
+        private void stopWorkers(Collection<Future<Integer>> workers) {
+            cancelled = true;
+            pages.clear();
+            for (Future<Integer> worker : workers) {
+                if (!worker.isDone()) {
+                    pages.offer(lastPage);
+                }
+            }
+            for (Future<Integer> worker : workers) {
+                try {
+                    worker.get();
+                } catch (InterruptedException ex) {
+                    // Не запущенные потоки отменяются, запущенные завершатся по флагу отмены
+                    for (Future<Integer> target : workers) {
+                        target.cancel(false);
+                    }
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException ex) {
+                    // do nothing
+                }
+            }
+        }
+
+        /**
+         * Класс <class>RebuildWorker</class> реализует поток преобразования и добавления документов в индекс
+         *
+         * @author Nazin Alexander
+         */
+        private class RebuildWorker implements Callable<Integer> {
+
+            /** Сервис записи в индекс */
+            private final IndexWriter writer;
+            /** Контекст безопасности потока перестроения */
+            private final SecurityContext securityContext;
+
+            private RebuildWorker(IndexWriter writer, SecurityContext securityContext) {
+                this.writer = writer;
+                this.securityContext = securityContext;
+            }
+
+            @Override
+            public Integer call() throws Exception {
+                SecurityContextHolder.setContext(securityContext);
+                try {
+                    int result = 0;
+                    for (List<E> page = pages.take(); page != lastPage && !cancelled; page = pages.take()) {
+                        Collection<E> injected = injectTransitiveDependencies(page);
+                        List<Document> documents = Lists.newArrayListWithCapacity(injected.size());
+                        for (E document : injected) {
+                            documents.add(binderTransformer.reverseConvert(document));
                         }
-                    }));
+                        writer.addDocuments(documents);
 
-                    int count = processedCount.addAndGet(page.size());
-                    if (LOG.isInfoEnabled() && count / LOG_INTERVAL_COUNT != (count - page.size()) / LOG_INTERVAL_COUNT) {
-                        LOG.info("Processed {} {}", count, retrieveTargetClassName());
+                        result += page.size();
+                        int count = processedCount.addAndGet(page.size());
+                        if (LOG.isInfoEnabled() && count / LOG_INTERVAL_COUNT != (count - page.size()) / LOG_INTERVAL_COUNT) {
+                            LOG.info("Processed {} {}", count, retrieveTargetClassName());
+                        }
                     }
+                    return result;
+                } finally {
+                    SecurityContextHolder.clearContext();
                 }
-                return processedCount.get();
+            }
+        }
+    }
+
+    /**
+     * Класс <class>RepairModifierCallback</class> реализует процессор восстановления согласованности индекса с хранилищем:<br/>
+     * <ul>
+     * <li>Переиндексирует документы, измененные в хранилище начиная с {@link NamedIndexManager#retrieveHighWaterMark() метки согласованности} индекса</li>
+     * <li>Постранично сверяет идентификаторы документов индекса и хранилища, добавляя отсутствующие в индексе документы и удаляя лишние.
+     * Сверка выполняется всегда, так как совпадение количества документов не означает совпадения их состава,
+     * а без метки согласованности она остается единственным способом найти расхождения</li>
+     * </ul>
+     *
+     * @author Nazin Alexander
+     */
+    protected class RepairModifierCallback implements LuceneModifierCallback {
+
+        /** Хранилище документов */
+        private final IRepairStorageService<E> repairStorageService;
+
+        public RepairModifierCallback(IRepairStorageService<E> repairStorageService) {
+            this.repairStorageService = repairStorageService;
+        }
+
+        /**
+         * Выполняет переиндексацию документов
+         *
+         * @param writer сервис записи
+         * @param ids идентификаторы документов
+         * @return Возвращает количество переиндексированных документов
+         */
+        private int reindexDocuments(IndexWriter writer, Collection<String> ids) throws IOException {
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            Set<String> missing = Sets.newHashSet(ids);
+            for (E document : injectTransitiveDependencies(repairStorageService.findByIDs(ids))) {
+                writer.updateDocument(new Term(E.PRIMARY_KEY, document.getId()), binderTransformer.reverseConvert(document));
+                missing.remove(document.getId());
+            }
+            // Документы, отсутствующие в хранилище, удаляем из индекса
+            for (String id : missing) {
+                writer.deleteDocuments(new Term(E.PRIMARY_KEY, id));
+            }
+            return ids.size();
+        }
+
+        /**
+         * Выполняет переиндексацию документов, измененных начиная с метки согласованности
+         *
+         * @param writer сервис записи
+         * @param changed идентификаторы измененных документов
+         * @return Возвращает количество переиндексированных документов
+         */
+        private int replayChanges(IndexWriter writer, Collection<String> changed) throws IOException {
+            int result = 0;
+            for (List<String> batch : Iterables.partition(changed, REPAIR_BATCH_SIZE)) {
+                result += reindexDocuments(writer, batch);
+            }
+            return result;
+        }
+
+        /**
+         * Выполняет сверку идентификаторов документов индекса и хранилища
+         *
+         * @param writer сервис записи
+         * @param reader сервис чтения индекса
+         * @param changed идентификаторы документов, уже переиндексированных по метке согласованности
+         * @return Возвращает количество исправленных документов
+         */
+        private int repairDrift(IndexWriter writer, IndexReader reader, Set<String> changed) throws IOException {
+            List<AtomicReaderContext> leaves = reader.leaves();
+            List<SegmentIdentifiers> segments = Lists.newArrayListWithCapacity(leaves.size());
+            for (AtomicReaderContext leaf : leaves) {
+                segments.add(new SegmentIdentifiers(leaf.reader()));
+            }
+            int result = 0;
+            // Добавляем документы, отсутствующие в индексе
+            Set<String> missing = Sets.newHashSet();
+            BytesRef term = new BytesRef();
+            try (ICloseableIterator<List<String>> iterator = repairStorageService.iterateIDs(REBUILD_FETCH_SIZE)) {
+                while (iterator.hasNext()) {
+                    for (String id : iterator.next()) {
+                        term.copyChars(id);
+                        boolean found = false;
+                        for (SegmentIdentifiers segment : segments) {
+                            found |= segment.mark(term);
+                        }
+                        if (!found && !changed.contains(id)) {
+                            missing.add(id);
+                        }
+                        if (missing.size() >= REPAIR_BATCH_SIZE) {
+                            result += reindexDocuments(writer, missing);
+                            missing.clear();
+                        }
+                    }
+                }
+            }
+            result += reindexDocuments(writer, missing);
+            // Удаляем документы, отсутствующие в хранилище
+            for (SegmentIdentifiers segment : segments) {
+                for (String id : segment.retrieveUnmarked()) {
+                    if (!changed.contains(id)) {
+                        writer.deleteDocuments(new Term(E.PRIMARY_KEY, id));
+                        result++;
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int process(IndexWriter writer) throws Exception {
+            // Переиндексируем документы, измененные после последней фиксации индекса на диске
+            Date highWaterMark = indexManager.retrieveHighWaterMark();
+            Collection<String> changedIDs = highWaterMark != null ? repairStorageService.findChangedIDs(highWaterMark) : null;
+            Set<String> changed = changedIDs != null ? Sets.newHashSet(changedIDs) : Collections.<String>emptySet();
+            int result = replayChanges(writer, changed);
+
+            // Сверяем идентификаторы документов индекса и хранилища
+            SearcherManager searcherManager = refreshSearcherManager(true);
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                result += repairDrift(writer, searcher.getIndexReader(), changed);
             } finally {
-                IOUtils.closeQuietly(iterator);
+                searcherManager.release(searcher);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Класс <class>SegmentIdentifiers</class> реализует отметку найденных в хранилище документов одного сегмента индекса
+     *
+     * @author Nazin Alexander
+     */
+    static class SegmentIdentifiers {
+
+        /** Сервис чтения сегмента */
+        private final AtomicReader reader;
+        /** Итератор идентификаторов или <code>NULL</code>, если в сегменте нет документов */
+        private final TermsEnum termsEnum;
+        /** Действующие документы или <code>NULL</code>, если в сегменте нет удаленных документов */
+        private final Bits liveDocs;
+        /** Документы, найденные в хранилище */
+        private final FixedBitSet marked;
+        /** Итератор документов идентификатора */
+        private DocsEnum docsEnum;
+
+        SegmentIdentifiers(AtomicReader reader) throws IOException {
+            Terms terms = reader.terms(Identifying.PRIMARY_KEY);
+            this.reader = reader;
+            this.termsEnum = terms != null ? terms.iterator(null) : null;
+            this.liveDocs = reader.getLiveDocs();
+            this.marked = new FixedBitSet(reader.maxDoc());
+        }
+
+        /**
+         * Отмечает действующие документы с указанным идентификатором
+         *
+         * @param id идентификатор
+         * @return Возвращает <code>TRUE</code>, если документ найден в сегменте
+         */
+        boolean mark(BytesRef id) throws IOException {
+            boolean result = false;
+            if (termsEnum != null && termsEnum.seekExact(id, false)) {
+                docsEnum = termsEnum.docs(liveDocs, docsEnum, DocsEnum.FLAG_NONE);
+                for (int doc = docsEnum.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docsEnum.nextDoc()) {
+                    marked.set(doc);
+                    result = true;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @return Возвращает идентификаторы действующих документов, не найденных в хранилище
+         */
+        Set<String> retrieveUnmarked() throws IOException {
+            Set<String> result = Sets.newHashSet();
+            Terms terms = reader.terms(Identifying.PRIMARY_KEY);
+            if (terms != null) {
+                TermsEnum iterator = terms.iterator(null);
+                DocsEnum docs = null;
+                for (BytesRef id = iterator.next(); id != null; id = iterator.next()) {
+                    docs = iterator.docs(liveDocs, docs, DocsEnum.FLAG_NONE);
+                    for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+                        if (!marked.get(doc)) {
+                            result.add(id.utf8ToString());
+                            break;
+                        }
+                    }
+                }
             }
+            return result;
         }
     }
 }
@@ -1,5 +1,6 @@
 package ru.hflabs.rcd.service.document;
 
+import com.google.common.collect.Lists;
 import org.springframework.util.Assert;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Errors;
@@ -8,6 +9,10 @@ import ru.hflabs.rcd.exception.constraint.IllegalPermissionsException;
 import ru.hflabs.rcd.model.Named;
 import ru.hflabs.rcd.model.Permissioned;
 import ru.hflabs.rcd.service.IValidateService;
+import ru.hflabs.util.core.Pair;
+
+import java.util.Collection;
+import java.util.List;
 
 import static ru.hflabs.rcd.model.ModelUtils.hasPermission;
 
@@ -80,6 +85,18 @@ public abstract class ValidatorService<T> implements IValidateService<T> {
      */
     protected abstract void doValidate(Errors errors, T target);
 
+    /**
+     * Выполняет валидацию коллекции объектов.<br/>
+     * По умолчанию каждый объект проверяется отдельно, наследники могут переопределить метод для проверки коллекции целиком
+     *
+     * @param targets целевые объекты с их контейнерами ошибок
+     */
+    protected void doValidateAll(List<Pair<T, Errors>> targets) {
+        for (Pair<T, Errors> target : targets) {
+            doValidate(target.second, target.first);
+        }
+    }
+
     @Override
     public final Errors checkErrors(T object) {
         Errors errors = new BeanPropertyBindingResult(object, retrieveTargetClass().getSimpleName());
@@ -95,4 +112,19 @@ public abstract class ValidatorService<T> implements IValidateService<T> {
         }
         return object;
     }
+
+    @Override
+    public final Collection<T> validateAll(Collection<T> objects) throws ApplicationValidationException {
+        List<Pair<T, Errors>> targets = Lists.newArrayListWithExpectedSize(objects.size());
+        for (T object : objects) {
+            targets.add(Pair.<T, Errors>valueOf(object, new BeanPropertyBindingResult(object, retrieveTargetClass().getSimpleName())));
+        }
+        doValidateAll(targets);
+        for (Pair<T, Errors> target : targets) {
+            if (target.second.hasErrors()) {
+                throw new ApplicationValidationException(target.second);
+            }
+        }
+        return objects;
+    }
 }
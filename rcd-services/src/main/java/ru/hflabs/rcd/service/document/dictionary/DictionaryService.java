@@ -2,7 +2,9 @@ package ru.hflabs.rcd.service.document.dictionary;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.springframework.util.StringUtils;
 import ru.hflabs.rcd.accessor.Accessors;
 import ru.hflabs.rcd.event.modify.ChangeEvent;
@@ -17,6 +19,7 @@ import ru.hflabs.util.core.Pair;
 import ru.hflabs.util.spring.Assert;
 
 import java.util.Collection;
+import java.util.Set;
 
 import static ru.hflabs.rcd.accessor.Accessors.linkRelative;
 import static ru.hflabs.rcd.model.CriteriaUtils.*;
@@ -42,6 +45,11 @@ public class DictionaryService extends DocumentServiceTemplate<Dictionary> imple
         this.groupService = groupService;
     }
 
+    @Override
+    public Set<Class<?>> retrieveRebuildDependencies() {
+        return Sets.union(super.retrieveRebuildDependencies(), ImmutableSet.<Class<?>>of(Group.class));
+    }
+
     @Override
     protected Collection<Dictionary> injectTransitiveDependencies(Collection<Dictionary> objects) {
         return super.injectTransitiveDependencies(injectRelations(objects, groupService));
@@ -0,0 +1,242 @@
+package ru.hflabs.rcd.service.document.field;
+
+import com.google.common.collect.Collections2;
+import com.google.common.collect.Sets;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.CollectionUtils;
+import ru.hflabs.rcd.event.ContextEvent;
+import ru.hflabs.rcd.event.index.IndexRebuildedEvent;
+import ru.hflabs.rcd.event.modify.ChangeEvent;
+import ru.hflabs.rcd.model.change.ChangeType;
+import ru.hflabs.rcd.model.document.Field;
+import ru.hflabs.rcd.model.document.MetaField;
+import ru.hflabs.rcd.service.IFieldCountService;
+import ru.hflabs.rcd.service.document.IFieldService;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ru.hflabs.rcd.model.CriteriaUtils.createCriteriaByIDs;
+import static ru.hflabs.rcd.model.ModelUtils.ID_FUNCTION;
+
+/**
+ * Класс <class>FieldCountService</class> реализует счетчики актуальных значений полей по МЕТА-полям.<br/>
+ * Счетчик МЕТА-поля заполняется по индексу при первом обращении и затем поддерживается по событиям создания,
+ * восстановления и закрытия значений полей (в том числе порожденных изменением записей). Изменения применяются
+ * только после фиксации транзакции, поэтому откат не искажает счетчики. Закрытие МЕТА-поля и перестроение индекса сбрасывают счетчики.
+ *
+ * @author Nazin Alexander
+ * @see Field
+ */
+public class FieldCountService implements IFieldCountService, ApplicationListener<ApplicationEvent>, BeanNameAware {
+
+    /** Идентификатор сервиса */
+    private String serviceId;
+
+    /** Сервис работы со значениями полей записи */
+    private IFieldService fieldService;
+
+    /** Счетчики значений полей, где ключ - идентификатор МЕТА-поля */
+    private final ConcurrentMap<String, AtomicInteger> counters;
+    /** Поколение счетчиков, изменяемое при применении изменений и сбросе счетчиков */
+    private final AtomicLong generation;
+    /** Количество незавершенных транзакций с изменениями значений полей */
+    private final AtomicInteger pendingTransactions;
+
+    public FieldCountService() {
+        this.counters = new ConcurrentHashMap<>();
+        this.generation = new AtomicLong(0);
+        this.pendingTransactions = new AtomicInteger(0);
+    }
+
+    @Override
+    public void setBeanName(String name) {
+        this.serviceId = name;
+    }
+
+    public void setFieldService(IFieldService fieldService) {
+        this.fieldService = fieldService;
+    }
+
+    @Override
+    public int countFields(String metaFieldId) {
+        AtomicInteger counter = counters.get(metaFieldId);
+        if (counter != null) {
+            return counter.get();
+        }
+        long currentGeneration = generation.get();
+        boolean stable = pendingTransactions.get() == 0;
+        int count = fieldService.countByCriteria(createCriteriaByIDs(Field.META_FIELD_ID, metaFieldId));
+        // Если подсчет мог учесть незафиксированные или еще не примененные изменения, то результат не сохраняем
+        if (stable && currentGeneration == generation.get()) {
+            AtomicInteger existed = counters.putIfAbsent(metaFieldId, new AtomicInteger(count));
+            return existed != null ? existed.get() : count;
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Integer> countFields(Collection<String> metaFieldIDs) {
+        Map<String, Integer> result = new HashMap<>();
+        Set<String> missed = Sets.newHashSet();
+        for (String metaFieldId : metaFieldIDs) {
+            AtomicInteger counter = counters.get(metaFieldId);
+            if (counter != null) {
+                result.put(metaFieldId, counter.get());
+            } else {
+                missed.add(metaFieldId);
+            }
+        }
+        if (missed.isEmpty()) {
+            return result;
+        }
+        long currentGeneration = generation.get();
+        boolean stable = pendingTransactions.get() == 0;
+        // Недостающие счетчики заполняем одним запросом, сгруппированным по МЕТА-полям
+        Map<String, Integer> counts = fieldService.countByCriteria(createCriteriaByIDs(Field.META_FIELD_ID, missed), Field.META_FIELD_ID);
+        // Если подсчет мог учесть незафиксированные или еще не примененные изменения, то результат не сохраняем
+        boolean cacheable = stable && currentGeneration == generation.get();
+        for (String metaFieldId : missed) {
+            // Значения строковых полей в индексе хранятся в нижнем регистре
+            Integer count = counts.get(metaFieldId.toLowerCase());
+            int value = count != null ? count : 0;
+            if (cacheable) {
+                AtomicInteger existed = counters.putIfAbsent(metaFieldId, new AtomicInteger(value));
+                value = existed != null ? existed.get() : value;
+            }
+            result.put(metaFieldId, value);
+        }
+        return result;
+    }
+
+    @Override
+    public int countRecords(Collection<MetaField> metaFields) {
+        if (CollectionUtils.isEmpty(metaFields)) {
+            return 0;
+        }
+        int fieldsCount = 0;
+        for (Integer count : countFields(Collections2.transform(metaFields, ID_FUNCTION)).values()) {
+            fieldsCount += count;
+        }
+        return fieldsCount / metaFields.size();
+    }
+
+    /**
+     * Выполняет сброс счетчиков
+     *
+     * @param metaFieldIDs коллекция идентификаторов МЕТА-полей или <code>NULL</code>, если необходимо сбросить все счетчики
+     */
+    private void invalidate(Collection<String> metaFieldIDs) {
+        generation.incrementAndGet();
+        if (metaFieldIDs == null) {
+            counters.clear();
+        } else {
+            counters.keySet().removeAll(metaFieldIDs);
+        }
+    }
+
+    /**
+     * Применяет изменения количества значений полей
+     *
+     * @param deltas изменения количества, где ключ - идентификатор МЕТА-поля
+     */
+    private void applyDeltas(Map<String, Integer> deltas) {
+        for (Map.Entry<String, Integer> entry : deltas.entrySet()) {
+            AtomicInteger counter = counters.get(entry.getKey());
+            if (counter != null) {
+                counter.addAndGet(entry.getValue());
+            }
+        }
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Определяет изменения количества значений полей по событию
+     *
+     * @param event событие изменения значений полей
+     * @return Возвращает изменения количества, где ключ - идентификатор МЕТА-поля
+     */
+    private static Map<String, Integer> calculateDeltas(ChangeEvent event) {
+        final int delta;
+        switch (event.getChangeType()) {
+            case CREATE:
+            case RESTORE:
+                delta = 1;
+                break;
+            case CLOSE:
+                delta = -1;
+                break;
+            default:
+                return null;
+        }
+        Map<String, Integer> result = new HashMap<>();
+        for (Field field : event.getChanged(Field.class)) {
+            Integer current = result.get(field.getMetaFieldId());
+            result.put(field.getMetaFieldId(), (current != null ? current : 0) + delta);
+        }
+        return result;
+    }
+
+    /**
+     * Выполняет обработку события изменения значений полей после фиксации транзакции
+     *
+     * @param event событие изменения
+     */
+    private void handleFieldChangeEvent(ChangeEvent event) {
+        final Map<String, Integer> deltas = calculateDeltas(event);
+        if (CollectionUtils.isEmpty(deltas)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingTransactions.incrementAndGet();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                            applyDeltas(deltas);
+                        } else if (status == TransactionSynchronization.STATUS_UNKNOWN) {
+                            invalidate(deltas.keySet());
+                        } else {
+                            generation.incrementAndGet();
+                        }
+                    } finally {
+                        pendingTransactions.decrementAndGet();
+                    }
+                }
+            });
+        } else {
+            applyDeltas(deltas);
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ContextEvent && ((ContextEvent) event).registryListener(serviceId)) {
+            // Событие перестроения индекса
+            if (event instanceof IndexRebuildedEvent) {
+                invalidate(null);
+            }
+            // Событие изменения документов
+            if (event instanceof ChangeEvent) {
+                ChangeEvent changeEvent = (ChangeEvent) event;
+                if (Field.class.equals(changeEvent.getChangedClass())) {
+                    handleFieldChangeEvent(changeEvent);
+                } else if (MetaField.class.equals(changeEvent.getChangedClass()) && ChangeType.CLOSE.equals(changeEvent.getChangeType())) {
+                    invalidate(Sets.newHashSet(Collections2.transform(changeEvent.getChanged(MetaField.class), ID_FUNCTION)));
+                }
+            }
+        }
+    }
+}
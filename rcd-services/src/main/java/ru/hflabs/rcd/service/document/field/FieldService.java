@@ -1,29 +1,24 @@
 package ru.hflabs.rcd.service.document.field;
 
 import com.google.common.base.Function;
-import com.google.common.base.Predicate;
 import com.google.common.collect.*;
-import org.apache.lucene.document.DocumentStoredFieldVisitor;
-import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.*;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import ru.hflabs.rcd.event.modify.ChangeEvent;
 import ru.hflabs.rcd.exception.search.document.UnknownFieldException;
+import ru.hflabs.rcd.lucene.GroupCountCollector;
 import ru.hflabs.rcd.lucene.criteria.LuceneCriteriaHolder;
 import ru.hflabs.rcd.model.criteria.FilterCriteria;
 import ru.hflabs.rcd.model.document.*;
 import ru.hflabs.rcd.model.path.MetaFieldNamedPath;
+import ru.hflabs.rcd.service.IRecordCacheService;
 import ru.hflabs.rcd.service.document.DocumentServiceTemplate;
 import ru.hflabs.rcd.service.document.IFieldService;
 import ru.hflabs.rcd.service.document.IMetaFieldService;
 import ru.hflabs.util.core.EqualsUtil;
-import ru.hflabs.util.lucene.LuceneQueryCallback;
-import ru.hflabs.util.lucene.LuceneQueryDescriptor;
-import ru.hflabs.util.lucene.LuceneQueryUtil;
 import ru.hflabs.util.spring.Assert;
 
-import javax.swing.*;
 import java.io.IOException;
 import java.util.*;
 
@@ -32,6 +27,7 @@ import static ru.hflabs.rcd.accessor.Accessors.linkRelative;
 import static ru.hflabs.rcd.model.CriteriaUtils.*;
 import static ru.hflabs.rcd.model.ModelUtils.ID_FUNCTION;
 import static ru.hflabs.rcd.model.ModelUtils.extractFieldsFromRecords;
+import static ru.hflabs.rcd.model.ModelUtils.normalizeFieldValue;
 import static ru.hflabs.rcd.service.ServiceUtils.*;
 
 /**
@@ -43,6 +39,8 @@ public class FieldService extends DocumentServiceTemplate<Field> implements IFie
 
     /** Сервис работы с МЕТА-полями */
     private IMetaFieldService metaFieldService;
+    /** Кэш поколоночного представления записей */
+    private IRecordCacheService recordCacheService;
 
     public FieldService() {
         super(Field.class);
@@ -52,6 +50,23 @@ public class FieldService extends DocumentServiceTemplate<Field> implements IFie
         this.metaFieldService = metaFieldService;
     }
 
+    public void setRecordCacheService(IRecordCacheService recordCacheService) {
+        this.recordCacheService = recordCacheService;
+    }
+
+    /**
+     * @param metaFieldId идентификатор МЕТА-поля
+     * @return Возвращает закэшированное представление записей справочника МЕТА-поля или <code>NULL</code>, если его нет в кэше
+     */
+    private RecordColumns findCachedColumns(String metaFieldId) {
+        return recordCacheService != null ? recordCacheService.findColumnsByMetaField(metaFieldId) : null;
+    }
+
+    @Override
+    public Set<Class<?>> retrieveRebuildDependencies() {
+        return Sets.union(super.retrieveRebuildDependencies(), ImmutableSet.<Class<?>>of(MetaField.class));
+    }
+
     @Override
     protected Collection<Field> injectTransitiveDependencies(Collection<Field> objects) {
         return super.injectTransitiveDependencies(injectRelations(objects, metaFieldService));
@@ -75,6 +90,10 @@ public class FieldService extends DocumentServiceTemplate<Field> implements IFie
     @Override
     public Collection<Field> findByNames(String relativeId, Set<String> names, boolean fillTransitive) {
         Assert.isTrue(StringUtils.hasText(relativeId), "Relative ID must not be NULL or EMPTY");
+        RecordColumns columns = !fillTransitive ? findCachedColumns(relativeId) : null;
+        if (columns != null) {
+            return columns.findFieldsByNames(relativeId, names);
+        }
         return findAllByCriteria(createCriteriaByRelative(Field.META_FIELD_ID, relativeId, Field.NAME, names), fillTransitive);
     }
 
@@ -83,10 +102,10 @@ public class FieldService extends DocumentServiceTemplate<Field> implements IFie
         Assert.isTrue(StringUtils.hasText(relativeId), "Relative ID must not be NULL or EMPTY");
         final MetaField metaField = metaFieldService.findByID(relativeId, fillTransitive, false);
 
-        Collection<Field> result = findAllByCriteria(
-                createCriteriaByRelative(Field.META_FIELD_ID, relativeId, Field.VALUE, values),
-                false
-        );
+        RecordColumns columns = findCachedColumns(relativeId);
+        Collection<Field> result = columns != null && columns.hasValueIndex(relativeId) ?
+                columns.findFieldsByValues(relativeId, values) :
+                findAllByCriteria(createCriteriaByRelative(Field.META_FIELD_ID, relativeId, Field.VALUE, values), false);
         return fillTransitive ?
                 Lists.newArrayList(Collections2.transform(result, new Function<Field, Field>() {
                     @Override
@@ -107,6 +126,10 @@ public class FieldService extends DocumentServiceTemplate<Field> implements IFie
 
     @Override
     public boolean isFieldExist(String metaFieldId, String value) {
+        RecordColumns columns = findCachedColumns(metaFieldId);
+        if (columns != null && columns.hasValueIndex(metaFieldId)) {
+            return !columns.findFieldsByValues(metaFieldId, Collections.singleton(value)).isEmpty();
+        }
         return countByCriteria(createCriteriaByRelative(Field.META_FIELD_ID, metaFieldId, Field.VALUE, value)) != 0;
     }
 
@@ -125,43 +148,77 @@ public class FieldService extends DocumentServiceTemplate<Field> implements IFie
         }
     }
 
+    @Override
+    public Collection<Field> findNotUniqueFields(String metaFieldId, Collection<Field> fields) {
+        Assert.isTrue(StringUtils.hasText(metaFieldId), "MetaField ID must not be NULL or EMPTY");
+        if (CollectionUtils.isEmpty(fields)) {
+            return Collections.emptyList();
+        }
+        // Получаем существующие поля со всеми проверяемыми значениями одним запросом
+        Set<String> values = Sets.newHashSet();
+        for (Field field : fields) {
+            values.add(field.getValue());
+        }
+        RecordColumns columns = findCachedColumns(metaFieldId);
+        Collection<Field> existedFields = columns != null && columns.hasValueIndex(metaFieldId) ?
+                columns.findFieldsByValues(metaFieldId, values) :
+                findAllByCriteria(createCriteriaByRelative(Field.META_FIELD_ID, metaFieldId, Field.VALUE, values), false);
+        Multimap<String, String> value2ids = HashMultimap.create();
+        for (Field existed : existedFields) {
+            value2ids.put(normalizeFieldValue(existed.getValue()), existed.getId());
+        }
+        // Проверяем значения по существующим полям и по ранее проверенным полям коллекции
+        Map<String, String> value2name = Maps.newHashMap();
+        ImmutableList.Builder<Field> result = ImmutableList.builder();
+        for (Field field : fields) {
+            String value = normalizeFieldValue(field.getValue());
+            Collection<String> existedIDs = value2ids.get(value);
+            boolean unique = existedIDs.isEmpty() || (existedIDs.size() == 1 && existedIDs.contains(field.getId()));
+            String name = value2name.get(value);
+            if (name == null) {
+                value2name.put(value, field.getName());
+            } else if (!EqualsUtil.equals(name, field.getName())) {
+                unique = false;
+            }
+            if (!unique) {
+                result.add(field);
+            }
+        }
+        return result.build();
+    }
+
     @Override
     public boolean isFieldsUnique(String metaFieldId) {
-        // Проверяем, что поля существуют
+        return findNotUniqueValues(metaFieldId).isEmpty();
+    }
+
+    @Override
+    public Collection<String> findNotUniqueValues(String metaFieldId) {
+        Assert.isTrue(StringUtils.hasText(metaFieldId), "MetaField ID must not be NULL or EMPTY");
         final LuceneCriteriaHolder criteria = criteriaBuilder.createCriteria(
                 retrieveTargetClass(),
-                createCriteriaByIDs(Field.META_FIELD_ID, metaFieldId).injectSort(Field.VALUE, SortOrder.ASCENDING)
+                createCriteriaByIDs(Field.META_FIELD_ID, metaFieldId)
         );
-        final int totalCount = queryProvider.executeCountByCriteria(criteria);
-        if (totalCount <= 0) {
-            return true;
-        }
-        // Выполняем итерирование значений полей пока не дойдем до конца или не встретим дублирующегося значения
-        UniqueFieldHandler uniqueFieldHandler = new UniqueFieldHandler();
+        // Выполняем подсчет значений полей МЕТА-поля по ординалам термов без загрузки сохраненных документов.
+        // Для поля значения не сохраняются DocValues, поэтому значения читаются из индексированных терминов без ограничения длины
+        ReferenceManager<IndexSearcher> searcherManager = refreshSearcherManager(false);
         try {
-            LuceneQueryUtil.query(
-                    binderTransformer,
-                    new LuceneQueryCallback() {
-                        @Override
-                        public ReferenceManager<IndexSearcher> getSearcherManager() {
-                            return refreshSearcherManager(false);
-                        }
-
-                        @Override
-                        public LuceneQueryDescriptor getQueryDescriptor() {
-                            return new LuceneQueryDescriptor(criteria.buildQuery(), criteria.buildSort(), criteria.buildFilter(), 0, totalCount);
-                        }
-
-                        @Override
-                        public DocumentStoredFieldVisitor createStoredFieldVisitor() {
-                            return new DocumentStoredFieldVisitor();
-                        }
-                    },
-                    uniqueFieldHandler
-            );
-            return uniqueFieldHandler.isUnique();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                GroupCountCollector collector = new GroupCountCollector(Field.VALUE);
+                searcher.search(criteria.buildQuery(), criteria.buildFilter(), collector);
+                Set<String> result = Sets.newTreeSet();
+                for (Map.Entry<String, Integer> entry : collector.getCounts().entrySet()) {
+                    if (entry.getValue() > 1) {
+                        result.add(entry.getKey());
+                    }
+                }
+                return result;
+            } finally {
+                searcherManager.release(searcher);
+            }
         } catch (IOException ex) {
-            throw new RuntimeException(String.format("Can't find unique fields '%s' index. Cause by: %s", retrieveTargetClassName(), ex.getMessage()), ex);
+            throw new RuntimeException(String.format("Can't find not unique fields '%s' index. Cause by: %s", retrieveTargetClassName(), ex.getMessage()), ex);
         }
     }
 
@@ -203,33 +260,4 @@ public class FieldService extends DocumentServiceTemplate<Field> implements IFie
             closeByCriteria(createCriteriaByIDs(Field.PRIMARY_KEY, fieldIDs));
         }
     }
-
-    /**
-     * Класс <class>UniqueFieldHandler</class> реализует предикат уникальных значений полей
-     *
-     * @author Nazin Alexander
-     */
-    private static class UniqueFieldHandler implements Predicate<Field> {
-
-        /** Предыдущее значение поля */
-        private String previousValue;
-        /** Флаг уникальности */
-        private boolean isUnique;
-
-        private UniqueFieldHandler() {
-            this.previousValue = UUID.randomUUID().toString();
-            this.isUnique = true;
-        }
-
-        public boolean isUnique() {
-            return isUnique;
-        }
-
-        @Override
-        public boolean apply(Field input) {
-            isUnique = !EqualsUtil.equals(previousValue, input.getValue());
-            previousValue = input.getValue();
-            return isUnique;
-        }
-    }
 }
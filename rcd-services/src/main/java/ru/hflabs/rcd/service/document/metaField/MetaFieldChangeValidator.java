@@ -1,8 +1,12 @@
 package ru.hflabs.rcd.service.document.metaField;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.Errors;
 import ru.hflabs.rcd.exception.constraint.IllegalPrimaryKeyException;
 import ru.hflabs.rcd.exception.constraint.document.NotUniqueFieldsException;
+import ru.hflabs.rcd.exception.constraint.document.NotUniqueValuesException;
 import ru.hflabs.rcd.exception.search.document.UnknownMetaFieldException;
 import ru.hflabs.rcd.model.ModelUtils;
 import ru.hflabs.rcd.model.document.Field;
@@ -13,6 +17,8 @@ import ru.hflabs.rcd.service.document.IFieldService;
 import ru.hflabs.rcd.service.document.IMetaFieldService;
 import ru.hflabs.rcd.service.document.NamedDocumentChangeValidator;
 
+import java.util.Collection;
+
 import static ru.hflabs.rcd.accessor.Accessors.DICTIONARY_TO_META_FIELD_INJECTOR;
 import static ru.hflabs.rcd.accessor.Accessors.GROUP_TO_META_FIELD_INJECTOR;
 import static ru.hflabs.rcd.model.CriteriaUtils.createCriteriaByIDs;
@@ -24,6 +30,9 @@ import static ru.hflabs.rcd.model.CriteriaUtils.createCriteriaByIDs;
  */
 public class MetaFieldChangeValidator extends NamedDocumentChangeValidator<MetaField, IMetaFieldService> {
 
+    /** Максимальное количество повторяющихся значений в сообщении об ошибке */
+    private static final int MAX_SHOWN_DUPLICATES = 10;
+
     /** Сервис работы со справочниками */
     private IDictionaryService dictionaryService;
     /** Сервис работы со значениями полей справочников */
@@ -70,8 +79,15 @@ public class MetaFieldChangeValidator extends NamedDocumentChangeValidator<MetaF
      */
     private void doValidateUniqueFlag(Errors errors, MetaField newObject, MetaField oldObject) {
         if (newObject.isFlagEstablished(MetaField.FLAG_UNIQUE) && (oldObject == null || !oldObject.isFlagEstablished(MetaField.FLAG_UNIQUE))) {
-            if (!fieldService.isFieldsUnique(newObject.getId())) {
-                reject(errors, new NotUniqueFieldsException(ModelUtils.createMetaFieldNamedPath(newObject)), newObject.getName());
+            Collection<String> duplicates = fieldService.findNotUniqueValues(newObject.getId());
+            if (!duplicates.isEmpty()) {
+                Collection<String> shownDuplicates = ImmutableList.copyOf(Iterables.limit(duplicates, MAX_SHOWN_DUPLICATES));
+                reject(
+                        errors,
+                        new NotUniqueValuesException(ModelUtils.createMetaFieldNamedPath(newObject), shownDuplicates),
+                        newObject.getName(),
+                        StringUtils.collectionToDelimitedString(shownDuplicates, ", ", "'", "'")
+                );
             }
         }
     }
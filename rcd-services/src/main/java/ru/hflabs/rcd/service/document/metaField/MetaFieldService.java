@@ -3,6 +3,7 @@ package ru.hflabs.rcd.service.document.metaField;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
@@ -49,6 +50,11 @@ public class MetaFieldService extends DocumentServiceTemplate<MetaField> impleme
         this.dictionaryService = dictionaryService;
     }
 
+    @Override
+    public Set<Class<?>> retrieveRebuildDependencies() {
+        return Sets.union(super.retrieveRebuildDependencies(), ImmutableSet.<Class<?>>of(Dictionary.class));
+    }
+
     @Override
     protected Collection<MetaField> injectTransitiveDependencies(Collection<MetaField> objects) {
         return super.injectTransitiveDependencies(injectRelations(objects, dictionaryService));
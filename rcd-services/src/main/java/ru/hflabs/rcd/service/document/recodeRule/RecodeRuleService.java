@@ -66,6 +66,11 @@ public class RecodeRuleService extends DocumentServiceTemplate<RecodeRule> imple
         this.fieldService = fieldService;
     }
 
+    @Override
+    public Set<Class<?>> retrieveRebuildDependencies() {
+        return Sets.union(super.retrieveRebuildDependencies(), ImmutableSet.<Class<?>>of(Field.class, RecodeRuleSet.class));
+    }
+
     @Override
     protected Collection<RecodeRule> injectTransitiveDependencies(Collection<RecodeRule> objects) {
         return super.injectTransitiveDependencies(injectRelations(injectRuleRelations(objects, fieldService, FROM_RULE_INJECTOR, TO_RULE_INJECTOR), recodeRuleSetService));
@@ -107,6 +112,23 @@ public class RecodeRuleService extends DocumentServiceTemplate<RecodeRule> imple
         return doFindAllByFields(recodeRuleSetId, RecodeRule.FROM_FIELD_ID, fromFieldIDs, fillTransitive);
     }
 
+    @Override
+    public Collection<RecodeRule> findAllByToFieldIDs(String recodeRuleSetId, Collection<String> toFieldIDs, boolean fillTransitive) {
+        return doFindAllByFields(recodeRuleSetId, RecodeRule.TO_FIELD_ID, toFieldIDs, fillTransitive);
+    }
+
+    @Override
+    public Collection<RecodeRule> findAllByToValue(RecodeRuleSet ruleSet, String toValue) {
+        // Получаем идентификаторы значений целевого МЕТА-поля набора
+        Collection<Field> toFields = fieldService.findByValues(ruleSet.getToFieldId(), Collections.singleton(toValue), false);
+        if (CollectionUtils.isEmpty(toFields)) {
+            return Collections.emptyList();
+        }
+        // Выполняем один поиск правил по индексу идентификаторов набора и целевых полей,
+        // исходное значение хранится в пути правила, поэтому транзитивные зависимости не заполняются
+        return doFindAllByFields(ruleSet.getId(), RecodeRule.TO_FIELD_ID, Collections2.transform(toFields, ID_FUNCTION), false);
+    }
+
     @Override
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Throwable.class)
     public Collection<RecodeRule> modify(Collection<RecodeRule> toCreate, Collection<RecodeRule> toUpdate, Collection<RecodeRule> toClose, boolean needValidation) {
@@ -1,6 +1,7 @@
 package ru.hflabs.rcd.service.document.recodeRuleSet;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -35,6 +36,7 @@ import ru.hflabs.util.spring.Assert;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 import static ru.hflabs.rcd.accessor.Accessors.FROM_SET_INJECTOR;
@@ -81,6 +83,11 @@ public class RecodeRuleSetService extends DocumentServiceTemplate<RecodeRuleSet>
         this.recodeRuleService = recodeRuleService;
     }
 
+    @Override
+    public Set<Class<?>> retrieveRebuildDependencies() {
+        return Sets.union(super.retrieveRebuildDependencies(), ImmutableSet.<Class<?>>of(Field.class, MetaField.class));
+    }
+
     @Override
     protected Collection<RecodeRuleSet> injectTransitiveDependencies(Collection<RecodeRuleSet> objects) {
         return super.injectTransitiveDependencies(injectRuleRelations(injectRelations(objects, fieldService), metaFieldService, FROM_SET_INJECTOR, TO_SET_INJECTOR));
@@ -160,17 +167,27 @@ public class RecodeRuleSetService extends DocumentServiceTemplate<RecodeRuleSet>
         int recordsCount = fieldService.countByCriteria(
                 createCriteriaByIDs(Field.META_FIELD_ID, primaryMetaField.getId())
         );
-        // Для каждого набора проверяем, что количество перекодировок соответствует количеству записей справочника
+        // Получаем наборы, для которых не задано правило перекодирования по умолчанию
+        Set<String> ruleSetIDs = Sets.newHashSet();
         for (RecodeRuleSet ruleSet : recodeRuleSets) {
-            // Если не задано правило перекодирования по умолчанию, то проверяем, что
-            // количество записей справочника равно количеству перекодировок
             if (!StringUtils.hasText(ruleSet.getDefaultFieldId())) {
-                int recodesCount = recodeRuleService.countByCriteria(
-                        createCriteriaByIDs(RecodeRule.RECODE_RULE_SET_ID, ruleSet.getId())
-                );
-                if (recordsCount != recodesCount) {
-                    return true;
-                }
+                ruleSetIDs.add(ruleSet.getId());
+            }
+        }
+        if (ruleSetIDs.isEmpty()) {
+            return false;
+        }
+        // Получаем количество перекодировок для всех наборов одним запросом
+        Map<String, Integer> recodesCounts = recodeRuleService.countByCriteria(
+                createCriteriaByIDs(RecodeRule.RECODE_RULE_SET_ID, ruleSetIDs),
+                RecodeRule.RECODE_RULE_SET_ID
+        );
+        // Для каждого набора проверяем, что количество перекодировок соответствует количеству записей справочника
+        for (String ruleSetID : ruleSetIDs) {
+            // Значения строковых полей в индексе хранятся в нижнем регистре
+            Integer recodesCount = recodesCounts.get(ruleSetID.toLowerCase());
+            if (recordsCount != (recodesCount != null ? recodesCount : 0)) {
+                return true;
             }
         }
         // Для всех наборов заданы все правила
@@ -0,0 +1,247 @@
+package ru.hflabs.rcd.service.document.record;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.Sets;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.CollectionUtils;
+import ru.hflabs.rcd.event.ContextEvent;
+import ru.hflabs.rcd.event.index.IndexRebuildedEvent;
+import ru.hflabs.rcd.event.modify.ChangeEvent;
+import ru.hflabs.rcd.model.change.ChangeType;
+import ru.hflabs.rcd.model.document.*;
+import ru.hflabs.rcd.model.document.Dictionary;
+import ru.hflabs.rcd.service.IFieldCountService;
+import ru.hflabs.rcd.service.IRecordCacheService;
+import ru.hflabs.rcd.service.document.IFieldService;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ru.hflabs.rcd.model.ModelUtils.ID_FUNCTION;
+
+/**
+ * Класс <class>RecordCacheService</class> реализует кэш {@link RecordColumns поколоночного представления} записей небольших справочников.<br/>
+ * Представление справочника строится при первом обращении, если количество его записей не превышает заданного,
+ * и сбрасывается по событиям изменения значений полей, записей, МЕТА-полей и справочников как в момент события,
+ * так и после завершения транзакции. Общий объем кэша ограничен бюджетом памяти, при превышении которого
+ * вытесняются давно не используемые справочники. Кэш выключен, если бюджет памяти не задан.
+ *
+ * @author Nazin Alexander
+ * @see RecordColumns
+ */
+public class RecordCacheService implements IRecordCacheService, ApplicationListener<ApplicationEvent>, BeanNameAware, InitializingBean {
+
+    /** Количество байт в мегабайте */
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    /** Идентификатор сервиса */
+    private String serviceId;
+
+    /** Сервис работы со значениями полей записи */
+    private IFieldService fieldService;
+    /** Сервис счетчиков значений полей */
+    private IFieldCountService fieldCountService;
+    /** Бюджет памяти кэша в мегабайтах */
+    private long memoryBudget;
+    /** Максимальное количество записей кэшируемого справочника */
+    private int maxRecords;
+
+    /** Кэш представлений, где ключ - идентификатор справочника */
+    private Cache<String, RecordColumns> columns;
+    /** Идентификаторы справочников кэшируемых МЕТА-полей, где ключ - идентификатор МЕТА-поля */
+    private final ConcurrentMap<String, String> metaField2dictionary;
+    /** Версии справочников, изменяемые при сбросе, где ключ - идентификатор справочника */
+    private final ConcurrentMap<String, AtomicLong> versions;
+
+    public RecordCacheService() {
+        this.metaField2dictionary = new ConcurrentHashMap<>();
+        this.versions = new ConcurrentHashMap<>();
+        this.memoryBudget = 0;
+        this.maxRecords = 50000;
+    }
+
+    @Override
+    public void setBeanName(String name) {
+        this.serviceId = name;
+    }
+
+    public void setFieldService(IFieldService fieldService) {
+        this.fieldService = fieldService;
+    }
+
+    public void setFieldCountService(IFieldCountService fieldCountService) {
+        this.fieldCountService = fieldCountService;
+    }
+
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void setMaxRecords(int maxRecords) {
+        this.maxRecords = maxRecords;
+    }
+
+    /**
+     * @param dictionaryId идентификатор справочника
+     * @return Возвращает версию справочника
+     */
+    private AtomicLong retrieveVersion(String dictionaryId) {
+        AtomicLong version = versions.get(dictionaryId);
+        if (version == null) {
+            AtomicLong existed = versions.putIfAbsent(dictionaryId, version = new AtomicLong(0));
+            version = existed != null ? existed : version;
+        }
+        return version;
+    }
+
+    @Override
+    public RecordColumns retrieveColumns(Collection<MetaField> metaFields) {
+        if (columns == null || CollectionUtils.isEmpty(metaFields)) {
+            return null;
+        }
+        String dictionaryId = metaFields.iterator().next().getDictionaryId();
+        RecordColumns result = columns.getIfPresent(dictionaryId);
+        if (result != null && result.isBuiltFor(metaFields)) {
+            return result;
+        }
+        if (fieldCountService.countRecords(metaFields) > maxRecords) {
+            return null;
+        }
+        // Регистрируем МЕТА-поля до загрузки значений, чтобы изменения во время построения сбросили результат
+        AtomicLong version = retrieveVersion(dictionaryId);
+        long currentVersion = version.get();
+        Set<String> metaFieldIDs = Sets.newHashSet(Collections2.transform(metaFields, ID_FUNCTION));
+        for (String metaFieldId : metaFieldIDs) {
+            metaField2dictionary.put(metaFieldId, dictionaryId);
+        }
+        result = new RecordColumns(dictionaryId, metaFields, fieldService.findAllByMetaFields(metaFieldIDs, false));
+        synchronized (version) {
+            if (version.get() == currentVersion) {
+                columns.put(dictionaryId, result);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public RecordColumns findColumnsByMetaField(String metaFieldId) {
+        if (columns == null) {
+            return null;
+        }
+        String dictionaryId = metaField2dictionary.get(metaFieldId);
+        return dictionaryId != null ? columns.getIfPresent(dictionaryId) : null;
+    }
+
+    @Override
+    public void invalidate(Collection<String> dictionaryIDs) {
+        if (columns == null) {
+            return;
+        }
+        Collection<String> targetIDs = dictionaryIDs != null ? dictionaryIDs : Sets.newHashSet(versions.keySet());
+        for (String dictionaryId : targetIDs) {
+            AtomicLong version = retrieveVersion(dictionaryId);
+            synchronized (version) {
+                version.incrementAndGet();
+                columns.invalidate(dictionaryId);
+            }
+        }
+        if (dictionaryIDs == null) {
+            columns.invalidateAll();
+        }
+    }
+
+    /**
+     * Определяет справочники, представление которых затрагивает событие
+     *
+     * @param event событие изменения
+     * @return Возвращает коллекцию идентификаторов справочников
+     */
+    private Set<String> findChangedDictionaries(ChangeEvent event) {
+        Set<String> result = Sets.newHashSet();
+        if (Field.class.equals(event.getChangedClass())) {
+            for (Field field : event.getChanged(Field.class)) {
+                String dictionaryId = metaField2dictionary.get(field.getMetaFieldId());
+                if (dictionaryId != null) {
+                    result.add(dictionaryId);
+                }
+            }
+        } else if (Record.class.equals(event.getChangedClass())) {
+            for (Record record : event.getChanged(Record.class)) {
+                result.add(record.getDictionaryId());
+            }
+        } else if (MetaField.class.equals(event.getChangedClass())) {
+            for (MetaField metaField : event.getChanged(MetaField.class)) {
+                result.add(metaField.getDictionaryId());
+            }
+        } else if (Dictionary.class.equals(event.getChangedClass())) {
+            result.addAll(Collections2.transform(event.getChanged(Dictionary.class), ID_FUNCTION));
+        }
+        return result;
+    }
+
+    /**
+     * Выполняет обработку события изменения как в момент события, так и после завершения транзакции,
+     * так как представление могло быть построено по состоянию индекса до фиксации изменений
+     *
+     * @param event событие изменения
+     */
+    private void handleChangeEvent(final ChangeEvent event) {
+        if (!Field.class.equals(event.getChangedClass()) &&
+                !Record.class.equals(event.getChangedClass()) &&
+                !MetaField.class.equals(event.getChangedClass()) &&
+                !Dictionary.class.equals(event.getChangedClass())) {
+            return;
+        }
+        invalidate(findChangedDictionaries(event));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(findChangedDictionaries(event));
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (columns != null && event instanceof ContextEvent && ((ContextEvent) event).registryListener(serviceId)) {
+            // Событие перестроения индекса
+            if (event instanceof IndexRebuildedEvent) {
+                invalidate(null);
+            }
+            // Событие изменения документов
+            if (event instanceof ChangeEvent) {
+                ChangeEvent changeEvent = (ChangeEvent) event;
+                if (!ChangeType.IGNORE.equals(changeEvent.getChangeType()) && !ChangeType.SKIP.equals(changeEvent.getChangeType())) {
+                    handleChangeEvent(changeEvent);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (memoryBudget > 0) {
+            columns = CacheBuilder.newBuilder()
+                    .maximumWeight(memoryBudget * MEGABYTE)
+                    .weigher(new Weigher<String, RecordColumns>() {
+                        @Override
+                        public int weigh(String key, RecordColumns value) {
+                            return (int) Math.min(value.getWeight(), Integer.MAX_VALUE);
+                        }
+                    })
+                    .build();
+        }
+    }
+}
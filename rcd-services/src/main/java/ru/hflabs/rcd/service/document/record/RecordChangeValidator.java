@@ -1,6 +1,6 @@
 package ru.hflabs.rcd.service.document.record;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.*;
 import org.springframework.validation.Errors;
 import org.springframework.validation.MapBindingResult;
 import ru.hflabs.rcd.exception.constraint.document.IllegalRecordException;
@@ -13,15 +13,20 @@ import ru.hflabs.rcd.model.document.Record;
 import ru.hflabs.rcd.service.document.ChangeValidatorService;
 import ru.hflabs.rcd.service.document.IFieldService;
 import ru.hflabs.rcd.service.document.IMetaFieldService;
+import ru.hflabs.util.core.Pair;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import static ru.hflabs.rcd.accessor.Accessors.*;
 import static ru.hflabs.rcd.model.ModelUtils.*;
 
 /**
- * Класс <class>RecordValidator</class> реализует сервис валидации записи справочника
+ * Класс <class>RecordValidator</class> реализует сервис валидации записи справочника.<br/>
+ * При пакетной валидации МЕТА-поля загружаются один раз для каждого справочника, а уникальность значений полей
+ * проверяется одним запросом на каждое уникальное МЕТА-поле с учетом повторов внутри пакета
  *
  * @author Nazin Alexander
  */
@@ -75,8 +80,9 @@ public class RecordChangeValidator extends ChangeValidatorService<Record> {
      * @param errors контейнер ошибок
      * @param target проверяемая запись
      * @param metaFields коллекция существующих МЕТА-полей справочника
+     * @param uniqueFields накопитель значений полей уникальных МЕТА-полей с контейнерами их ошибок
      */
-    private void doValidateFields(Errors errors, Record target, Collection<MetaField> metaFields) {
+    private void doValidateFields(Errors errors, Record target, Collection<MetaField> metaFields, Multimap<MetaField, Pair<Field, Errors>> uniqueFields) {
         Map<String, Field> currentFields = Maps.newLinkedHashMap(target.getFields());
         // Проверяем существующие поля
         for (MetaField metaField : metaFields) {
@@ -89,11 +95,9 @@ public class RecordChangeValidator extends ChangeValidatorService<Record> {
                 field.setValue(formatFieldValue(field));
                 // Выполняем валидацию поля
                 doValidateAnnotations(errors, field);
-                // Проверяем уникальность значения поля
+                // Откладываем проверку уникальности значения поля до проверки всего пакета
                 if (metaField.isFlagEstablished(MetaField.FLAG_UNIQUE)) {
-                    if (!fieldService.isFieldUnique(field)) {
-                        rejectValue(errors, metaField.getId(), new NotUniqueFieldsException(createMetaFieldNamedPath(metaField)), metaField.getName(), field.getValue());
-                    }
+                    uniqueFields.put(metaField, Pair.valueOf(field, errors));
                 }
             } else {
                 reject(errors, new IncompleteFieldsException(createMetaFieldNamedPath(metaField)), metaField.getName());
@@ -105,20 +109,61 @@ public class RecordChangeValidator extends ChangeValidatorService<Record> {
         }
     }
 
+    /**
+     * Выполняет пакетную проверку уникальности значений полей
+     *
+     * @param uniqueFields значения полей уникальных МЕТА-полей с контейнерами их ошибок
+     */
+    private void doValidateUniqueFields(Multimap<MetaField, Pair<Field, Errors>> uniqueFields) {
+        for (Map.Entry<MetaField, Collection<Pair<Field, Errors>>> entry : uniqueFields.asMap().entrySet()) {
+            MetaField metaField = entry.getKey();
+            List<Field> fields = Lists.newArrayListWithExpectedSize(entry.getValue().size());
+            Map<Field, Errors> field2errors = Maps.newIdentityHashMap();
+            for (Pair<Field, Errors> pair : entry.getValue()) {
+                fields.add(pair.first);
+                field2errors.put(pair.first, pair.second);
+            }
+            for (Field field : fieldService.findNotUniqueFields(metaField.getId(), fields)) {
+                rejectValue(field2errors.get(field), metaField.getId(), new NotUniqueFieldsException(createMetaFieldNamedPath(metaField)), metaField.getName(), field.getValue());
+            }
+        }
+    }
+
     @Override
     protected void doValidate(Errors errors, Record target) {
-        super.doValidate(errors, target);
-        if (!errors.hasErrors()) {
-            // Получаем существующие МЕТА-поля справочника
-            Collection<MetaField> metaFields = metaFieldService.findAllByRelativeId(target.getDictionaryId(), null, true);
-            // Проверяем значение первичного ключа
-            doValidateMetaFields(errors, target, metaFields);
-            // Если нет ошибок, то проверяем значение полей
+        doValidateAll(Collections.singletonList(Pair.valueOf(target, errors)));
+    }
+
+    @Override
+    protected void doValidateAll(List<Pair<Record, Errors>> targets) {
+        Map<String, Collection<MetaField>> dictionaryId2metaFields = Maps.newHashMap();
+        Multimap<MetaField, Pair<Field, Errors>> uniqueFields = LinkedListMultimap.create();
+        List<Pair<Errors, Errors>> errors2fieldErrors = Lists.newArrayListWithExpectedSize(targets.size());
+        for (Pair<Record, Errors> target : targets) {
+            Record record = target.first;
+            Errors errors = target.second;
+            super.doValidate(errors, record);
             if (!errors.hasErrors()) {
-                Errors fieldErrors = new MapBindingResult(target.getFields(), retrieveTargetClass().getSimpleName());
-                doValidateFields(fieldErrors, target, metaFields);
-                errors.addAllErrors(fieldErrors);
+                // Получаем существующие МЕТА-поля справочника
+                Collection<MetaField> metaFields = dictionaryId2metaFields.get(record.getDictionaryId());
+                if (metaFields == null) {
+                    metaFields = metaFieldService.findAllByRelativeId(record.getDictionaryId(), null, true);
+                    dictionaryId2metaFields.put(record.getDictionaryId(), metaFields);
+                }
+                // Проверяем значение первичного ключа
+                doValidateMetaFields(errors, record, metaFields);
+                // Если нет ошибок, то проверяем значение полей
+                if (!errors.hasErrors()) {
+                    Errors fieldErrors = new MapBindingResult(record.getFields(), retrieveTargetClass().getSimpleName());
+                    doValidateFields(fieldErrors, record, metaFields, uniqueFields);
+                    errors2fieldErrors.add(Pair.valueOf(errors, fieldErrors));
+                }
             }
         }
+        // Проверяем уникальность значений полей всего пакета
+        doValidateUniqueFields(uniqueFields);
+        for (Pair<Errors, Errors> pair : errors2fieldErrors) {
+            pair.first.addAllErrors(pair.second);
+        }
     }
 }
@@ -0,0 +1,836 @@
+package ru.hflabs.rcd.service.document.record;
+
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermsFilter;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import ru.hflabs.rcd.event.ContextEvent;
+import ru.hflabs.rcd.event.index.IndexRebuildedEvent;
+import ru.hflabs.rcd.event.modify.ChangeEvent;
+import ru.hflabs.rcd.lucene.LuceneDirectoryFactory;
+import ru.hflabs.rcd.model.Identifying;
+import ru.hflabs.rcd.model.change.ChangeType;
+import ru.hflabs.rcd.model.criteria.FilterCriteria;
+import ru.hflabs.rcd.model.criteria.FilterCriteriaValue;
+import ru.hflabs.rcd.model.criteria.FilterResult;
+import ru.hflabs.rcd.model.document.Dictionary;
+import ru.hflabs.rcd.model.document.Field;
+import ru.hflabs.rcd.model.document.MetaField;
+import ru.hflabs.rcd.model.document.Record;
+import ru.hflabs.rcd.service.IRecordIndexService;
+import ru.hflabs.rcd.service.document.IFieldService;
+import ru.hflabs.rcd.service.document.IMetaFieldService;
+import ru.hflabs.rcd.term.Condition;
+import ru.hflabs.util.io.IOUtils;
+import ru.hflabs.util.lucene.LuceneBinderTransformer;
+
+import javax.swing.SortOrder;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import static ru.hflabs.rcd.lucene.binder.LuceneBinderTransformerTemplate.createSortFieldName;
+import static ru.hflabs.rcd.lucene.binder.LuceneBinderTransformerTemplate.createSortValue;
+import static ru.hflabs.rcd.model.ModelUtils.*;
+import static ru.hflabs.util.lucene.LuceneUtil.valueToTerm;
+
+/**
+ * Класс <class>RecordIndexService</class> реализует индекс записей справочников, в котором каждой записи соответствует
+ * один документ с идентификатором, справочником, значениями всех МЕТА-полей для поиска и отдельным полем сортировки
+ * для каждого МЕТА-поля. Поиск, сортировка и выделение страницы записей выполняются одним запросом к индексу
+ * вместо загрузки всех значений полей справочника: значения сортировки хранятся в {@link SortedDocValuesField},
+ * а страница отбирается коллектором первых <i>offset + count</i> документов.<br/>
+ * Индекс справочника строится при первом поиске и затем поддерживается по событиям изменения значений полей и записей:
+ * измененные записи перечитываются после фиксации транзакции, а без транзакции - перед следующим поиском.
+ * Добавление МЕТА-поля только расширяет состояние справочника, индекс строится заново лишь при переименовании или закрытии
+ * МЕТА-поля, закрытии справочника или изменении индекса значений полей при его перестроении. Построение и обновление справочника
+ * выполняются под его собственной блокировкой.<br/>
+ * Состояние справочников хранится в индексе отдельными документами, поэтому индекс сохраняется между запусками.
+ * Индекс предыдущего запуска используется только после штатной остановки, на которой применяются все отложенные изменения,
+ * иначе он очищается при старте сервиса.
+ *
+ * @author Nazin Alexander
+ * @see Record
+ */
+public class RecordIndexService implements IRecordIndexService, ApplicationListener<ApplicationEvent>, BeanNameAware, InitializingBean, DisposableBean {
+
+    private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+    /** Название индекса записей */
+    public static final String INDEX_NAME = Record.class.getSimpleName();
+    /** Поле уникального ключа документа */
+    private static final String KEY = "key";
+    /** Поле идентификатора записи */
+    private static final String ID = Record.PRIMARY_KEY;
+    /** Поле идентификатора справочника */
+    private static final String DICTIONARY_ID = Record.DICTIONARY_ID;
+    /** Поле идентификатора справочника документа состояния */
+    private static final String STATE_DICTIONARY_ID = "state." + Record.DICTIONARY_ID;
+    /** Поле идентификаторов МЕТА-полей документа состояния */
+    private static final String STATE_META_FIELD_ID = "state.metaFieldId";
+    /** Поле названий МЕТА-полей документа состояния */
+    private static final String STATE_META_FIELD_NAME = "state.metaFieldName";
+    /** Ключ флага штатной остановки в данных фиксации */
+    private static final String CLEAN_SHUTDOWN = "cleanShutdown";
+    /** Количество значений полей, читаемых за один запрос при построении индекса справочника */
+    private static final int BUILD_PAGE_SIZE = 10000;
+    /** Шаблон разделения строки поиска на слова */
+    private static final Pattern SPACE_PATTERN = Pattern.compile("\\s+");
+
+    /** Идентификатор сервиса */
+    private String serviceId;
+
+    /** Сервис работы с МЕТА-полями справочника */
+    private IMetaFieldService metaFieldService;
+    /** Сервис работы со значениями полей записи */
+    private IFieldService fieldService;
+    /** Фабрика директорий индекса */
+    private LuceneDirectoryFactory luceneDirectoryFactory;
+    /** Настройки сервиса записи в индекс */
+    private IndexWriterConfig indexWriterConfig;
+
+    /** Директория индекса */
+    private Directory directory;
+    /** Сервис записи в индекс */
+    private IndexWriter writer;
+    /** Менеджер поиска */
+    private SearcherManager searcherManager;
+
+    /** Проиндексированные справочники, где ключ - идентификатор справочника */
+    private final ConcurrentMap<String, DictionaryState> dictionaries;
+    /** Идентификаторы справочников проиндексированных МЕТА-полей, где ключ - идентификатор МЕТА-поля */
+    private final ConcurrentMap<String, String> metaField2dictionary;
+
+    public RecordIndexService() {
+        this.dictionaries = new ConcurrentHashMap<>();
+        this.metaField2dictionary = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void setBeanName(String name) {
+        this.serviceId = name;
+    }
+
+    public void setMetaFieldService(IMetaFieldService metaFieldService) {
+        this.metaFieldService = metaFieldService;
+    }
+
+    public void setFieldService(IFieldService fieldService) {
+        this.fieldService = fieldService;
+    }
+
+    public void setLuceneDirectoryFactory(LuceneDirectoryFactory luceneDirectoryFactory) {
+        this.luceneDirectoryFactory = luceneDirectoryFactory;
+    }
+
+    public void setIndexWriterConfig(IndexWriterConfig indexWriterConfig) {
+        this.indexWriterConfig = indexWriterConfig;
+    }
+
+    /**
+     * @param documents коллекция документов
+     * @return Возвращает идентификаторы документов
+     */
+    private static Set<String> collectIDs(Collection<? extends Identifying> documents) {
+        return Sets.newHashSet(Collections2.transform(documents, ID_FUNCTION));
+    }
+
+    /**
+     * @param metaFields коллекция МЕТА-полей
+     * @return Возвращает названия МЕТА-полей, где ключ - идентификатор МЕТА-поля
+     */
+    private static Map<String, String> collectNames(Collection<MetaField> metaFields) {
+        Map<String, String> result = new HashMap<>();
+        for (MetaField metaField : metaFields) {
+            result.put(metaField.getId(), metaField.getName());
+        }
+        return result;
+    }
+
+    /**
+     * @param dictionaryId идентификатор справочника
+     * @return Возвращает ключ документа состояния справочника
+     */
+    private static Term createStateKey(String dictionaryId) {
+        return new Term(STATE_DICTIONARY_ID, dictionaryId);
+    }
+
+    /**
+     * @param dictionaryId идентификатор справочника
+     * @param recordId идентификатор записи
+     * @return Возвращает уникальный ключ документа записи
+     */
+    private static Term createKey(String dictionaryId, String recordId) {
+        return new Term(KEY, dictionaryId + '/' + recordId);
+    }
+
+    /**
+     * Формирует документ индекса по записи
+     *
+     * @param record запись справочника
+     * @return Возвращает сформированный документ
+     */
+    private static Document createDocument(Record record) {
+        Document document = new Document();
+        document.add(new StringField(KEY, createKey(record.getDictionaryId(), record.getId()).text(), org.apache.lucene.document.Field.Store.NO));
+        document.add(new StringField(ID, record.getId(), org.apache.lucene.document.Field.Store.YES));
+        document.add(new SortedDocValuesField(ID, createSortValue(record.getId(), false)));
+        document.add(new StringField(DICTIONARY_ID, record.getDictionaryId(), org.apache.lucene.document.Field.Store.NO));
+        for (Map.Entry<String, Field> entry : record.getFields().entrySet()) {
+            String value = entry.getValue() != null ? entry.getValue().getValue() : null;
+            if (value != null) {
+                document.add(new SortedDocValuesField(createSortFieldName(entry.getKey()), createSortValue(value, false)));
+                document.add(new TextField(LuceneBinderTransformer.DEFAULT_SEARCH_FIELD, value, org.apache.lucene.document.Field.Store.NO));
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Формирует документ состояния справочника
+     *
+     * @param dictionaryId идентификатор справочника
+     * @param metaFields названия МЕТА-полей, по которым построен индекс, где ключ - идентификатор МЕТА-поля
+     * @return Возвращает сформированный документ
+     */
+    private static Document createStateDocument(String dictionaryId, Map<String, String> metaFields) {
+        Document document = new Document();
+        document.add(new StringField(STATE_DICTIONARY_ID, dictionaryId, org.apache.lucene.document.Field.Store.YES));
+        for (Map.Entry<String, String> entry : metaFields.entrySet()) {
+            document.add(new StoredField(STATE_META_FIELD_ID, entry.getKey()));
+            document.add(new StoredField(STATE_META_FIELD_NAME, entry.getValue()));
+        }
+        return document;
+    }
+
+    /**
+     * @param dictionaryId идентификатор справочника
+     * @return Возвращает состояние справочника, создавая его при необходимости
+     */
+    private DictionaryState retrieveState(String dictionaryId) {
+        DictionaryState result = dictionaries.get(dictionaryId);
+        if (result == null) {
+            DictionaryState created = new DictionaryState(dictionaryId);
+            result = dictionaries.putIfAbsent(dictionaryId, created);
+            result = (result != null) ? result : created;
+        }
+        return result;
+    }
+
+    /**
+     * Регистрирует МЕТА-поля, по которым построен индекс справочника, и сохраняет состояние справочника в индексе.<br/>
+     * Вызывается под блокировкой состояния
+     *
+     * @param state состояние справочника
+     * @param metaFields названия МЕТА-полей, где ключ - идентификатор МЕТА-поля
+     */
+    private void registerMetaFields(DictionaryState state, Map<String, String> metaFields) throws IOException {
+        for (String metaFieldId : metaFields.keySet()) {
+            metaField2dictionary.put(metaFieldId, state.dictionaryId);
+        }
+        state.metaFields = metaFields;
+        writer.updateDocument(createStateKey(state.dictionaryId), createStateDocument(state.dictionaryId, metaFields));
+    }
+
+    /**
+     * Выполняет сброс состояния справочника, после которого индекс записей будет построен заново при следующем поиске.<br/>
+     * Вызывается под блокировкой состояния
+     *
+     * @param state состояние справочника
+     */
+    private void resetState(DictionaryState state) throws IOException {
+        if (state.metaFields != null) {
+            metaField2dictionary.keySet().removeAll(state.metaFields.keySet());
+            state.metaFields = null;
+        }
+        state.changedRecords.clear();
+        writer.deleteDocuments(createStateKey(state.dictionaryId));
+    }
+
+    /**
+     * Выполняет построение индекса записей справочника.<br/>
+     * Вызывается под блокировкой состояния
+     *
+     * @param state состояние справочника
+     * @param metaFields коллекция МЕТА-полей справочника
+     */
+    private void buildDictionary(DictionaryState state, Collection<MetaField> metaFields) throws IOException {
+        // Состояние регистрируется до чтения значений полей, чтобы изменения записей во время построения были перечитаны при следующем обновлении
+        resetState(state);
+        Map<String, String> names = collectNames(metaFields);
+        for (String metaFieldId : names.keySet()) {
+            metaField2dictionary.put(metaFieldId, state.dictionaryId);
+        }
+        state.metaFields = names;
+
+        writer.deleteDocuments(new Term(DICTIONARY_ID, state.dictionaryId));
+        // Значения полей читаются постранично в порядке записей, поэтому в памяти находится не более одной страницы
+        FilterCriteria criteria = new FilterCriteria()
+                .injectFilters(ImmutableMap.<String, FilterCriteriaValue<?>>of(
+                        Field.META_FIELD_ID, new FilterCriteriaValue.StringsValue(names.keySet())
+                ))
+                .injectSort(Field.NAME, SortOrder.ASCENDING)
+                .injectCount(BUILD_PAGE_SIZE);
+        int count = 0;
+        List<Field> pending = Lists.newArrayList();
+        for (int offset = 0; ; offset += BUILD_PAGE_SIZE) {
+            List<Field> page = Lists.newArrayList(fieldService.findByCriteria(criteria.injectOffset(offset), false).getResult());
+            boolean isLastPage = page.size() < BUILD_PAGE_SIZE;
+            // Значения последней записи полной страницы могут продолжаться на следующей странице
+            String lastRecordId = (!isLastPage) ? page.get(page.size() - 1).getName() : null;
+            List<Field> completed = pending;
+            pending = Lists.newArrayList();
+            for (Field field : page) {
+                (field.getName().equals(lastRecordId) ? pending : completed).add(field);
+            }
+            count += writeRecords(state, metaFields, completed);
+            if (isLastPage) {
+                break;
+            }
+        }
+        count += writeRecords(state, metaFields, pending);
+        registerMetaFields(state, names);
+        LOG.debug(String.format("Record index for dictionary '%s' built with %d records", state.dictionaryId, count));
+    }
+
+    /**
+     * Записывает в индекс документы записей по их значениям полей.<br/>
+     * Документы записываются по ключу, так как при изменении значений во время постраничного чтения запись может быть прочитана повторно
+     *
+     * @param state состояние справочника
+     * @param metaFields коллекция МЕТА-полей справочника
+     * @param fields значения полей записей
+     * @return Возвращает количество записанных записей
+     */
+    private int writeRecords(DictionaryState state, Collection<MetaField> metaFields, Collection<Field> fields) throws IOException {
+        if (fields.isEmpty()) {
+            return 0;
+        }
+        List<Record> records = createRecords(metaFields, fields);
+        for (Record record : records) {
+            writer.updateDocument(createKey(state.dictionaryId, record.getId()), createDocument(record));
+        }
+        return records.size();
+    }
+
+    /**
+     * Выполняет обновление измененных записей справочника.<br/>
+     * Вызывается под блокировкой состояния
+     *
+     * @param state состояние справочника
+     * @param metaFields коллекция МЕТА-полей справочника
+     */
+    private void updateDictionary(DictionaryState state, Collection<MetaField> metaFields) throws IOException {
+        Set<String> recordIDs = state.drainChanged();
+        if (recordIDs.isEmpty()) {
+            return;
+        }
+        try {
+            Collection<Field> fields = fieldService.findAllByCriteria(
+                    new FilterCriteria().injectFilters(ImmutableMap.<String, FilterCriteriaValue<?>>of(
+                            Field.META_FIELD_ID, new FilterCriteriaValue.StringsValue(state.metaFields.keySet()),
+                            Field.NAME, new FilterCriteriaValue.StringsValue(recordIDs, Condition.OR)
+                    )),
+                    false
+            );
+            Set<String> closedIDs = Sets.newHashSet(recordIDs);
+            for (Record record : createRecords(metaFields, fields)) {
+                writer.updateDocument(createKey(state.dictionaryId, record.getId()), createDocument(record));
+                closedIDs.remove(record.getId());
+            }
+            // Оставшиеся записи закрыты
+            for (String recordId : closedIDs) {
+                writer.deleteDocuments(createKey(state.dictionaryId, recordId));
+            }
+        } catch (IOException | RuntimeException ex) {
+            // Записи возвращаются в состояние, чтобы быть перечитанными при следующем обновлении
+            state.changedRecords.addAll(recordIDs);
+            throw ex;
+        }
+    }
+
+    /**
+     * Проверяет актуальность индекса записей справочника и выполняет его построение или обновление
+     *
+     * @param state состояние справочника
+     * @param metaFields коллекция МЕТА-полей справочника
+     */
+    private void actualizeDictionary(DictionaryState state, Collection<MetaField> metaFields) throws IOException {
+        synchronized (state) {
+            if (!state.isBuilt() || !state.metaFields.equals(collectNames(metaFields))) {
+                buildDictionary(state, metaFields);
+            } else {
+                updateDictionary(state, metaFields);
+            }
+        }
+        searcherManager.maybeRefreshBlocking();
+    }
+
+    /**
+     * Выполняет обновление измененных записей справочников по их актуальным МЕТА-полям
+     *
+     * @param dictionaryIDs коллекция идентификаторов справочников
+     */
+    private void applyChanges(Collection<String> dictionaryIDs) {
+        for (String dictionaryId : dictionaryIDs) {
+            DictionaryState state = dictionaries.get(dictionaryId);
+            if (state == null) {
+                continue;
+            }
+            synchronized (state) {
+                try {
+                    if (state.isBuilt() && !state.changedRecords.isEmpty()) {
+                        Collection<MetaField> metaFields = metaFieldService.findAllByRelativeId(dictionaryId, null, false);
+                        if (state.metaFields.equals(collectNames(metaFields))) {
+                            updateDictionary(state, metaFields);
+                        } else {
+                            resetState(state);
+                        }
+                    }
+                } catch (Exception ex) {
+                    LOG.warn(String.format("Can't update record index of dictionary '%s'. Cause by: %s", dictionaryId, ex.getMessage()), ex);
+                    try {
+                        resetState(state);
+                    } catch (IOException resetEx) {
+                        LOG.error(String.format("Can't reset record index of dictionary '%s'. Cause by: %s", dictionaryId, resetEx.getMessage()), resetEx);
+                    }
+                }
+            }
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException ex) {
+            LOG.warn(String.format("Can't refresh record index searcher. Cause by: %s", ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Формирует запрос поиска записей справочника
+     *
+     * @param dictionaryId идентификатор справочника
+     * @param search строка поиска
+     * @param recordIDs идентификаторы записей, среди которых выполняется поиск, или <code>NULL</code>
+     * @return Возвращает сформированный запрос
+     */
+    private static BooleanQuery createQuery(String dictionaryId, String search, Collection<String> recordIDs) {
+        BooleanQuery query = new BooleanQuery();
+        query.add(new TermQuery(new Term(DICTIONARY_ID, dictionaryId)), BooleanClause.Occur.MUST);
+        if (recordIDs != null && recordIDs.isEmpty()) {
+            // Пустой запрос не находит ни одного документа
+            query.add(new BooleanQuery(), BooleanClause.Occur.MUST);
+        } else if (recordIDs != null) {
+            // Ограничение по записям не участвует в оценке и не ограничено максимальным количеством условий запроса
+            List<Term> recordTerms = Lists.newArrayListWithExpectedSize(recordIDs.size());
+            for (String recordId : recordIDs) {
+                recordTerms.add(createKey(dictionaryId, recordId));
+            }
+            query.add(new ConstantScoreQuery(new TermsFilter(recordTerms)), BooleanClause.Occur.MUST);
+        }
+        if (StringUtils.hasText(search)) {
+            for (String word : Sets.newLinkedHashSet(Arrays.asList(SPACE_PATTERN.split(search)))) {
+                if (StringUtils.hasText(word)) {
+                    query.add(new PrefixQuery(valueToTerm(LuceneBinderTransformer.DEFAULT_SEARCH_FIELD, word)), BooleanClause.Occur.MUST);
+                }
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Формирует сортировку записей справочника
+     *
+     * @param metaFields коллекция МЕТА-полей справочника
+     * @param criteria критерий поиска
+     * @return Возвращает сформированную сортировку
+     */
+    private static Sort createSort(Collection<MetaField> metaFields, FilterCriteria criteria) {
+        SortField recordSort = new SortField(ID, SortField.Type.STRING);
+        if (StringUtils.hasText(criteria.getSortOrderKey()) && !SortOrder.UNSORTED.equals(criteria.getSortOrderValue())) {
+            return new Sort(
+                    new SortField(createSortFieldName(criteria.getSortOrderKey()), SortField.Type.STRING, SortOrder.DESCENDING.equals(criteria.getSortOrderValue())),
+                    recordSort
+            );
+        } else {
+            MetaField primaryMetaField = retrievePrimaryMetaField(metaFields);
+            return (primaryMetaField != null) ?
+                    new Sort(new SortField(createSortFieldName(primaryMetaField.getName()), SortField.Type.STRING), recordSort) :
+                    new Sort(recordSort);
+        }
+    }
+
+    @Override
+    public FilterResult<String> findRecordIDs(Collection<MetaField> metaFields, FilterCriteria criteria, Collection<String> recordIDs) {
+        String dictionaryId = metaFields.iterator().next().getDictionaryId();
+        try {
+            actualizeDictionary(retrieveState(dictionaryId), metaFields);
+            Query query = createQuery(dictionaryId, criteria.getSearch(), recordIDs);
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                int offset = Math.max(criteria.getOffset(), 0);
+                int count = Math.max(criteria.getCount(), 0);
+                // Очередь коллектора ограничена количеством документов индекса
+                int numHits = (int) Math.max(Math.min((long) offset + count, searcher.getIndexReader().maxDoc()), 1);
+                TopFieldCollector collector = TopFieldCollector.create(createSort(metaFields, criteria), numHits, false, false, false, false);
+                searcher.search(query, collector);
+                ScoreDoc[] scoreDocs = collector.topDocs(offset, count).scoreDocs;
+                List<String> result = Lists.newArrayListWithExpectedSize(scoreDocs.length);
+                for (ScoreDoc scoreDoc : scoreDocs) {
+                    result.add(searcher.doc(scoreDoc.doc).get(ID));
+                }
+                return new FilterResult<>(result, collector.getTotalHits(), collector.getTotalHits());
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format("Can't find records of dictionary '%s'. Cause by: %s", dictionaryId, ex.getMessage()), ex);
+        }
+    }
+
+    @Override
+    public List<String> findNextRecordIDs(Collection<MetaField> metaFields, String search, Collection<String> recordIDs, String afterRecordId, int count) {
+        String dictionaryId = metaFields.iterator().next().getDictionaryId();
+        try {
+            actualizeDictionary(retrieveState(dictionaryId), metaFields);
+            BooleanQuery query = createQuery(dictionaryId, search, recordIDs);
+            // Порция начинается после последней записи предыдущей порции, поэтому изменения индекса между порциями не сдвигают обход
+            if (afterRecordId != null) {
+                query.add(TermRangeQuery.newStringRange(ID, afterRecordId, null, false, false), BooleanClause.Occur.MUST);
+            }
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                int numHits = Math.max(Math.min(count, searcher.getIndexReader().maxDoc()), 1);
+                ScoreDoc[] scoreDocs = searcher.search(query, null, numHits, new Sort(new SortField(ID, SortField.Type.STRING))).scoreDocs;
+                List<String> result = Lists.newArrayListWithExpectedSize(scoreDocs.length);
+                for (ScoreDoc scoreDoc : scoreDocs) {
+                    result.add(searcher.doc(scoreDoc.doc).get(ID));
+                }
+                return result;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(String.format("Can't iterate records of dictionary '%s'. Cause by: %s", dictionaryId, ex.getMessage()), ex);
+        }
+    }
+
+    @Override
+    public void invalidate(Collection<String> dictionaryIDs) {
+        Collection<String> targetIDs = (dictionaryIDs != null) ? dictionaryIDs : Lists.newArrayList(dictionaries.keySet());
+        for (String dictionaryId : targetIDs) {
+            DictionaryState state = dictionaries.get(dictionaryId);
+            if (state != null) {
+                synchronized (state) {
+                    try {
+                        resetState(state);
+                    } catch (IOException ex) {
+                        throw new RuntimeException(String.format("Can't invalidate records of dictionary '%s'. Cause by: %s", dictionaryId, ex.getMessage()), ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Выполняет удаление записей закрытых справочников
+     *
+     * @param dictionaryIDs коллекция идентификаторов справочников
+     */
+    private void deleteDictionaries(Collection<String> dictionaryIDs) {
+        for (String dictionaryId : dictionaryIDs) {
+            DictionaryState state = dictionaries.remove(dictionaryId);
+            if (state != null) {
+                synchronized (state) {
+                    try {
+                        resetState(state);
+                        writer.deleteDocuments(new Term(DICTIONARY_ID, dictionaryId));
+                    } catch (IOException ex) {
+                        throw new RuntimeException(String.format("Can't delete records of dictionary '%s'. Cause by: %s", dictionaryId, ex.getMessage()), ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Регистрирует созданные МЕТА-поля в состоянии проиндексированных справочников,
+     * чтобы значения новых МЕТА-полей обновлялись без построения индекса справочника заново
+     *
+     * @param metaFields коллекция созданных МЕТА-полей
+     */
+    private void registerCreatedMetaFields(Collection<MetaField> metaFields) {
+        for (MetaField metaField : metaFields) {
+            DictionaryState state = dictionaries.get(metaField.getDictionaryId());
+            if (state == null) {
+                continue;
+            }
+            synchronized (state) {
+                if (state.isBuilt() && !state.metaFields.containsKey(metaField.getId())) {
+                    Map<String, String> names = new HashMap<>(state.metaFields);
+                    names.put(metaField.getId(), metaField.getName());
+                    try {
+                        registerMetaFields(state, names);
+                    } catch (IOException ex) {
+                        throw new RuntimeException(String.format("Can't register meta field '%s' in record index. Cause by: %s", metaField.getId(), ex.getMessage()), ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Отмечает записи справочников как измененные
+     *
+     * @param changedRecords коллекция идентификаторов записей, где ключ - идентификатор справочника
+     */
+    private void markChanged(Map<String, Set<String>> changedRecords) {
+        for (Map.Entry<String, Set<String>> entry : changedRecords.entrySet()) {
+            DictionaryState state = dictionaries.get(entry.getKey());
+            if (state != null && state.isBuilt()) {
+                state.changedRecords.addAll(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Определяет записи, которые затрагивает событие изменения значений полей или записей
+     *
+     * @param event событие изменения
+     * @return Возвращает коллекцию идентификаторов записей, где ключ - идентификатор справочника
+     */
+    private Map<String, Set<String>> findChangedRecords(ChangeEvent event) {
+        Map<String, Set<String>> result = new HashMap<>();
+        if (Field.class.equals(event.getChangedClass())) {
+            for (Field field : event.getChanged(Field.class)) {
+                String dictionaryId = metaField2dictionary.get(field.getMetaFieldId());
+                if (dictionaryId != null) {
+                    appendChangedRecord(result, dictionaryId, field.getName());
+                }
+            }
+        } else if (Record.class.equals(event.getChangedClass())) {
+            for (Record record : event.getChanged(Record.class)) {
+                appendChangedRecord(result, record.getDictionaryId(), record.getId());
+            }
+        }
+        return result;
+    }
+
+    private static void appendChangedRecord(Map<String, Set<String>> result, String dictionaryId, String recordId) {
+        Set<String> recordIDs = result.get(dictionaryId);
+        if (recordIDs == null) {
+            recordIDs = new HashSet<>();
+            result.put(dictionaryId, recordIDs);
+        }
+        recordIDs.add(recordId);
+    }
+
+    /**
+     * Выполняет обработку события изменения МЕТА-полей или справочников
+     *
+     * @param event событие изменения
+     */
+    private void handleStructureEvent(ChangeEvent event) {
+        if (MetaField.class.equals(event.getChangedClass())) {
+            // Переименование и закрытие МЕТА-полей определяются при сравнении состояния перед поиском
+            if (ChangeType.CREATE.equals(event.getChangeType()) || ChangeType.RESTORE.equals(event.getChangeType())) {
+                registerCreatedMetaFields(event.getChanged(MetaField.class));
+            }
+        } else if (Dictionary.class.equals(event.getChangedClass()) && ChangeType.CLOSE.equals(event.getChangeType())) {
+            deleteDictionaries(collectIDs(event.getChanged(Dictionary.class)));
+        }
+    }
+
+    /**
+     * Выполняет обработку события изменения значений полей или записей: записи отмечаются измененными в момент события,
+     * чтобы поиск до фиксации транзакции их перечитал, и обновляются в индексе после ее фиксации
+     *
+     * @param event событие изменения
+     */
+    private void handleChangeEvent(ChangeEvent event) {
+        handleStructureEvent(event);
+        final Map<String, Set<String>> changedRecords = findChangedRecords(event);
+        if (changedRecords.isEmpty()) {
+            return;
+        }
+        markChanged(changedRecords);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    markChanged(changedRecords);
+                    if (status == STATUS_COMMITTED) {
+                        applyChanges(changedRecords.keySet());
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ContextEvent && ((ContextEvent) event).registryListener(serviceId)) {
+            // Событие перестроения индекса, в результате которого изменились значения полей или структура справочников
+            if (event instanceof IndexRebuildedEvent) {
+                IndexRebuildedEvent rebuildedEvent = (IndexRebuildedEvent) event;
+                Class<?> targetClass = rebuildedEvent.getTargetClass();
+                if (rebuildedEvent.isModified() &&
+                        (Field.class.equals(targetClass) || MetaField.class.equals(targetClass) || Dictionary.class.equals(targetClass))) {
+                    invalidate(null);
+                }
+            }
+            // Событие изменения документов
+            if (event instanceof ChangeEvent) {
+                ChangeEvent changeEvent = (ChangeEvent) event;
+                if (!ChangeType.IGNORE.equals(changeEvent.getChangeType()) && !ChangeType.SKIP.equals(changeEvent.getChangeType())) {
+                    handleChangeEvent(changeEvent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Загружает состояние справочников, сохраненное в индексе
+     */
+    private void loadStates() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            final List<Integer> stateDocs = Lists.newArrayList();
+            searcher.search(new PrefixQuery(new Term(STATE_DICTIONARY_ID, "")), new Collector() {
+
+                private int docBase;
+
+                @Override
+                public void setScorer(Scorer scorer) {
+                    // scores are not used
+                }
+
+                @Override
+                public void collect(int doc) {
+                    stateDocs.add(docBase + doc);
+                }
+
+                @Override
+                public void setNextReader(AtomicReaderContext context) {
+                    docBase = context.docBase;
+                }
+
+                @Override
+                public boolean acceptsDocsOutOfOrder() {
+                    return true;
+                }
+            });
+            for (Integer stateDoc : stateDocs) {
+                Document document = searcher.doc(stateDoc);
+                String[] metaFieldIDs = document.getValues(STATE_META_FIELD_ID);
+                String[] metaFieldNames = document.getValues(STATE_META_FIELD_NAME);
+                Map<String, String> names = new HashMap<>();
+                for (int i = 0; i < metaFieldIDs.length; i++) {
+                    names.put(metaFieldIDs[i], metaFieldNames[i]);
+                }
+                DictionaryState state = retrieveState(document.get(STATE_DICTIONARY_ID));
+                for (String metaFieldId : names.keySet()) {
+                    metaField2dictionary.put(metaFieldId, state.dictionaryId);
+                }
+                state.metaFields = names;
+            }
+            LOG.debug(String.format("Record index state loaded for %d dictionaries", stateDocs.size()));
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        directory = luceneDirectoryFactory.retrieveDirectory(INDEX_NAME);
+        writer = new IndexWriter(directory, indexWriterConfig.clone());
+        // Индекс предыдущего запуска используется только после штатной остановки, иначе в нем могут отсутствовать изменения записей
+        Map<String, String> commitData = writer.getCommitData();
+        if (commitData == null || !Boolean.parseBoolean(commitData.get(CLEAN_SHUTDOWN))) {
+            writer.deleteAll();
+        }
+        writer.setCommitData(ImmutableMap.of(CLEAN_SHUTDOWN, Boolean.FALSE.toString()));
+        writer.commit();
+        searcherManager = new SearcherManager(writer, true, null);
+        loadStates();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        try {
+            // Применяем отложенные изменения, чтобы сохраненный индекс соответствовал хранилищу
+            applyChanges(Lists.newArrayList(dictionaries.keySet()));
+            boolean clean = true;
+            for (DictionaryState state : dictionaries.values()) {
+                clean &= state.changedRecords.isEmpty();
+            }
+            writer.setCommitData(ImmutableMap.of(CLEAN_SHUTDOWN, Boolean.toString(clean)));
+            writer.commit();
+        } finally {
+            IOUtils.closeQuietly(searcherManager);
+            IOUtils.closeQuietly(writer);
+            IOUtils.closeQuietly(directory);
+        }
+    }
+
+    /**
+     * Класс <class>DictionaryState</class> содержит состояние индекса записей справочника
+     *
+     * @author Nazin Alexander
+     */
+    private static class DictionaryState {
+
+        /** Идентификатор справочника */
+        private final String dictionaryId;
+        /** Названия МЕТА-полей, по которым построен индекс, где ключ - идентификатор МЕТА-поля, или <code>NULL</code>, если индекс не построен */
+        private volatile Map<String, String> metaFields;
+        /** Идентификаторы измененных записей */
+        private final Set<String> changedRecords;
+
+        private DictionaryState(String dictionaryId) {
+            this.dictionaryId = dictionaryId;
+            this.changedRecords = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        }
+
+        /**
+         * @return Возвращает <code>TRUE</code>, если индекс записей справочника построен
+         */
+        private boolean isBuilt() {
+            return metaFields != null;
+        }
+
+        /**
+         * @return Возвращает и очищает идентификаторы измененных записей
+         */
+        private Set<String> drainChanged() {
+            Set<String> result = Sets.newHashSet();
+            for (Iterator<String> iterator = changedRecords.iterator(); iterator.hasNext(); ) {
+                result.add(iterator.next());
+                iterator.remove();
+            }
+            return result;
+        }
+    }
+}
@@ -16,12 +16,18 @@ import ru.hflabs.rcd.model.Comparators;
 import ru.hflabs.rcd.model.change.ChangeMode;
 import ru.hflabs.rcd.model.change.ChangeSet;
 import ru.hflabs.rcd.model.change.ChangeType;
+import ru.hflabs.rcd.model.criteria.FilterActivity;
 import ru.hflabs.rcd.model.criteria.FilterCriteria;
 import ru.hflabs.rcd.model.criteria.FilterCriteriaValue;
 import ru.hflabs.rcd.model.criteria.FilterResult;
 import ru.hflabs.rcd.model.document.Field;
 import ru.hflabs.rcd.model.document.MetaField;
 import ru.hflabs.rcd.model.document.Record;
+import ru.hflabs.rcd.model.document.RecordColumns;
+import ru.hflabs.rcd.service.ICloseableIterator;
+import ru.hflabs.rcd.service.IFieldCountService;
+import ru.hflabs.rcd.service.IRecordCacheService;
+import ru.hflabs.rcd.service.IRecordIndexService;
 import ru.hflabs.rcd.service.IValidateService;
 import ru.hflabs.rcd.service.document.IFieldService;
 import ru.hflabs.rcd.service.document.IMetaFieldService;
@@ -50,6 +56,12 @@ public class RecordService implements IRecordService, ApplicationEventPublisherA
     private IMetaFieldService metaFieldService;
     /** Сервис работы с значениями полей записи */
     private IFieldService fieldService;
+    /** Сервис счетчиков значений полей */
+    private IFieldCountService fieldCountService;
+    /** Сервис поиска по индексу записей */
+    private IRecordIndexService recordIndexService;
+    /** Кэш поколоночного представления записей */
+    private IRecordCacheService recordCacheService;
     /** Сервис валидации модификации записей */
     private IValidateService<Record> changeValidator;
     /** Валидатор закрытия записей */
@@ -73,6 +85,18 @@ public class RecordService implements IRecordService, ApplicationEventPublisherA
         this.fieldService = fieldService;
     }
 
+    public void setFieldCountService(IFieldCountService fieldCountService) {
+        this.fieldCountService = fieldCountService;
+    }
+
+    public void setRecordIndexService(IRecordIndexService recordIndexService) {
+        this.recordIndexService = recordIndexService;
+    }
+
+    public void setRecordCacheService(IRecordCacheService recordCacheService) {
+        this.recordCacheService = recordCacheService;
+    }
+
     public void setChangeValidator(IValidateService<Record> changeValidator) {
         this.changeValidator = changeValidator;
     }
@@ -96,13 +120,23 @@ public class RecordService implements IRecordService, ApplicationEventPublisherA
             return new FilterResult<>(Collections.<Record>emptyList(), 0, 0);
         }
         final MetaField primaryMetaField = retrievePrimaryMetaField(metaFields);
-        // Запоминаем количество МЕТА-полей, для рассчета количества результирующих записей
-        final int metaFieldsCount = metaFields.size();
+        // Если справочник кэшируется, то формируем записи по его поколоночному представлению
+        if (!fillTransitive && isRecordCacheApplicable(recordCriteria)) {
+            RecordColumns columns = recordCacheService.retrieveColumns(metaFields);
+            if (columns != null) {
+                return doFindRecordsByColumns(columns, primaryMetaField, recordCriteria);
+            }
+        }
         // Формируем карту фильтров
         ImmutableMap.Builder<String, FilterCriteriaValue<?>> resultCriteriaFilter = ImmutableMap.<String, FilterCriteriaValue<?>>builder()
                 .put(Field.META_FIELD_ID, new FilterCriteriaValue.StringsValue(Collections2.transform(metaFields, ID_FUNCTION)));
         // Получаем общее количество записей для справочника
-        final int totalRecordsCount = fieldService.countByCriteria(new FilterCriteria().injectFilters(resultCriteriaFilter.build())) / metaFieldsCount;
+        final int totalRecordsCount = fieldCountService.countRecords(metaFields);
+
+        // Если запрашивается страница записей без фильтров, то выполняем поиск по индексу записей
+        if (CollectionUtils.isEmpty(recordCriteria.getFilters()) && isRecordIndexApplicable(recordCriteria, totalRecordsCount)) {
+            return doFindRecordsByIndex(metaFields, primaryMetaField, recordCriteria, null, totalRecordsCount, fillTransitive);
+        }
 
         // Если исходный критерий заполнен, то выполняем поиск полей, которые ему удовлетворяют
         if (StringUtils.hasText(recordCriteria.getSearch()) || !CollectionUtils.isEmpty(recordCriteria.getFilters())) {
@@ -121,6 +155,14 @@ public class RecordService implements IRecordService, ApplicationEventPublisherA
             // Если по заданным критериям найдены значения полей, то добавляем идентификаторы их первичных полей в карту фильтрации
             if (!fields.isEmpty()) {
                 Set<String> fieldNames = Sets.newHashSet(Collections2.transform(fields, NAME_FUNCTION));
+                // Если запрашивается страница найденных записей, то выполняем ее выделение по индексу записей
+                if (isRecordIndexApplicable(recordCriteria, fieldNames.size())) {
+                    FilterCriteria pageCriteria = new FilterCriteria()
+                            .injectSort(recordCriteria.getSortOrderKey(), recordCriteria.getSortOrderValue())
+                            .injectOffset(recordCriteria.getOffset())
+                            .injectCount(recordCriteria.getCount());
+                    return doFindRecordsByIndex(metaFields, primaryMetaField, pageCriteria, fieldNames, totalRecordsCount, fillTransitive);
+                }
                 resultCriteriaFilter.put(Field.NAME, new FilterCriteriaValue.StringsValue(fieldNames, Condition.OR));
             } else {
                 return new FilterResult<>(Collections.<Record>emptyList(), 0, totalRecordsCount);
@@ -163,6 +205,119 @@ public class RecordService implements IRecordService, ApplicationEventPublisherA
         );
     }
 
+    /**
+     * Проверяет возможность поиска записей по кэшу поколоночного представления
+     *
+     * @param recordCriteria критерий поиска
+     * @return Возвращает <code>TRUE</code>, если критерий не содержит поиска и фильтров, отличных от фильтра по идентификаторам записей
+     */
+    private boolean isRecordCacheApplicable(FilterCriteria recordCriteria) {
+        if (recordCacheService == null ||
+                !FilterActivity.ACTUAL.equals(recordCriteria.getActivity()) ||
+                StringUtils.hasText(recordCriteria.getSearch())) {
+            return false;
+        }
+        Map<String, FilterCriteriaValue<?>> filters = recordCriteria.getFilters();
+        return CollectionUtils.isEmpty(filters) ||
+                (filters.size() == 1 && filters.get(Field.NAME) instanceof FilterCriteriaValue.StringsValue);
+    }
+
+    /**
+     * Выполняет поиск записей справочника по его поколоночному представлению
+     *
+     * @param columns поколоночное представление записей
+     * @param primaryMetaField первичное МЕТА-поле
+     * @param recordCriteria критерий поиска
+     * @return Возвращает результат фильтрации
+     */
+    private FilterResult<Record> doFindRecordsByColumns(RecordColumns columns, MetaField primaryMetaField, FilterCriteria recordCriteria) {
+        FilterCriteriaValue<?> namesFilter = !CollectionUtils.isEmpty(recordCriteria.getFilters()) ? recordCriteria.getFilters().get(Field.NAME) : null;
+        int[] rows = columns.findRows(namesFilter != null ? ((FilterCriteriaValue.StringsValue) namesFilter).getValue() : null);
+        // Выполняем сортировку записей
+        if (StringUtils.hasText(recordCriteria.getSortOrderKey()) && !SortOrder.UNSORTED.equals(recordCriteria.getSortOrderValue())) {
+            columns.sortRows(rows, recordCriteria.getSortOrderKey(), !SortOrder.ASCENDING.equals(recordCriteria.getSortOrderValue()));
+        } else {
+            columns.sortRows(rows, primaryMetaField.getName(), false);
+        }
+        // Выполняем выделение страницы
+        int from = (int) Math.min(Math.max(recordCriteria.getOffset(), 0), rows.length);
+        int to = recordCriteria.getCount() == FilterCriteria.COUNT_ALL ?
+                rows.length :
+                (int) Math.min((long) from + Math.max(recordCriteria.getCount(), 0), rows.length);
+        List<Record> result = Lists.newArrayListWithExpectedSize(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(columns.createRecord(rows[i]));
+        }
+        return new FilterResult<>(result, rows.length, columns.size());
+    }
+
+    /**
+     * Проверяет возможность поиска записей по индексу записей
+     *
+     * @param recordCriteria критерий поиска
+     * @param matchedRecordsCount количество записей, из которых выделяется страница
+     * @return Возвращает <code>TRUE</code>, если критерий запрашивает только часть записей
+     */
+    private boolean isRecordIndexApplicable(FilterCriteria recordCriteria, int matchedRecordsCount) {
+        return recordIndexService != null &&
+                FilterActivity.ACTUAL.equals(recordCriteria.getActivity()) &&
+                recordCriteria.getCount() != FilterCriteria.COUNT_ALL &&
+                (recordCriteria.getOffset() > 0 || recordCriteria.getCount() < matchedRecordsCount);
+    }
+
+    /**
+     * Выполняет поиск записей справочника по индексу записей, загружая значения полей только для записей результирующей страницы
+     *
+     * @param metaFields коллекция МЕТА-полей справочника
+     * @param primaryMetaField первичное МЕТА-поле
+     * @param recordCriteria критерий поиска
+     * @param matchedRecordIDs идентификаторы записей, найденных по фильтрам, или <code>NULL</code>, если фильтры не заданы
+     * @param totalRecordsCount общее количество записей справочника
+     * @param fillTransitive флаг необходимости заполнения транзитивных зависимостей
+     * @return Возвращает результат фильтрации
+     */
+    private FilterResult<Record> doFindRecordsByIndex(Collection<MetaField> metaFields, MetaField primaryMetaField, FilterCriteria recordCriteria, Collection<String> matchedRecordIDs, int totalRecordsCount, boolean fillTransitive) {
+        FilterResult<String> recordIDs = recordIndexService.findRecordIDs(metaFields, recordCriteria, matchedRecordIDs);
+        if (recordIDs.getResult().isEmpty()) {
+            return new FilterResult<>(Collections.<Record>emptyList(), recordIDs.getCountByFilter(), totalRecordsCount);
+        }
+        List<Record> result = doFindRecordsByIDs(metaFields, primaryMetaField, recordIDs.getResult(), fillTransitive);
+        return new FilterResult<>(result, recordIDs.getCountByFilter(), totalRecordsCount);
+    }
+
+    /**
+     * Формирует записи справочника по их идентификаторам
+     *
+     * @param metaFields коллекция МЕТА-полей справочника
+     * @param primaryMetaField первичное МЕТА-поле
+     * @param recordIDs упорядоченные идентификаторы записей
+     * @param fillTransitive флаг необходимости заполнения транзитивных зависимостей
+     * @return Возвращает записи в порядке их идентификаторов
+     */
+    private List<Record> doFindRecordsByIDs(Collection<MetaField> metaFields, MetaField primaryMetaField, List<String> recordIDs, boolean fillTransitive) {
+        // Получаем значения полей записей
+        Collection<Field> fields = fieldService.findAllByCriteria(
+                new FilterCriteria().injectFilters(ImmutableMap.<String, FilterCriteriaValue<?>>of(
+                        Field.META_FIELD_ID, new FilterCriteriaValue.StringsValue(Collections2.transform(metaFields, ID_FUNCTION)),
+                        Field.NAME, new FilterCriteriaValue.StringsValue(recordIDs, Condition.OR)
+                )),
+                fillTransitive
+        );
+        // Формируем записи в порядке идентификаторов
+        Map<String, Record> id2record = Maps.newHashMap();
+        for (Record record : createRecords(metaFields, fields)) {
+            id2record.put(record.getId(), record);
+        }
+        List<Record> result = Lists.newArrayListWithExpectedSize(recordIDs.size());
+        for (String recordId : recordIDs) {
+            Record record = id2record.get(recordId);
+            if (record != null) {
+                result.add(fillTransitive ? record.injectDictionary(primaryMetaField.getRelative()) : record);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Record findByID(String dictionaryId, String id, boolean fillTransitive, boolean quietly) {
         Assert.isTrue(StringUtils.hasText(id), "ID must not be NULL or EMPTY");
@@ -194,6 +349,41 @@ public class RecordService implements IRecordService, ApplicationEventPublisherA
         return findRecordsByCriteria(dictionaryId, new FilterCriteria().injectCount(FilterCriteria.COUNT_ALL), fillTransitive).getResult();
     }
 
+    @Override
+    public int countRecords(String dictionaryId) {
+        Assert.isTrue(StringUtils.hasText(dictionaryId), "Dictionary ID must not be NULL or EMPTY");
+        return fieldCountService.countRecords(metaFieldService.findAllByRelativeId(dictionaryId, null, false));
+    }
+
+    @Override
+    public Map<String, Integer> countRecords(Collection<String> dictionaryIDs) {
+        if (CollectionUtils.isEmpty(dictionaryIDs)) {
+            return Collections.emptyMap();
+        }
+        // МЕТА-поля всех справочников получаем одним запросом
+        Map<String, Collection<MetaField>> dictionary2metaFields = Multimaps.index(
+                metaFieldService.findAllByCriteria(createCriteriaByIDs(MetaField.DICTIONARY_ID, dictionaryIDs), false),
+                RELATIVE_ID_FUNCTION
+        ).asMap();
+        // Количество значений полей всех МЕТА-полей получаем одним запросом, сгруппированным по МЕТА-полям
+        Map<String, Integer> metaField2count = fieldCountService.countFields(
+                Sets.newHashSet(Collections2.transform(Iterables.concat(dictionary2metaFields.values()), ID_FUNCTION))
+        );
+        Map<String, Integer> result = Maps.newHashMapWithExpectedSize(dictionaryIDs.size());
+        for (String dictionaryId : dictionaryIDs) {
+            Collection<MetaField> metaFields = dictionary2metaFields.get(dictionaryId);
+            int fieldsCount = 0;
+            if (!CollectionUtils.isEmpty(metaFields)) {
+                for (MetaField metaField : metaFields) {
+                    fieldsCount += metaField2count.get(metaField.getId());
+                }
+                fieldsCount /= metaFields.size();
+            }
+            result.put(dictionaryId, fieldsCount);
+        }
+        return result;
+    }
+
     @Override
     public FilterResult<Record> findRecordsByCriteria(String dictionaryId, FilterCriteria criteria, boolean fillTransitive) {
         Assert.isTrue(StringUtils.hasText(dictionaryId), "Dictionary ID must not be NULL or EMPTY");
@@ -201,6 +391,47 @@ public class RecordService implements IRecordService, ApplicationEventPublisherA
         return doFindRecordsByCriteria(metaFields, criteria, fillTransitive);
     }
 
+    @Override
+    public ICloseableIterator<Record> iterateRecords(String dictionaryId, FilterCriteria criteria, int batchSize) {
+        Assert.isTrue(StringUtils.hasText(dictionaryId), "Dictionary ID must not be NULL or EMPTY");
+        Assert.notNull(criteria, "Filter criteria must not be NULL");
+        Assert.isTrue(batchSize > 0, "Batch size must be positive");
+        Assert.isTrue(FilterActivity.ACTUAL.equals(criteria.getActivity()), "Only actual records can be iterated");
+        Collection<MetaField> metaFields = metaFieldService.findAllByRelativeId(dictionaryId, null, true);
+        if (CollectionUtils.isEmpty(metaFields)) {
+            return new RecordIterator(metaFields, null, null, Collections.<String>emptySet(), batchSize);
+        }
+        // Если заданы фильтры, то обход выполняется только по записям, значения полей которых им удовлетворяют
+        if (!CollectionUtils.isEmpty(criteria.getFilters())) {
+            Collection<Field> fields = fieldService.findAllByCriteria(
+                    new FilterCriteria()
+                            .injectSearch(criteria.getSearch())
+                            .injectFilters(ImmutableMap.<String, FilterCriteriaValue<?>>builder()
+                                    .put(Field.META_FIELD_ID, new FilterCriteriaValue.StringsValue(Collections2.transform(metaFields, ID_FUNCTION)))
+                                    .putAll(criteria.getFilters())
+                                    .build()),
+                    false
+            );
+            Set<String> fieldNames = Sets.newHashSet(Collections2.transform(fields, NAME_FUNCTION));
+            return new RecordIterator(metaFields, retrievePrimaryMetaField(metaFields), null, fieldNames, batchSize);
+        }
+        return new RecordIterator(metaFields, retrievePrimaryMetaField(metaFields), criteria.getSearch(), null, batchSize);
+    }
+
+    @Override
+    public List<Record> findNextRecords(String dictionaryId, String afterRecordId, int count) {
+        Assert.isTrue(StringUtils.hasText(dictionaryId), "Dictionary ID must not be NULL or EMPTY");
+        Assert.isTrue(count > 0, "Count must be positive");
+        Collection<MetaField> metaFields = metaFieldService.findAllByRelativeId(dictionaryId, null, true);
+        if (CollectionUtils.isEmpty(metaFields)) {
+            return Collections.emptyList();
+        }
+        List<String> ids = recordIndexService.findNextRecordIDs(metaFields, null, null, afterRecordId, count);
+        return ids.isEmpty() ?
+                Collections.<Record>emptyList() :
+                doFindRecordsByIDs(metaFields, retrievePrimaryMetaField(metaFields), ids, false);
+    }
+
     /**
      * Выполняет построение дескриптор изменений записей
      *
@@ -211,10 +442,7 @@ public class RecordService implements IRecordService, ApplicationEventPublisherA
      */
     private ChangeSet<Record> buildChangeSet(ChangeType changeType, Collection<Record> records, IValidateService<Record> validatorService) {
         ChangeSet<Record> changeSet = new ChangeSet<>(retrieveTargetClass(), changeType, ChangeMode.DEFAULT);
-        for (Record record : records) {
-            record = (validatorService != null) ? validatorService.validate(record) : record;
-            changeSet.appendChange(record);
-        }
+        changeSet.appendChanges((validatorService != null) ? validatorService.validateAll(records) : records);
         return changeSet;
     }
 
@@ -276,4 +504,81 @@ public class RecordService implements IRecordService, ApplicationEventPublisherA
         // Выполняем закрытие записей
         close(records, true);
     }
+
+    /**
+     * Класс <class>RecordIterator</class> реализует обход записей справочника порциями в порядке их идентификаторов.<br/>
+     * Каждая порция определяется по индексу записей начиная с идентификатора, следующего за последней записью предыдущей порции,
+     * поэтому в памяти одновременно находятся только записи текущей порции.
+     *
+     * @author Nazin Alexander
+     */
+    private class RecordIterator implements ICloseableIterator<Record> {
+
+        /** МЕТА-поля справочника */
+        private final Collection<MetaField> metaFields;
+        /** Первичное МЕТА-поле */
+        private final MetaField primaryMetaField;
+        /** Строка поиска */
+        private final String search;
+        /** Идентификаторы записей, по которым выполняется обход, или <code>NULL</code>, если обход выполняется по всем записям */
+        private final Collection<String> recordIDs;
+        /** Размер порции */
+        private final int batchSize;
+
+        /** Записи текущей порции */
+        private Iterator<Record> batch;
+        /** Идентификатор последней записи текущей порции */
+        private String lastRecordId;
+        /** Флаг завершения обхода */
+        private boolean exhausted;
+
+        private RecordIterator(Collection<MetaField> metaFields, MetaField primaryMetaField, String search, Collection<String> recordIDs, int batchSize) {
+            this.metaFields = metaFields;
+            this.primaryMetaField = primaryMetaField;
+            this.search = search;
+            this.recordIDs = recordIDs;
+            this.batchSize = batchSize;
+            this.batch = Collections.emptyIterator();
+            this.exhausted = CollectionUtils.isEmpty(metaFields) || (recordIDs != null && recordIDs.isEmpty());
+        }
+
+        /**
+         * Выполняет загрузку следующей порции записей
+         */
+        private void loadNextBatch() {
+            List<String> ids = recordIndexService.findNextRecordIDs(metaFields, search, recordIDs, lastRecordId, batchSize);
+            exhausted = ids.size() < batchSize;
+            if (!ids.isEmpty()) {
+                lastRecordId = ids.get(ids.size() - 1);
+                batch = doFindRecordsByIDs(metaFields, primaryMetaField, ids, false).iterator();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!batch.hasNext() && !exhausted) {
+                loadNextBatch();
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Remove not supported");
+        }
+
+        @Override
+        public void close() {
+            exhausted = true;
+            batch = Collections.emptyIterator();
+        }
+    }
 }
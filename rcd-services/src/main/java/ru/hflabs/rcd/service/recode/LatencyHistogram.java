@@ -0,0 +1,110 @@
+package ru.hflabs.rcd.service.recode;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс <class>LatencyHistogram</class> реализует гистограмму времени выполнения с логарифмически-линейными интервалами.<br/>
+ * Каждая степень двойки делится на {@value #SUB_BUCKET_COUNT} равных интервалов, что дает относительную точность не хуже 12.5%
+ * при фиксированном объеме памяти и регистрации значения без блокировок.
+ *
+ * @author Nazin Alexander
+ */
+class LatencyHistogram {
+
+    /** Количество бит, определяющих интервал внутри степени двойки */
+    private static final int SUB_BUCKET_BITS = 3;
+    /** Количество интервалов внутри степени двойки */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /** Общее количество интервалов */
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    /** Счетчики интервалов */
+    private final AtomicLongArray buckets;
+    /** Максимальное зарегистрированное значение */
+    private final AtomicLong max;
+
+    LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.max = new AtomicLong(0);
+    }
+
+    /**
+     * @param value неотрицательное значение
+     * @return Возвращает индекс интервала значения
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @param index индекс интервала
+     * @return Возвращает нижнюю границу интервала
+     */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        if (exponent >= Long.SIZE - 1) {
+            return Long.MAX_VALUE;
+        }
+        long subBucket = index % SUB_BUCKET_COUNT;
+        return (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Регистрирует значение
+     *
+     * @param value значение
+     */
+    void record(long value) {
+        long target = Math.max(value, 0);
+        buckets.incrementAndGet(bucketIndex(target));
+        long current;
+        while (target > (current = max.get()) && !max.compareAndSet(current, target)) {
+            // повторяем, пока максимум не будет обновлен
+        }
+    }
+
+    /**
+     * @return Возвращает максимальное зарегистрированное значение
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Возвращает значения процентилей
+     *
+     * @param percentiles возрастающие процентили в диапазоне (0, 100]
+     * @return Возвращает верхние границы интервалов, содержащих процентили
+     */
+    long[] getPercentiles(double... percentiles) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long[] result = new long[percentiles.length];
+        if (total == 0) {
+            return result;
+        }
+        long accumulated = 0;
+        int bucket = 0;
+        for (int i = 0; i < percentiles.length; i++) {
+            long threshold = (long) Math.ceil(total * percentiles[i] / 100.0);
+            while (bucket < BUCKET_COUNT - 1 && accumulated + counts[bucket] < threshold) {
+                accumulated += counts[bucket++];
+            }
+            result[i] = Math.min(bucket + 1 < BUCKET_COUNT ? bucketLowerBound(bucket + 1) - 1 : Long.MAX_VALUE, getMax());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,249 @@
+package ru.hflabs.rcd.service.recode;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.util.Assert;
+import ru.hflabs.rcd.event.recode.RecodeEvent;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Класс <class>RecodeEventBuffer</class> реализует буфер публикации событий перекодировки.<br/>
+ * События перекодировки помещаются в ограниченный кольцевой буфер без блокировок и публикуются пакетами
+ * фоновым потоком, так что поток обработки запроса не выполняет обход слушателей контекста.
+ * Остальные события публикуются сразу.<br/>
+ * Счетчики буфера публикуются через JMX, а отброшенные с последней проверки события фиксируются в журнале.
+ *
+ * @author Nazin Alexander
+ * @see RecodeEvent
+ */
+public class RecodeEventBuffer implements ApplicationEventPublisher, ApplicationEventPublisherAware, InitializingBean, DisposableBean {
+
+    private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Политика обработки события при переполнении буфера
+     */
+    public static enum OverflowPolicy {
+        /** Событие отбрасывается */
+        DISCARD,
+        /** Событие публикуется в вызывающем потоке */
+        CALLER_RUNS
+    }
+
+    /** Сервис публикации событий */
+    private ApplicationEventPublisher eventPublisher;
+
+    /** Пул потоков */
+    private ScheduledExecutorService executorService;
+    /** Размер буфера */
+    private int capacity;
+    /** Максимальное количество событий, публикуемых за один проход */
+    private int batchSize;
+    /** Интервал публикации событий в миллисекундах */
+    private long interval;
+    /** Политика обработки переполнения */
+    private OverflowPolicy overflowPolicy;
+
+    /** Кольцевой буфер событий */
+    private AtomicReferenceArray<ApplicationEvent> events;
+    /** Позиция следующего публикуемого события */
+    private final AtomicLong head;
+    /** Позиция следующего добавляемого события */
+    private final AtomicLong tail;
+    /** Количество отброшенных событий */
+    private final AtomicLong droppedCount;
+    /** Количество опубликованных событий */
+    private final AtomicLong publishedCount;
+    /** Количество отброшенных событий, уже зафиксированных в журнале */
+    private long reportedDroppedCount;
+
+    public RecodeEventBuffer() {
+        this.head = new AtomicLong(0);
+        this.tail = new AtomicLong(0);
+        this.droppedCount = new AtomicLong(0);
+        this.publishedCount = new AtomicLong(0);
+        this.capacity = 65536;
+        this.batchSize = 1024;
+        this.interval = 100;
+        this.overflowPolicy = OverflowPolicy.DISCARD;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+        this.eventPublisher = applicationEventPublisher;
+    }
+
+    public void setExecutorService(ScheduledExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setInterval(long interval) {
+        this.interval = interval;
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * @return Возвращает количество событий, ожидающих публикации
+     */
+    public long getPendingCount() {
+        return tail.get() - head.get();
+    }
+
+    /**
+     * @return Возвращает количество событий, отброшенных при переполнении буфера
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return Возвращает количество опубликованных событий
+     */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * Добавляет событие в буфер
+     *
+     * @param event событие
+     * @return Возвращает <code>TRUE</code>, если событие добавлено, или <code>FALSE</code>, если буфер переполнен
+     */
+    private boolean offer(ApplicationEvent event) {
+        while (true) {
+            long position = tail.get();
+            if (position - head.get() >= capacity) {
+                return false;
+            }
+            if (tail.compareAndSet(position, position + 1)) {
+                events.lazySet((int) (position % capacity), event);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Выполняет публикацию события
+     *
+     * @param event событие
+     */
+    private void doPublishEvent(ApplicationEvent event) {
+        try {
+            eventPublisher.publishEvent(event);
+            publishedCount.incrementAndGet();
+        } catch (Exception ex) {
+            LOG.error(String.format("Can't publish recode event '%s'. Cause by: %s", event, ex.getMessage()), ex);
+        }
+    }
+
+    @Override
+    public void publishEvent(ApplicationEvent event) {
+        if (!(event instanceof RecodeEvent)) {
+            eventPublisher.publishEvent(event);
+        } else if (!offer(event)) {
+            if (OverflowPolicy.CALLER_RUNS.equals(overflowPolicy)) {
+                doPublishEvent(event);
+            } else {
+                droppedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Выполняет публикацию накопленных событий.<br/>
+     * Метод вызывается только из одного потока
+     *
+     * @param limit максимальное количество публикуемых событий
+     * @return Возвращает количество опубликованных событий
+     */
+    private int drain(int limit) {
+        int count = 0;
+        long position = head.get();
+        while (count < limit && position < tail.get()) {
+            int index = (int) (position % capacity);
+            ApplicationEvent event = events.get(index);
+            // Позиция занята, но событие еще не записано
+            if (event == null) {
+                break;
+            }
+            events.lazySet(index, null);
+            head.lazySet(++position);
+            doPublishEvent(event);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.isTrue(capacity > 0, "Buffer capacity must be positive");
+        Assert.isTrue(batchSize > 0, "Batch size must be positive");
+        this.events = new AtomicReferenceArray<>(capacity);
+        executorService.scheduleWithFixedDelay(new DrainEventsTask(), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executorService.shutdown();
+        // Публикация из текущего потока допустима только после завершения фонового потока, так как буфер разбирает один поток
+        if (executorService.awaitTermination(interval, TimeUnit.MILLISECONDS)) {
+            drain(Integer.MAX_VALUE);
+        } else {
+            executorService.shutdownNow();
+            LOG.warn(String.format("Recode event buffer publisher didn't stop in %d ms: %d pending events abandoned", interval, getPendingCount()));
+        }
+    }
+
+    /**
+     * Фиксирует в журнале события, отброшенные с последней проверки.<br/>
+     * Метод вызывается только из одного потока
+     */
+    private void reportDropped() {
+        long dropped = droppedCount.get();
+        if (dropped > reportedDroppedCount) {
+            LOG.warn(String.format("Recode event buffer overflowed: %d events dropped (%d total), %d pending",
+                    dropped - reportedDroppedCount, dropped, getPendingCount()));
+            reportedDroppedCount = dropped;
+        }
+    }
+
+    /**
+     * Класс <class>DrainEventsTask</class> реализует задачу переодической публикации накопленных событий
+     *
+     * @author Nazin Alexander
+     */
+    private class DrainEventsTask implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                while (drain(batchSize) == batchSize) {
+                    // публикуем пакеты, пока буфер не опустеет
+                }
+                reportDropped();
+            } catch (Exception ex) {
+                LOG.error(String.format("Can't drain recode events. Cause by: %s", ex.getMessage()), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ru.hflabs.rcd.service.recode;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import ru.hflabs.rcd.model.rule.RecodeMetrics;
+import ru.hflabs.rcd.service.IRecodeMetricsService;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс <class>RecodeMetricsService</class> реализует сервис сбора статистики перекодирования по наборам правил.<br/>
+ * Для каждого набора или цепочки наборов ведутся счетчики результатов перекодирования и гистограмма времени выполнения.
+ *
+ * @author Nazin Alexander
+ * @see RecodeMetrics
+ */
+public class RecodeMetricsService implements IRecodeMetricsService {
+
+    /** Название набора правил, под которым регистрируются перекодирования с неопределенным набором */
+    public static final String UNKNOWN_RULE_SET = "";
+    /** Сервис формирования названия цепочки наборов правил */
+    private static final Joiner CHAIN_NAME_JOINER = Joiner.on(RecodeService.CHAIN_NAME_SEPARATOR);
+
+    /** Статистика, где ключ - названия наборов правил */
+    private final ConcurrentMap<List<String>, RuleSetMetrics> metrics;
+
+    public RecodeMetricsService() {
+        this.metrics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param aliases названия наборов правил
+     * @return Возвращает статистику набора правил, создавая ее при необходимости
+     */
+    private RuleSetMetrics retrieveRuleSetMetrics(List<String> aliases) {
+        RuleSetMetrics result = metrics.get(aliases);
+        if (result == null) {
+            RuleSetMetrics created = new RuleSetMetrics();
+            result = metrics.putIfAbsent(ImmutableList.copyOf(aliases), created);
+            result = (result != null) ? result : created;
+        }
+        return result;
+    }
+
+    @Override
+    public void registerRecode(String ruleSetName, RecodeMetrics.Outcome outcome, long elapsedNanos) {
+        doRegisterRecode(Collections.singletonList(ruleSetName != null ? ruleSetName : UNKNOWN_RULE_SET), outcome, elapsedNanos);
+    }
+
+    @Override
+    public void registerChainRecode(List<String> aliases, RecodeMetrics.Outcome outcome, long elapsedNanos) {
+        doRegisterRecode(aliases, outcome, elapsedNanos);
+    }
+
+    /**
+     * Регистрирует результат перекодирования значения
+     *
+     * @param aliases названия наборов правил
+     * @param outcome результат перекодирования
+     * @param elapsedNanos время перекодирования в наносекундах
+     */
+    private void doRegisterRecode(List<String> aliases, RecodeMetrics.Outcome outcome, long elapsedNanos) {
+        RuleSetMetrics ruleSetMetrics = retrieveRuleSetMetrics(aliases);
+        ruleSetMetrics.counters.incrementAndGet(outcome.ordinal());
+        ruleSetMetrics.latency.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+
+    @Override
+    public Collection<RecodeMetrics> retrieveMetrics() {
+        Collection<RecodeMetrics> result = Lists.newArrayListWithExpectedSize(metrics.size());
+        for (Map.Entry<List<String>, RuleSetMetrics> entry : metrics.entrySet()) {
+            result.add(entry.getValue().createSnapshot(entry.getKey()));
+        }
+        return result;
+    }
+
+    /**
+     * @return Возвращает текстовое описание статистики, где ключ - название набора правил
+     */
+    public Map<String, String> describeMetrics() {
+        Map<String, String> result = Maps.newTreeMap();
+        for (RecodeMetrics snapshot : retrieveMetrics()) {
+            result.put(snapshot.getRuleSetName(), snapshot.toString());
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        metrics.clear();
+    }
+
+    /**
+     * Класс <class>RuleSetMetrics</class> содержит накапливаемую статистику набора правил
+     *
+     * @author Nazin Alexander
+     */
+    private static class RuleSetMetrics {
+
+        /** Счетчики результатов, где индекс - порядковый номер {@link RecodeMetrics.Outcome результата} */
+        private final AtomicLongArray counters;
+        /** Гистограмма времени перекодирования в микросекундах */
+        private final LatencyHistogram latency;
+
+        private RuleSetMetrics() {
+            this.counters = new AtomicLongArray(RecodeMetrics.Outcome.values().length);
+            this.latency = new LatencyHistogram();
+        }
+
+        /**
+         * Формирует снимок статистики
+         *
+         * @param aliases названия наборов правил
+         * @return Возвращает снимок статистики
+         */
+        private RecodeMetrics createSnapshot(List<String> aliases) {
+            RecodeMetrics result = new RecodeMetrics();
+            result.setRuleSetName(CHAIN_NAME_JOINER.join(aliases));
+            result.setAliases(aliases);
+            result.setSuccessCount(counters.get(RecodeMetrics.Outcome.SUCCESS.ordinal()));
+            result.setDefaultCount(counters.get(RecodeMetrics.Outcome.DEFAULT.ordinal()));
+            result.setNoRuleCount(counters.get(RecodeMetrics.Outcome.NO_RULE.ordinal()));
+            result.setNoValueCount(counters.get(RecodeMetrics.Outcome.NO_VALUE.ordinal()));
+            result.setNoRuleSetCount(counters.get(RecodeMetrics.Outcome.NO_RULE_SET.ordinal()));
+            result.setErrorCount(counters.get(RecodeMetrics.Outcome.ERROR.ordinal()));
+            long[] percentiles = latency.getPercentiles(50, 90, 99, 99.9);
+            result.setLatency50(percentiles[0]);
+            result.setLatency90(percentiles[1]);
+            result.setLatency99(percentiles[2]);
+            result.setLatency999(percentiles[3]);
+            result.setLatencyMax(latency.getMax());
+            return result;
+        }
+    }
+}
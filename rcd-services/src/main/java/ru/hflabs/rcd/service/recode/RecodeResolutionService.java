@@ -0,0 +1,192 @@
+package ru.hflabs.rcd.service.recode;
+
+import com.google.common.collect.Sets;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hflabs.rcd.event.ContextEvent;
+import ru.hflabs.rcd.event.index.IndexRebuildedEvent;
+import ru.hflabs.rcd.event.modify.ChangeEvent;
+import ru.hflabs.rcd.model.change.ChangeType;
+import ru.hflabs.rcd.model.document.Dictionary;
+import ru.hflabs.rcd.model.document.Group;
+import ru.hflabs.rcd.model.document.MetaField;
+import ru.hflabs.rcd.model.path.MetaFieldNamedPath;
+import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+import ru.hflabs.rcd.service.IRecodeResolutionService;
+import ru.hflabs.rcd.service.rule.IRecodeRuleSetService;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс <class>RecodeResolutionService</class> реализует сервис кэшируемого определения наборов правил перекодирования.<br/>
+ * Найденные наборы сохраняются по названию и по именованным путям справочников и сбрасываются при изменении
+ * наборов правил, групп, справочников или МЕТА-полей. Ошибки поиска не кэшируются.
+ *
+ * @author Nazin Alexander
+ */
+public class RecodeResolutionService implements IRecodeResolutionService, ApplicationListener<ApplicationEvent>, BeanNameAware {
+
+    /** Идентификатор сервиса */
+    private String serviceId;
+
+    /** Сервис работы с наборами правил перекодирования */
+    private IRecodeRuleSetService recodeRuleSetService;
+
+    /** Наборы правил, где ключ - название набора в нижнем регистре */
+    private final ConcurrentMap<String, RecodeRuleSet> byAlias;
+    /** Наборы правил, где ключ - пара из исходного и целевого именованных путей */
+    private final ConcurrentMap<List<MetaFieldNamedPath>, RecodeRuleSet> byNamedPath;
+    /** Поколение кэша, изменяется при каждом сбросе */
+    private final AtomicLong generation;
+
+    public RecodeResolutionService() {
+        this.byAlias = new ConcurrentHashMap<>();
+        this.byNamedPath = new ConcurrentHashMap<>();
+        this.generation = new AtomicLong(0);
+    }
+
+    @Override
+    public void setBeanName(String name) {
+        this.serviceId = name;
+    }
+
+    public void setRecodeRuleSetService(IRecodeRuleSetService recodeRuleSetService) {
+        this.recodeRuleSetService = recodeRuleSetService;
+    }
+
+    /**
+     * Сохраняет найденный набор правил, если за время поиска не было сброса
+     *
+     * @param cache целевой кэш
+     * @param key ключ
+     * @param ruleSet найденный набор правил
+     * @param expectedGeneration поколение кэша на момент начала поиска
+     * @return Возвращает найденный набор правил
+     */
+    private <K> RecodeRuleSet cacheRecodeRuleSet(ConcurrentMap<K, RecodeRuleSet> cache, K key, RecodeRuleSet ruleSet, long expectedGeneration) {
+        synchronized (generation) {
+            if (expectedGeneration == generation.get()) {
+                cache.put(key, ruleSet);
+            }
+        }
+        return ruleSet;
+    }
+
+    @Override
+    public RecodeRuleSet resolveRecodeRuleSet(String alias) {
+        String key = alias != null ? alias.toLowerCase() : null;
+        RecodeRuleSet ruleSet = key != null ? byAlias.get(key) : null;
+        if (ruleSet == null) {
+            long expectedGeneration = generation.get();
+            ruleSet = cacheRecodeRuleSet(byAlias, key, recodeRuleSetService.findUniqueByNamedPath(alias, false), expectedGeneration);
+        }
+        return ruleSet;
+    }
+
+    @Override
+    public RecodeRuleSet resolveRecodeRuleSet(MetaFieldNamedPath fromPath, MetaFieldNamedPath toPath) {
+        List<MetaFieldNamedPath> key = Arrays.asList(
+                new MetaFieldNamedPath(fromPath, fromPath.getFieldName()),
+                new MetaFieldNamedPath(toPath, toPath.getFieldName())
+        );
+        RecodeRuleSet ruleSet = byNamedPath.get(key);
+        if (ruleSet == null) {
+            long expectedGeneration = generation.get();
+            ruleSet = cacheRecodeRuleSet(byNamedPath, key, recodeRuleSetService.findRecodeRuleSetByNamedPath(fromPath, toPath, false, false), expectedGeneration);
+        }
+        return ruleSet;
+    }
+
+    /**
+     * Удаляет наборы правил с указанными идентификаторами
+     *
+     * @param ruleSets коллекция кэшированных наборов
+     * @param ruleSetIDs коллекция идентификаторов удаляемых наборов
+     */
+    private static void removeRuleSets(Collection<RecodeRuleSet> ruleSets, Collection<String> ruleSetIDs) {
+        for (Iterator<RecodeRuleSet> iterator = ruleSets.iterator(); iterator.hasNext(); ) {
+            if (ruleSetIDs.contains(iterator.next().getId())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Выполняет сброс наборов правил
+     *
+     * @param ruleSetIDs коллекция идентификаторов наборов правил или <code>NULL</code>, если необходимо сбросить все наборы
+     */
+    private void invalidate(Collection<String> ruleSetIDs) {
+        synchronized (generation) {
+            generation.incrementAndGet();
+            if (ruleSetIDs == null) {
+                byAlias.clear();
+                byNamedPath.clear();
+            } else {
+                removeRuleSets(byAlias.values(), ruleSetIDs);
+                removeRuleSets(byNamedPath.values(), ruleSetIDs);
+            }
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        invalidate(null);
+    }
+
+    /**
+     * Выполняет сброс как в момент события, так и после завершения транзакции,
+     * так как набор правил мог быть найден по состоянию индекса до фиксации изменений
+     *
+     * @param ruleSetIDs коллекция идентификаторов наборов правил или <code>NULL</code>, если необходимо сбросить все наборы
+     */
+    private void invalidateWithTransaction(final Collection<String> ruleSetIDs) {
+        invalidate(ruleSetIDs);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(ruleSetIDs);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ContextEvent && ((ContextEvent) event).registryListener(serviceId)) {
+            // Событие перестроения индекса
+            if (event instanceof IndexRebuildedEvent) {
+                invalidate(null);
+            }
+            // Событие изменения документов
+            if (event instanceof ChangeEvent) {
+                ChangeEvent changeEvent = (ChangeEvent) event;
+                Class<?> changedClass = changeEvent.getChangedClass();
+                if (ChangeType.IGNORE.equals(changeEvent.getChangeType()) || ChangeType.SKIP.equals(changeEvent.getChangeType())) {
+                    return;
+                }
+                if (RecodeRuleSet.class.equals(changedClass)) {
+                    Set<String> ruleSetIDs = Sets.newHashSet();
+                    for (RecodeRuleSet ruleSet : changeEvent.getChanged(RecodeRuleSet.class)) {
+                        ruleSetIDs.add(ruleSet.getId());
+                    }
+                    invalidateWithTransaction(ruleSetIDs);
+                } else if (Group.class.equals(changedClass) || Dictionary.class.equals(changedClass) || MetaField.class.equals(changedClass)) {
+                    // Изменение названий меняет именованные пути всех зависимых наборов
+                    invalidateWithTransaction(null);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package ru.hflabs.rcd.service.recode;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.util.Assert;
+import ru.hflabs.rcd.event.recode.RecodeFailedEvent;
+import ru.hflabs.rcd.event.recode.RecodeSuccessEvent;
+import ru.hflabs.rcd.exception.search.document.UnknownFieldException;
+import ru.hflabs.rcd.exception.search.rule.RecodeChainException;
+import ru.hflabs.rcd.exception.search.rule.UnknownRecodeRuleException;
+import ru.hflabs.rcd.model.notification.NotifyType;
+import ru.hflabs.rcd.model.path.FieldNamedPath;
+import ru.hflabs.rcd.model.path.MetaFieldNamedPath;
+import ru.hflabs.rcd.model.rule.RecodeChainTable;
+import ru.hflabs.rcd.model.rule.RecodeMetrics;
+import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+import ru.hflabs.rcd.model.rule.RecodeTable;
+import ru.hflabs.rcd.service.IRecodeMetricsService;
+import ru.hflabs.rcd.service.IRecodeResolutionService;
+import ru.hflabs.rcd.service.IRecodeService;
+import ru.hflabs.rcd.service.IRecodeTableService;
+
+import java.util.List;
+
+import static ru.hflabs.rcd.service.ServiceUtils.determineNotifyType;
+
+/**
+ * Класс <class>RecodeService</class> реализует сервис перекодирования значений по скомпилированным таблицам наборов правил
+ *
+ * @author Nazin Alexander
+ * @see RecodeTable
+ */
+public class RecodeService implements IRecodeService {
+
+    /** Разделитель названий наборов правил в названии цепочки */
+    static final String CHAIN_NAME_SEPARATOR = " > ";
+    private static final Joiner CHAIN_NAME_JOINER = Joiner.on(CHAIN_NAME_SEPARATOR);
+
+    /** Сервис публикации событий перекодировки */
+    private ApplicationEventPublisher eventPublisher;
+    /** Сервис работы с таблицами перекодирования */
+    private IRecodeTableService recodeTableService;
+    /** Сервис определения наборов правил перекодирования */
+    private IRecodeResolutionService recodeResolutionService;
+    /** Сервис сбора статистики перекодирования */
+    private IRecodeMetricsService recodeMetricsService;
+
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void setRecodeTableService(IRecodeTableService recodeTableService) {
+        this.recodeTableService = recodeTableService;
+    }
+
+    public void setRecodeResolutionService(IRecodeResolutionService recodeResolutionService) {
+        this.recodeResolutionService = recodeResolutionService;
+    }
+
+    public void setRecodeMetricsService(IRecodeMetricsService recodeMetricsService) {
+        this.recodeMetricsService = recodeMetricsService;
+    }
+
+    /**
+     * Регистрирует результат перекодирования в статистике набора правил
+     *
+     * @param ruleSet набор правил
+     * @param outcome результат перекодирования
+     * @param startTime время начала перекодирования в наносекундах
+     */
+    private void registerRecode(RecodeRuleSet ruleSet, RecodeMetrics.Outcome outcome, long startTime) {
+        recodeMetricsService.registerRecode(ruleSet.getName(), outcome, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Регистрирует и публикует ошибку определения набора правил.<br/>
+     * Статистика регистрируется без названия набора, так как набор не определен
+     *
+     * @param ruleSetName название набора правил или <code>NULL</code>, если набор определяется по пути
+     * @param fromPath исходный путь записи или <code>NULL</code>
+     * @param toPath целевой путь записи или <code>NULL</code>
+     * @param ex исключительная ситуация определения набора
+     * @param startTime время начала перекодирования в наносекундах
+     */
+    private void registerResolveFailure(String ruleSetName, FieldNamedPath fromPath, MetaFieldNamedPath toPath, RuntimeException ex, long startTime) {
+        NotifyType notifyType = determineNotifyType(ex);
+        recodeMetricsService.registerRecode(null, RecodeMetrics.Outcome.fromNotifyType(notifyType), System.nanoTime() - startTime);
+        eventPublisher.publishEvent(new RecodeFailedEvent(this, ruleSetName, fromPath, toPath, notifyType, ex));
+    }
+
+    /**
+     * Выполняет поиск целевого значения перекодирования по скомпилированной таблице набора правил
+     *
+     * @param ruleSet целевой набор правил
+     * @param fromPath исходный путь записи
+     * @param toPath целевой путь записи
+     * @param startTime время начала перекодирования в наносекундах
+     * @return Возвращает найденное целевое значение перекодирования
+     */
+    private String doRecode(RecodeRuleSet ruleSet, FieldNamedPath fromPath, MetaFieldNamedPath toPath, long startTime) {
+        RecodeTable recodeTable = recodeTableService.retrieveRecodeTable(ruleSet);
+        // Пытаемся определить существующее правило
+        String targetValue = recodeTable.findTargetValue(fromPath.getFieldValue());
+        // Определяем целевое значение
+        if (targetValue != null) { // если найдено конкретное правило перекодирования
+            registerRecode(ruleSet, RecodeMetrics.Outcome.SUCCESS, startTime);
+            return targetValue;
+        } else {
+            boolean isFromFieldExist = recodeTable.isSourceValueExist(fromPath.getFieldValue());
+            // Возвращаем результат в зависимости от состояния исходного поля и значения по умолчанию
+            if (isFromFieldExist && recodeTable.hasDefaultValue()) {
+                registerRecode(ruleSet, RecodeMetrics.Outcome.DEFAULT, startTime);
+                return recodeTable.getDefaultValue();
+            } else if (!isFromFieldExist && recodeTable.hasDefaultValue()) {
+                eventPublisher.publishEvent(
+                        new RecodeFailedEvent(
+                                this,
+                                ruleSet.getName(),
+                                fromPath,
+                                toPath,
+                                NotifyType.NO_VALUE,
+                                new UnknownFieldException(fromPath.toString())
+                        )
+                );
+                registerRecode(ruleSet, RecodeMetrics.Outcome.DEFAULT, startTime);
+                return recodeTable.getDefaultValue();
+            } else if (isFromFieldExist) {
+                throw new UnknownRecodeRuleException(fromPath, toPath);
+            } else {
+                throw new UnknownFieldException(fromPath.toString());
+            }
+        }
+    }
+
+    /**
+     * Выполняет перекодирование значения по набору правил с регистрацией результата
+     *
+     * @param ruleSet набор правил перекодирования
+     * @param fromValue исходное значение
+     * @param startTime время начала перекодирования в наносекундах
+     * @return Возвращает целевое значение перекодирования
+     */
+    private String doRecode(RecodeRuleSet ruleSet, String fromValue, long startTime) {
+        final FieldNamedPath fromPath = new FieldNamedPath(ruleSet.getFromNamedPath(), fromValue);
+        final MetaFieldNamedPath toPath = ruleSet.getToNamedPath();
+        try {
+            String result = doRecode(ruleSet, fromPath, toPath, startTime);
+            eventPublisher.publishEvent(new RecodeSuccessEvent(this, ruleSet.getName(), fromPath, new FieldNamedPath(toPath, result)));
+            return result;
+        } catch (RuntimeException ex) {
+            NotifyType notifyType = determineNotifyType(ex);
+            registerRecode(ruleSet, RecodeMetrics.Outcome.fromNotifyType(notifyType), startTime);
+            eventPublisher.publishEvent(new RecodeFailedEvent(this, ruleSet.getName(), fromPath, toPath, notifyType, ex));
+            throw ex;
+        }
+    }
+
+    @Override
+    public String recode(RecodeRuleSet ruleSet, String fromValue) {
+        return doRecode(ruleSet, fromValue, System.nanoTime());
+    }
+
+    /**
+     * Определяет набор правил по его названию с регистрацией ошибки определения
+     *
+     * @param alias название набора правил
+     * @param startTime время начала перекодирования в наносекундах
+     * @return Возвращает найденный набор правил
+     */
+    private RecodeRuleSet resolveRecodeRuleSet(String alias, long startTime) {
+        try {
+            return recodeResolutionService.resolveRecodeRuleSet(alias);
+        } catch (RuntimeException ex) {
+            registerResolveFailure(alias, null, null, ex, startTime);
+            throw ex;
+        }
+    }
+
+    /**
+     * Определяет набор правил по именованным путям справочников с регистрацией ошибки определения
+     *
+     * @param fromPath исходный путь записи
+     * @param toPath целевой путь справочника
+     * @param startTime время начала перекодирования в наносекундах
+     * @return Возвращает найденный набор правил
+     */
+    private RecodeRuleSet resolveRecodeRuleSet(FieldNamedPath fromPath, MetaFieldNamedPath toPath, long startTime) {
+        try {
+            return recodeResolutionService.resolveRecodeRuleSet(fromPath, toPath);
+        } catch (RuntimeException ex) {
+            registerResolveFailure(null, fromPath, toPath, ex, startTime);
+            throw ex;
+        }
+    }
+
+    @Override
+    public RecodeRuleSet resolveRecodeRuleSet(String alias) {
+        return resolveRecodeRuleSet(alias, System.nanoTime());
+    }
+
+    @Override
+    public RecodeRuleSet resolveRecodeRuleSet(MetaFieldNamedPath fromPath, MetaFieldNamedPath toPath) {
+        return resolveRecodeRuleSet(new FieldNamedPath(fromPath, null), toPath, System.nanoTime());
+    }
+
+    @Override
+    public String recode(String alias, String fromValue) {
+        final long startTime = System.nanoTime();
+        return doRecode(resolveRecodeRuleSet(alias, startTime), fromValue, startTime);
+    }
+
+    @Override
+    public String recode(MetaFieldNamedPath fromPath, MetaFieldNamedPath toPath, String fromValue) {
+        final long startTime = System.nanoTime();
+        return doRecode(resolveRecodeRuleSet(new FieldNamedPath(fromPath, fromValue), toPath, startTime), fromValue, startTime);
+    }
+
+    /**
+     * Формирует исключительную ситуацию отсутствия правила или значения для звена цепочки
+     *
+     * @param ruleSet набор правил звена
+     * @param fromPath исходный путь звена
+     * @param isValueExist флаг существования исходного значения в справочнике звена
+     * @return Возвращает исключительную ситуацию
+     */
+    private static RuntimeException createHopException(RecodeRuleSet ruleSet, FieldNamedPath fromPath, boolean isValueExist) {
+        return isValueExist ?
+                new UnknownRecodeRuleException(fromPath, ruleSet.getToNamedPath()) :
+                new UnknownFieldException(fromPath.toString());
+    }
+
+    @Override
+    public String recodeChain(List<String> aliases, String fromValue) {
+        Assert.notEmpty(aliases, "Recode chain must not be empty");
+        final long startTime = System.nanoTime();
+        final String chainName = CHAIN_NAME_JOINER.join(aliases);
+        // Определяем наборы правил звеньев
+        List<RecodeRuleSet> ruleSets = Lists.newArrayListWithExpectedSize(aliases.size());
+        for (int hop = 0; hop < aliases.size(); hop++) {
+            String alias = aliases.get(hop);
+            try {
+                ruleSets.add(recodeResolutionService.resolveRecodeRuleSet(alias));
+            } catch (RuntimeException ex) {
+                registerResolveFailure(alias, null, null, ex, startTime);
+                throw new RecodeChainException(hop, alias, ex);
+            }
+        }
+        // Получаем предварительно вычисленный результат прохода по цепочке
+        RecodeChainTable chainTable = recodeTableService.retrieveRecodeChainTable(ruleSets);
+        RecodeChainTable.Step step = chainTable.findStep(fromValue);
+        RecodeRuleSet first = ruleSets.get(0);
+        FieldNamedPath fromPath = new FieldNamedPath(first.getFromNamedPath(), fromValue);
+        boolean isFromValueExist = chainTable.hasRule(fromValue) || chainTable.getTables().get(0).isSourceValueExist(fromValue);
+        // Определяем звено, на котором перекодирование не выполнено
+        int failedHop = -1;
+        FieldNamedPath failedPath = null;
+        RuntimeException failure = null;
+        if (step == null) {
+            failedHop = 0;
+            failedPath = fromPath;
+            failure = createHopException(first, failedPath, isFromValueExist);
+        } else if (step.isFailed()) {
+            failedHop = step.getFailedHop();
+            RecodeRuleSet failedRuleSet = ruleSets.get(failedHop);
+            failedPath = new FieldNamedPath(failedRuleSet.getFromNamedPath(), step.getFailedValue());
+            failure = createHopException(failedRuleSet, failedPath, step.isFailedValueExist());
+        }
+        // Публикуем события использования значений по умолчанию для отсутствующих значений
+        if (step != null && !isFromValueExist) {
+            eventPublisher.publishEvent(new RecodeFailedEvent(
+                    this, first.getName(), fromPath, first.getToNamedPath(), NotifyType.NO_VALUE, new UnknownFieldException(fromPath.toString())
+            ));
+        }
+        if (step != null && step.getNoticeHop() >= 0) {
+            RecodeRuleSet noticeRuleSet = ruleSets.get(step.getNoticeHop());
+            FieldNamedPath noticePath = new FieldNamedPath(noticeRuleSet.getFromNamedPath(), step.getNoticeValue());
+            eventPublisher.publishEvent(new RecodeFailedEvent(
+                    this, noticeRuleSet.getName(), noticePath, noticeRuleSet.getToNamedPath(), NotifyType.NO_VALUE, new UnknownFieldException(noticePath.toString())
+            ));
+        }
+        if (failure != null) {
+            RecodeRuleSet failedRuleSet = ruleSets.get(failedHop);
+            NotifyType notifyType = determineNotifyType(failure);
+            recodeMetricsService.registerChainRecode(aliases, RecodeMetrics.Outcome.fromNotifyType(notifyType), System.nanoTime() - startTime);
+            eventPublisher.publishEvent(new RecodeFailedEvent(
+                    this, failedRuleSet.getName(), failedPath, failedRuleSet.getToNamedPath(), notifyType, failure
+            ));
+            throw new RecodeChainException(failedHop, failedRuleSet.getName(), failure);
+        }
+        // Цепочка пройдена успешно
+        recodeMetricsService.registerChainRecode(
+                aliases,
+                step.isDefaulted() ? RecodeMetrics.Outcome.DEFAULT : RecodeMetrics.Outcome.SUCCESS,
+                System.nanoTime() - startTime
+        );
+        RecodeRuleSet last = ruleSets.get(ruleSets.size() - 1);
+        eventPublisher.publishEvent(new RecodeSuccessEvent(this, chainName, fromPath, new FieldNamedPath(last.getToNamedPath(), step.getValue())));
+        return step.getValue();
+    }
+}
@@ -0,0 +1,343 @@
+package ru.hflabs.rcd.service.recode;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hflabs.rcd.event.ContextEvent;
+import ru.hflabs.rcd.event.index.IndexRebuildedEvent;
+import ru.hflabs.rcd.event.modify.ChangeEvent;
+import ru.hflabs.rcd.model.change.ChangeType;
+import ru.hflabs.rcd.model.document.Field;
+import ru.hflabs.rcd.model.rule.RecodeRule;
+import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+import ru.hflabs.rcd.model.rule.RecodeSnapshot;
+import ru.hflabs.rcd.model.rule.RecodeTable;
+import ru.hflabs.rcd.service.IRecodeResolutionService;
+import ru.hflabs.rcd.service.IRecodeTableService;
+import ru.hflabs.rcd.service.rule.IRecodeSnapshotService;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Класс <class>RecodeSnapshotService</class> реализует сервис выгрузки таблиц перекодирования для клиентов.<br/>
+ * Для каждого выгружаемого набора правил ведется журнал версий: после фиксации изменений правил, набора или значений полей
+ * {@link RecodeTable таблица перекодирования} перестраивается, сравнивается с предыдущей и отличия сохраняются как очередная версия.
+ * Журнал ограничен по количеству версий, поэтому клиенту с устаревшей версией возвращается полный снимок.
+ * Журнал закрытого набора правил удаляется.
+ *
+ * @author Nazin Alexander
+ * @see RecodeSnapshot
+ */
+public class RecodeSnapshotService implements IRecodeSnapshotService, ApplicationListener<ApplicationEvent>, BeanNameAware {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecodeSnapshotService.class);
+
+    /** Идентификатор сервиса */
+    private String serviceId;
+    /** Идентификатор экземпляра сервиса */
+    private final long epoch;
+
+    /** Сервис работы с таблицами перекодирования */
+    private IRecodeTableService recodeTableService;
+    /** Сервис определения наборов правил перекодирования */
+    private IRecodeResolutionService recodeResolutionService;
+    /** Максимальное количество хранимых версий набора правил */
+    private int journalSize;
+
+    /** Журналы версий, где ключ - идентификатор набора правил */
+    private final ConcurrentMap<String, Journal> journals;
+
+    public RecodeSnapshotService() {
+        this.epoch = System.currentTimeMillis();
+        this.journalSize = 64;
+        this.journals = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void setBeanName(String name) {
+        this.serviceId = name;
+    }
+
+    public void setRecodeTableService(IRecodeTableService recodeTableService) {
+        this.recodeTableService = recodeTableService;
+    }
+
+    public void setRecodeResolutionService(IRecodeResolutionService recodeResolutionService) {
+        this.recodeResolutionService = recodeResolutionService;
+    }
+
+    public void setJournalSize(int journalSize) {
+        this.journalSize = journalSize;
+    }
+
+    /**
+     * @param ruleSetId идентификатор набора правил
+     * @return Возвращает журнал версий набора правил, создавая его при необходимости
+     */
+    private Journal retrieveJournal(String ruleSetId) {
+        Journal result = journals.get(ruleSetId);
+        if (result == null) {
+            Journal created = new Journal();
+            result = journals.putIfAbsent(ruleSetId, created);
+            result = (result != null) ? result : created;
+        }
+        return result;
+    }
+
+    @Override
+    public byte[] exportSnapshot(String ruleSetName, long clientEpoch, long clientVersion) {
+        RecodeRuleSet ruleSet = recodeResolutionService.resolveRecodeRuleSet(ruleSetName);
+        RecodeSnapshot snapshot = retrieveJournal(ruleSet.getId()).createSnapshot(
+                ruleSet, epoch == clientEpoch ? clientVersion : RecodeSnapshot.NO_VERSION
+        );
+        snapshot.setRuleSetName(ruleSetName);
+        snapshot.setEpoch(epoch);
+        return snapshot.toBytes();
+    }
+
+    /**
+     * Регистрирует новые версии измененных наборов правил
+     *
+     * @param ruleSetIDs коллекция идентификаторов наборов правил
+     */
+    private void updateJournals(Collection<String> ruleSetIDs) {
+        for (String ruleSetId : ruleSetIDs) {
+            Journal journal = journals.get(ruleSetId);
+            if (journal != null) {
+                try {
+                    journal.update();
+                } catch (RuntimeException ex) {
+                    LOG.warn(String.format("Can't update snapshot journal of rule set '%s'. Cause by: %s", ruleSetId, ex.getMessage()), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Выполняет обновление журналов после завершения транзакции, так как до ее фиксации индекс содержит прежнее состояние
+     *
+     * @param ruleSetIDs коллекция идентификаторов наборов правил
+     */
+    private void updateJournalsWithTransaction(final Collection<String> ruleSetIDs) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    updateJournals(ruleSetIDs);
+                }
+            });
+        } else {
+            updateJournals(ruleSetIDs);
+        }
+    }
+
+    /**
+     * Определяет идентификаторы выгружаемых наборов правил, которые затрагивает событие изменения
+     *
+     * @param event событие изменения
+     * @return Возвращает коллекцию идентификаторов наборов правил
+     */
+    private Set<String> findDependentRuleSets(ChangeEvent event) {
+        Class<?> changedClass = event.getChangedClass();
+        Set<String> result = Sets.newHashSet();
+        if (RecodeRuleSet.class.equals(changedClass)) {
+            for (RecodeRuleSet ruleSet : event.getChanged(RecodeRuleSet.class)) {
+                Journal journal = journals.get(ruleSet.getId());
+                if (journal != null) {
+                    journal.setRuleSet(ruleSet);
+                    result.add(ruleSet.getId());
+                }
+            }
+        } else if (RecodeRule.class.equals(changedClass)) {
+            for (RecodeRule rule : event.getChanged(RecodeRule.class)) {
+                result.add(rule.getRecodeRuleSetId());
+            }
+        } else if (Field.class.equals(changedClass)) {
+            Set<String> metaFieldIDs = Sets.newHashSet();
+            for (Field field : event.getChanged(Field.class)) {
+                metaFieldIDs.add(field.getMetaFieldId());
+            }
+            for (Map.Entry<String, Journal> entry : journals.entrySet()) {
+                if (entry.getValue().isDependsOn(metaFieldIDs)) {
+                    result.add(entry.getKey());
+                }
+            }
+        }
+        result.retainAll(journals.keySet());
+        return result;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ContextEvent && ((ContextEvent) event).registryListener(serviceId)) {
+            // Событие перестроения индекса
+            if (event instanceof IndexRebuildedEvent) {
+                updateJournals(journals.keySet());
+            }
+            // Событие изменения документов
+            if (event instanceof ChangeEvent) {
+                ChangeEvent changeEvent = (ChangeEvent) event;
+                if (RecodeRuleSet.class.equals(changeEvent.getChangedClass()) && ChangeType.CLOSE.equals(changeEvent.getChangeType())) {
+                    for (RecodeRuleSet ruleSet : changeEvent.getChanged(RecodeRuleSet.class)) {
+                        journals.remove(ruleSet.getId());
+                    }
+                } else if (!ChangeType.IGNORE.equals(changeEvent.getChangeType()) && !ChangeType.SKIP.equals(changeEvent.getChangeType())) {
+                    Set<String> ruleSetIDs = findDependentRuleSets(changeEvent);
+                    if (!ruleSetIDs.isEmpty()) {
+                        updateJournalsWithTransaction(ruleSetIDs);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Класс <class>Journal</class> содержит журнал версий таблицы перекодирования набора правил
+     *
+     * @author Nazin Alexander
+     */
+    private class Journal {
+
+        /** Набор правил перекодирования */
+        private RecodeRuleSet ruleSet;
+        /** Таблица текущей версии */
+        private RecodeTable table;
+        /** Текущая версия */
+        private long version;
+        /** Изменения версий в порядке возрастания */
+        private final Deque<Version> versions;
+
+        private Journal() {
+            this.version = RecodeSnapshot.NO_VERSION;
+            this.versions = new ArrayDeque<>();
+        }
+
+        /**
+         * @param actualRuleSet измененный набор правил перекодирования
+         */
+        private synchronized void setRuleSet(RecodeRuleSet actualRuleSet) {
+            if (ruleSet != null) {
+                ruleSet = actualRuleSet;
+            }
+        }
+
+        /**
+         * @param metaFieldIDs коллекция идентификаторов МЕТА-полей
+         * @return Возвращает <code>TRUE</code>, если таблица текущей версии зависит от значений МЕТА-полей
+         */
+        private synchronized boolean isDependsOn(Collection<String> metaFieldIDs) {
+            if (table != null) {
+                for (String metaFieldId : metaFieldIDs) {
+                    if (table.isDependsOn(metaFieldId)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Перестраивает таблицу перекодирования и регистрирует новую версию, если таблица изменилась
+         */
+        private synchronized void update() {
+            if (ruleSet == null) {
+                return;
+            }
+            recodeTableService.invalidate(Collections.singleton(ruleSet.getId()));
+            update(recodeTableService.retrieveRecodeTable(ruleSet));
+        }
+
+        /**
+         * Регистрирует новую версию, если таблица перекодирования изменилась
+         *
+         * @param actual актуальная таблица перекодирования
+         */
+        private void update(RecodeTable actual) {
+            if (table == actual) {
+                return;
+            }
+            if (table == null) {
+                version = 0;
+            } else {
+                Map<String, String> changes = Maps.newHashMap();
+                Map<String, String> previousValues = table.getTargetValues();
+                for (Map.Entry<String, String> entry : actual.getTargetValues().entrySet()) {
+                    if (!entry.getValue().equals(previousValues.get(entry.getKey()))) {
+                        changes.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                for (String fromValue : previousValues.keySet()) {
+                    if (!actual.getTargetValues().containsKey(fromValue)) {
+                        changes.put(fromValue, null);
+                    }
+                }
+                if (!changes.isEmpty() || !Objects.equal(table.getDefaultValue(), actual.getDefaultValue())) {
+                    versions.addLast(new Version(++version, changes));
+                    while (versions.size() > journalSize) {
+                        versions.removeFirst();
+                    }
+                }
+            }
+            table = actual;
+        }
+
+        /**
+         * Формирует снимок таблицы относительно версии клиента
+         *
+         * @param actualRuleSet набор правил перекодирования
+         * @param clientVersion версия клиента
+         * @return Возвращает сформированный снимок
+         */
+        private synchronized RecodeSnapshot createSnapshot(RecodeRuleSet actualRuleSet, long clientVersion) {
+            // Версии создаются по событиям изменения, при запросе таблица строится только для нового журнала
+            if (table == null) {
+                ruleSet = actualRuleSet;
+                update(recodeTableService.retrieveRecodeTable(actualRuleSet));
+            }
+            RecodeSnapshot result = new RecodeSnapshot();
+            result.setVersion(version);
+            result.setDefaultValue(table.getDefaultValue());
+            long oldestVersion = versions.isEmpty() ? version : versions.getFirst().version - 1;
+            if (clientVersion < oldestVersion || clientVersion > version) {
+                // Изменения для версии клиента недоступны, формируем полный снимок
+                result.setBaseVersion(RecodeSnapshot.NO_VERSION);
+                result.getChanges().putAll(table.getTargetValues());
+            } else {
+                result.setBaseVersion(clientVersion);
+                for (Version next : versions) {
+                    if (next.version > clientVersion) {
+                        result.getChanges().putAll(next.changes);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Класс <class>Version</class> содержит изменения таблицы перекодирования одной версии
+     *
+     * @author Nazin Alexander
+     */
+    private static class Version {
+
+        /** Номер версии */
+        private final long version;
+        /** Изменения, где значение <code>NULL</code> означает удаленное правило */
+        private final Map<String, String> changes;
+
+        private Version(long version, Map<String, String> changes) {
+            this.version = version;
+            this.changes = changes;
+        }
+    }
+}
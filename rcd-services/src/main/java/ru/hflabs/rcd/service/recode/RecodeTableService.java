@@ -0,0 +1,290 @@
+package ru.hflabs.rcd.service.recode;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hflabs.rcd.event.ContextEvent;
+import ru.hflabs.rcd.event.index.IndexRebuildedEvent;
+import ru.hflabs.rcd.event.modify.ChangeEvent;
+import ru.hflabs.rcd.model.change.ChangeType;
+import ru.hflabs.rcd.model.document.Field;
+import ru.hflabs.rcd.model.rule.RecodeChainTable;
+import ru.hflabs.rcd.model.rule.RecodeRule;
+import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+import ru.hflabs.rcd.model.rule.RecodeTable;
+import ru.hflabs.rcd.service.IRecodeTableService;
+import ru.hflabs.rcd.service.document.IFieldService;
+import ru.hflabs.rcd.service.rule.IRecodeRuleService;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс <class>RecodeTableService</class> реализует сервис скомпилированных таблиц перекодирования.<br/>
+ * Таблица строится при первом обращении к набору правил и сбрасывается при изменении правил, набора или значений полей,
+ * так что перекодирование значения выполняется одним обращением к хэш-таблице вместо нескольких запросов к индексу.
+ *
+ * @author Nazin Alexander
+ * @see RecodeTable
+ */
+public class RecodeTableService implements IRecodeTableService, ApplicationListener<ApplicationEvent>, BeanNameAware {
+
+    private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+    /** Идентификатор сервиса */
+    private String serviceId;
+
+    /** Сервис работы со значениями полей */
+    private IFieldService fieldService;
+    /** Сервис работы с правилами перекодирования */
+    private IRecodeRuleService recodeRuleService;
+
+    /** Коллекция таблиц, где ключ - идентификатор набора правил, значение - таблица перекодирования */
+    private final ConcurrentMap<String, RecodeTable> tables;
+    /** Коллекция таблиц цепочек, где ключ - упорядоченная коллекция идентификаторов наборов правил */
+    private final ConcurrentMap<List<String>, RecodeChainTable> chains;
+    /** Поколение таблиц, изменяется при каждом сбросе */
+    private final AtomicLong generation;
+
+    public RecodeTableService() {
+        this.tables = new ConcurrentHashMap<>();
+        this.chains = new ConcurrentHashMap<>();
+        this.generation = new AtomicLong(0);
+    }
+
+    @Override
+    public void setBeanName(String name) {
+        this.serviceId = name;
+    }
+
+    public void setFieldService(IFieldService fieldService) {
+        this.fieldService = fieldService;
+    }
+
+    public void setRecodeRuleService(IRecodeRuleService recodeRuleService) {
+        this.recodeRuleService = recodeRuleService;
+    }
+
+    /**
+     * Выполняет построение таблицы перекодирования
+     *
+     * @param ruleSet набор правил перекодирования
+     * @return Возвращает построенную таблицу
+     */
+    private RecodeTable buildRecodeTable(RecodeRuleSet ruleSet) {
+        // Получаем значения исходных полей
+        Map<String, String> sourceValues = Maps.newHashMap();
+        for (Field field : fieldService.findAllByRelativeId(ruleSet.getFromFieldId(), null, false)) {
+            sourceValues.put(field.getId(), field.getValue());
+        }
+        // Получаем правила перекодирования
+        Collection<RecodeRule> rules = recodeRuleService.findAllByRelativeId(ruleSet.getId(), null, false);
+        // Получаем целевые поля
+        Set<String> targetFieldIDs = Sets.newHashSet();
+        for (RecodeRule rule : rules) {
+            targetFieldIDs.add(rule.getToFieldId());
+        }
+        if (ruleSet.getDefaultFieldId() != null) {
+            targetFieldIDs.add(ruleSet.getDefaultFieldId());
+        }
+        Map<String, String> targetValues = Maps.newHashMap();
+        if (!targetFieldIDs.isEmpty()) {
+            for (Field field : fieldService.findByIDs(targetFieldIDs, false, true)) {
+                targetValues.put(field.getId(), field.getValue() != null ? field.getValue() : "");
+            }
+        }
+        // Формируем таблицу перекодирования
+        Map<String, String> recodeValues = Maps.newHashMapWithExpectedSize(rules.size());
+        for (RecodeRule rule : rules) {
+            String toValue = targetValues.get(rule.getToFieldId());
+            if (toValue == null) {
+                LOG.warn(String.format("Target field '%s' of recode rule '%s' not found", rule.getToFieldId(), rule.getId()));
+                continue;
+            }
+            String fromValue = sourceValues.containsKey(rule.getFromFieldId()) ?
+                    sourceValues.get(rule.getFromFieldId()) :
+                    rule.getFieldValue();
+            String normalizedValue = RecodeTable.normalize(fromValue);
+            if (!recodeValues.containsKey(normalizedValue)) {
+                recodeValues.put(normalizedValue, toValue);
+            }
+        }
+        // Формируем коллекцию исходных значений без правил
+        Set<String> unmatchedValues = Sets.newHashSet();
+        for (String sourceValue : sourceValues.values()) {
+            String normalizedValue = RecodeTable.normalize(sourceValue);
+            if (!recodeValues.containsKey(normalizedValue)) {
+                unmatchedValues.add(normalizedValue);
+            }
+        }
+
+        return new RecodeTable(
+                ruleSet.getId(),
+                ruleSet.getFromFieldId(),
+                ruleSet.getToFieldId(),
+                ruleSet.getDefaultFieldId() != null ? targetValues.get(ruleSet.getDefaultFieldId()) : null,
+                recodeValues,
+                unmatchedValues
+        );
+    }
+
+    @Override
+    public RecodeTable retrieveRecodeTable(RecodeRuleSet ruleSet) {
+        RecodeTable table = tables.get(ruleSet.getId());
+        if (table == null) {
+            long expectedGeneration = generation.get();
+            table = buildRecodeTable(ruleSet);
+            // Сохраняем таблицу только в том случае, если за время построения не было сброса
+            synchronized (generation) {
+                if (expectedGeneration == generation.get()) {
+                    tables.put(ruleSet.getId(), table);
+                }
+            }
+            LOG.debug(String.format("Recode table for rule set '%s' compiled with %d rules", ruleSet.getName(), table.size()));
+        }
+        return table;
+    }
+
+    @Override
+    public RecodeChainTable retrieveRecodeChainTable(List<RecodeRuleSet> ruleSets) {
+        List<String> ruleSetIDs = Lists.newArrayListWithExpectedSize(ruleSets.size());
+        for (RecodeRuleSet ruleSet : ruleSets) {
+            ruleSetIDs.add(ruleSet.getId());
+        }
+        RecodeChainTable chain = chains.get(ruleSetIDs);
+        if (chain == null) {
+            long expectedGeneration = generation.get();
+            List<RecodeTable> chainTables = Lists.newArrayListWithExpectedSize(ruleSets.size());
+            for (RecodeRuleSet ruleSet : ruleSets) {
+                chainTables.add(retrieveRecodeTable(ruleSet));
+            }
+            chain = new RecodeChainTable(chainTables);
+            // Сохраняем таблицу только в том случае, если за время построения не было сброса
+            synchronized (generation) {
+                if (expectedGeneration == generation.get()) {
+                    chains.put(ruleSetIDs, chain);
+                }
+            }
+            LOG.debug(String.format("Recode chain table for rule sets %s compiled", ruleSetIDs));
+        }
+        return chain;
+    }
+
+    @Override
+    public void invalidate(Collection<String> ruleSetIDs) {
+        synchronized (generation) {
+            generation.incrementAndGet();
+            if (ruleSetIDs == null) {
+                tables.clear();
+                chains.clear();
+            } else {
+                tables.keySet().removeAll(ruleSetIDs);
+                for (Iterator<RecodeChainTable> iterator = chains.values().iterator(); iterator.hasNext(); ) {
+                    RecodeChainTable chain = iterator.next();
+                    for (String ruleSetId : ruleSetIDs) {
+                        if (chain.isDependsOn(ruleSetId)) {
+                            iterator.remove();
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Определяет идентификаторы наборов правил, таблицы которых зависят от переданных значений полей
+     *
+     * @param fields коллекция значений полей
+     * @return Возвращает коллекцию идентификаторов наборов правил
+     */
+    private Set<String> findDependentRuleSets(Collection<Field> fields) {
+        Set<String> metaFieldIDs = Sets.newHashSet();
+        for (Field field : fields) {
+            metaFieldIDs.add(field.getMetaFieldId());
+        }
+        Set<String> result = Sets.newHashSet();
+        for (RecodeTable table : tables.values()) {
+            for (String metaFieldId : metaFieldIDs) {
+                if (table.isDependsOn(metaFieldId)) {
+                    result.add(table.getRuleSetId());
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Определяет идентификаторы наборов правил, таблицы которых затрагивает событие изменения
+     *
+     * @param event событие изменения
+     * @return Возвращает коллекцию идентификаторов наборов правил или <code>NULL</code>, если событие не влияет на таблицы
+     */
+    private Set<String> findDependentRuleSets(ChangeEvent event) {
+        Class<?> changedClass = event.getChangedClass();
+        if (ChangeType.IGNORE.equals(event.getChangeType()) || ChangeType.SKIP.equals(event.getChangeType())) {
+            return null;
+        } else if (RecodeRuleSet.class.equals(changedClass)) {
+            Set<String> result = Sets.newHashSet();
+            for (RecodeRuleSet ruleSet : event.getChanged(RecodeRuleSet.class)) {
+                result.add(ruleSet.getId());
+            }
+            return result;
+        } else if (RecodeRule.class.equals(changedClass)) {
+            Set<String> result = Sets.newHashSet();
+            for (RecodeRule rule : event.getChanged(RecodeRule.class)) {
+                result.add(rule.getRecodeRuleSetId());
+            }
+            return result;
+        } else if (Field.class.equals(changedClass)) {
+            return findDependentRuleSets(event.getChanged(Field.class));
+        }
+        return null;
+    }
+
+    /**
+     * Выполняет сброс таблиц как в момент события, так и после завершения транзакции,
+     * так как таблица могла быть построена по состоянию индекса до фиксации изменений
+     *
+     * @param ruleSetIDs коллекция идентификаторов наборов правил или <code>NULL</code>, если необходимо сбросить все таблицы
+     */
+    private void invalidateWithTransaction(final Collection<String> ruleSetIDs) {
+        invalidate(ruleSetIDs);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(ruleSetIDs);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ContextEvent && ((ContextEvent) event).registryListener(serviceId)) {
+            // Событие перестроения индекса
+            if (event instanceof IndexRebuildedEvent) {
+                invalidate(null);
+            }
+            // Событие изменения документов
+            if (event instanceof ChangeEvent) {
+                Set<String> ruleSetIDs = findDependentRuleSets((ChangeEvent) event);
+                // Сброс выполняется даже для пустой коллекции, чтобы не сохранить таблицу, построение которой уже начато
+                if (ruleSetIDs != null) {
+                    invalidateWithTransaction(ruleSetIDs);
+                }
+            }
+        }
+    }
+}
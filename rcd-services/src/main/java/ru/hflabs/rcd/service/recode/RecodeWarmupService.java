@@ -0,0 +1,319 @@
+package ru.hflabs.rcd.service.recode;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.util.StringUtils;
+import ru.hflabs.rcd.event.ContextEvent;
+import ru.hflabs.rcd.event.index.IndexRebuildFailedEvent;
+import ru.hflabs.rcd.event.index.IndexRebuildedEvent;
+import ru.hflabs.rcd.model.document.Field;
+import ru.hflabs.rcd.model.rule.RecodeMetrics;
+import ru.hflabs.rcd.model.rule.RecodeRule;
+import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+import ru.hflabs.rcd.service.IRecodeMetricsService;
+import ru.hflabs.rcd.service.IRecodeResolutionService;
+import ru.hflabs.rcd.service.IRecodeTableService;
+import ru.hflabs.rcd.service.IRecodeWarmupService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Класс <class>RecodeWarmupService</class> реализует предварительную загрузку наборов правил перекодирования при старте.<br/>
+ * После перестроения индексов наборов правил, правил и значений полей в отдельном потоке загружаются наборы правил,
+ * указанные в конфигурации, и наиболее используемые наборы и цепочки предыдущего запуска, которые сохраняются
+ * по статистике перекодирования при остановке сервиса (по одной записи в строке, звенья цепочки разделены табуляцией).
+ * Загрузка набора включает определение по названию, построение таблицы перекодирования и чтение значений полей,
+ * поэтому первые запросы не обращаются к холодному индексу. До завершения загрузки сервис сообщает о неготовности.<br/>
+ * Если перестроение одного из индексов завершилось ошибкой или было отменено, либо загрузка не завершилась за заданное время
+ * с момента создания сервиса, то сервис становится готовым без загрузки, чтобы перекодирование не отклонялось до повторного перестроения.
+ *
+ * @author Nazin Alexander
+ * @see RecodeTableService
+ * @see RecodeMetricsService
+ */
+public class RecodeWarmupService implements IRecodeWarmupService, ApplicationListener<ApplicationEvent>, BeanNameAware, DisposableBean {
+
+    private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+    /** Название файла с наиболее используемыми наборами правил предыдущего запуска */
+    public static final String HOT_RULE_SETS_FILE = "recode-warmup.txt";
+    /** Разделитель названий наборов правил в конфигурации */
+    private static final Splitter RULE_SET_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+    /** Разделитель названий наборов правил цепочки в файле наиболее используемых наборов */
+    private static final char CHAIN_SEPARATOR = '\t';
+    private static final Splitter CHAIN_SPLITTER = Splitter.on(CHAIN_SEPARATOR).trimResults().omitEmptyStrings();
+    private static final Joiner CHAIN_JOINER = Joiner.on(CHAIN_SEPARATOR);
+
+    /** Идентификатор сервиса */
+    private String serviceId;
+
+    /** Сервис работы с таблицами перекодирования */
+    private IRecodeTableService recodeTableService;
+    /** Сервис определения наборов правил перекодирования */
+    private IRecodeResolutionService recodeResolutionService;
+    /** Сервис сбора статистики перекодирования */
+    private IRecodeMetricsService recodeMetricsService;
+    /** Названия наборов правил, загружаемых всегда */
+    private Collection<String> ruleSetNames;
+    /** Максимальное количество сохраняемых наиболее используемых наборов правил */
+    private int limit;
+    /** Директория хранения наиболее используемых наборов правил или <code>NULL</code>, если они не сохраняются */
+    private File location;
+    /** Максимальное время ожидания готовности в миллисекундах */
+    private long readyTimeout;
+
+    /** Классы индексов, перестроение которых ожидается перед загрузкой */
+    private final Set<Class<?>> pendingIndexes;
+    /** Флаг запуска предварительной загрузки */
+    private final AtomicBoolean started;
+    /** Время создания сервиса в миллисекундах */
+    private final long createdTime;
+    /** Флаг готовности сервиса */
+    private volatile boolean ready;
+
+    public RecodeWarmupService() {
+        this.ruleSetNames = Collections.emptyList();
+        this.limit = 20;
+        this.readyTimeout = TimeUnit.MINUTES.toMillis(10);
+        this.createdTime = System.currentTimeMillis();
+        this.pendingIndexes = Collections.synchronizedSet(Sets.<Class<?>>newHashSet(RecodeRuleSet.class, RecodeRule.class, Field.class));
+        this.started = new AtomicBoolean(false);
+        this.ready = false;
+    }
+
+    @Override
+    public void setBeanName(String name) {
+        this.serviceId = name;
+    }
+
+    public void setRecodeTableService(IRecodeTableService recodeTableService) {
+        this.recodeTableService = recodeTableService;
+    }
+
+    public void setRecodeResolutionService(IRecodeResolutionService recodeResolutionService) {
+        this.recodeResolutionService = recodeResolutionService;
+    }
+
+    public void setRecodeMetricsService(IRecodeMetricsService recodeMetricsService) {
+        this.recodeMetricsService = recodeMetricsService;
+    }
+
+    public void setRuleSetNames(String ruleSetNames) {
+        this.ruleSetNames = Lists.newArrayList(RULE_SET_SPLITTER.split(ruleSetNames != null ? ruleSetNames : ""));
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public void setLocation(File location) {
+        this.location = location;
+    }
+
+    public void setReadyTimeout(long readyTimeout) {
+        this.readyTimeout = readyTimeout;
+    }
+
+    @Override
+    public boolean isReady() {
+        if (!ready && System.currentTimeMillis() - createdTime >= readyTimeout) {
+            markReady(String.format("Rule sets warm up not completed in %d ms", readyTimeout));
+        }
+        return ready;
+    }
+
+    /**
+     * @return Возвращает файл наиболее используемых наборов правил или <code>NULL</code>, если они не сохраняются
+     */
+    private File retrieveHotRuleSetsFile() {
+        return (location != null && limit > 0) ? new File(location, HOT_RULE_SETS_FILE) : null;
+    }
+
+    /**
+     * @return Возвращает названия наиболее используемых наборов правил и цепочек предыдущего запуска
+     */
+    private List<List<String>> loadHotRuleSets() {
+        File file = retrieveHotRuleSetsFile();
+        if (file != null && file.isFile()) {
+            try {
+                List<List<String>> result = Lists.newArrayList();
+                for (String line : Files.readAllLines(file.toPath(), Charsets.UTF_8)) {
+                    if (StringUtils.hasText(line) && result.size() < limit) {
+                        result.add(Lists.newArrayList(CHAIN_SPLITTER.split(line)));
+                    }
+                }
+                return result;
+            } catch (IOException ex) {
+                LOG.warn(String.format("Can't read hot rule sets from '%s': %s", file, ex.getMessage()));
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Сохраняет названия наиболее используемых наборов правил по накопленной статистике
+     */
+    private void storeHotRuleSets() {
+        File file = retrieveHotRuleSetsFile();
+        if (file == null) {
+            return;
+        }
+        List<RecodeMetrics> metrics = Lists.newArrayList(recodeMetricsService.retrieveMetrics());
+        Collections.sort(metrics, new Comparator<RecodeMetrics>() {
+            @Override
+            public int compare(RecodeMetrics o1, RecodeMetrics o2) {
+                long total1 = o1.getTotalCount();
+                long total2 = o2.getTotalCount();
+                return (total1 < total2) ? 1 : ((total1 == total2) ? 0 : -1);
+            }
+        });
+        List<String> hotRuleSets = Lists.newArrayListWithExpectedSize(limit);
+        for (RecodeMetrics next : metrics) {
+            if (hotRuleSets.size() >= limit) {
+                break;
+            }
+            if (!RecodeMetricsService.UNKNOWN_RULE_SET.equals(next.getRuleSetName())) {
+                hotRuleSets.add(CHAIN_JOINER.join(next.getAliases()));
+            }
+        }
+        if (hotRuleSets.isEmpty()) {
+            // Статистика не накоплена, сохраняем наборы предыдущего запуска
+            return;
+        }
+        try {
+            Files.write(file.toPath(), hotRuleSets, Charsets.UTF_8);
+        } catch (IOException ex) {
+            LOG.warn(String.format("Can't store hot rule sets to '%s': %s", file, ex.getMessage()));
+        }
+    }
+
+    /**
+     * Выполняет загрузку набора правил или цепочки наборов
+     *
+     * @param aliases названия наборов правил цепочки
+     */
+    private void warmUp(List<String> aliases) {
+        List<RecodeRuleSet> ruleSets = Lists.newArrayListWithExpectedSize(aliases.size());
+        for (String alias : aliases) {
+            RecodeRuleSet ruleSet = recodeResolutionService.resolveRecodeRuleSet(alias);
+            recodeTableService.retrieveRecodeTable(ruleSet);
+            ruleSets.add(ruleSet);
+        }
+        if (ruleSets.size() > 1) {
+            recodeTableService.retrieveRecodeChainTable(ruleSets);
+        }
+    }
+
+    /**
+     * Выполняет загрузку наборов правил и цепочек наборов
+     *
+     * @param entries коллекция названий наборов правил цепочек
+     * @return Возвращает количество загруженных наборов правил и цепочек
+     */
+    private int doWarmUp(Collection<List<String>> entries) {
+        int result = 0;
+        for (List<String> aliases : entries) {
+            try {
+                warmUp(aliases);
+                result++;
+            } catch (RuntimeException ex) {
+                LOG.warn(String.format("Can't warm up rule sets %s: %s", aliases, ex.getMessage()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int warmUp(Collection<String> ruleSetNames) {
+        List<List<String>> entries = Lists.newArrayListWithExpectedSize(ruleSetNames.size());
+        for (String ruleSetName : ruleSetNames) {
+            entries.add(Collections.singletonList(ruleSetName));
+        }
+        return doWarmUp(entries);
+    }
+
+    /**
+     * Запускает предварительную загрузку в отдельном потоке
+     */
+    private void startWarmUp() {
+        final Set<List<String>> names = Sets.newLinkedHashSet();
+        for (String ruleSetName : ruleSetNames) {
+            names.add(Collections.singletonList(ruleSetName));
+        }
+        names.addAll(loadHotRuleSets());
+        if (names.isEmpty()) {
+            ready = true;
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long startTime = System.nanoTime();
+                try {
+                    int count = doWarmUp(names);
+                    LOG.info(String.format(
+                            "Warm up of %d from %d rule sets completed in %d ms",
+                            count, names.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+                    ));
+                } finally {
+                    ready = true;
+                }
+            }
+        }, "recode-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Переводит сервис в состояние готовности без предварительной загрузки
+     *
+     * @param reason причина
+     */
+    private synchronized void markReady(String reason) {
+        if (!ready) {
+            LOG.warn(String.format("%s, recode service is ready without warm up", reason));
+            ready = true;
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        // Загрузка выполняется однократно после перестроения индексов, от которых зависят таблицы перекодирования
+        if (event instanceof IndexRebuildedEvent && ((ContextEvent) event).registryListener(serviceId)) {
+            pendingIndexes.remove(((IndexRebuildedEvent) event).getTargetClass());
+            if (pendingIndexes.isEmpty() && started.compareAndSet(false, true)) {
+                startWarmUp();
+            }
+        }
+        // Если индекс, от которого зависят таблицы перекодирования, не перестроен, то событие завершения перестроения не поступит
+        if (event instanceof IndexRebuildFailedEvent && ((ContextEvent) event).registryListener(serviceId)) {
+            IndexRebuildFailedEvent failedEvent = (IndexRebuildFailedEvent) event;
+            if (pendingIndexes.contains(failedEvent.getTargetClass())) {
+                markReady(String.format(
+                        "Rebuild of %s index %s",
+                        failedEvent.getTargetClass().getSimpleName(),
+                        failedEvent.getCause() != null ? "failed: " + failedEvent.getCause().getMessage() : "cancelled"
+                ));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        storeHotRuleSets();
+    }
+}
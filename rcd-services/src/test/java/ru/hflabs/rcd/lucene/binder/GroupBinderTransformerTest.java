@@ -32,7 +32,7 @@ public class GroupBinderTransformerTest extends BinderTransformerTest<Group> {
         Document document = binderTransformer.reverseConvert(group);
         assertNotNull(document);
         {
-            assertEquals(document.getFields().size(), 7 + 2);
+            assertEquals(document.getFields().size(), 7 + 7 + 2);
             assertEquals(document.getField(Group.PRIMARY_KEY).stringValue(), group.getId());
             assertEquals(document.getField(Group.HISTORY_ID).stringValue(), group.getHistoryId());
             assertEquals(document.getField(Group.CHANGE_TYPE).stringValue(), group.getHistory().getEventType().name());
@@ -86,6 +86,10 @@ public class RecodeRuleBinderTransformerTest extends BinderTransformerTest<Recod
             assertNotNull(document.getField(LuceneBinderTransformer.DEFAULT_SEARCH_FIELD));
             totalFieldsCount += 2;
         }
+        // sort values (without aliases)
+        {
+            totalFieldsCount += 7 + 1;
+        }
         assertEquals(document.getFields().size(), totalFieldsCount);
     }
 }
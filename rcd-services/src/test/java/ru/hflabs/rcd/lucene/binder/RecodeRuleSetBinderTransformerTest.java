@@ -115,6 +115,10 @@ public class RecodeRuleSetBinderTransformerTest extends BinderTransformerTest<Re
             assertNotNull(document.getField(LuceneBinderTransformer.DEFAULT_SEARCH_FIELD));
             totalFieldsCount += 2;
         }
+        // sort values (without aliases)
+        {
+            totalFieldsCount += 17 + 1;
+        }
         assertEquals(document.getFields().size(), totalFieldsCount);
     }
 }
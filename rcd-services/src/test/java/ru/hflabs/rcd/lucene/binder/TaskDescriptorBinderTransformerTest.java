@@ -40,7 +40,7 @@ public class TaskDescriptorBinderTransformerTest extends BinderTransformerTest<T
         Document document = binderTransformer.reverseConvert(taskDescriptor);
         assertNotNull(document);
         {
-            assertEquals(document.getFields().size(), 6 + 2);
+            assertEquals(document.getFields().size(), 6 + 6 + 2);
             assertEquals(document.getField(TaskDescriptor.PRIMARY_KEY).stringValue(), taskDescriptor.getId());
             assertEquals(document.getField(TaskDescriptor.HISTORY_ID).stringValue(), taskDescriptor.getHistoryId());
             assertEquals(document.getField(TaskDescriptor.CHANGE_TYPE).stringValue(), taskDescriptor.getHistory().getEventType().name());
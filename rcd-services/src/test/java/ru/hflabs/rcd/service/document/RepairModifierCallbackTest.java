@@ -0,0 +1,181 @@
+package ru.hflabs.rcd.service.document;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.Version;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import ru.hflabs.rcd.lucene.NamedIndexManager;
+import ru.hflabs.rcd.model.Identifying;
+import ru.hflabs.rcd.model.document.Group;
+import ru.hflabs.rcd.service.IRepairStorageService;
+import ru.hflabs.rcd.service.ListPageIterator;
+import ru.hflabs.util.lucene.LuceneBinderTransformer;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+@Test
+@SuppressWarnings("unchecked")
+public class RepairModifierCallbackTest {
+
+    private RAMDirectory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private NamedIndexManager indexManager;
+    private IRepairStorageService<Group> storageService;
+    private FilterDocumentServiceTemplate<Group> service;
+
+    private static Document createDocument(String id) {
+        Document result = new Document();
+        result.add(new StringField(Identifying.PRIMARY_KEY, id, Field.Store.YES));
+        return result;
+    }
+
+    private static Group createGroup(String id) {
+        Group result = new Group();
+        result.setId(id);
+        return result;
+    }
+
+    private void prepareIndex(String... ids) throws IOException {
+        for (String id : ids) {
+            writer.addDocument(createDocument(id));
+        }
+        writer.commit();
+        searcherManager = new SearcherManager(writer, true, null);
+        Mockito.when(indexManager.retrieveSearcherManager()).thenReturn(searcherManager);
+    }
+
+    private void prepareStorage(final Collection<String> ids) {
+        Mockito.when(storageService.totalCount()).thenReturn(ids.size());
+        Mockito.when(storageService.iterateIDs(Mockito.anyInt())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return new ListPageIterator<>(ImmutableList.copyOf(ids), 2);
+            }
+        });
+        Mockito.when(storageService.findByIDs(Mockito.<Collection<String>>any())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                List<Group> result = Lists.newArrayList();
+                for (String id : (Collection<String>) invocation.getArguments()[0]) {
+                    if (ids.contains(id)) {
+                        result.add(createGroup(id));
+                    }
+                }
+                return result;
+            }
+        });
+    }
+
+    private Set<String> retrieveIndexedIDs() throws IOException {
+        Set<String> result = Sets.newHashSet();
+        try (DirectoryReader reader = DirectoryReader.open(writer, true)) {
+            for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                if (reader.getLiveDocs() == null || reader.getLiveDocs().get(doc)) {
+                    result.add(reader.document(doc).get(Identifying.PRIMARY_KEY));
+                }
+            }
+        }
+        return result;
+    }
+
+    @BeforeMethod
+    public void prepareService() throws IOException {
+        directory = new RAMDirectory();
+        writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_43, new KeywordAnalyzer()));
+        indexManager = Mockito.mock(NamedIndexManager.class);
+        storageService = Mockito.mock(IRepairStorageService.class);
+
+        LuceneBinderTransformer<Group, String> binderTransformer = Mockito.mock(LuceneBinderTransformer.class);
+        Mockito.when(binderTransformer.reverseConvert(Mockito.any(Group.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return createDocument(((Group) invocation.getArguments()[0]).getId());
+            }
+        });
+
+        service = new FilterDocumentServiceTemplate<>(Group.class);
+        service.setIndexManager(indexManager);
+        service.setStorageService(storageService);
+        service.binderTransformer = binderTransformer;
+    }
+
+    @AfterMethod
+    public void closeIndex() throws IOException {
+        if (searcherManager != null) {
+            searcherManager.close();
+        }
+        writer.close();
+        directory.close();
+    }
+
+    public void testRepairWithoutHighWaterMark() throws Exception {
+        prepareIndex("a", "b", "c");
+        // Количество документов совпадает, но состав различается
+        prepareStorage(ImmutableSet.of("b", "c", "d"));
+
+        int repaired = service.new RepairModifierCallback(storageService).process(writer);
+
+        assertEquals(repaired, 2);
+        assertEquals(retrieveIndexedIDs(), ImmutableSet.of("b", "c", "d"));
+        Mockito.verify(storageService, Mockito.never()).findChangedIDs(Mockito.any(Date.class));
+    }
+
+    public void testRepairReplaysChanges() throws Exception {
+        prepareIndex("a", "b", "c");
+        prepareStorage(ImmutableSet.of("a", "c", "d"));
+        Mockito.when(indexManager.retrieveHighWaterMark()).thenReturn(new Date());
+        Mockito.when(storageService.findChangedIDs(Mockito.any(Date.class))).thenReturn(ImmutableList.of("b", "c"));
+
+        int repaired = service.new RepairModifierCallback(storageService).process(writer);
+
+        // Измененные документы переиндексируются и не сверяются повторно, отсутствующий в индексе документ добавляется
+        assertEquals(repaired, 3);
+        assertEquals(retrieveIndexedIDs(), ImmutableSet.of("a", "c", "d"));
+    }
+
+    public void testSegmentIdentifiers() throws Exception {
+        prepareIndex("a", "b");
+        writer.addDocument(createDocument("c"));
+        writer.deleteDocuments(new Term(Identifying.PRIMARY_KEY, "b"));
+        writer.commit();
+
+        Set<String> unmarked = Sets.newHashSet();
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            for (AtomicReaderContext leaf : reader.leaves()) {
+                FilterDocumentServiceTemplate.SegmentIdentifiers segment = new FilterDocumentServiceTemplate.SegmentIdentifiers(leaf.reader());
+                // Удаленный документ не отмечается
+                assertFalse(segment.mark(new BytesRef("b")));
+                assertFalse(segment.mark(new BytesRef("unknown")));
+                segment.mark(new BytesRef("c"));
+                unmarked.addAll(segment.retrieveUnmarked());
+            }
+        }
+        assertEquals(unmarked, ImmutableSet.of("a"));
+    }
+}
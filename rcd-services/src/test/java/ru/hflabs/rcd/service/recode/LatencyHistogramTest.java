@@ -0,0 +1,30 @@
+package ru.hflabs.rcd.service.recode;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class LatencyHistogramTest {
+
+    public void testBucketBounds() {
+        for (long value : new long[]{0, 1, 7, 8, 15, 16, 100, 1000, 123456789L, Long.MAX_VALUE / 2}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index) <= value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index + 1) > value);
+        }
+    }
+
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        long[] percentiles = histogram.getPercentiles(50, 99, 100);
+        assertTrue(percentiles[0] >= 500 && percentiles[0] < 500 * 1.125);
+        assertTrue(percentiles[1] >= 990 && percentiles[1] <= 1000);
+        assertEquals(percentiles[2], 1000);
+        assertEquals(histogram.getMax(), 1000);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.hflabs.rcd.storage;
+
+/**
+ * Интерфейс <class>TransactionLifecycleListener</class> декларирует методы слушателя начала и завершения физических транзакций хранилища
+ *
+ * @author Nazin Alexander
+ */
+public interface TransactionLifecycleListener {
+
+    /**
+     * Действия после начала транзакции
+     *
+     * @param transaction объект транзакции
+     */
+    void afterBegin(Object transaction);
+
+    /**
+     * Действия после завершения транзакции и освобождения ее ресурсов
+     *
+     * @param transaction объект транзакции
+     */
+    void afterCleanup(Object transaction);
+}
@@ -0,0 +1,126 @@
+package org.hibernate.type;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.usertype.CompositeUserType;
+import org.hibernate.usertype.ParameterizedType;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Класс <class>OverflowStringType</class> реализует хранение строки в двух колонках БД.<br/>
+ * Строки, длина которых не превышает заданной, хранятся в индексируемой строковой колонке, а более длинные - в колонке переполнения типа LOB.
+ * Для коротких строк колонка переполнения содержит <code>NULL</code>, поэтому LOB при чтении не материализуется.
+ *
+ * @author Nazin Alexander
+ */
+public class OverflowStringType implements CompositeUserType, ParameterizedType {
+
+    /** Название параметра максимальной длины строки в строковой колонке */
+    public static final String MAX_LENGTH = "maxLength";
+    /** Максимальная длина строки в строковой колонке по умолчанию */
+    public static final int DEFAULT_MAX_LENGTH = 255;
+
+    /** Названия колонок */
+    private static final String[] PROPERTY_NAMES = new String[]{"value", "overflow"};
+    /** Типы колонок */
+    private static final Type[] PROPERTY_TYPES = new Type[]{StringType.INSTANCE, MaterializedClobType.INSTANCE};
+
+    /** Максимальная длина строки в строковой колонке */
+    private int maxLength = DEFAULT_MAX_LENGTH;
+
+    @Override
+    public void setParameterValues(Properties parameters) {
+        String length = parameters != null ? parameters.getProperty(MAX_LENGTH) : null;
+        if (length != null) {
+            maxLength = Integer.parseInt(length);
+        }
+    }
+
+    /**
+     * @param value строка
+     * @return Возвращает <code>TRUE</code>, если строка хранится в строковой колонке
+     */
+    private boolean isInline(String value) {
+        return value == null || value.length() <= maxLength;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return PROPERTY_NAMES;
+    }
+
+    @Override
+    public Type[] getPropertyTypes() {
+        return PROPERTY_TYPES;
+    }
+
+    @Override
+    public Object getPropertyValue(Object component, int property) throws HibernateException {
+        String value = (String) component;
+        return (property == 0) == isInline(value) ? value : null;
+    }
+
+    @Override
+    public void setPropertyValue(Object component, int property, Object value) throws HibernateException {
+        throw new UnsupportedOperationException(String.format("%s is immutable", returnedClass().getName()));
+    }
+
+    @Override
+    public Class returnedClass() {
+        return String.class;
+    }
+
+    @Override
+    public boolean equals(Object x, Object y) throws HibernateException {
+        return x == y || (x != null && x.equals(y));
+    }
+
+    @Override
+    public int hashCode(Object x) throws HibernateException {
+        return x.hashCode();
+    }
+
+    @Override
+    public Object nullSafeGet(ResultSet rs, String[] names, SessionImplementor session, Object owner) throws HibernateException, SQLException {
+        String value = StringType.INSTANCE.nullSafeGet(rs, names[0], session);
+        return value != null ? value : MaterializedClobType.INSTANCE.nullSafeGet(rs, names[1], session);
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, Object value, int index, SessionImplementor session) throws HibernateException, SQLException {
+        String string = (String) value;
+        boolean inline = isInline(string);
+        StringType.INSTANCE.nullSafeSet(st, inline ? string : null, index, session);
+        MaterializedClobType.INSTANCE.nullSafeSet(st, inline ? null : string, index + 1, session);
+    }
+
+    @Override
+    public Object deepCopy(Object value) throws HibernateException {
+        return value;
+    }
+
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+
+    @Override
+    public Serializable disassemble(Object value, SessionImplementor session) throws HibernateException {
+        return (Serializable) value;
+    }
+
+    @Override
+    public Object assemble(Serializable cached, SessionImplementor session, Object owner) throws HibernateException {
+        return cached;
+    }
+
+    @Override
+    public Object replace(Object original, Object target, SessionImplementor session, Object owner) throws HibernateException {
+        return original;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.hflabs.rcd.storage.sql;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import ru.hflabs.rcd.storage.TransactionLifecycleListener;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Класс <class>NotifyingJpaTransactionManager</class> реализует менеджер транзакций JPA, оповещающий
+ * {@link TransactionLifecycleListener слушателей} о начале и завершении физических транзакций БД.<br/>
+ * Слушатели собираются из контекста приложения после его инициализации
+ *
+ * @author Nazin Alexander
+ */
+public class NotifyingJpaTransactionManager extends JpaTransactionManager implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final long serialVersionUID = -3417254863052396201L;
+
+    /** Слушатели транзакций */
+    private final transient Set<TransactionLifecycleListener> listeners = new CopyOnWriteArraySet<>();
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        super.doBegin(transaction, definition);
+        for (TransactionLifecycleListener listener : listeners) {
+            listener.afterBegin(transaction);
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        try {
+            super.doCleanupAfterCompletion(transaction);
+        } finally {
+            for (TransactionLifecycleListener listener : listeners) {
+                listener.afterCleanup(transaction);
+            }
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        listeners.addAll(event.getApplicationContext().getBeansOfType(TransactionLifecycleListener.class).values());
+    }
+}
@@ -0,0 +1,98 @@
+package ru.hflabs.rcd.storage.sql;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import ru.hflabs.rcd.service.ICloseableIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Класс <class>ScrollablePageIterator</class> реализует постраничный итератор сущностей по курсору БД.<br/>
+ * Сущности читаются из курсора по мере итерирования и сразу отсоединяются от сессии (если она указана),
+ * поэтому в памяти одновременно находится не более одной страницы.
+ * После окончания итерирования курсор закрывается автоматически, при досрочном завершении его необходимо {@link #close() закрыть}.
+ *
+ * @author Nazin Alexander
+ */
+public class ScrollablePageIterator<E> implements ICloseableIterator<List<E>> {
+
+    /** Сессия или <code>NULL</code>, если курсор не возвращает сущностей */
+    private final Session session;
+    /** Курсор результата */
+    private final ScrollableResults results;
+    /** Размер страницы */
+    private final int pageSize;
+    /** Следующая страница или <code>NULL</code>, если страница не прочитана */
+    private List<E> nextPage;
+    /** Флаг закрытия курсора */
+    private boolean closed;
+
+    public ScrollablePageIterator(ScrollableResults results, int pageSize) {
+        this(null, results, pageSize);
+    }
+
+    public ScrollablePageIterator(Session session, ScrollableResults results, int pageSize) {
+        this.session = session;
+        this.results = results;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Читает следующую страницу из курсора
+     *
+     * @return Возвращает страницу или пустую коллекцию, если курсор прочитан
+     */
+    @SuppressWarnings("unchecked")
+    private List<E> readPage() {
+        List<E> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && results.next()) {
+            E entity = (E) results.get(0);
+            if (session != null) {
+                session.evict(entity);
+            }
+            page.add(entity);
+        }
+        return page;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (nextPage == null) {
+            nextPage = readPage();
+        }
+        if (nextPage.isEmpty()) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<E> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<E> result = nextPage;
+        nextPage = null;
+        return result;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            nextPage = null;
+            results.close();
+        }
+    }
+}
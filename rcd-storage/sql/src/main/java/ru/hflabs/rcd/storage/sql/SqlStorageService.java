@@ -1,16 +1,24 @@
 package ru.hflabs.rcd.storage.sql;
 
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.Session;
+import org.hibernate.criterion.Projections;
+import org.springframework.beans.BeanUtils;
+import ru.hflabs.rcd.model.Historical;
 import ru.hflabs.rcd.model.Identifying;
 import ru.hflabs.rcd.model.change.ChangeType;
-import ru.hflabs.rcd.service.IStorageService;
+import ru.hflabs.rcd.model.change.History;
+import ru.hflabs.rcd.service.ICloseableIterator;
+import ru.hflabs.rcd.service.IRepairStorageService;
 import ru.hflabs.rcd.storage.ChangeDocumentCallback;
 import ru.hflabs.rcd.storage.ChangeServiceTemplate;
-import ru.hflabs.util.core.collection.IteratorUtil;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
 import java.util.*;
 
 /**
@@ -18,7 +26,10 @@ import java.util.*;
  *
  * @author Nazin Alexander
  */
-public class SqlStorageService<E extends Identifying> extends ChangeServiceTemplate<E> implements IStorageService<E> {
+public class SqlStorageService<E extends Identifying> extends ChangeServiceTemplate<E> implements IRepairStorageService<E> {
+
+    /** Максимальное количество идентификаторов в одном запросе */
+    private static final int IN_BATCH_SIZE = 1000;
 
     /** Карта процессоров модификации документов */
     private Map<ChangeType, ChangeDocumentCallback<E>> changeDocumentCallbacks;
@@ -55,9 +66,69 @@ public class SqlStorageService<E extends Identifying> extends ChangeServiceTempl
         return entityManager.createQuery(query).getResultList();
     }
 
+    /**
+     * Возвращает постраничный итератор по курсору БД.<br/>
+     * Размер выборки курсора равен размеру страницы, умноженному на размер кеша страниц,
+     * то есть за одно обращение к БД читается <code>cacheSize</code> страниц
+     */
+    @Override
+    public final ICloseableIterator<List<E>> iterateAll(int fetchSize, int cacheSize) {
+        Session session = entityManager.unwrap(Session.class);
+        return new ScrollablePageIterator<>(
+                session,
+                session.createCriteria(retrieveTargetClass())
+                        .setReadOnly(true)
+                        .setCacheMode(CacheMode.IGNORE)
+                        .setFetchSize(fetchSize * Math.max(cacheSize, 1))
+                        .scroll(ScrollMode.FORWARD_ONLY),
+                fetchSize
+        );
+    }
+
+    @Override
+    public ICloseableIterator<List<String>> iterateIDs(int fetchSize) {
+        return new ScrollablePageIterator<>(
+                entityManager.unwrap(Session.class).createCriteria(retrieveTargetClass())
+                        .setProjection(Projections.id())
+                        .setReadOnly(true)
+                        .setFetchSize(fetchSize)
+                        .scroll(ScrollMode.FORWARD_ONLY),
+                fetchSize
+        );
+    }
+
     @Override
-    public final Iterator<List<E>> iterateAll(int fetchSize, int cacheSize) {
-        return IteratorUtil.toPageIterator(getAll().iterator(), fetchSize);
+    public List<E> findByIDs(Collection<String> ids) {
+        List<String> targetIDs = new ArrayList<>(ids);
+        List<E> result = new ArrayList<>(targetIDs.size());
+        // Выполняем запрос частями, так как количество значений в условии IN ограничено СУБД
+        for (int from = 0; from < targetIDs.size(); from += IN_BATCH_SIZE) {
+            CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<E> query = builder.createQuery(retrieveTargetClass());
+            Root<E> root = query.from(retrieveTargetClass());
+            query = query.select(root).where(root.get(E.PRIMARY_KEY).in(targetIDs.subList(from, Math.min(from + IN_BATCH_SIZE, targetIDs.size()))));
+            result.addAll(entityManager.createQuery(query).getResultList());
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<String> findChangedIDs(Date since) {
+        if (!Historical.class.isAssignableFrom(retrieveTargetClass())) {
+            return null;
+        }
+        // Название типа сущности в истории изменений
+        String historyName = ((Historical) BeanUtils.instantiateClass(retrieveTargetClass())).getHistoryName();
+        // Формируем запрос идентификаторов сущностей, история которых изменилась
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<String> query = builder.createQuery(String.class);
+        Root<History> root = query.from(History.class);
+        query = query.select(root.<String>get(History.TARGET_ID)).distinct(true).where(
+                builder.equal(root.get(History.TARGET_TYPE), historyName),
+                builder.greaterThanOrEqualTo(root.<Date>get(History.EVENT_DATE), since)
+        );
+        // Выполняем запрос и возвращаем результат
+        return entityManager.createQuery(query).getResultList();
     }
 
     /**
@@ -0,0 +1,8 @@
+-- -----------------------------------------------------
+-- Field table
+-- -----------------------------------------------------
+ALTER TABLE t_field CHANGE value value_overflow LONGTEXT NULL;
+ALTER TABLE t_field ADD value VARCHAR(255) NULL;
+UPDATE t_field SET value = value_overflow, value_overflow = NULL WHERE CHAR_LENGTH(value_overflow) <= 255;
+COMMIT;
+CREATE INDEX idx_field_value ON t_field (meta_field_id, value);
@@ -0,0 +1,8 @@
+-- -----------------------------------------------------
+-- Field table
+-- -----------------------------------------------------
+ALTER TABLE t_field RENAME COLUMN value TO value_overflow;
+ALTER TABLE t_field ADD value NVARCHAR2(255) NULL;
+UPDATE t_field SET value = TO_NCHAR(value_overflow), value_overflow = NULL WHERE DBMS_LOB.GETLENGTH(value_overflow) <= 255;
+COMMIT;
+CREATE INDEX idx_field_value ON t_field (meta_field_id, value);
@@ -17,8 +17,11 @@ import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.OrderComparator;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.StringUtils;
 import ru.hflabs.rcd.event.index.IndexRebuildEvent;
+import ru.hflabs.rcd.event.index.IndexRebuildFailedEvent;
 import ru.hflabs.rcd.event.index.IndexRebuildedEvent;
 import ru.hflabs.rcd.lucene.LuceneRebuildCallbackFactory;
 import ru.hflabs.rcd.model.task.TaskProgress;
@@ -30,12 +33,14 @@ import ru.hflabs.util.security.SecurityUtil;
 import ru.hflabs.util.spring.util.ReflectionUtil;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Класс <class>IndexRebuildTaskPerformer</class> реализует контроллер перестроения индексов через следующий алгоритм:<br/>
  * <ul>
  * <li>Сортирует и запоминает собранные фабрики на основании их {@link org.springframework.core.Ordered#getOrder() приоритета}</li>
- * <li>Выполняет поочередное перестроение отсортированной коллекции фабрик</li>
+ * <li>Выполняет параллельное перестроение отсортированной коллекции фабрик: индекс перестраивается только после
+ * {@link LuceneRebuildCallbackFactory#retrieveRebuildDependencies() индексов, от которых он зависит}, а независимые индексы перестраиваются одновременно</li>
  * </ul>
  *
  * @author Nazin Alexander
@@ -49,9 +54,22 @@ public class IndexRebuildTaskPerformer extends TaskPerformerTemplate<IndexRebuil
     private ApplicationEventPublisher eventPublisher;
     /** Коллекция фабрик перестроения индексов */
     private List<LuceneRebuildCallbackFactory> factories;
+    /** Количество индексов, перестраиваемых параллельно */
+    private int parallelism;
+    /** Пул потоков перестроения индексов */
+    private ExecutorService executorService;
 
     public IndexRebuildTaskPerformer() {
         factories = Collections.synchronizedList(new ArrayList<LuceneRebuildCallbackFactory>());
+        parallelism = 1;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
     }
 
     @Override
@@ -137,16 +155,123 @@ public class IndexRebuildTaskPerformer extends TaskPerformerTemplate<IndexRebuil
                 documentsCount = factory.executeRebuild();
                 status = TaskResultStatus.FINISHED;
             } else {
+                // Восстанавливаем согласованность индекса с хранилищем
+                int repairedCount = factory.executeRepair();
                 documentsCount = factory.totalDocumentCount();
-                status = TaskResultStatus.SKIPPED;
+                status = repairedCount > 0 ? TaskResultStatus.FINISHED : TaskResultStatus.SKIPPED;
             }
         }
         // Публикуем событие о перестроении индекса
-        eventPublisher.publishEvent(new IndexRebuildedEvent(this, targetClass, documentsCount));
+        eventPublisher.publishEvent(new IndexRebuildedEvent(this, targetClass, documentsCount, !TaskResultStatus.SKIPPED.equals(status)));
         // Возвращаем результат перестроения
         return new IndexRebuildResult.Index(status, targetClass.getName(), documentsCount);
     }
 
+    /**
+     * Проверяет, что индексы, от которых зависит фабрика, перестроены
+     *
+     * @param factory фабрика перестроения
+     * @param targetClasses классы перестраиваемых индексов
+     * @param rebuildedClasses классы перестроенных индексов
+     * @return Возвращает <code>TRUE</code>, если фабрика может быть перестроена
+     */
+    private static boolean isDependenciesRebuilded(LuceneRebuildCallbackFactory factory, Set<Class<?>> targetClasses, Set<Class<?>> rebuildedClasses) {
+        Set<Class<?>> dependencies = Sets.intersection(factory.retrieveRebuildDependencies(), targetClasses);
+        return rebuildedClasses.containsAll(dependencies);
+    }
+
+    /**
+     * Запускает перестроение индекса
+     *
+     * @param factory фабрика перестроения
+     * @param force флаг принудительного перестроения
+     * @param context контекст выполнения задачи
+     * @param completionService сервис ожидания завершения перестроений
+     * @param running выполняющиеся перестроения
+     */
+    private void submitRebuild(LuceneRebuildCallbackFactory factory, boolean force, TaskProgressHolder context,
+                               CompletionService<IndexRebuildResult.Index> completionService,
+                               Map<Future<IndexRebuildResult.Index>, LuceneRebuildCallbackFactory> running) {
+        changeProgress(context.nextStep(), "Rebuilding {0}", "rebuilding", factory.retrieveTargetClass().getSimpleName());
+        running.put(completionService.submit(new RebuildWorker(factory, force, SecurityContextHolder.getContext())), factory);
+    }
+
+    /**
+     * Выполняет параллельное перестроение индексов с учетом их зависимостей
+     *
+     * @param targetFactories отсортированная коллекция фабрик перестроения
+     * @param force флаг принудительного перестроения
+     * @return Возвращает результаты перестроения, где ключ - фабрика перестроения
+     */
+    private Map<LuceneRebuildCallbackFactory, IndexRebuildResult.Index> doIndexRebuild(List<LuceneRebuildCallbackFactory> targetFactories, boolean force) throws Exception {
+        Map<LuceneRebuildCallbackFactory, IndexRebuildResult.Index> result = new HashMap<>(targetFactories.size());
+        TaskProgressHolder context = new TaskProgressHolder(new Date(), SecurityUtil.getCurrentUserName(), targetFactories.size());
+
+        Set<Class<?>> targetClasses = Sets.newHashSet();
+        for (LuceneRebuildCallbackFactory factory : targetFactories) {
+            targetClasses.add(factory.retrieveTargetClass());
+        }
+        Set<Class<?>> rebuildedClasses = Sets.newHashSet();
+        List<LuceneRebuildCallbackFactory> pending = Lists.newLinkedList(targetFactories);
+        Map<Future<IndexRebuildResult.Index>, LuceneRebuildCallbackFactory> running = new HashMap<>();
+
+        int maxRunning = Math.max(1, parallelism);
+        CompletionService<IndexRebuildResult.Index> completionService = new ExecutorCompletionService<>(executorService);
+        Throwable failure = null;
+        try {
+            while (!pending.isEmpty() || !running.isEmpty()) {
+                if (!isCancelled()) {
+                    // Запускаем перестроение индексов, зависимости которых уже перестроены
+                    for (Iterator<LuceneRebuildCallbackFactory> iterator = pending.iterator(); iterator.hasNext() && running.size() < maxRunning; ) {
+                        LuceneRebuildCallbackFactory factory = iterator.next();
+                        if (isDependenciesRebuilded(factory, targetClasses, rebuildedClasses)) {
+                            iterator.remove();
+                            submitRebuild(factory, force, context, completionService, running);
+                        }
+                    }
+                    // Если после полного прохода ни одна фабрика не запущена и перестроения не выполняются,
+                    // то зависимости циклические и первая ожидающая фабрика запускается принудительно
+                    if (running.isEmpty() && !pending.isEmpty()) {
+                        submitRebuild(pending.remove(0), force, context, completionService, running);
+                    }
+                } else {
+                    pending.clear();
+                }
+                // Дожидаемся завершения перестроения одного из индексов
+                if (!running.isEmpty()) {
+                    Future<IndexRebuildResult.Index> future = completionService.take();
+                    LuceneRebuildCallbackFactory factory = running.remove(future);
+                    try {
+                        result.put(factory, future.get());
+                    } catch (ExecutionException ex) {
+                        failure = ex.getCause();
+                        throw (ex.getCause() instanceof Exception) ? (Exception) ex.getCause() : ex;
+                    }
+                    rebuildedClasses.add(factory.retrieveTargetClass());
+                }
+            }
+        } catch (Exception ex) {
+            failure = (failure != null) ? failure : ex;
+            throw ex;
+        } finally {
+            // Дожидаемся завершения перестроений, запущенных до ошибки
+            for (Map.Entry<Future<IndexRebuildResult.Index>, LuceneRebuildCallbackFactory> entry : running.entrySet()) {
+                try {
+                    result.put(entry.getValue(), entry.getKey().get());
+                } catch (ExecutionException ex) {
+                    // Ошибка уже не может быть передана, так как перестроение прервано предыдущей ошибкой
+                }
+            }
+            // Сообщаем об индексах, которые не были перестроены из-за ошибки или отмены
+            for (LuceneRebuildCallbackFactory factory : targetFactories) {
+                if (!result.containsKey(factory)) {
+                    eventPublisher.publishEvent(new IndexRebuildFailedEvent(this, factory.retrieveTargetClass(), failure));
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     protected synchronized IndexRebuildResult doPerformTask(IndexRebuildParameters parameters) throws Exception {
         // Формируем целевые фабрики
@@ -167,12 +292,12 @@ public class IndexRebuildTaskPerformer extends TaskPerformerTemplate<IndexRebuil
         );
 
         // Выполняем перестроение для каждой фабрики
-        List<IndexRebuildResult.Index> result = new ArrayList<>(targetFactories.size());
-        TaskProgressHolder context = new TaskProgressHolder(new Date(), SecurityUtil.getCurrentUserName(), targetFactories.size());
-        for (Iterator<LuceneRebuildCallbackFactory> iterator = targetFactories.iterator(); !isCancelled() && iterator.hasNext(); ) {
-            LuceneRebuildCallbackFactory factory = iterator.next();
-            changeProgress(context.nextStep(), "Rebuilding {0}", "rebuilding", factory.retrieveTargetClass().getSimpleName());
-            result.add(doIndexRebuild(factory, parameters.isForce()));
+        Map<LuceneRebuildCallbackFactory, IndexRebuildResult.Index> rebuilded = doIndexRebuild(targetFactories, parameters.isForce());
+        List<IndexRebuildResult.Index> result = new ArrayList<>(rebuilded.size());
+        for (LuceneRebuildCallbackFactory factory : targetFactories) {
+            if (rebuilded.containsKey(factory)) {
+                result.add(rebuilded.get(factory));
+            }
         }
 
         changeProgress(TaskProgress.MAX_PROGRESS, "Full result rebuild finished", "finished");
@@ -220,4 +345,35 @@ public class IndexRebuildTaskPerformer extends TaskPerformerTemplate<IndexRebuil
             }
         }
     }
+
+    /**
+     * Класс <class>RebuildWorker</class> реализует поток перестроения индекса
+     *
+     * @author Nazin Alexander
+     */
+    private class RebuildWorker implements Callable<IndexRebuildResult.Index> {
+
+        /** Фабрика перестроения */
+        private final LuceneRebuildCallbackFactory factory;
+        /** Флаг принудительного перестроения */
+        private final boolean force;
+        /** Контекст безопасности задачи */
+        private final SecurityContext securityContext;
+
+        private RebuildWorker(LuceneRebuildCallbackFactory factory, boolean force, SecurityContext securityContext) {
+            this.factory = factory;
+            this.force = force;
+            this.securityContext = securityContext;
+        }
+
+        @Override
+        public IndexRebuildResult.Index call() throws Exception {
+            SecurityContextHolder.setContext(securityContext);
+            try {
+                return doIndexRebuild(factory, force);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+    }
 }
@@ -21,15 +21,18 @@ import ru.hflabs.rcd.model.document.Dictionary;
 import ru.hflabs.rcd.model.document.Field;
 import ru.hflabs.rcd.model.document.Group;
 import ru.hflabs.rcd.model.document.MetaField;
+import ru.hflabs.rcd.model.document.Record;
 import ru.hflabs.rcd.model.path.FieldNamedPath;
 import ru.hflabs.rcd.model.rule.RecodeRule;
 import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+import ru.hflabs.rcd.service.ICloseableIterator;
 import ru.hflabs.rcd.service.IHistoryService;
 import ru.hflabs.rcd.service.ServiceUtils;
 import ru.hflabs.rcd.service.document.IDictionaryService;
 import ru.hflabs.rcd.service.document.IFieldService;
 import ru.hflabs.rcd.service.document.IGroupService;
 import ru.hflabs.rcd.service.document.IMetaFieldService;
+import ru.hflabs.rcd.service.document.IRecordService;
 import ru.hflabs.rcd.service.document.recodeRule.RecodeRuleActualizeService;
 import ru.hflabs.rcd.service.document.recodeRuleSet.RecodeRuleSetActualizeService;
 import ru.hflabs.rcd.service.rule.IRecodeRuleService;
@@ -40,6 +43,7 @@ import ru.hflabs.rcd.term.Condition;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import static ru.hflabs.rcd.accessor.Accessors.FROM_RULE_INJECTOR;
@@ -58,6 +62,9 @@ public abstract class SynchronizationTaskPerformer<P extends SynchronizationPara
         extends TaskPerformerTemplate<P, SynchronizationResult>
         implements ApplicationEventPublisherAware {
 
+    /** Количество существующих записей, сравниваемых за одно обращение при синхронизации значений полей */
+    private static final int SYNCHRONIZE_BATCH_SIZE = 1000;
+
     /** Основной контекст приложения */
     @Setter(AccessLevel.NONE)
     protected ApplicationEventPublisher eventPublisher;
@@ -73,6 +80,8 @@ public abstract class SynchronizationTaskPerformer<P extends SynchronizationPara
     protected IMetaFieldService metaFieldService;
     /** Сервис работы со значениями полей */
     protected IFieldService fieldService;
+    /** Сервис работы с записями справочника */
+    protected IRecordService recordService;
 
     /** Сервис работы с наборами правил перекодирования */
     protected IRecodeRuleSetService recodeRuleSetService;
@@ -244,7 +253,20 @@ public abstract class SynchronizationTaskPerformer<P extends SynchronizationPara
         Map<String, T> newEssences = CollectionUtils.isEmpty(targetValues) ?
                 Collections.<String, T>emptyMap() :
                 Maps.uniqueIndex(targetValues, callback.getUniqueFunction());
+        // Формируем дескриптор изменения
+        return doSynchronize(context, existed, newEssences, callback);
+    }
 
+    /**
+     * Выполняет синхронизацию существующих объектов с частью актуальных значений
+     *
+     * @param context контекст синхронизации
+     * @param existed существующие объекты
+     * @param newEssences актуальные значения, где ключ - уникальное значение объекта
+     * @param callback провайдер доступа к объектами
+     * @return Возвращает результат синхронизации
+     */
+    private <T extends Essence & Historical> HistoryBuilder<T> doSynchronize(TaskProgressHolder context, Collection<T> existed, Map<String, T> newEssences, SynchronizeCallback<T> callback) {
         // Получаем существующие значения
         Map<String, T> existedEssences = CollectionUtils.isEmpty(existed) ?
                 Collections.<String, T>emptyMap() :
@@ -281,23 +303,74 @@ public abstract class SynchronizationTaskPerformer<P extends SynchronizationPara
         ).getChangeSets();
         documentsHistory.metaFields.addChangeSets(metaFieldChangeSets);
 
-        // Для каждого МЕТА-полей выполняем синхронизацию его значений
+        // Формируем синхронизаторы значений полей существующих МЕТА-полей
+        Collection<String> existedMetaFieldIDs = Collections2.transform(existedMetaFields, ID_FUNCTION);
+        Map<String, FieldsSynchronizer> synchronizers = Maps.newLinkedHashMap();
         for (ChangeSet<MetaField> changeSet : metaFieldChangeSets.values()) {
             for (MetaField metaField : changeSet.getChanged()) {
-                // Получаем текущие значения полей
-                Collection<Field> existedFields = fieldService.findAllByRelativeId(metaField.getId(), null, false);
-                // Выполняем синхронизацию значений полей
-                documentsHistory.fields.addChangeSets(doSynchronize(
-                        context,
-                        existedFields,
-                        callback.getFields(metaField)
-                ).getChangeSets());
+                if (metaField.getId() != null && existedMetaFieldIDs.contains(metaField.getId())) {
+                    synchronizers.put(metaField.getId(), new FieldsSynchronizer(context, callback.getFields(metaField)));
+                } else {
+                    // У нового МЕТА-поля нет существующих значений
+                    documentsHistory.fields.addChangeSets(doSynchronize(
+                            context,
+                            Collections.<Field>emptyList(),
+                            callback.getFields(metaField)
+                    ).getChangeSets());
+                }
+            }
+        }
+        // Сравниваем существующие записи с актуальными значениями порциями
+        if (!synchronizers.isEmpty()) {
+            Map<String, List<Field>> batch = Maps.newHashMap();
+            int batchSize = 0;
+            try (ICloseableIterator<Record> records = recordService.iterateRecords(dictionary.getId(), new FilterCriteria(), SYNCHRONIZE_BATCH_SIZE)) {
+                while (records.hasNext()) {
+                    for (Field field : records.next().getFields().values()) {
+                        // Запись не содержит значения МЕТА-поля, которое для нее не задано
+                        if (field == null) {
+                            continue;
+                        }
+                        List<Field> fields = batch.get(field.getMetaFieldId());
+                        if (fields == null) {
+                            fields = Lists.newArrayList();
+                            batch.put(field.getMetaFieldId(), fields);
+                        }
+                        fields.add(field);
+                    }
+                    if (++batchSize == SYNCHRONIZE_BATCH_SIZE) {
+                        synchronizeBatch(documentsHistory, synchronizers, batch);
+                        batchSize = 0;
+                    }
+                }
+            }
+            synchronizeBatch(documentsHistory, synchronizers, batch);
+            // Оставшиеся актуальные значения не имеют существующих
+            for (FieldsSynchronizer synchronizer : synchronizers.values()) {
+                documentsHistory.fields.addChangeSets(synchronizer.synchronizeRemaining().getChangeSets());
             }
         }
         // Возвращаем модифицированный дескриптор изменений
         return documentsHistory;
     }
 
+    /**
+     * Выполняет синхронизацию порции существующих значений полей и очищает порцию
+     *
+     * @param documentsHistory дескриптор изменений документов
+     * @param synchronizers синхронизаторы значений полей, где ключ - идентификатор МЕТА-поля
+     * @param batch порция существующих значений полей, где ключ - идентификатор МЕТА-поля
+     */
+    private void synchronizeBatch(DocumentsHistory documentsHistory, Map<String, FieldsSynchronizer> synchronizers, Map<String, List<Field>> batch) {
+        for (Map.Entry<String, List<Field>> entry : batch.entrySet()) {
+            FieldsSynchronizer synchronizer = synchronizers.get(entry.getKey());
+            if (synchronizer != null) {
+                documentsHistory.fields.addChangeSets(synchronizer.synchronize(entry.getValue()).getChangeSets());
+            }
+        }
+        batch.clear();
+    }
+
     /**
      * Проверяет, что не существует групп, которые не относятся к ЦНСИ с таким же названием
      *
@@ -349,6 +422,54 @@ public abstract class SynchronizationTaskPerformer<P extends SynchronizationPara
         }
     }
 
+    /**
+     * Класс <class>FieldsSynchronizer</class> выполняет синхронизацию значений полей МЕТА-поля порциями существующих значений:
+     * каждая порция сравнивается только с актуальными значениями с теми же уникальными ключами,
+     * а актуальные значения, для которых не нашлось существующих, создаются после обхода всех порций
+     *
+     * @author Nazin Alexander
+     */
+    private class FieldsSynchronizer {
+
+        /** Контекст синхронизации */
+        private final TaskProgressHolder context;
+        /** Провайдер актуальных значений полей */
+        private final SynchronizeCallback<Field> callback;
+        /** Актуальные значения, не сопоставленные с существующими, где ключ - уникальное значение поля */
+        private final Map<String, Field> remaining;
+
+        private FieldsSynchronizer(TaskProgressHolder context, SynchronizeCallback<Field> callback) {
+            this.context = context;
+            this.callback = callback;
+            this.remaining = CollectionUtils.isEmpty(callback.getTarget()) ?
+                    Maps.<String, Field>newHashMap() :
+                    Maps.newHashMap(Maps.uniqueIndex(callback.getTarget(), callback.getUniqueFunction()));
+        }
+
+        /**
+         * @param existed порция существующих значений полей
+         * @return Возвращает результат синхронизации порции
+         */
+        private HistoryBuilder<Field> synchronize(Collection<Field> existed) {
+            Map<String, Field> newEssences = Maps.newHashMap();
+            for (Field field : existed) {
+                String key = callback.getUniqueFunction().apply(field);
+                Field newEssence = remaining.remove(key);
+                if (newEssence != null) {
+                    newEssences.put(key, newEssence);
+                }
+            }
+            return doSynchronize(context, existed, newEssences, callback);
+        }
+
+        /**
+         * @return Возвращает результат синхронизации актуальных значений, для которых не нашлось существующих
+         */
+        private HistoryBuilder<Field> synchronizeRemaining() {
+            return doSynchronize(context, Collections.<Field>emptyList(), remaining, callback);
+        }
+    }
+
     /**
      * Интерфейс <class>SynchronizeRecordCallback</class> декларирует методы для получения информации о синхронизируемых записях справочника
      *
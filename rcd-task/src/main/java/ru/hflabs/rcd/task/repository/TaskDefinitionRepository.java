@@ -22,14 +22,14 @@ import ru.hflabs.rcd.model.definition.ModelFieldDefinition;
 import ru.hflabs.rcd.model.task.TaskDefinition;
 import ru.hflabs.rcd.model.task.TaskDescriptor;
 import ru.hflabs.rcd.model.task.TaskParameterDefinition;
+import ru.hflabs.rcd.service.ICloseableIterator;
 import ru.hflabs.rcd.service.IServiceFactory;
 import ru.hflabs.rcd.service.ITaskDefinitionRepository;
-import ru.hflabs.util.core.collection.IteratorUtil;
+import ru.hflabs.rcd.service.ListPageIterator;
 import ru.hflabs.util.spring.Assert;
 import ru.hflabs.util.spring.util.ReflectionUtil;
 
 import java.lang.reflect.Field;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -79,8 +79,8 @@ public class TaskDefinitionRepository implements ITaskDefinitionRepository, Bean
     }
 
     @Override
-    public Iterator<List<TaskDefinition>> iterateAll(int fetchSize, int cacheSize) {
-        return IteratorUtil.toPageIterator(getAll().iterator(), fetchSize);
+    public ICloseableIterator<List<TaskDefinition>> iterateAll(int fetchSize, int cacheSize) {
+        return new ListPageIterator<>(getAll(), fetchSize);
     }
 
     @Override
@@ -7,6 +7,8 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 import ru.hflabs.rcd.Version;
+import ru.hflabs.rcd.model.rule.RecodeMetrics;
+import ru.hflabs.rcd.service.IRecodeMetricsService;
 import ru.hflabs.rcd.web.controller.document.DictionaryController;
 import ru.hflabs.rcd.web.controller.document.GroupController;
 import ru.hflabs.rcd.web.controller.document.MetaFieldController;
@@ -16,6 +18,8 @@ import ru.hflabs.rcd.web.controller.rule.RecodeRuleController;
 import ru.hflabs.rcd.web.controller.rule.RecodeRuleSetController;
 import ru.hflabs.rcd.web.controller.task.TaskController;
 
+import javax.annotation.Resource;
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -40,6 +44,10 @@ public class DashboardController extends ControllerTemplate {
     public static final String MAPPING_URI = "";
     public static final String VIEW_NAME = "dashboard";
 
+    /** Сервис сбора статистики перекодирования */
+    @Resource(name = "recodeMetricsService")
+    private IRecodeMetricsService recodeMetricsService;
+
     @RequestMapping({
             MAPPING_URI,
             DictionaryController.MAPPING_URI + "/{anyParameter}",
@@ -58,4 +66,16 @@ public class DashboardController extends ControllerTemplate {
                 Version.REVISION, Version.getRevision()
         );
     }
+
+    @RequestMapping(value = "/metrics/recode", method = RequestMethod.GET)
+    @ResponseBody
+    public Collection<RecodeMetrics> retrieveRecodeMetrics() {
+        return recodeMetricsService.retrieveMetrics();
+    }
+
+    @RequestMapping(value = "/metrics/recode", method = RequestMethod.DELETE)
+    @ResponseBody
+    public void resetRecodeMetrics() {
+        recodeMetricsService.reset();
+    }
 }
@@ -37,6 +37,7 @@ import ru.hflabs.rcd.service.IServiceFactory;
 import ru.hflabs.rcd.service.document.IDictionaryService;
 import ru.hflabs.rcd.service.document.IGroupService;
 import ru.hflabs.rcd.service.document.IMetaFieldService;
+import ru.hflabs.rcd.service.document.IRecordService;
 import ru.hflabs.rcd.web.controller.ControllerTemplate;
 import ru.hflabs.rcd.web.model.PageRequestBean;
 import ru.hflabs.rcd.web.model.PageResponseBean;
@@ -64,6 +65,7 @@ import static com.google.common.net.MediaType.HTML_UTF_8;
 import static java.net.URLDecoder.decode;
 import static java.net.URLEncoder.encode;
 import static ru.hflabs.rcd.accessor.Accessors.*;
+import static ru.hflabs.rcd.model.ModelUtils.ID_FUNCTION;
 import static ru.hflabs.rcd.service.ServiceUtils.extractSingleDocument;
 import static ru.hflabs.rcd.web.PagingUtils.findPageByCriteria;
 
@@ -87,6 +89,9 @@ public class DictionaryController extends ControllerTemplate {
     /** Сервис работы с МЕТА-полями справочника */
     @Resource(name = "metaFieldService")
     private IMetaFieldService metaFieldService;
+    /** Сервис работы с записями справочника */
+    @Resource(name = "recordService")
+    private IRecordService recordService;
     /** Сервис импорта справочников */
     @Resource(name = "importDictionaries")
     private ImportDictionaries importDictionaries;
@@ -164,6 +169,12 @@ public class DictionaryController extends ControllerTemplate {
                 Collection<DictionaryBean> result = Lists.newArrayList(
                         Collections2.transform(dictionaries.getResult(), DictionaryBean.CONVERT)
                 );
+                Map<String, Integer> recordsCount = recordService.countRecords(
+                        Collections2.transform(dictionaries.getResult(), ID_FUNCTION)
+                );
+                for (DictionaryBean bean : result) {
+                    bean.setRecordsCount(recordsCount.get(bean.getId()));
+                }
                 // Возвращаем результат фильтрации
                 return new FilterResult<>(result, dictionaries.getCountByFilter(), dictionaries.getTotalCount());
             }
@@ -173,9 +184,11 @@ public class DictionaryController extends ControllerTemplate {
     @RequestMapping(value = "/{id}", method = RequestMethod.GET)
     @ResponseBody
     public DictionaryBean getDictionary(@PathVariable String id) {
-        return DictionaryBean.CONVERT.apply(
+        DictionaryBean result = DictionaryBean.CONVERT.apply(
                 dictionaryService.findByID(id, true, false)
         );
+        result.setRecordsCount(recordService.countRecords(result.getId()));
+        return result;
     }
 
     @RequestMapping(value = "/", method = RequestMethod.POST)
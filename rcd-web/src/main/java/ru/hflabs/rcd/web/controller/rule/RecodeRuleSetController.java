@@ -1,20 +1,31 @@
 package ru.hflabs.rcd.web.controller.rule;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.google.common.net.HttpHeaders;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hflabs.rcd.Directories;
+import ru.hflabs.rcd.backend.console.preference.FilePreference;
+import ru.hflabs.rcd.backend.console.recode.handlers.RecodeFileCommand;
+import ru.hflabs.rcd.backend.console.recode.handlers.RecodeProcessorOverFile;
 import ru.hflabs.rcd.exception.constraint.IllegalPrimaryKeyException;
 import ru.hflabs.rcd.model.criteria.FilterCriteria;
 import ru.hflabs.rcd.model.criteria.FilterCriteriaValue;
 import ru.hflabs.rcd.model.definition.ModelDefinition;
 import ru.hflabs.rcd.model.document.MetaField;
 import ru.hflabs.rcd.model.rule.RecodeRuleSet;
+import ru.hflabs.rcd.service.IManagerService;
 import ru.hflabs.rcd.service.document.IFieldService;
 import ru.hflabs.rcd.service.document.IMetaFieldService;
 import ru.hflabs.rcd.service.rule.IRecodeRuleSetService;
@@ -24,12 +35,21 @@ import ru.hflabs.rcd.web.model.rule.RecodeRuleSetRequestBean;
 import ru.hflabs.rcd.web.model.rule.RecodeRuleSetResponseBean;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.*;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static ru.hflabs.rcd.accessor.Accessors.*;
 import static ru.hflabs.rcd.model.ModelUtils.ID_FUNCTION;
 import static ru.hflabs.rcd.model.change.Predicates.*;
+import static ru.hflabs.util.io.IOUtils.closeQuietly;
 
 /**
  * Класс <class>RecodeRuleSetController</class> реализует контроллер управления наборами правил перекодирования
@@ -51,6 +71,9 @@ public class RecodeRuleSetController extends ControllerTemplate {
     /** Сервис работы с наборами правил перекодирования */
     @Resource(name = "recodeRuleSetService")
     private IRecodeRuleSetService recodeRuleSetService;
+    /** Сервис управления документами */
+    @Resource(name = "documentManagerService")
+    private IManagerService managerService;
 
     @RequestMapping(value = "/model", method = RequestMethod.GET)
     @ResponseBody
@@ -195,4 +218,64 @@ public class RecodeRuleSetController extends ControllerTemplate {
     public void closeRecodeRuleSet(@PathVariable String id) {
         recodeRuleSetService.closeByIDs(Sets.newHashSet(id));
     }
+
+    /**
+     * Выполняет потоковое перекодирование загруженного CSV файла.<br/>
+     * Ответ содержит ZIP архив из перекодированного файла и файла ненайденных значений,
+     * при этом перекодированный файл передается клиенту по мере обработки
+     */
+    @RequestMapping(value = "/recode/{id}", method = RequestMethod.POST)
+    public void recodeFile(
+            @PathVariable String id,
+            @RequestParam("column") List<String> columns,
+            @RequestParam(value = FilePreference.ENCODING, required = false) String encoding,
+            @RequestParam(value = FilePreference.DELIMITER, required = false) Character delimiter,
+            @RequestParam(value = FilePreference.QUOTE, required = false) Character quote,
+            @RequestPart MultipartFile file,
+            HttpServletResponse response) throws Throwable {
+        RecodeRuleSet ruleSet = recodeRuleSetService.findByID(id, false, false);
+        // Формируем параметры перекодирования
+        RecodeFileCommand command = new RecodeFileCommand();
+        command.setRuleSetName(ruleSet.getName());
+        command.setColumns(columns);
+        if (StringUtils.hasText(encoding)) {
+            command.setEncoding(encoding);
+        }
+        if (delimiter != null) {
+            command.setDelimiter(delimiter);
+        }
+        if (quote != null) {
+            command.setQuote(quote);
+        }
+        final Charset charset = Charset.forName(command.getEncoding());
+        final String baseName = FilenameUtils.getBaseName(file.getOriginalFilename());
+        // Ненайденные значения накапливаются во временном файле, так как передаются после перекодированного файла
+        final File unmatchedFile = File.createTempFile(baseName + "_" + System.nanoTime() + "_", ".csv", Directories.TMP_FOLDER.getLocation());
+        try {
+            String fileName = URLDecoder.decode(URLEncoder.encode(baseName, Charsets.UTF_8.name()), Charsets.ISO_8859_1.name());
+            response.setContentType("application/zip");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=\"%s.zip\"", fileName));
+
+            ZipOutputStream zip = new ZipOutputStream(response.getOutputStream());
+            zip.putNextEntry(new ZipEntry(baseName + ".csv"));
+            Writer target = new BufferedWriter(new OutputStreamWriter(zip, charset));
+            Reader source = new BufferedReader(new InputStreamReader(file.getInputStream(), charset));
+            Writer unmatched = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(unmatchedFile), charset));
+            try {
+                RecodeProcessorOverFile.recode(command, managerService, source, target, unmatched);
+            } finally {
+                closeQuietly(source);
+                closeQuietly(unmatched);
+            }
+            target.flush();
+            zip.closeEntry();
+            // Передаем ненайденные значения
+            zip.putNextEntry(new ZipEntry(baseName + "_unmatched.csv"));
+            Files.copy(unmatchedFile, zip);
+            zip.closeEntry();
+            zip.finish();
+        } finally {
+            FileUtils.deleteQuietly(unmatchedFile);
+        }
+    }
 }
@@ -32,6 +32,8 @@ public class DictionaryBean implements Serializable {
 
     /** Справочник */
     private Dictionary delegate;
+    /** Количество записей справочника или <code>NULL</code>, если оно не вычислялось */
+    private Integer recordsCount;
 
     public DictionaryBean() {
         this(new Dictionary());
@@ -102,6 +104,14 @@ public class DictionaryBean implements Serializable {
         delegate.setVersion(version);
     }
 
+    public Integer getRecordsCount() {
+        return recordsCount;
+    }
+
+    public void setRecordsCount(Integer recordsCount) {
+        this.recordsCount = recordsCount;
+    }
+
     public boolean isWritable() {
         return hasPermission(GROUP_TO_DICTIONARY_INJECTOR.apply(delegate), Permissioned.PERMISSION_WRITE);
     }